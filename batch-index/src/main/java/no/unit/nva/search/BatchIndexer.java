@@ -1,12 +1,19 @@
 package no.unit.nva.search;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static no.unit.nva.search.BatchIndexingConstants.MAX_FETCHED_BYTES;
+import static no.unit.nva.search.BatchIndexingConstants.REFRESH_POLICY;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import no.unit.nva.identifiers.SortableIdentifier;
 import no.unit.nva.s3.ListingResult;
-import no.unit.nva.s3.S3Driver;
+import no.unit.nva.search.bulk.BulkFailureClass;
 import no.unit.nva.search.models.IndexDocument;
 import nva.commons.core.paths.UnixPath;
 import org.elasticsearch.action.bulk.BulkItemResponse;
@@ -18,39 +25,143 @@ import software.amazon.awssdk.services.s3.S3Client;
 
 public class BatchIndexer implements IndexingResult<SortableIdentifier> {
 
+    public static final int NO_PIPELINE = 0;
+    public static final String BULK_STATISTICS_LOG_MESSAGE = "Bulk statistics: {}";
+    public static final String FAILED_WRITE_LOG_MESSAGE = "Failed to index resource:{} {}";
     private static final Logger logger = LoggerFactory.getLogger(BatchIndexer.class);
     private final ImportDataRequestEvent importDataRequest;
-    private final S3Driver s3Driver;
+    private final S3Client s3Client;
     private final IndexingClient elasticSearchRestClient;
     private IndexingResultRecord<SortableIdentifier> processingResult;
-    private final int numberOfFilesPerEvent;
+    private final PageLister pageLister;
+    private final TimeBudget timeBudget;
+    private final int fetchConcurrency;
+    private final int pipelineCapacity;
+    private final long maxBufferedBytes;
+    private final CheckpointStore checkpointStore;
+    private final DeadLetterStore deadLetterStore;
 
+    /**
+     * Creates an indexer for one page of files.
+     *
+     * @param importDataRequestEvent  the location and starting point of the page
+     * @param s3Client                the client used to download the files
+     * @param elasticSearchRestClient the client used to index the documents
+     * @param pageLister              the lister of the pages of the import, which lists the next page while this
+     *                                page is indexed
+     * @param timeBudget              the time budget of the invocation, which tells whether the next page is going
+     *                                to be indexed in the same invocation
+     * @param fetchConcurrency        the number of files downloaded in parallel
+     * @param pipelineCapacity        the number of downloaded documents that may wait to be indexed, or
+     *                                {@value NO_PIPELINE} to download the documents only as they are indexed
+     * @param maxBufferedBytes        the maximum size of the downloaded documents that wait to be indexed
+     * @param checkpointStore         the store where the progress is recorded after every bulk
+     * @param deadLetterStore         the store where the documents that failed to be indexed are recorded
+     */
     public BatchIndexer(ImportDataRequestEvent importDataRequestEvent,
                         S3Client s3Client,
                         IndexingClient elasticSearchRestClient,
-                        int numberOfFilesPerEvent) {
+                        PageLister pageLister,
+                        TimeBudget timeBudget,
+                        int fetchConcurrency,
+                        int pipelineCapacity,
+                        long maxBufferedBytes,
+                        CheckpointStore checkpointStore,
+                        DeadLetterStore deadLetterStore) {
         this.importDataRequest = importDataRequestEvent;
         this.elasticSearchRestClient = elasticSearchRestClient;
-        this.s3Driver = new S3Driver(s3Client, importDataRequestEvent.getBucket());
-        this.numberOfFilesPerEvent = numberOfFilesPerEvent;
+        this.s3Client = s3Client;
+        this.pageLister = pageLister;
+        this.timeBudget = timeBudget;
+        this.fetchConcurrency = fetchConcurrency;
+        this.pipelineCapacity = pipelineCapacity;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.checkpointStore = checkpointStore;
+        this.deadLetterStore = deadLetterStore;
     }
 
+    // The next page is listed in the background as soon as this page is listed, so that the listing round trip
+    // overlaps with indexing this page instead of adding to it. When this is the last page of the invocation, the next
+    // page is listed by the next invocation, so it is not prefetched.
     public IndexingResult<SortableIdentifier> processRequest() {
-        ListingResult listFilesResult = fetchNextPageOfFilenames();
-        List<IndexDocument> contents = fileContents(listFilesResult.getFiles()).collect(Collectors.toList());
-        List<SortableIdentifier> failedResults = indexFileContents(contents);
+        ListingResult listFilesResult = pageLister.list(importDataRequest);
+        List<UnixPath> files = filesWithinRange(listFilesResult.getFiles());
+        boolean truncated = listFilesResult.isTruncated() && !isEndOfRangeReached(listFilesResult, files);
+        if (truncated && !timeBudget.isLastPage()) {
+            pageLister.prefetch(importDataRequest.nextPage(listFilesResult.getListingStartingPoint()));
+        }
+        List<Failure> failures = indexFiles(files);
         this.processingResult = new IndexingResultRecord<>(
-            failedResults,
+            failedIdentifiers(failures),
             listFilesResult.getListingStartingPoint(),
-            listFilesResult.isTruncated()
+            truncated,
+            countFailuresByClass(failures)
         );
 
         return this;
     }
 
-    private Stream<IndexDocument> fileContents(List<UnixPath> files) {
-        return files.stream().map(s3Driver::getFile)
-            .map(IndexDocument::fromJsonString);
+    // Files are streamed through the indexer: each document is parsed when the indexer needs the next document and
+    // is released once its bulk has been sent, so memory does not grow with the page size. The downloads that run
+    // ahead, the pipeline, the coalescing window of the client and the bulks in flight are each bounded by bytes, and
+    // together make up the memory held by a page. In the pipelined mode the files are downloaded while the documents
+    // that were already downloaded are being indexed, so that the page takes about as long as the slower of the two
+    // instead of their sum.
+    private List<Failure> indexFiles(List<UnixPath> files) {
+        CheckpointRecorder checkpoints = new CheckpointRecorder(checkpointStore, importDataRequest);
+        List<Failure> failures;
+        try (ParallelObjectFetcher fetcher =
+                 new ParallelObjectFetcher(s3Client, importDataRequest.getBucket(), fetchConcurrency,
+                                           MAX_FETCHED_BYTES)) {
+            Stream<StoredDocument> contents = fetcher.fetch(files);
+            if (pipelineCapacity > NO_PIPELINE) {
+                try (BoundedQueuePipeline<StoredDocument> pipeline =
+                         new BoundedQueuePipeline<>(contents, pipelineCapacity, maxBufferedBytes,
+                                                    content -> content.getContent().length)) {
+                    failures = indexFileContents(readDocuments(pipeline.stream(), checkpoints), checkpoints);
+                }
+            } else {
+                failures = indexFileContents(readDocuments(contents, checkpoints), checkpoints);
+            }
+        }
+        recordDeadLetters(failures, checkpoints);
+        checkpoints.pageCompleted(files.isEmpty() ? null : files.get(files.size() - 1));
+        return failures;
+    }
+
+    // The dead letters are written before the checkpoint moves past the page, so that a failure is never lost.
+    private void recordDeadLetters(List<Failure> failures, CheckpointRecorder checkpoints) {
+        List<DeadLetter> deadLetters = failures.stream()
+            .filter(BatchIndexer::isFailedWrite)
+            .map(failure -> new DeadLetter(importDataRequest.getBucket(),
+                                           checkpoints.keyOf(failure.getId()).map(UnixPath::toString).orElse(null),
+                                           failure.getId(),
+                                           failure.getIndex(),
+                                           BulkFailureClass.classify(failure),
+                                           DeadLetter.FIRST_ATTEMPT))
+            .collect(Collectors.toList());
+        if (!deadLetters.isEmpty()) {
+            deadLetterStore.write(deadLetters);
+        }
+    }
+
+    private Stream<IndexDocument> readDocuments(Stream<StoredDocument> contents, CheckpointRecorder checkpoints) {
+        return contents.map(content -> readDocument(content, checkpoints));
+    }
+
+    private IndexDocument readDocument(StoredDocument content, CheckpointRecorder checkpoints) {
+        IndexDocument document = content.decode();
+        checkpoints.documentRead(content.getKey(), document);
+        return toTargetIndex(document);
+    }
+
+    // While a new generation of an index is being built, the documents meant for its alias are written to the
+    // generation instead of to the generation that serves searches.
+    private IndexDocument toTargetIndex(IndexDocument document) {
+        String targetIndex = importDataRequest.getTargetIndex();
+        return nonNull(targetIndex) && document.getIndexName().equals(IndexGenerations.aliasOf(targetIndex))
+                   ? document.inIndex(targetIndex)
+                   : document;
     }
 
     @Override
@@ -68,32 +179,78 @@ public class BatchIndexer implements IndexingResult<SortableIdentifier> {
         return this.processingResult.isTruncated();
     }
 
-    private ListingResult fetchNextPageOfFilenames() {
-        return s3Driver.listFiles(UnixPath.of(importDataRequest.getS3Path()),
-                                  importDataRequest.getStartMarker(),
-                                  numberOfFilesPerEvent);
+    @Override
+    public Map<BulkFailureClass, Long> getFailureCounts() {
+        return this.processingResult.getFailureCounts();
     }
 
-    private List<SortableIdentifier> indexFileContents(List<IndexDocument> contents) {
+    // The files of a shard end at the end marker of the request, which is the last key of the shard.
+    private List<UnixPath> filesWithinRange(List<UnixPath> listedFiles) {
+        String endMarker = importDataRequest.getEndMarker();
+        if (isNull(endMarker)) {
+            return listedFiles;
+        }
+        return listedFiles.stream()
+            .filter(file -> file.toString().compareTo(endMarker) <= 0)
+            .collect(Collectors.toList());
+    }
 
-        Stream<BulkResponse> result = elasticSearchRestClient.batchInsert(contents.stream());
-        List<SortableIdentifier> failures = collectFailures(result).collect(Collectors.toList());
-        failures.forEach(this::logFailure);
+    // In an incremental import the listed page may hold no modified file at or after the end marker, so the last
+    // listed key is compared with the end marker as well.
+    private boolean isEndOfRangeReached(ListingResult listing, List<UnixPath> filesWithinRange) {
+        List<UnixPath> listedFiles = listing.getFiles();
+        String endMarker = importDataRequest.getEndMarker();
+        return filesWithinRange.size() < listedFiles.size()
+               || !filesWithinRange.isEmpty()
+                  && filesWithinRange.get(filesWithinRange.size() - 1).toString().equals(endMarker)
+               || nonNull(endMarker)
+                  && nonNull(listing.getListingStartingPoint())
+                  && listing.getListingStartingPoint().compareTo(endMarker) >= 0;
+    }
+
+    private List<Failure> indexFileContents(Stream<IndexDocument> contents, CheckpointRecorder checkpoints) {
+        List<Failure> failures = new ArrayList<>();
+        elasticSearchRestClient.batchInsert(contents, REFRESH_POLICY).forEach(response -> {
+            List<Failure> bulkFailures = collectFailures(response).collect(Collectors.toList());
+            failures.addAll(bulkFailures);
+            checkpoints.bulkCompleted(response, failedIdentifiers(bulkFailures));
+        });
+        failures.stream().filter(BatchIndexer::isFailedWrite).forEach(this::logFailure);
+        logger.info(BULK_STATISTICS_LOG_MESSAGE, elasticSearchRestClient.getStatistics());
         return failures;
     }
 
-    private <T> void logFailure(T failureMessage) {
-        logger.warn("Failed to index resource:" + failureMessage.toString());
+    private void logFailure(Failure failure) {
+        logger.warn(FAILED_WRITE_LOG_MESSAGE, failure.getId(), BulkFailureClass.classify(failure));
     }
 
-    private Stream<SortableIdentifier> collectFailures(Stream<BulkResponse> indexActions) {
-        return indexActions
-            .filter(BulkResponse::hasFailures)
-            .map(BulkResponse::getItems)
-            .flatMap(Arrays::stream)
-            .filter(BulkItemResponse::isFailed)
-            .map(BulkItemResponse::getFailure)
+    // A version conflict means that the index already holds a newer version of the document, so the write was
+    // stale rather than failed. Such writes are only counted.
+    static boolean isFailedWrite(Failure failure) {
+        return BulkFailureClass.classify(failure) != BulkFailureClass.VERSION_CONFLICT;
+    }
+
+    private static List<SortableIdentifier> failedIdentifiers(List<Failure> failures) {
+        return failures.stream()
+            .filter(BatchIndexer::isFailedWrite)
             .map(Failure::getId)
-            .map(SortableIdentifier::new);
+            .map(SortableIdentifier::new)
+            .collect(Collectors.toList());
+    }
+
+    private static Map<BulkFailureClass, Long> countFailuresByClass(List<Failure> failures) {
+        return failures.stream()
+            .collect(Collectors.groupingBy(BulkFailureClass::classify,
+                                           () -> new EnumMap<>(BulkFailureClass.class),
+                                           Collectors.counting()));
+    }
+
+    static Stream<Failure> collectFailures(BulkResponse response) {
+        if (!response.hasFailures()) {
+            return Stream.empty();
+        }
+        return Arrays.stream(response.getItems())
+            .filter(BulkItemResponse::isFailed)
+            .map(BulkItemResponse::getFailure);
     }
 }
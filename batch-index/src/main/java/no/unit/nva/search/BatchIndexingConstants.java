@@ -2,8 +2,10 @@ package no.unit.nva.search;
 
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import java.util.concurrent.TimeUnit;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
@@ -16,8 +18,20 @@ public final class BatchIndexingConstants {
     public static final String AWS_REGION_ENV_VARIABLE = "AWS_REGION";
     private static final Config config = ConfigFactory.load();
     public  static final int NUMBER_OF_FILES_PER_EVENT = config.getInt("batch.index.number_of_files_per_event");
+    public static final int FETCH_CONCURRENCY = config.getInt("batch.index.fetch_concurrency");
+    public static final int PIPELINE_CAPACITY = config.getInt("batch.index.pipeline_capacity");
+    public static final long MAX_BUFFERED_BYTES = config.getBytes("batch.index.max_buffered_bytes");
+    public static final long MAX_FETCHED_BYTES = config.getBytes("batch.index.max_fetched_bytes");
+    public static final long MINIMUM_TIME_MARGIN_MILLIS =
+        config.getDuration("batch.index.minimum_time_margin", TimeUnit.MILLISECONDS);
+    public static final String STATE_BUCKET = config.getString("batch.index.state_bucket");
+    public static final int MAX_REPLAY_ATTEMPTS = config.getInt("batch.index.max_replay_attempts");
+    public static final int RETAINED_GENERATIONS = config.getInt("batch.index.retained_generations");
+    public static final int SERVING_REPLICAS = config.getInt("batch.index.serving_replicas");
     public static final boolean RECURSION_ENABLED = config.getBoolean("batch.index.recursion");
     public static final String BATCH_INDEX_EVENT_BUS_NAME = config.getString("batch.index.eventbusname");
+    public static final RefreshPolicy REFRESH_POLICY =
+        RefreshPolicy.valueOf(config.getString("batch.index.refresh_policy"));
 
     private BatchIndexingConstants() {
     }
@@ -34,6 +48,39 @@ public final class BatchIndexingConstants {
         return new IndexingClient();
     }
 
+    /**
+     * Returns the store of the checkpoints of batch imports. Checkpoints are kept in the state bucket, and are not
+     * recorded when no state bucket is configured.
+     *
+     * @param s3Client the client used to access the state bucket
+     * @return the checkpoint store
+     */
+    public static CheckpointStore defaultCheckpointStore(S3Client s3Client) {
+        return STATE_BUCKET.isBlank() ? new NoCheckpointStore() : new S3CheckpointStore(s3Client, STATE_BUCKET);
+    }
+
+    /**
+     * Returns the store of the documents that failed to be indexed. Dead letters are kept in the state bucket, and
+     * are not recorded when no state bucket is configured.
+     *
+     * @param s3Client the client used to access the state bucket
+     * @return the dead letter store
+     */
+    public static DeadLetterStore defaultDeadLetterStore(S3Client s3Client) {
+        return STATE_BUCKET.isBlank() ? new NoDeadLetterStore() : new S3DeadLetterStore(s3Client, STATE_BUCKET);
+    }
+
+    /**
+     * Returns the store of the times of the latest syncs. High-water marks are kept in the state bucket, and are not
+     * recorded when no state bucket is configured.
+     *
+     * @param s3Client the client used to access the state bucket
+     * @return the high-water mark store
+     */
+    public static HighWaterMarkStore defaultHighWaterMarkStore(S3Client s3Client) {
+        return STATE_BUCKET.isBlank() ? new NoHighWaterMarkStore() : new S3HighWaterMarkStore(s3Client, STATE_BUCKET);
+    }
+
     @JacocoGenerated
     public static S3Client defaultS3Client() {
         String awsRegion = ENVIRONMENT.readEnvOpt(AWS_REGION_ENV_VARIABLE).orElse(Region.EU_WEST_1.toString());
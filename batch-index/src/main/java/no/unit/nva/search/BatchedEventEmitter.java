@@ -0,0 +1,122 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.nonNull;
+import com.amazonaws.services.lambda.runtime.Context;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import no.unit.nva.search.bulk.BulkThrottle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+/**
+ * Emits import events to the batch index event bus in requests of up to {@value MAX_ENTRIES_PER_REQUEST} entries,
+ * the most that a PutEvents request may hold. EventBridge accepts or rejects every entry of a request on its own, so
+ * when a response reports failed entries, only those entries are sent again, with a backoff, until they are accepted
+ * or the maximum number of attempts is reached.
+ */
+public class BatchedEventEmitter {
+
+    public static final int MAX_ENTRIES_PER_REQUEST = 10;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long INITIAL_BACKOFF_MILLIS = 100;
+    public static final String RETRY_LOG_MESSAGE = "Emitting {} failed events again after attempt {}";
+    public static final String EMITTED_LOG_MESSAGE = "Emitted {} events in {} requests, {} failed";
+    public static final String FAILED_EVENTS_MESSAGE = "Could not emit %d of %d events: %s";
+    private static final Logger logger = LoggerFactory.getLogger(BatchedEventEmitter.class);
+    private final EventBridgeClient eventBridgeClient;
+    private final int maxAttempts;
+    private final LongConsumer sleeper;
+
+    public BatchedEventEmitter(EventBridgeClient eventBridgeClient) {
+        this(eventBridgeClient, DEFAULT_MAX_ATTEMPTS, BulkThrottle::sleepMillis);
+    }
+
+    public BatchedEventEmitter(EventBridgeClient eventBridgeClient, int maxAttempts, LongConsumer sleeper) {
+        this.eventBridgeClient = eventBridgeClient;
+        this.maxAttempts = maxAttempts;
+        this.sleeper = sleeper;
+    }
+
+    public static boolean isFailed(PutEventsResultEntry result) {
+        return nonNull(result.errorCode());
+    }
+
+    /**
+     * Emits the events, retrying the entries that fail.
+     *
+     * @param events  the events to emit
+     * @param context the context of the emitting function
+     * @return one result per event, in the order of the events, holding the event id when the event was accepted
+     *     and the error of the last attempt when it was not
+     */
+    public List<PutEventsResultEntry> emit(List<ImportDataRequestEvent> events, Context context) {
+        List<PutEventsRequestEntry> entries = events.stream()
+            .map(event -> EmitEventUtils.eventEntry(event, context))
+            .collect(Collectors.toList());
+        PutEventsResultEntry[] results = new PutEventsResultEntry[entries.size()];
+        List<Integer> pending = IntStream.range(0, entries.size()).boxed().collect(Collectors.toList());
+        int requests = 0;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            requests += (pending.size() + MAX_ENTRIES_PER_REQUEST - 1) / MAX_ENTRIES_PER_REQUEST;
+            pending = send(entries, pending, results);
+            if (pending.isEmpty() || attempt >= maxAttempts) {
+                break;
+            }
+            logger.warn(RETRY_LOG_MESSAGE, pending.size(), attempt);
+            sleeper.accept(INITIAL_BACKOFF_MILLIS << (attempt - 1));
+        }
+        logger.info(EMITTED_LOG_MESSAGE, entries.size(), requests, pending.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Emits the events as {@link #emit(List, Context)} does, and fails when any event could not be emitted, so that
+     * a fan-out never loses part of its events without notice.
+     *
+     * @param events  the events to emit
+     * @param context the context of the emitting function
+     * @throws IllegalStateException when some events were not accepted after the last attempt
+     */
+    public void emitAll(List<ImportDataRequestEvent> events, Context context) {
+        List<PutEventsResultEntry> failed = emit(events, context).stream()
+            .filter(BatchedEventEmitter::isFailed)
+            .collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(String.format(FAILED_EVENTS_MESSAGE, failed.size(), events.size(),
+                                                          failed.get(0).errorMessage()));
+        }
+    }
+
+    // Sends the entries at the given positions and returns the positions of the entries that failed.
+    private List<Integer> send(List<PutEventsRequestEntry> entries, List<Integer> positions,
+                               PutEventsResultEntry[] results) {
+        List<Integer> failed = new ArrayList<>();
+        for (int from = 0; from < positions.size(); from += MAX_ENTRIES_PER_REQUEST) {
+            List<Integer> batch = positions.subList(from, Math.min(from + MAX_ENTRIES_PER_REQUEST, positions.size()));
+            PutEventsRequest request = PutEventsRequest.builder()
+                .entries(batch.stream().map(entries::get).collect(Collectors.toList()))
+                .build();
+            PutEventsResponse response = eventBridgeClient.putEvents(request);
+            boolean anyFailed = nonNull(response.failedEntryCount()) && response.failedEntryCount() > 0;
+            for (int i = 0; i < batch.size(); i++) {
+                PutEventsResultEntry result = i < response.entries().size()
+                                                  ? response.entries().get(i)
+                                                  : PutEventsResultEntry.builder().build();
+                results[batch.get(i)] = result;
+                if (anyFailed && isFailed(result)) {
+                    failed.add(batch.get(i));
+                }
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,199 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decouples a producing stream from its consumer. A dedicated thread drains the source stream into a bounded queue,
+ * while the consumer takes elements from the queue, so that both sides work at the same time and the queue capacity
+ * bounds the number of elements held in memory. The producer blocks when the queue is full, or when adding the next
+ * element would take the total weight of the queued elements over the byte ceiling. An element heavier than the
+ * ceiling is let through alone, so that the pipeline cannot stall.
+ *
+ * <p>The elements are consumed in the order of the source. A failure of the source is rethrown to the consumer
+ * after the elements that were produced before it, whether it is an exception or an error, so that the consumer is
+ * never left waiting for an element that will not come. Closing the pipeline stops the producer.
+ *
+ * @param <T> the type of the elements
+ */
+public class BoundedQueuePipeline<T> implements AutoCloseable {
+
+    public static final String THREAD_NAME_FORMAT = "pipeline-producer-%d";
+    public static final long NO_BYTE_CEILING = Long.MAX_VALUE;
+    public static final String PRODUCER_ABORTED_MESSAGE = "The producer stopped before the end of the source";
+    private final BlockingQueue<Element<T>> queue;
+    private final ExecutorService producer;
+    private final ToLongFunction<T> weigher;
+    private final long maxBufferedBytes;
+    private final Object bufferLock = new Object();
+    private long bufferedBytes;
+
+    public BoundedQueuePipeline(Stream<T> source, int capacity) {
+        this(source, capacity, NO_BYTE_CEILING, element -> 0);
+    }
+
+    /**
+     * Starts producing the elements of the source.
+     *
+     * @param source           the elements to produce
+     * @param capacity         the maximum number of queued elements
+     * @param maxBufferedBytes the maximum total weight of the queued elements
+     * @param weigher          the size in bytes of an element
+     */
+    public BoundedQueuePipeline(Stream<T> source, int capacity, long maxBufferedBytes, ToLongFunction<T> weigher) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.weigher = weigher;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.producer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat(THREAD_NAME_FORMAT)
+            .setDaemon(true)
+            .build());
+        this.producer.execute(() -> produce(source));
+    }
+
+    /**
+     * Returns the elements of the source. The stream can be consumed once.
+     *
+     * @return the elements, in the order of the source
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new QueueIterator(), Spliterator.ORDERED),
+                                    false);
+    }
+
+    @Override
+    public void close() {
+        producer.shutdownNow();
+    }
+
+    private void produce(Stream<T> source) {
+        Element<T> last = Element.failure(new IllegalStateException(PRODUCER_ABORTED_MESSAGE));
+        try {
+            source.forEachOrdered(this::putValue);
+            last = Element.end();
+        } catch (RuntimeException | Error failure) {
+            last = Element.failure(failure);
+        } finally {
+            if (!producer.isShutdown()) {
+                put(last);
+            }
+        }
+    }
+
+    private void putValue(T value) {
+        long weight = weigher.applyAsLong(value);
+        try {
+            reserve(weight);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+        put(Element.of(value, weight));
+    }
+
+    private void put(Element<T> element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    private Element<T> take() {
+        Element<T> element;
+        try {
+            element = queue.take();
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(interrupted);
+        }
+        release(element.weight);
+        return element;
+    }
+
+    private void reserve(long weight) throws InterruptedException {
+        synchronized (bufferLock) {
+            while (bufferedBytes > 0 && bufferedBytes + weight > maxBufferedBytes) {
+                bufferLock.wait();
+            }
+            bufferedBytes += weight;
+        }
+    }
+
+    private void release(long weight) {
+        synchronized (bufferLock) {
+            bufferedBytes -= weight;
+            bufferLock.notifyAll();
+        }
+    }
+
+    private static final class Element<T> {
+
+        private final T value;
+        private final long weight;
+        private final Throwable failure;
+        private final boolean last;
+
+        private Element(T value, long weight, Throwable failure, boolean last) {
+            this.value = value;
+            this.weight = weight;
+            this.failure = failure;
+            this.last = last;
+        }
+
+        static <T> Element<T> of(T value, long weight) {
+            return new Element<>(value, weight, null, false);
+        }
+
+        static <T> Element<T> failure(Throwable failure) {
+            return new Element<>(null, 0, failure, true);
+        }
+
+        static <T> Element<T> end() {
+            return new Element<>(null, 0, null, true);
+        }
+    }
+
+    private class QueueIterator implements Iterator<T> {
+
+        private Element<T> next;
+
+        @Override
+        public boolean hasNext() {
+            if (isNull(next)) {
+                next = take();
+            }
+            if (next.failure instanceof Error) {
+                throw (Error) next.failure;
+            }
+            if (nonNull(next.failure)) {
+                throw (RuntimeException) next.failure;
+            }
+            return !next.last;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next.value;
+            next = null;
+            return value;
+        }
+    }
+}
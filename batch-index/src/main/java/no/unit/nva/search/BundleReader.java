@@ -0,0 +1,194 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import nva.commons.core.paths.UnixPath;
+
+/**
+ * Reads the documents of an S3 object. The format is detected per object, so that single documents and bundles can
+ * be mixed under the same prefix:
+ *
+ * <ul>
+ *     <li>an object whose key ends with {@code .ndjson} or {@code .jsonl}, optionally followed by {@code .gz}, is
+ *     a bundle of newline-delimited envelopes, and all other objects hold a single envelope;</li>
+ *     <li>an object that starts with the gzip magic bytes is decompressed, whatever its key.</li>
+ * </ul>
+ *
+ * <p>A bundle is decoded as a stream: the envelopes are read one at a time as they are consumed, so that only the
+ * current envelope and a small read buffer are held in memory.
+ */
+public final class BundleReader {
+
+    public static final List<String> BUNDLE_SUFFIXES = List.of(".ndjson", ".jsonl");
+    public static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+    private static final int GZIP_MAGIC_LENGTH = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private BundleReader() {
+    }
+
+    public static boolean isBundle(UnixPath key) {
+        String name = key.toString();
+        String uncompressedName = name.endsWith(GZIP_SUFFIX)
+                                      ? name.substring(0, name.length() - GZIP_SUFFIX.length())
+                                      : name;
+        return BUNDLE_SUFFIXES.stream().anyMatch(uncompressedName::endsWith);
+    }
+
+    /**
+     * Returns the content of a single-document object, decompressed when it is gzipped.
+     *
+     * @param content the downloaded object
+     * @return the envelope
+     */
+    public static byte[] singleDocument(byte[] content) {
+        if (!isGzipped(content)) {
+            return content;
+        }
+        try (InputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return decompressed.readAllBytes();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Streams the envelopes of a bundle, one per non-blank line. The content is closed when the stream is closed.
+     *
+     * @param content the bundle, possibly gzipped
+     * @return the envelopes, in the order of the bundle
+     */
+    public static Stream<byte[]> bundleDocuments(InputStream content) {
+        InputStream input = decompressIfGzipped(content);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new LineIterator(input),
+                                                                        Spliterator.ORDERED), false)
+            .onClose(() -> close(input));
+    }
+
+    private static boolean isGzipped(byte[] content) {
+        return content.length >= GZIP_MAGIC_LENGTH
+               && Byte.toUnsignedInt(content[0]) == GZIP_MAGIC_FIRST
+               && Byte.toUnsignedInt(content[1]) == GZIP_MAGIC_SECOND;
+    }
+
+    private static InputStream decompressIfGzipped(InputStream content) {
+        try {
+            BufferedInputStream buffered = new BufferedInputStream(content, BUFFER_SIZE);
+            buffered.mark(GZIP_MAGIC_LENGTH);
+            boolean gzipped = buffered.read() == GZIP_MAGIC_FIRST && buffered.read() == GZIP_MAGIC_SECOND;
+            buffered.reset();
+            return gzipped ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void close(InputStream input) {
+        try {
+            input.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static class LineIterator implements Iterator<byte[]> {
+
+        private final InputStream input;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private int position;
+        private int limit;
+        private byte[] next;
+
+        LineIterator(InputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (isNull(next)) {
+                byte[] candidate = readLine();
+                if (isNull(candidate)) {
+                    return false;
+                }
+                if (!isBlank(candidate)) {
+                    next = candidate;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] current = next;
+            next = null;
+            return current;
+        }
+
+        // Returns the next line without its terminator, or null at the end of the input.
+        private byte[] readLine() {
+            line.reset();
+            while (fillBuffer()) {
+                int start = position;
+                while (position < limit && buffer[position] != NEWLINE) {
+                    position++;
+                }
+                line.write(buffer, start, position - start);
+                if (position < limit) {
+                    position++;
+                    return trimCarriageReturn(line.toByteArray());
+                }
+            }
+            return line.size() > 0 ? trimCarriageReturn(line.toByteArray()) : null;
+        }
+
+        private boolean fillBuffer() {
+            if (position < limit) {
+                return true;
+            }
+            try {
+                limit = input.read(buffer);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            position = 0;
+            return limit > 0;
+        }
+
+        private static byte[] trimCarriageReturn(byte[] bytes) {
+            return bytes.length > 0 && bytes[bytes.length - 1] == CARRIAGE_RETURN
+                       ? Arrays.copyOf(bytes, bytes.length - 1)
+                       : bytes;
+        }
+
+        private static boolean isBlank(byte[] bytes) {
+            for (byte character : bytes) {
+                if (!Character.isWhitespace(character)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package no.unit.nva.search;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import no.unit.nva.commons.json.JsonSerializable;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * The progress of one chain of batch indexing events: the last key whose document and all documents before it have
+ * been indexed, and the identifiers of the documents of the current page that failed to be indexed so far.
+ */
+public class Checkpoint implements JsonSerializable {
+
+    public static final String LAST_INDEXED_KEY_FIELD = "lastIndexedKey";
+    public static final String FAILED_IDENTIFIERS_FIELD = "failedIdentifiers";
+    public static final String ID_DELIMITER = "#";
+    public static final String OPEN_ENDED_RANGE = "end";
+
+    @JsonProperty(LAST_INDEXED_KEY_FIELD)
+    private final String lastIndexedKey;
+    @JsonProperty(FAILED_IDENTIFIERS_FIELD)
+    private final List<String> failedIdentifiers;
+
+    @JsonCreator
+    public Checkpoint(@JsonProperty(LAST_INDEXED_KEY_FIELD) String lastIndexedKey,
+                      @JsonProperty(FAILED_IDENTIFIERS_FIELD) List<String> failedIdentifiers) {
+        this.lastIndexedKey = lastIndexedKey;
+        this.failedIdentifiers = Optional.ofNullable(failedIdentifiers).map(List::copyOf).orElse(List.of());
+    }
+
+    /**
+     * Returns the identifier of the checkpoint of the key range a request belongs to. All pages of a range share the
+     * location and the end marker, so the identifier does not change while the range is being indexed. The
+     * identifier is URL encoded, so that it can be used both as a file name and as an S3 key.
+     *
+     * @param request any page of the range
+     * @return the identifier of the checkpoint
+     */
+    public static String idOf(ImportDataRequestEvent request) {
+        String endMarker = Optional.ofNullable(request.getEndMarker()).orElse(OPEN_ENDED_RANGE);
+        return URLEncoder.encode(request.getS3Location() + ID_DELIMITER + endMarker, StandardCharsets.UTF_8);
+    }
+
+    public String getLastIndexedKey() {
+        return lastIndexedKey;
+    }
+
+    public List<String> getFailedIdentifiers() {
+        return failedIdentifiers;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Checkpoint)) {
+            return false;
+        }
+        Checkpoint that = (Checkpoint) o;
+        return Objects.equals(getLastIndexedKey(), that.getLastIndexedKey())
+               && Objects.equals(getFailedIdentifiers(), that.getFailedIdentifiers());
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(getLastIndexedKey(), getFailedIdentifiers());
+    }
+}
@@ -0,0 +1,135 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.nonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.paths.UnixPath;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+/**
+ * Records the progress of one page in the {@link CheckpointStore} after every bulk. The files of a page are read in
+ * key order and the bulks complete in submission order, so when a bulk completes, every document up to the last
+ * document of that bulk has been indexed, or has been skipped by the indexing client. The last file all of whose
+ * documents are among them becomes the last indexed key of the checkpoint. A file is known to be complete once a
+ * document of the next file has been read, since a bundle holds many documents.
+ *
+ * <p>The checkpoint holds the failures of the current page only, so that it stays small however many documents of
+ * the import fail. They are cleared when the page completes, since the failures of a page have been recorded as dead
+ * letters by then.
+ */
+public class CheckpointRecorder {
+
+    private static final int NOTHING_INDEXED = -1;
+    private final CheckpointStore checkpointStore;
+    private final String checkpointId;
+    private final List<UnixPath> readKeys = new ArrayList<>();
+    private final Map<String, Integer> positionsByIdentifier = new HashMap<>();
+    private final Set<String> failedIdentifiers = new LinkedHashSet<>();
+    private int lastIndexedPosition = NOTHING_INDEXED;
+    private String lastIndexedKey;
+
+    public CheckpointRecorder(CheckpointStore checkpointStore, ImportDataRequestEvent page) {
+        this.checkpointStore = checkpointStore;
+        this.checkpointId = Checkpoint.idOf(page);
+        this.lastIndexedKey = page.getStartMarker();
+    }
+
+    /**
+     * Notes that a document was read from a file. Must be called in key order.
+     *
+     * @param key      the key of the file
+     * @param document the document of the file
+     */
+    public void documentRead(UnixPath key, IndexDocument document) {
+        positionsByIdentifier.putIfAbsent(document.getDocumentIdentifier(), readKeys.size());
+        readKeys.add(key);
+    }
+
+    /**
+     * Returns the key of the file a document was read from.
+     *
+     * @param documentIdentifier the identifier of the document
+     * @return the key, or empty when no document with the identifier has been read
+     */
+    public Optional<UnixPath> keyOf(String documentIdentifier) {
+        return Optional.ofNullable(positionsByIdentifier.get(documentIdentifier)).map(readKeys::get);
+    }
+
+    /**
+     * Advances the checkpoint past the files of a completed bulk.
+     *
+     * @param response the response of the bulk
+     * @param failures the identifiers of the documents of the bulk that failed to be indexed
+     */
+    public void bulkCompleted(BulkResponse response, List<SortableIdentifier> failures) {
+        failures.stream().map(SortableIdentifier::toString).forEach(failedIdentifiers::add);
+        Arrays.stream(response.getItems())
+            .map(CheckpointRecorder::identifierOf)
+            .flatMap(Optional::stream)
+            .map(positionsByIdentifier::get)
+            .filter(Objects::nonNull)
+            .mapToInt(Integer::intValue)
+            .max()
+            .ifPresent(this::advanceTo);
+        write();
+    }
+
+    /**
+     * Advances the checkpoint to the end of the page, once all its bulks have completed and its failures have been
+     * recorded as dead letters, and clears the failures.
+     *
+     * @param lastKeyOfPage the last key of the page, or null when the page was empty
+     */
+    public void pageCompleted(UnixPath lastKeyOfPage) {
+        failedIdentifiers.clear();
+        if (nonNull(lastKeyOfPage)) {
+            lastIndexedKey = lastKeyOfPage.toString();
+            write();
+        }
+    }
+
+    private void advanceTo(int position) {
+        if (position <= lastIndexedPosition) {
+            return;
+        }
+        lastIndexedPosition = position;
+        int lastCompletePosition = isLastDocumentOfFile(position) ? position : lastPositionOfPreviousFile(position);
+        if (lastCompletePosition > NOTHING_INDEXED) {
+            lastIndexedKey = readKeys.get(lastCompletePosition).toString();
+        }
+    }
+
+    private boolean isLastDocumentOfFile(int position) {
+        return position + 1 < readKeys.size() && !readKeys.get(position + 1).equals(readKeys.get(position));
+    }
+
+    private int lastPositionOfPreviousFile(int position) {
+        UnixPath key = readKeys.get(position);
+        int previous = position;
+        while (previous > NOTHING_INDEXED && readKeys.get(previous).equals(key)) {
+            previous--;
+        }
+        return previous;
+    }
+
+    private void write() {
+        checkpointStore.write(checkpointId, new Checkpoint(lastIndexedKey, new ArrayList<>(failedIdentifiers)));
+    }
+
+    private static Optional<String> identifierOf(BulkItemResponse item) {
+        return item.isFailed()
+                   ? Optional.of(item.getFailure().getId())
+                   : Optional.ofNullable(item.getResponse()).map(DocWriteResponse::getId);
+    }
+}
@@ -0,0 +1,26 @@
+package no.unit.nva.search;
+
+import java.util.Optional;
+
+/**
+ * Durable storage of the {@link Checkpoint}s of batch imports, so that an import that was interrupted can be resumed
+ * without indexing the completed keys again.
+ */
+public interface CheckpointStore {
+
+    /**
+     * Reads a checkpoint.
+     *
+     * @param checkpointId the identifier of the checkpoint, see {@link Checkpoint#idOf(ImportDataRequestEvent)}
+     * @return the checkpoint, or empty when none has been written
+     */
+    Optional<Checkpoint> read(String checkpointId);
+
+    /**
+     * Writes a checkpoint, replacing the previous one with the same identifier.
+     *
+     * @param checkpointId the identifier of the checkpoint
+     * @param checkpoint   the progress to record
+     */
+    void write(String checkpointId, Checkpoint checkpoint);
+}
@@ -0,0 +1,119 @@
+package no.unit.nva.search;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Objects;
+import no.unit.nva.commons.json.JsonSerializable;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * A document that failed to be indexed, with what is needed to index it again: the S3 object it was read from, the
+ * index it was meant for, the class of its last failure and the number of times it has been attempted.
+ */
+public class DeadLetter implements JsonSerializable {
+
+    public static final String BUCKET_FIELD = "bucket";
+    public static final String KEY_FIELD = "key";
+    public static final String IDENTIFIER_FIELD = "identifier";
+    public static final String INDEX_FIELD = "index";
+    public static final String FAILURE_CLASS_FIELD = "failureClass";
+    public static final String ATTEMPTS_FIELD = "attempts";
+    public static final int FIRST_ATTEMPT = 1;
+
+    @JsonProperty(BUCKET_FIELD)
+    private final String bucket;
+    @JsonProperty(KEY_FIELD)
+    private final String key;
+    @JsonProperty(IDENTIFIER_FIELD)
+    private final String identifier;
+    @JsonProperty(INDEX_FIELD)
+    private final String index;
+    @JsonProperty(FAILURE_CLASS_FIELD)
+    private final BulkFailureClass failureClass;
+    @JsonProperty(ATTEMPTS_FIELD)
+    private final int attempts;
+
+    /**
+     * Creates a dead letter.
+     *
+     * @param bucket       the bucket of the object the document was read from
+     * @param key          the key of the object the document was read from
+     * @param identifier   the identifier of the document
+     * @param index        the index of the document
+     * @param failureClass the class of the last failure
+     * @param attempts     the number of times the document has failed to be indexed
+     */
+    @JsonCreator
+    public DeadLetter(@JsonProperty(BUCKET_FIELD) String bucket,
+                      @JsonProperty(KEY_FIELD) String key,
+                      @JsonProperty(IDENTIFIER_FIELD) String identifier,
+                      @JsonProperty(INDEX_FIELD) String index,
+                      @JsonProperty(FAILURE_CLASS_FIELD) BulkFailureClass failureClass,
+                      @JsonProperty(ATTEMPTS_FIELD) int attempts) {
+        this.bucket = bucket;
+        this.key = key;
+        this.identifier = identifier;
+        this.index = index;
+        this.failureClass = failureClass;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Returns the dead letter of a replay that failed again.
+     *
+     * @param failureClass the class of the new failure
+     * @return the dead letter with the new failure class and one more attempt
+     */
+    public DeadLetter failedAgain(BulkFailureClass failureClass) {
+        return new DeadLetter(bucket, key, identifier, index, failureClass, attempts + 1);
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public BulkFailureClass getFailureClass() {
+        return failureClass;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DeadLetter)) {
+            return false;
+        }
+        DeadLetter that = (DeadLetter) o;
+        return getAttempts() == that.getAttempts()
+               && Objects.equals(getBucket(), that.getBucket())
+               && Objects.equals(getKey(), that.getKey())
+               && Objects.equals(getIdentifier(), that.getIdentifier())
+               && Objects.equals(getIndex(), that.getIndex())
+               && getFailureClass() == that.getFailureClass();
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(getBucket(), getKey(), getIdentifier(), getIndex(), getFailureClass(), getAttempts());
+    }
+}
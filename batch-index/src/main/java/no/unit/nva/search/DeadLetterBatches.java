@@ -0,0 +1,35 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import static nva.commons.core.attempt.Try.attempt;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The serialized form of a batch of dead letters, shared by the dead letter stores. A batch is a JSON array, and
+ * its identifier starts with the time it was written, so that identifiers sort oldest first.
+ */
+final class DeadLetterBatches {
+
+    static final String BATCH_SUFFIX = ".json";
+    private static final String ID_DELIMITER = "-";
+    private static final TypeReference<List<DeadLetter>> BATCH_TYPE = new TypeReference<>() {
+    };
+
+    private DeadLetterBatches() {
+    }
+
+    static String newBatchId() {
+        return Instant.now().toEpochMilli() + ID_DELIMITER + UUID.randomUUID();
+    }
+
+    static String serialize(List<DeadLetter> deadLetters) {
+        return attempt(() -> objectMapperWithEmpty.writeValueAsString(deadLetters)).orElseThrow();
+    }
+
+    static List<DeadLetter> deserialize(String batch) {
+        return attempt(() -> objectMapperWithEmpty.readValue(batch, BATCH_TYPE)).orElseThrow();
+    }
+}
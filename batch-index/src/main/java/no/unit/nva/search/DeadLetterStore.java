@@ -0,0 +1,39 @@
+package no.unit.nva.search;
+
+import java.util.List;
+
+/**
+ * Durable storage of {@link DeadLetter}s. Dead letters are written in batches, one batch per indexed page or per
+ * replay, and a batch is deleted once it has been replayed.
+ */
+public interface DeadLetterStore {
+
+    /**
+     * Writes a new batch of dead letters.
+     *
+     * @param deadLetters the dead letters of the batch
+     */
+    void write(List<DeadLetter> deadLetters);
+
+    /**
+     * Lists the batches that have not been deleted.
+     *
+     * @return the identifiers of the batches, oldest first
+     */
+    List<String> listBatches();
+
+    /**
+     * Reads a batch of dead letters.
+     *
+     * @param batchId the identifier of the batch
+     * @return the dead letters of the batch
+     */
+    List<DeadLetter> readBatch(String batchId);
+
+    /**
+     * Deletes a batch of dead letters once it has been replayed.
+     *
+     * @param batchId the identifier of the batch
+     */
+    void deleteBatch(String batchId);
+}
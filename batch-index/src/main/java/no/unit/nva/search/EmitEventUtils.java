@@ -30,7 +30,7 @@ public final class EmitEventUtils {
         logger.info(response.toString());
     }
 
-    private static PutEventsRequestEntry eventEntry(ImportDataRequestEvent importDataRequest, Context context) {
+    static PutEventsRequestEntry eventEntry(ImportDataRequestEvent importDataRequest, Context context) {
         return PutEventsRequestEntry.builder()
             .eventBusName(BATCH_INDEX_EVENT_BUS_NAME)
             .detailType(INDICATION_THAT_EVENT_TYPE_IS_INSIDE_DETAIL)
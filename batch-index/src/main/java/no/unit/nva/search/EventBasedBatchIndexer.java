@@ -1,13 +1,22 @@
 package no.unit.nva.search;
 
+import static java.util.Objects.isNull;
+import static no.unit.nva.search.BatchIndexingConstants.FETCH_CONCURRENCY;
+import static no.unit.nva.search.BatchIndexingConstants.MAX_BUFFERED_BYTES;
+import static no.unit.nva.search.BatchIndexingConstants.MINIMUM_TIME_MARGIN_MILLIS;
 import static no.unit.nva.search.BatchIndexingConstants.NUMBER_OF_FILES_PER_EVENT;
+import static no.unit.nva.search.BatchIndexingConstants.PIPELINE_CAPACITY;
+import static no.unit.nva.search.BatchIndexingConstants.defaultCheckpointStore;
+import static no.unit.nva.search.BatchIndexingConstants.defaultDeadLetterStore;
 import static no.unit.nva.search.BatchIndexingConstants.defaultEsClient;
 import static no.unit.nva.search.BatchIndexingConstants.defaultEventBridgeClient;
+import static no.unit.nva.search.BatchIndexingConstants.defaultHighWaterMarkStore;
 import static no.unit.nva.search.BatchIndexingConstants.defaultS3Client;
-import static no.unit.nva.search.EmitEventUtils.emitEvent;
 import com.amazonaws.services.lambda.runtime.Context;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import no.unit.nva.events.handlers.EventHandler;
 import no.unit.nva.events.models.AwsEventBridgeEvent;
 import no.unit.nva.identifiers.SortableIdentifier;
@@ -25,6 +34,12 @@ public class EventBasedBatchIndexer extends EventHandler<ImportDataRequestEvent,
     private final IndexingClient elasticSearchClient;
     private final EventBridgeClient eventBridgeClient;
     private final int numberOfFilesPerEvent;
+    private final int fetchConcurrency;
+    private final int pipelineCapacity;
+    private final long maxBufferedBytes;
+    private final CheckpointStore checkpointStore;
+    private final DeadLetterStore deadLetterStore;
+    private final HighWaterMarkStore highWaterMarkStore;
 
     @JacocoGenerated
     public EventBasedBatchIndexer() {
@@ -35,12 +50,45 @@ public class EventBasedBatchIndexer extends EventHandler<ImportDataRequestEvent,
                                      IndexingClient elasticSearchClient,
                                      EventBridgeClient eventBridgeClient,
                                      int numberOfFilesPerEvent
+    ) {
+        this(s3Client, elasticSearchClient, eventBridgeClient, numberOfFilesPerEvent,
+             defaultCheckpointStore(s3Client), defaultDeadLetterStore(s3Client), defaultHighWaterMarkStore(s3Client));
+    }
+
+    protected EventBasedBatchIndexer(S3Client s3Client,
+                                     IndexingClient elasticSearchClient,
+                                     EventBridgeClient eventBridgeClient,
+                                     int numberOfFilesPerEvent,
+                                     CheckpointStore checkpointStore,
+                                     DeadLetterStore deadLetterStore,
+                                     HighWaterMarkStore highWaterMarkStore
+    ) {
+        this(s3Client, elasticSearchClient, eventBridgeClient, numberOfFilesPerEvent, FETCH_CONCURRENCY,
+             PIPELINE_CAPACITY, MAX_BUFFERED_BYTES, checkpointStore, deadLetterStore, highWaterMarkStore);
+    }
+
+    protected EventBasedBatchIndexer(S3Client s3Client,
+                                     IndexingClient elasticSearchClient,
+                                     EventBridgeClient eventBridgeClient,
+                                     int numberOfFilesPerEvent,
+                                     int fetchConcurrency,
+                                     int pipelineCapacity,
+                                     long maxBufferedBytes,
+                                     CheckpointStore checkpointStore,
+                                     DeadLetterStore deadLetterStore,
+                                     HighWaterMarkStore highWaterMarkStore
     ) {
         super(ImportDataRequestEvent.class);
         this.s3Client = s3Client;
         this.elasticSearchClient = elasticSearchClient;
         this.eventBridgeClient = eventBridgeClient;
         this.numberOfFilesPerEvent = numberOfFilesPerEvent;
+        this.fetchConcurrency = fetchConcurrency;
+        this.pipelineCapacity = pipelineCapacity;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.checkpointStore = checkpointStore;
+        this.deadLetterStore = deadLetterStore;
+        this.highWaterMarkStore = highWaterMarkStore;
     }
 
     @Override
@@ -55,21 +103,83 @@ public class EventBasedBatchIndexer extends EventHandler<ImportDataRequestEvent,
                                                 AwsEventBridgeEvent<ImportDataRequestEvent> event,
                                                 Context context) {
         logger.info("Indexing folder:" + input.getS3Location());
-        logger.info("Indexing startingPoint:" + input.getStartMarker());
-        IndexingResult<SortableIdentifier> result = new BatchIndexer(input, s3Client,
+        elasticSearchClient.shareBatchRatesAmong(concurrentChains(input));
+        TimeBudget timeBudget = new TimeBudget(context, MINIMUM_TIME_MARGIN_MILLIS);
+        List<SortableIdentifier> failedResults = new ArrayList<>();
+        ImportDataRequestEvent page = input.isResume() ? resumeFromCheckpoint(input) : input;
+        IndexingResult<SortableIdentifier> result;
+        try (PageLister pageLister = new PageLister(s3Client, numberOfFilesPerEvent)) {
+            result = indexPage(page, pageLister, timeBudget);
+            failedResults.addAll(result.getFailedResults());
+            while (result.isTruncated() && timeBudget.hasTimeForAnotherPage()) {
+                page = page.nextPage(result.getNextStartMarker());
+                result = indexPage(page, pageLister, timeBudget);
+                failedResults.addAll(result.getFailedResults());
+            }
+        }
+        if (!result.isTruncated()) {
+            recordShardCompleted(page);
+        } else if (BatchIndexingConstants.RECURSION_ENABLED) {
+            emitEventToProcessNextBatch(page, context, result);
+        }
+        return failedResults.toArray(SortableIdentifier[]::new);
+    }
+
+    // The chains of all the shards of an import run at the same time, each in its own Lambda, so each takes its share
+    // of the configured rates.
+    private static int concurrentChains(ImportDataRequestEvent request) {
+        return isNull(request.getNumberOfShards()) ? ShardPlanner.SINGLE_SHARD : request.getNumberOfShards();
+    }
+
+    private IndexingResult<SortableIdentifier> indexPage(ImportDataRequestEvent page, PageLister pageLister,
+                                                         TimeBudget timeBudget) {
+        logger.info("Indexing startingPoint:" + page.getStartMarker());
+        long start = System.currentTimeMillis();
+        IndexingResult<SortableIdentifier> result = new BatchIndexer(page, s3Client,
                                                                      elasticSearchClient,
-                                                                     numberOfFilesPerEvent
+                                                                     pageLister,
+                                                                     timeBudget,
+                                                                     fetchConcurrency,
+                                                                     pipelineCapacity,
+                                                                     maxBufferedBytes,
+                                                                     checkpointStore,
+                                                                     deadLetterStore
                                                                      ).processRequest();
-        if (result.isTruncated() && BatchIndexingConstants.RECURSION_ENABLED) {
-            emitEventToProcessNextBatch(input, context, result);
+        timeBudget.recordPage(System.currentTimeMillis() - start);
+        logger.info("Failures by class:" + result.getFailureCounts());
+        return result;
+    }
+
+    // The checkpoint is used only when it is ahead of the start marker of the request, so that resuming never
+    // indexes keys before the requested range.
+    private ImportDataRequestEvent resumeFromCheckpoint(ImportDataRequestEvent request) {
+        return checkpointStore.read(Checkpoint.idOf(request))
+            .map(Checkpoint::getLastIndexedKey)
+            .filter(key -> isNull(request.getStartMarker()) || key.compareTo(request.getStartMarker()) > 0)
+            .map(request::nextPage)
+            .orElse(request);
+    }
+
+    // The last page of the chain of a shard reports the shard as completed. Documents that failed were written to
+    // the dead letters and do not hold the shard back, but a chain that broke off never completes, so the
+    // high-water mark stays where it was and the next incremental sync indexes the files of the shard again. The
+    // store keeps the latest completed sync as the mark, so a sync never moves it backwards, whatever order the syncs
+    // complete in.
+    private void recordShardCompleted(ImportDataRequestEvent page) {
+        if (isNull(page.getSyncStarted())) {
+            return;
+        }
+        boolean syncCompleted = highWaterMarkStore.recordShardCompleted(page.getS3Location(), page.getSyncStarted(),
+                                                                        page.getShard(), page.getNumberOfShards());
+        if (syncCompleted) {
+            logger.info("Every shard completed, sync started: " + page.getSyncStarted());
+            highWaterMarkStore.write(page.getS3Location(), page.getSyncStarted());
         }
-        return result.getFailedResults().toArray(SortableIdentifier[]::new);
     }
 
-    private void emitEventToProcessNextBatch(ImportDataRequestEvent input, Context context,
+    private void emitEventToProcessNextBatch(ImportDataRequestEvent page, Context context,
                                              IndexingResult<SortableIdentifier> result) {
-        ImportDataRequestEvent newImportDataRequest =
-            new ImportDataRequestEvent(input.getS3Location(), result.getNextStartMarker());
-        emitEvent(eventBridgeClient, newImportDataRequest, context);
+        ImportDataRequestEvent newImportDataRequest = page.nextPage(result.getNextStartMarker());
+        new BatchedEventEmitter(eventBridgeClient).emitAll(List.of(newImportDataRequest), context);
     }
 }
@@ -0,0 +1,48 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import static nva.commons.core.attempt.Try.attempt;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Keeps every checkpoint as a JSON file in a local directory. Meant for tests and for running imports outside of
+ * Lambda. A checkpoint is written to a temporary file that then replaces the previous one, so a reader never sees a
+ * partly written checkpoint.
+ */
+public class FileSystemCheckpointStore implements CheckpointStore {
+
+    public static final String JSON_SUFFIX = ".json";
+    public static final String TEMPORARY_SUFFIX = ".tmp";
+    private final Path directory;
+
+    public FileSystemCheckpointStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Checkpoint> read(String checkpointId) {
+        Path file = fileOf(checkpointId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(attempt(() -> objectMapperWithEmpty.readValue(file.toFile(), Checkpoint.class))
+                               .orElseThrow());
+    }
+
+    @Override
+    public void write(String checkpointId, Checkpoint checkpoint) {
+        Path file = fileOf(checkpointId);
+        Path temporaryFile = directory.resolve(checkpointId + TEMPORARY_SUFFIX);
+        attempt(() -> Files.writeString(temporaryFile, checkpoint.toJsonString()))
+            .map(written -> Files.move(written, file, StandardCopyOption.REPLACE_EXISTING,
+                                       StandardCopyOption.ATOMIC_MOVE))
+            .orElseThrow();
+    }
+
+    private Path fileOf(String checkpointId) {
+        return directory.resolve(checkpointId + JSON_SUFFIX);
+    }
+}
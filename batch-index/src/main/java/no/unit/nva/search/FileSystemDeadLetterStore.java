@@ -0,0 +1,52 @@
+package no.unit.nva.search;
+
+import static nva.commons.core.attempt.Try.attempt;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every batch of dead letters as a JSON file in a local directory. Meant for tests and for running imports
+ * outside of Lambda.
+ */
+public class FileSystemDeadLetterStore implements DeadLetterStore {
+
+    private final Path directory;
+
+    public FileSystemDeadLetterStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(List<DeadLetter> deadLetters) {
+        Path file = fileOf(DeadLetterBatches.newBatchId());
+        attempt(() -> Files.writeString(file, DeadLetterBatches.serialize(deadLetters))).orElseThrow();
+    }
+
+    @Override
+    public List<String> listBatches() {
+        try (Stream<Path> files = attempt(() -> Files.list(directory)).orElseThrow()) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(DeadLetterBatches.BATCH_SUFFIX))
+                .map(name -> name.substring(0, name.length() - DeadLetterBatches.BATCH_SUFFIX.length()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public List<DeadLetter> readBatch(String batchId) {
+        return DeadLetterBatches.deserialize(attempt(() -> Files.readString(fileOf(batchId))).orElseThrow());
+    }
+
+    @Override
+    public void deleteBatch(String batchId) {
+        attempt(() -> Files.deleteIfExists(fileOf(batchId))).orElseThrow();
+    }
+
+    private Path fileOf(String batchId) {
+        return directory.resolve(batchId + DeadLetterBatches.BATCH_SUFFIX);
+    }
+}
@@ -0,0 +1,40 @@
+package no.unit.nva.search;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Durable storage of the time of the latest completed sync of every location, to be used as the
+ * {@link ImportDataRequestEvent#getModifiedSince()} of the next, incremental, sync. A sync is split into shards that
+ * complete independently, so the store also records which shards of a sync have completed.
+ */
+public interface HighWaterMarkStore {
+
+    /**
+     * Reads the high-water mark of a location.
+     *
+     * @param s3Location the location of the files
+     * @return the time the latest sync of the location started, or empty when the location has not been synced
+     */
+    Optional<Instant> read(String s3Location);
+
+    /**
+     * Records the start of a completed sync of a location. The high-water mark becomes the latest start recorded, so
+     * a sync that completes after a later one does not move it backwards, whatever order concurrent writes land in.
+     *
+     * @param s3Location    the location of the files
+     * @param highWaterMark the time the sync started
+     */
+    void write(String s3Location, Instant highWaterMark);
+
+    /**
+     * Records that a shard of a sync has indexed all its files. Recording the same shard again is harmless.
+     *
+     * @param s3Location     the location of the files
+     * @param syncStarted    the time the sync started
+     * @param shard          the index of the shard, from 0
+     * @param numberOfShards the number of shards of the sync
+     * @return whether every shard of the sync has now completed
+     */
+    boolean recordShardCompleted(String s3Location, Instant syncStarted, int shard, int numberOfShards);
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.net.URI;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
 import no.unit.nva.commons.json.JsonSerializable;
@@ -16,24 +17,149 @@ public class ImportDataRequestEvent implements EventBody, JsonSerializable {
     public static final String S3_LOCATION_FIELD = "s3Location";
     public static final String PATH_DELIMITER = "/";
     public static final String START_OF_LISTING_INDEX = "startMarker";
+    public static final String END_OF_LISTING_INDEX = "endMarker";
+    public static final String NUMBER_OF_SHARDS_FIELD = "numberOfShards";
+    public static final String RESUME_FIELD = "resume";
+    public static final String MODIFIED_SINCE_FIELD = "modifiedSince";
+    public static final String TARGET_INDEX_FIELD = "targetIndex";
+    public static final String INCREMENTAL_FIELD = "incremental";
+    public static final String SYNC_STARTED_FIELD = "syncStarted";
+    public static final String SHARD_FIELD = "shard";
 
 
     @JsonProperty(S3_LOCATION_FIELD)
     private final URI s3Location;
     @JsonProperty(START_OF_LISTING_INDEX)
     private final String startMarker;
+    @JsonProperty(END_OF_LISTING_INDEX)
+    private final String endMarker;
+    @JsonProperty(NUMBER_OF_SHARDS_FIELD)
+    private final Integer numberOfShards;
+    @JsonProperty(RESUME_FIELD)
+    private final boolean resume;
+    @JsonProperty(MODIFIED_SINCE_FIELD)
+    private final Instant modifiedSince;
+    @JsonProperty(TARGET_INDEX_FIELD)
+    private final String targetIndex;
+    @JsonProperty(INCREMENTAL_FIELD)
+    private final boolean incremental;
+    @JsonProperty(SYNC_STARTED_FIELD)
+    private final Instant syncStarted;
+    @JsonProperty(SHARD_FIELD)
+    private final Integer shard;
 
+    /**
+     * Creates a request to index the files of a location whose keys are after the start marker and up to and
+     * including the end marker.
+     *
+     * @param s3Location     the bucket and prefix of the files
+     * @param startMarker    the key after which the listing starts, or null to start at the beginning
+     * @param endMarker      the last key to index, or null to index to the end of the location
+     * @param numberOfShards the number of key ranges the import is split into and indexed in parallel, or null
+     *                       to index the location in a single chain of events
+     * @param resume         whether the import continues from the checkpoint of a previous import of the same key
+     *                       range instead of from the start marker
+     * @param modifiedSince  the time of the previous sync, so that only the files modified since then are indexed,
+     *                       or null to index all files
+     * @param targetIndex    the generation of an index that is being built, see
+     *                       {@link no.unit.nva.search.IndexGenerations}, which receives the documents meant for the
+     *                       alias of the generation, or null to index the documents where they are meant to go
+     * @param incremental    whether an import without a modifiedSince indexes only the files modified since the
+     *                       high-water mark of the location, see {@link HighWaterMarkStore}
+     * @param syncStarted    the time the sync this shard belongs to started, which becomes the high-water mark of
+     *                       the location once every shard of the sync has completed, or null when the import does
+     *                       not move the high-water mark
+     * @param shard          the index of the shard among the numberOfShards shards of the sync, or null when the
+     *                       import does not move the high-water mark
+     */
     @JsonCreator
     public ImportDataRequestEvent(@JsonProperty(S3_LOCATION_FIELD) String s3Location,
-                                  @JsonProperty(START_OF_LISTING_INDEX) String startMarker) {
+                                  @JsonProperty(START_OF_LISTING_INDEX) String startMarker,
+                                  @JsonProperty(END_OF_LISTING_INDEX) String endMarker,
+                                  @JsonProperty(NUMBER_OF_SHARDS_FIELD) Integer numberOfShards,
+                                  @JsonProperty(RESUME_FIELD) boolean resume,
+                                  @JsonProperty(MODIFIED_SINCE_FIELD) Instant modifiedSince,
+                                  @JsonProperty(TARGET_INDEX_FIELD) String targetIndex,
+                                  @JsonProperty(INCREMENTAL_FIELD) boolean incremental,
+                                  @JsonProperty(SYNC_STARTED_FIELD) Instant syncStarted,
+                                  @JsonProperty(SHARD_FIELD) Integer shard) {
         this.s3Location = Optional.ofNullable(s3Location).map(URI::create).orElseThrow(this::reportMissingValue);
         this.startMarker = startMarker;
+        this.endMarker = endMarker;
+        this.numberOfShards = numberOfShards;
+        this.resume = resume;
+        this.modifiedSince = modifiedSince;
+        this.targetIndex = targetIndex;
+        this.incremental = incremental;
+        this.syncStarted = syncStarted;
+        this.shard = shard;
+    }
+
+    public ImportDataRequestEvent(String s3Location, String startMarker, String endMarker, Integer numberOfShards,
+                                  boolean resume, Instant modifiedSince, String targetIndex) {
+        this(s3Location, startMarker, endMarker, numberOfShards, resume, modifiedSince, targetIndex, false, null,
+             null);
+    }
+
+    public ImportDataRequestEvent(String s3Location, String startMarker, String endMarker, Integer numberOfShards,
+                                  boolean resume, Instant modifiedSince) {
+        this(s3Location, startMarker, endMarker, numberOfShards, resume, modifiedSince, null);
+    }
+
+    public ImportDataRequestEvent(String s3Location, String startMarker, String endMarker, Integer numberOfShards,
+                                  boolean resume) {
+        this(s3Location, startMarker, endMarker, numberOfShards, resume, null);
+    }
+
+    public ImportDataRequestEvent(String s3Location, String startMarker, String endMarker) {
+        this(s3Location, startMarker, endMarker, null, false);
+    }
+
+    public ImportDataRequestEvent(String s3Location, String startMarker) {
+        this(s3Location, startMarker, null);
     }
 
     public ImportDataRequestEvent(String s3Location) {
         this(s3Location, null);
     }
 
+    /**
+     * Creates the request for the page that follows the given key, within the same key range, for the files
+     * modified since the same time, into the same target index and as the same shard of the same sync.
+     *
+     * @param nextStartMarker the last key of the current page
+     * @return the request for the next page
+     */
+    public ImportDataRequestEvent nextPage(String nextStartMarker) {
+        return new ImportDataRequestEvent(getS3Location(), nextStartMarker, endMarker, numberOfShards, false,
+                                          modifiedSince, targetIndex, false, syncStarted, shard);
+    }
+
+    /**
+     * Creates the same request for the files modified since the given time.
+     *
+     * @param modifiedSince the time of the previous sync
+     * @return the request for the files modified since then
+     */
+    public ImportDataRequestEvent withModifiedSince(Instant modifiedSince) {
+        return new ImportDataRequestEvent(getS3Location(), startMarker, endMarker, numberOfShards, resume,
+                                          modifiedSince, targetIndex, incremental, syncStarted, shard);
+    }
+
+    /**
+     * Creates the same request as one shard of a sync, so that the chain of events of the shard reports its
+     * completion and the high-water mark of the location moves to the start of the sync once every shard has.
+     *
+     * @param syncStarted    the time the sync started
+     * @param shard          the index of the shard, from 0
+     * @param numberOfShards the number of shards of the sync
+     * @return the request of the shard
+     */
+    public ImportDataRequestEvent asShardOfSync(Instant syncStarted, int shard, int numberOfShards) {
+        return new ImportDataRequestEvent(getS3Location(), startMarker, endMarker, numberOfShards, resume,
+                                          modifiedSince, targetIndex, false, syncStarted, shard);
+    }
+
 
     @Override
     public String getTopic() {
@@ -44,6 +170,38 @@ public class ImportDataRequestEvent implements EventBody, JsonSerializable {
         return startMarker;
     }
 
+    public String getEndMarker() {
+        return endMarker;
+    }
+
+    public Integer getNumberOfShards() {
+        return numberOfShards;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public Instant getModifiedSince() {
+        return modifiedSince;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public Instant getSyncStarted() {
+        return syncStarted;
+    }
+
+    public Integer getShard() {
+        return shard;
+    }
+
     public String getS3Location() {
         return s3Location.toString();
     }
@@ -73,14 +231,23 @@ public class ImportDataRequestEvent implements EventBody, JsonSerializable {
             return false;
         }
         ImportDataRequestEvent that = (ImportDataRequestEvent) o;
-        return Objects.equals(getS3Location(), that.getS3Location()) && Objects.equals(getStartMarker(),
-                                                                                       that.getStartMarker());
+        return Objects.equals(getS3Location(), that.getS3Location())
+               && Objects.equals(getStartMarker(), that.getStartMarker())
+               && Objects.equals(getEndMarker(), that.getEndMarker())
+               && Objects.equals(getNumberOfShards(), that.getNumberOfShards())
+               && isResume() == that.isResume()
+               && Objects.equals(getModifiedSince(), that.getModifiedSince())
+               && Objects.equals(getTargetIndex(), that.getTargetIndex())
+               && isIncremental() == that.isIncremental()
+               && Objects.equals(getSyncStarted(), that.getSyncStarted())
+               && Objects.equals(getShard(), that.getShard());
     }
 
     @JacocoGenerated
     @Override
     public int hashCode() {
-        return Objects.hash(getS3Location(), getStartMarker());
+        return Objects.hash(getS3Location(), getStartMarker(), getEndMarker(), getNumberOfShards(), isResume(),
+                            getModifiedSince(), getTargetIndex(), isIncremental(), getSyncStarted(), getShard());
     }
 
 
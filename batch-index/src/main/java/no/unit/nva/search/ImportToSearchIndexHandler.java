@@ -1,7 +1,10 @@
 package no.unit.nva.search;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static no.unit.nva.search.BatchIndexingConstants.defaultEventBridgeClient;
-import static no.unit.nva.search.EmitEventUtils.emitEvent;
+import static no.unit.nva.search.BatchIndexingConstants.defaultHighWaterMarkStore;
+import static no.unit.nva.search.BatchIndexingConstants.defaultS3Client;
 import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
@@ -10,30 +13,61 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import no.unit.nva.s3.S3Driver;
 import nva.commons.core.JacocoGenerated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.s3.S3Client;
 
 
 public class ImportToSearchIndexHandler implements RequestStreamHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ImportToSearchIndexHandler.class);
     private final EventBridgeClient eventBridgeClient;
+    private final S3Client s3Client;
+    private final HighWaterMarkStore highWaterMarkStore;
 
     @JacocoGenerated
     public ImportToSearchIndexHandler() {
-        this(defaultEventBridgeClient());
+        this(defaultEventBridgeClient(), defaultS3Client());
     }
 
-    public ImportToSearchIndexHandler(EventBridgeClient eventBridgeClient) {
+    public ImportToSearchIndexHandler(EventBridgeClient eventBridgeClient, S3Client s3Client) {
+        this(eventBridgeClient, s3Client, defaultHighWaterMarkStore(s3Client));
+    }
+
+    public ImportToSearchIndexHandler(EventBridgeClient eventBridgeClient, S3Client s3Client,
+                                      HighWaterMarkStore highWaterMarkStore) {
         this.eventBridgeClient = eventBridgeClient;
+        this.s3Client = s3Client;
+        this.highWaterMarkStore = highWaterMarkStore;
     }
 
+    /**
+     * Starts an import by emitting one event per shard of the requested location. Each shard is then indexed by
+     * its own chain of events. An incremental import without a modifiedSince indexes the files modified since the
+     * high-water mark of the location. An import of the whole location, that does not resume an interrupted one, is
+     * a sync: its shards carry the time the sync started, and the last event of every chain reports its shard as
+     * completed. Once every shard has completed, the start of the sync becomes the high-water mark, to be given as
+     * the modifiedSince of the next incremental import. Files written while the import runs are then indexed again
+     * by the next import, which is harmless, rather than missed.
+     */
     @Override
     public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
-        ImportDataRequestEvent request = parseInput(input);
-        emitEvent(eventBridgeClient, request, context);
+        Instant syncStarted = Instant.now();
+        ImportDataRequestEvent request = sinceHighWaterMark(parseInput(input));
+        logger.info("Modified since: " + request.getModifiedSince());
+        List<ImportDataRequestEvent> shards =
+            new ShardPlanner(new S3Driver(s3Client, request.getBucket())).plan(request);
+        logger.info("Number of shards: " + shards.size());
+        new BatchedEventEmitter(eventBridgeClient).emitAll(isSync(request) ? asSync(shards, syncStarted) : shards,
+                                                           context);
         writeOutput(output);
     }
 
@@ -51,4 +85,25 @@ public class ImportToSearchIndexHandler implements RequestStreamHandler {
         logger.info("Path: " + request.getS3Path());
         return request;
     }
+
+    private ImportDataRequestEvent sinceHighWaterMark(ImportDataRequestEvent request) {
+        if (!request.isIncremental() || nonNull(request.getModifiedSince())) {
+            return request;
+        }
+        Optional<Instant> highWaterMark = highWaterMarkStore.read(request.getS3Location());
+        logger.info("High-water mark: " + highWaterMark.orElse(null));
+        return highWaterMark.map(request::withModifiedSince).orElse(request);
+    }
+
+    // A range of the location, or a resumed import that skips the keys indexed before it was interrupted, does not
+    // index every file modified since the high-water mark, so it must not move the mark.
+    private static boolean isSync(ImportDataRequestEvent request) {
+        return isNull(request.getStartMarker()) && isNull(request.getEndMarker()) && !request.isResume();
+    }
+
+    private static List<ImportDataRequestEvent> asSync(List<ImportDataRequestEvent> shards, Instant syncStarted) {
+        return IntStream.range(0, shards.size())
+            .mapToObj(shard -> shards.get(shard).asShardOfSync(syncStarted, shard, shards.size()))
+            .collect(Collectors.toList());
+    }
 }
@@ -1,6 +1,8 @@
 package no.unit.nva.search;
 
 import java.util.List;
+import java.util.Map;
+import no.unit.nva.search.bulk.BulkFailureClass;
 
 public interface IndexingResult<T> {
 
@@ -10,5 +12,7 @@ public interface IndexingResult<T> {
 
     boolean isTruncated();
 
+    Map<BulkFailureClass, Long> getFailureCounts();
+
 
 }
@@ -1,17 +1,22 @@
 package no.unit.nva.search;
 
 import java.util.List;
+import java.util.Map;
+import no.unit.nva.search.bulk.BulkFailureClass;
 
 public class IndexingResultRecord<T> implements IndexingResult<T> {
 
     private final String nextStartMarker;
     private final List<T> failedResults;
     private final boolean truncated;
+    private final Map<BulkFailureClass, Long> failureCounts;
 
-    public IndexingResultRecord(List<T> failedResults,String nextStartMarker, boolean truncated) {
+    public IndexingResultRecord(List<T> failedResults, String nextStartMarker, boolean truncated,
+                                Map<BulkFailureClass, Long> failureCounts) {
         this.nextStartMarker = nextStartMarker;
         this.failedResults = failedResults;
         this.truncated = truncated;
+        this.failureCounts = failureCounts;
     }
 
     @Override
@@ -28,4 +33,9 @@ public class IndexingResultRecord<T> implements IndexingResult<T> {
     public boolean isTruncated() {
         return this.truncated;
     }
+
+    @Override
+    public Map<BulkFailureClass, Long> getFailureCounts() {
+        return this.failureCounts;
+    }
 }
@@ -0,0 +1,224 @@
+package no.unit.nva.search;
+
+import static nva.commons.core.attempt.Try.attempt;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.paths.UnixPath;
+import org.elasticsearch.common.bytes.BytesArray;
+import software.amazon.ion.IntegerSize;
+import software.amazon.ion.IonReader;
+import software.amazon.ion.IonType;
+import software.amazon.ion.Timestamp;
+import software.amazon.ion.system.IonReaderBuilder;
+
+/**
+ * Decodes {@link IndexDocument} envelopes stored as Amazon Ion, binary or text. The body is transcoded from the Ion
+ * reader straight into a JSON generator, without building a tree, and the document keeps the JSON as its raw body.
+ * Ion values without a JSON counterpart are down-converted: timestamps become ISO-8601 instants in UTC, as
+ * {@link Instant#toString()} writes them, so that they compare and parse as the dates of JSON envelopes do, whatever
+ * their offset and precision in Ion; symbols become strings, clobs become the
+ * strings their bytes encode in UTF-8, blobs become base64 strings, s-expressions become arrays, annotations are
+ * dropped, and NaN and infinities become null.
+ *
+ * <p>Ion binary is recognized by its version marker, whatever the key. Ion text is recognized by the
+ * {@value ION_SUFFIX} suffix of the key, optionally followed by {@value BundleReader#GZIP_SUFFIX}, since JSON is
+ * itself valid Ion text.
+ */
+public final class IonEnvelopeDecoder {
+
+    public static final String ION_SUFFIX = ".ion";
+    public static final String NOT_A_STRUCT = "Expected an IndexDocument struct but found:";
+    private static final byte[] BINARY_VERSION_MARKER = {(byte) 0xE0, 0x01, 0x00, (byte) 0xEA};
+    private static final IonReaderBuilder READER_BUILDER = IonReaderBuilder.standard();
+    private static final int NANOS_PER_MILLI_DIGITS = 6;
+    private static final BigInteger NANOS_PER_SECOND = BigInteger.valueOf(1_000_000_000);
+
+    private IonEnvelopeDecoder() {
+    }
+
+    /**
+     * Tells whether a stored document is an Ion envelope.
+     *
+     * @param document the stored document
+     * @return true when the document is Ion binary, or its key marks it as Ion text
+     */
+    public static boolean isIon(StoredDocument document) {
+        return isIonBinary(document.getContent()) || isIonText(document.getKey());
+    }
+
+    /**
+     * Decodes an Ion envelope.
+     *
+     * @param ion the envelope, as Ion binary or Ion text
+     * @return the decoded document, with the body as raw JSON
+     */
+    public static IndexDocument decode(byte[] ion) {
+        return attempt(() -> decodeEnvelope(ion)).orElseThrow();
+    }
+
+    private static boolean isIonBinary(byte[] content) {
+        if (content.length < BINARY_VERSION_MARKER.length) {
+            return false;
+        }
+        for (int i = 0; i < BINARY_VERSION_MARKER.length; i++) {
+            if (content[i] != BINARY_VERSION_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIonText(UnixPath key) {
+        String name = key.toString();
+        return name.endsWith(ION_SUFFIX) || name.endsWith(ION_SUFFIX + BundleReader.GZIP_SUFFIX);
+    }
+
+    private static IndexDocument decodeEnvelope(byte[] ion) throws IOException {
+        try (IonReader reader = READER_BUILDER.build(ion)) {
+            IonType type = reader.next();
+            if (type != IonType.STRUCT || reader.isNullValue()) {
+                throw new IllegalArgumentException(NOT_A_STRUCT + type);
+            }
+            reader.stepIn();
+            EventConsumptionAttributes consumptionAttributes = null;
+            BytesArray body = null;
+            while (reader.next() != null) {
+                String fieldName = reader.getFieldName();
+                if (IndexDocument.CONSUMPTION_ATTRIBUTES.equals(fieldName)) {
+                    consumptionAttributes = readConsumptionAttributes(reader);
+                } else if (IndexDocument.BODY.equals(fieldName) && !reader.isNullValue()) {
+                    body = transcodeToJson(reader);
+                }
+            }
+            reader.stepOut();
+            return IndexDocument.fromRawBody(consumptionAttributes, body);
+        }
+    }
+
+    private static EventConsumptionAttributes readConsumptionAttributes(IonReader reader) {
+        if (reader.isNullValue()) {
+            return null;
+        }
+        String index = null;
+        SortableIdentifier documentIdentifier = null;
+        Long version = null;
+        reader.stepIn();
+        while (reader.next() != null) {
+            String fieldName = reader.getFieldName();
+            if (reader.isNullValue()) {
+                continue;
+            }
+            if (EventConsumptionAttributes.INDEX_FIELD.equals(fieldName)) {
+                index = reader.stringValue();
+            } else if (EventConsumptionAttributes.DOCUMENT_IDENTIFIER.equals(fieldName)) {
+                documentIdentifier = new SortableIdentifier(reader.stringValue());
+            } else if (EventConsumptionAttributes.VERSION.equals(fieldName)) {
+                version = reader.longValue();
+            }
+        }
+        reader.stepOut();
+        return new EventConsumptionAttributes(index, documentIdentifier, version);
+    }
+
+    private static BytesArray transcodeToJson(IonReader reader) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (JsonGenerator generator = IndexingConfig.objectMapper.getFactory().createGenerator(json)) {
+            writeValue(reader, generator);
+        }
+        return new BytesArray(json.toByteArray());
+    }
+
+    private static void writeValue(IonReader reader, JsonGenerator generator) throws IOException {
+        IonType type = reader.getType();
+        if (reader.isNullValue()) {
+            generator.writeNull();
+            return;
+        }
+        switch (type) {
+            case STRUCT:
+                writeStruct(reader, generator);
+                break;
+            case LIST:
+            case SEXP:
+                writeList(reader, generator);
+                break;
+            case BOOL:
+                generator.writeBoolean(reader.booleanValue());
+                break;
+            case INT:
+                writeInteger(reader, generator);
+                break;
+            case FLOAT:
+                writeFloat(reader.doubleValue(), generator);
+                break;
+            case DECIMAL:
+                generator.writeNumber(reader.bigDecimalValue());
+                break;
+            case TIMESTAMP:
+                generator.writeString(toInstant(reader.timestampValue()).toString());
+                break;
+            case BLOB:
+                generator.writeBinary(reader.newBytes());
+                break;
+            case CLOB:
+                generator.writeString(new String(reader.newBytes(), StandardCharsets.UTF_8));
+                break;
+            default:
+                generator.writeString(reader.stringValue());
+                break;
+        }
+    }
+
+    private static void writeStruct(IonReader reader, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        reader.stepIn();
+        while (reader.next() != null) {
+            generator.writeFieldName(reader.getFieldName());
+            writeValue(reader, generator);
+        }
+        reader.stepOut();
+        generator.writeEndObject();
+    }
+
+    private static void writeList(IonReader reader, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        reader.stepIn();
+        while (reader.next() != null) {
+            writeValue(reader, generator);
+        }
+        reader.stepOut();
+        generator.writeEndArray();
+    }
+
+    // The decimal milliseconds keep the full precision of the timestamp, down to the nanosecond.
+    private static Instant toInstant(Timestamp timestamp) {
+        BigInteger[] secondsAndNanos = timestamp.getDecimalMillis()
+                                           .movePointRight(NANOS_PER_MILLI_DIGITS)
+                                           .toBigInteger()
+                                           .divideAndRemainder(NANOS_PER_SECOND);
+        return Instant.ofEpochSecond(secondsAndNanos[0].longValueExact(), secondsAndNanos[1].longValueExact());
+    }
+
+    private static void writeInteger(IonReader reader, JsonGenerator generator) throws IOException {
+        if (reader.getIntegerSize() == IntegerSize.BIG_INTEGER) {
+            generator.writeNumber(reader.bigIntegerValue());
+        } else {
+            generator.writeNumber(reader.longValue());
+        }
+    }
+
+    private static void writeFloat(double value, JsonGenerator generator) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import no.unit.nva.s3.ListingResult;
+import nva.commons.core.paths.UnixPath;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Lists the keys of the objects modified since a given time. The time of the last modification comes with the
+ * listing, so the objects that have not changed are left out without being downloaded. The listing continues after
+ * the last key that was listed, whether or not its object was modified, so that pages of unchanged objects are
+ * skipped at the cost of one listing request each.
+ */
+public class ModifiedObjectLister {
+
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public ModifiedObjectLister(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Lists a page of keys and keeps those of the objects modified since the given time. An object without a time
+     * of modification is kept.
+     *
+     * @param folder        the prefix of the keys
+     * @param startMarker   the key after which the listing starts, or null to start at the beginning
+     * @param pageSize      the number of keys listed
+     * @param modifiedSince the time before which objects are left out
+     * @return the modified keys of the page, with the last listed key as the starting point of the next page
+     */
+    public ListingResult listFiles(UnixPath folder, String startMarker, int pageSize, Instant modifiedSince) {
+        ListObjectsRequest request = ListObjectsRequest.builder()
+            .bucket(bucket)
+            .prefix(folder.toString())
+            .marker(startMarker)
+            .maxKeys(pageSize)
+            .build();
+        ListObjectsResponse response = s3Client.listObjects(request);
+        List<S3Object> listed = response.contents();
+        List<UnixPath> modified = listed.stream()
+            .filter(object -> isModifiedSince(object, modifiedSince))
+            .map(S3Object::key)
+            .map(UnixPath::of)
+            .collect(Collectors.toList());
+        String lastListedKey = listed.isEmpty() ? startMarker : listed.get(listed.size() - 1).key();
+        return new ListingResult(modified, lastListedKey, Boolean.TRUE.equals(response.isTruncated()));
+    }
+
+    private static boolean isModifiedSince(S3Object object, Instant modifiedSince) {
+        return isNull(object.lastModified()) || !object.lastModified().isBefore(modifiedSince);
+    }
+}
@@ -0,0 +1,19 @@
+package no.unit.nva.search;
+
+import java.util.Optional;
+
+/**
+ * Used when no location for checkpoints is configured. Nothing is recorded and imports cannot be resumed.
+ */
+public class NoCheckpointStore implements CheckpointStore {
+
+    @Override
+    public Optional<Checkpoint> read(String checkpointId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void write(String checkpointId, Checkpoint checkpoint) {
+        // nothing is recorded
+    }
+}
@@ -0,0 +1,29 @@
+package no.unit.nva.search;
+
+import java.util.List;
+
+/**
+ * Used when no location for dead letters is configured. Failures are only logged and returned by the indexer.
+ */
+public class NoDeadLetterStore implements DeadLetterStore {
+
+    @Override
+    public void write(List<DeadLetter> deadLetters) {
+        // nothing is recorded
+    }
+
+    @Override
+    public List<String> listBatches() {
+        return List.of();
+    }
+
+    @Override
+    public List<DeadLetter> readBatch(String batchId) {
+        return List.of();
+    }
+
+    @Override
+    public void deleteBatch(String batchId) {
+        // nothing is recorded
+    }
+}
@@ -0,0 +1,27 @@
+package no.unit.nva.search;
+
+import java.time.Instant;
+import java.util.Optional;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * Used when no location for high-water marks is configured. Incremental syncs must then be given their start time.
+ */
+public class NoHighWaterMarkStore implements HighWaterMarkStore {
+
+    @Override
+    public Optional<Instant> read(String s3Location) {
+        return Optional.empty();
+    }
+
+    @JacocoGenerated
+    @Override
+    public void write(String s3Location, Instant highWaterMark) {
+        // nothing is recorded
+    }
+
+    @Override
+    public boolean recordShardCompleted(String s3Location, Instant syncStarted, int shard, int numberOfShards) {
+        return false;
+    }
+}
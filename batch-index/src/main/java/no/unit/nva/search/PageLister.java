@@ -0,0 +1,88 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.nonNull;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import no.unit.nva.s3.ListingResult;
+import no.unit.nva.s3.S3Driver;
+import nva.commons.core.paths.UnixPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Lists the pages of files of an import, and lists the next page in the background while the current page is
+ * indexed. A page is listed ahead only when it is asked for with {@link #prefetch(ImportDataRequestEvent)}, and the
+ * prefetched listing is used only for exactly that page; any other page is listed when it is asked for. Only one page
+ * is prefetched at a time, so a prefetch replaces a prefetched listing that was never used.
+ */
+public class PageLister implements AutoCloseable {
+
+    public static final String THREAD_NAME_FORMAT = "s3-list-%d";
+    public static final String PREFETCH_FAILURE_LOG_MESSAGE = "Prefetched listing failed, listing again: {}";
+    private static final Logger logger = LoggerFactory.getLogger(PageLister.class);
+    private final S3Client s3Client;
+    private final int pageSize;
+    private final ExecutorService executor;
+    private ImportDataRequestEvent prefetchedPage;
+    private CompletableFuture<ListingResult> prefetchedListing;
+
+    public PageLister(S3Client s3Client, int pageSize) {
+        this.s3Client = s3Client;
+        this.pageSize = pageSize;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat(THREAD_NAME_FORMAT)
+            .setDaemon(true)
+            .build());
+    }
+
+    /**
+     * Returns the listing of a page, waiting for its prefetch when the page was prefetched.
+     *
+     * @param page the page to list
+     * @return the files of the page
+     */
+    public ListingResult list(ImportDataRequestEvent page) {
+        if (nonNull(prefetchedListing) && page.equals(prefetchedPage)) {
+            CompletableFuture<ListingResult> listing = prefetchedListing;
+            prefetchedPage = null;
+            prefetchedListing = null;
+            try {
+                return listing.join();
+            } catch (CompletionException exception) {
+                logger.warn(PREFETCH_FAILURE_LOG_MESSAGE, exception.getCause().getMessage());
+            }
+        }
+        return listNow(page);
+    }
+
+    /**
+     * Starts listing a page in the background.
+     *
+     * @param page the page that is going to be asked for next
+     */
+    public void prefetch(ImportDataRequestEvent page) {
+        if (nonNull(prefetchedListing)) {
+            prefetchedListing.cancel(true);
+        }
+        prefetchedPage = page;
+        prefetchedListing = CompletableFuture.supplyAsync(() -> listNow(page), executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private ListingResult listNow(ImportDataRequestEvent page) {
+        UnixPath folder = UnixPath.of(page.getS3Path());
+        if (nonNull(page.getModifiedSince())) {
+            return new ModifiedObjectLister(s3Client, page.getBucket())
+                .listFiles(folder, page.getStartMarker(), pageSize, page.getModifiedSince());
+        }
+        return new S3Driver(s3Client, page.getBucket()).listFiles(folder, page.getStartMarker(), pageSize);
+    }
+}
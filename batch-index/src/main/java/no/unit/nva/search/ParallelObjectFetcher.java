@@ -0,0 +1,174 @@
+package no.unit.nva.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import nva.commons.core.paths.UnixPath;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+/**
+ * Downloads S3 objects on a dedicated thread pool, with at most a fixed number of requests in flight. The contents
+ * are returned in the order of the keys, regardless of the order in which the downloads complete, so that a failed
+ * download is always reported for the first failing key. Downloads run ahead of the consumer by at most the
+ * concurrency, and no new download is started while the objects that were downloaded ahead and not yet consumed
+ * take up the byte ceiling or more, which bounds the memory held by objects that wait to be consumed.
+ *
+ * <p>Objects holding a single document are downloaded whole. For bundles, see {@link BundleReader}, only the
+ * request is made ahead of the consumer, and the documents are decoded from the response stream as they are
+ * consumed.
+ */
+public class ParallelObjectFetcher implements AutoCloseable {
+
+    public static final String THREAD_NAME_FORMAT = "s3-fetch-%d";
+    public static final long NO_BYTE_CEILING = Long.MAX_VALUE;
+    private static final long STREAMED = 0;
+    private final S3Client s3Client;
+    private final String bucket;
+    private final int concurrency;
+    private final long maxFetchedBytes;
+    private final ExecutorService executor;
+
+    public ParallelObjectFetcher(S3Client s3Client, String bucket, int concurrency) {
+        this(s3Client, bucket, concurrency, NO_BYTE_CEILING);
+    }
+
+    /**
+     * Creates a fetcher.
+     *
+     * @param s3Client        the client used to download the objects
+     * @param bucket          the bucket of the objects
+     * @param concurrency     the maximum number of downloads in flight
+     * @param maxFetchedBytes the size of the downloaded and not yet consumed objects above which no new download is
+     *                        started
+     */
+    public ParallelObjectFetcher(S3Client s3Client, String bucket, int concurrency, long maxFetchedBytes) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxFetchedBytes = maxFetchedBytes;
+        this.executor = Executors.newFixedThreadPool(this.concurrency, new ThreadFactoryBuilder()
+            .setNameFormat(THREAD_NAME_FORMAT)
+            .setDaemon(true)
+            .build());
+    }
+
+    /**
+     * Downloads the objects with the given keys. Downloads start when the stream is consumed.
+     *
+     * @param keys the keys of the objects, in the order their documents should be returned
+     * @return the documents of the objects, in the order of the keys and, within a bundle, of the bundle
+     */
+    public Stream<StoredDocument> fetch(List<UnixPath> keys) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new OrderedFetchIterator(keys.iterator()),
+                                                                        Spliterator.ORDERED), false);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private FetchedObject fetchObject(UnixPath key) {
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key.toString())
+            .build();
+        if (BundleReader.isBundle(key)) {
+            return new FetchedObject(BundleReader.bundleDocuments(s3Client.getObject(request))
+                                         .map(content -> new StoredDocument(key, content)), STREAMED);
+        }
+        byte[] content = s3Client.getObject(request, ResponseTransformer.toBytes()).asByteArrayUnsafe();
+        return new FetchedObject(Stream.of(new StoredDocument(key, BundleReader.singleDocument(content))),
+                                 content.length);
+    }
+
+    private static FetchedObject join(CompletableFuture<FetchedObject> download) {
+        try {
+            return download.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    // Iterates over the documents of the objects one object at a time. Flattening the objects here, instead of with
+    // Stream.flatMap, keeps a consumer that pulls through an iterator from buffering a whole bundle.
+    private class OrderedFetchIterator implements Iterator<StoredDocument> {
+
+        private final Iterator<UnixPath> keys;
+        private final Deque<CompletableFuture<FetchedObject>> downloads;
+        private Stream<StoredDocument> currentObject = Stream.empty();
+        private Iterator<StoredDocument> currentDocuments = Collections.emptyIterator();
+
+        OrderedFetchIterator(Iterator<UnixPath> keys) {
+            this.keys = keys;
+            this.downloads = new ArrayDeque<>(concurrency);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentDocuments.hasNext()) {
+                currentObject.close();
+                startDownloads();
+                if (downloads.isEmpty()) {
+                    return false;
+                }
+                currentObject = join(downloads.removeFirst()).documents;
+                startDownloads();
+                currentDocuments = currentObject.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public StoredDocument next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentDocuments.next();
+        }
+
+        private void startDownloads() {
+            while (downloads.size() < concurrency && keys.hasNext() && fetchedAheadBytes() < maxFetchedBytes) {
+                UnixPath key = keys.next();
+                downloads.addLast(CompletableFuture.supplyAsync(() -> fetchObject(key), executor));
+            }
+        }
+
+        // Bundles are decoded from the response stream as they are consumed, so only whole objects take up memory
+        // ahead of the consumer. A failed download holds nothing.
+        private long fetchedAheadBytes() {
+            return downloads.stream()
+                .filter(download -> download.isDone() && !download.isCompletedExceptionally())
+                .mapToLong(download -> download.join().sizeInBytes)
+                .sum();
+        }
+    }
+
+    private static final class FetchedObject {
+
+        private final Stream<StoredDocument> documents;
+        private final long sizeInBytes;
+
+        private FetchedObject(Stream<StoredDocument> documents, long sizeInBytes) {
+            this.documents = documents;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+}
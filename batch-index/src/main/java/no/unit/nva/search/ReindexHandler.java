@@ -0,0 +1,134 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.nonNull;
+import static no.unit.nva.search.BatchIndexingConstants.RETAINED_GENERATIONS;
+import static no.unit.nva.search.BatchIndexingConstants.SERVING_REPLICAS;
+import static no.unit.nva.search.BatchIndexingConstants.defaultEsClient;
+import static no.unit.nva.search.BatchIndexingConstants.defaultEventBridgeClient;
+import static no.unit.nva.search.BatchIndexingConstants.defaultS3Client;
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.time.Instant;
+import java.util.List;
+import no.unit.nva.s3.S3Driver;
+import no.unit.nva.search.bulk.BulkLoadSession;
+import nva.commons.core.JacocoGenerated;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.settings.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Rebuilds an index without searches seeing a half-built index. The start step creates a new generation of the
+ * index with bulk-load settings and imports the files into it, while the alias keeps serving the current
+ * generation. Since live updates keep going to the serving generation while the new one is built, the catch-up
+ * step, run once the import has completed, imports the files modified since the new generation was created into the
+ * new generation, which is still not served. The promote step, run once the catch-up has completed, warms the new
+ * generation and moves the alias to it in one call. Only the files modified while the catch-up ran are then missing
+ * from it, so the promote step imports them into the alias, and last deletes the generations that are no longer
+ * retained. A failure to delete them is logged and leaves them for the next promotion.
+ *
+ * <p>Deletes are not caught up: a document that was imported into the new generation and then deleted while the
+ * generation was built is deleted only from the serving generation, and is searchable again once the new
+ * generation is promoted. Its file is gone, so no import removes it. Such documents must be deleted again after
+ * the promotion.
+ */
+public class ReindexHandler implements RequestStreamHandler {
+
+    public static final String CLEAN_UP_FAILED_LOG_MESSAGE = "Failed to delete expired generations of {}";
+    private static final Logger logger = LoggerFactory.getLogger(ReindexHandler.class);
+    private final EventBridgeClient eventBridgeClient;
+    private final S3Client s3Client;
+    private final IndexGenerations indexGenerations;
+
+    @JacocoGenerated
+    public ReindexHandler() {
+        this(defaultEventBridgeClient(), defaultS3Client(), defaultEsClient().indexGenerations());
+    }
+
+    public ReindexHandler(EventBridgeClient eventBridgeClient, S3Client s3Client,
+                          IndexGenerations indexGenerations) {
+        this.eventBridgeClient = eventBridgeClient;
+        this.s3Client = s3Client;
+        this.indexGenerations = indexGenerations;
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        ReindexRequest request = objectMapperWithEmpty.readValue(input, ReindexRequest.class);
+        writeOutput(output, handle(request, context));
+    }
+
+    private Object handle(ReindexRequest request, Context context) throws IOException {
+        switch (request.getAction()) {
+            case CATCH_UP:
+                return catchUp(request, context);
+            case PROMOTE:
+                return promote(request, context);
+            default:
+                return start(request, context);
+        }
+    }
+
+    private String start(ReindexRequest request, Context context) throws IOException {
+        String generation = indexGenerations.create(request.getAlias(), Instant.now());
+        startImport(new ImportDataRequestEvent(request.getS3Location(), null, null, request.getNumberOfShards(),
+                                               false, null, generation), context);
+        return generation;
+    }
+
+    private Instant catchUp(ReindexRequest request, Context context) {
+        Instant catchUpStarted = Instant.now();
+        String generation = request.getGeneration();
+        startImport(new ImportDataRequestEvent(request.getS3Location(), null, null, request.getNumberOfShards(),
+                                               false, IndexGenerations.createdAt(generation), generation), context);
+        return catchUpStarted;
+    }
+
+    private List<String> promote(ReindexRequest request, Context context) throws IOException {
+        String generation = request.getGeneration();
+        indexGenerations.promote(generation, servingSettings());
+        if (nonNull(request.getS3Location()) && nonNull(request.getModifiedSince())) {
+            startImport(new ImportDataRequestEvent(request.getS3Location(), null, null, request.getNumberOfShards(),
+                                                   false, request.getModifiedSince()), context);
+        }
+        return cleanUp(IndexGenerations.aliasOf(generation));
+    }
+
+    private List<String> cleanUp(String alias) {
+        try {
+            return indexGenerations.cleanUp(alias, RETAINED_GENERATIONS);
+        } catch (IOException | ElasticsearchException exception) {
+            logger.warn(CLEAN_UP_FAILED_LOG_MESSAGE, alias, exception);
+            return List.of();
+        }
+    }
+
+    private void startImport(ImportDataRequestEvent request, Context context) {
+        List<ImportDataRequestEvent> shards =
+            new ShardPlanner(new S3Driver(s3Client, request.getBucket())).plan(request);
+        logger.info("Number of shards: " + shards.size());
+        new BatchedEventEmitter(eventBridgeClient).emitAll(shards, context);
+    }
+
+    private static Settings servingSettings() {
+        return Settings.builder()
+            .putNull(BulkLoadSession.REFRESH_INTERVAL)
+            .put(BulkLoadSession.NUMBER_OF_REPLICAS, SERVING_REPLICAS)
+            .build();
+    }
+
+    private static void writeOutput(OutputStream outputStream, Object result) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream))) {
+            writer.write(objectMapperWithEmpty.writeValueAsString(result));
+        }
+    }
+}
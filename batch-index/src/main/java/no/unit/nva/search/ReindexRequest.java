@@ -0,0 +1,97 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.RESOURCES_INDEX;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.util.Optional;
+import no.unit.nva.commons.json.JsonSerializable;
+
+/**
+ * A step of a blue/green reindex. {@link Action#START} creates a new generation of the index and starts an import
+ * into it. {@link Action#CATCH_UP}, run once that import has completed, imports the files modified while the
+ * generation was built into the generation, and returns the time it started. {@link Action#PROMOTE}, run once the
+ * catch-up has completed, moves the alias to the generation, imports the files modified since the catch-up started
+ * and deletes the expired generations.
+ */
+public class ReindexRequest implements JsonSerializable {
+
+    public static final String ACTION_FIELD = "action";
+    public static final String ALIAS_FIELD = "alias";
+    public static final String S3_LOCATION_FIELD = "s3Location";
+    public static final String NUMBER_OF_SHARDS_FIELD = "numberOfShards";
+    public static final String GENERATION_FIELD = "generation";
+    public static final String MODIFIED_SINCE_FIELD = "modifiedSince";
+
+    @JsonProperty(ACTION_FIELD)
+    private final Action action;
+    @JsonProperty(ALIAS_FIELD)
+    private final String alias;
+    @JsonProperty(S3_LOCATION_FIELD)
+    private final String s3Location;
+    @JsonProperty(NUMBER_OF_SHARDS_FIELD)
+    private final Integer numberOfShards;
+    @JsonProperty(GENERATION_FIELD)
+    private final String generation;
+    @JsonProperty(MODIFIED_SINCE_FIELD)
+    private final Instant modifiedSince;
+
+    public ReindexRequest(Action action, String alias, String s3Location, Integer numberOfShards,
+                          String generation) {
+        this(action, alias, s3Location, numberOfShards, generation, null);
+    }
+
+    /**
+     * Creates a reindex step.
+     *
+     * @param action         the step
+     * @param alias          the alias whose index is rebuilt, or null for the resources index
+     * @param s3Location     the location of the files to import
+     * @param numberOfShards the number of key ranges the imports are split into, or null for a single range
+     * @param generation     the generation to catch up or promote, returned by the start step
+     * @param modifiedSince  the time the catch-up step started, returned by it, or null to promote without
+     *                       importing the files modified since
+     */
+    @JsonCreator
+    public ReindexRequest(@JsonProperty(ACTION_FIELD) Action action,
+                          @JsonProperty(ALIAS_FIELD) String alias,
+                          @JsonProperty(S3_LOCATION_FIELD) String s3Location,
+                          @JsonProperty(NUMBER_OF_SHARDS_FIELD) Integer numberOfShards,
+                          @JsonProperty(GENERATION_FIELD) String generation,
+                          @JsonProperty(MODIFIED_SINCE_FIELD) Instant modifiedSince) {
+        this.action = action;
+        this.alias = Optional.ofNullable(alias).orElse(RESOURCES_INDEX);
+        this.s3Location = s3Location;
+        this.numberOfShards = numberOfShards;
+        this.generation = generation;
+        this.modifiedSince = modifiedSince;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getS3Location() {
+        return s3Location;
+    }
+
+    public Integer getNumberOfShards() {
+        return numberOfShards;
+    }
+
+    public String getGeneration() {
+        return generation;
+    }
+
+    public Instant getModifiedSince() {
+        return modifiedSince;
+    }
+
+    public enum Action {
+        START, CATCH_UP, PROMOTE
+    }
+}
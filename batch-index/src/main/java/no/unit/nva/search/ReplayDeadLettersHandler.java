@@ -0,0 +1,170 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static no.unit.nva.search.BatchIndexingConstants.FETCH_CONCURRENCY;
+import static no.unit.nva.search.BatchIndexingConstants.MAX_FETCHED_BYTES;
+import static no.unit.nva.search.BatchIndexingConstants.MAX_REPLAY_ATTEMPTS;
+import static no.unit.nva.search.BatchIndexingConstants.REFRESH_POLICY;
+import static no.unit.nva.search.BatchIndexingConstants.defaultDeadLetterStore;
+import static no.unit.nva.search.BatchIndexingConstants.defaultEsClient;
+import static no.unit.nva.search.BatchIndexingConstants.defaultS3Client;
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.JacocoGenerated;
+import nva.commons.core.paths.UnixPath;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Indexes the documents recorded as dead letters again. Only the documents of the dead letters are indexed: the
+ * objects they were read from are downloaded once per batch, and the documents of a bundle that are not dead
+ * letters are left out. The documents are indexed in bulks sized by the bulk settings of the function, which can be
+ * much larger than those of a live import since the replay competes with nothing else. Each document is indexed
+ * into the index its dead letter records, which is the index the failed write went to.
+ *
+ * <p>A dead letter that fails again is recorded in a new batch with one more attempt. Dead letters that have been
+ * attempted the maximum number of times, {@link BatchIndexingConstants#MAX_REPLAY_ATTEMPTS}, are kept, but no
+ * longer replayed, and a batch holding only such letters is left as it is for an operator to look into. A dead letter
+ * that cannot be replayed, because it has no key or its document is no longer found, is logged and dropped, and
+ * counted as dropped rather than recovered.
+ */
+public class ReplayDeadLettersHandler implements RequestStreamHandler {
+
+    public static final String REPLAYED = "replayed";
+    public static final String RECOVERED = "recovered";
+    public static final String DROPPED = "dropped";
+    public static final String REMAINING = "remaining";
+    private static final Logger logger = LoggerFactory.getLogger(ReplayDeadLettersHandler.class);
+    private final S3Client s3Client;
+    private final IndexingClient indexingClient;
+    private final DeadLetterStore deadLetterStore;
+    private final int maxAttempts;
+
+    @JacocoGenerated
+    public ReplayDeadLettersHandler() {
+        this(defaultS3Client());
+    }
+
+    @JacocoGenerated
+    private ReplayDeadLettersHandler(S3Client s3Client) {
+        this(s3Client, defaultEsClient(), defaultDeadLetterStore(s3Client), MAX_REPLAY_ATTEMPTS);
+    }
+
+    public ReplayDeadLettersHandler(S3Client s3Client, IndexingClient indexingClient,
+                                    DeadLetterStore deadLetterStore, int maxAttempts) {
+        this.s3Client = s3Client;
+        this.indexingClient = indexingClient;
+        this.deadLetterStore = deadLetterStore;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        Map<String, Integer> summary = new LinkedHashMap<>();
+        Stream.of(REPLAYED, RECOVERED, DROPPED, REMAINING).forEach(entry -> summary.put(entry, 0));
+        for (String batchId : deadLetterStore.listBatches()) {
+            replayBatch(batchId, summary);
+        }
+        logger.info("Dead letter replay: " + summary);
+        writeOutput(output, summary);
+    }
+
+    // The letters that are still failing are written before the batch is deleted, so that a failure is never lost.
+    private void replayBatch(String batchId, Map<String, Integer> summary) {
+        List<DeadLetter> deadLetters = deadLetterStore.readBatch(batchId);
+        Map<Boolean, List<DeadLetter>> byEligibility = deadLetters.stream()
+            .collect(Collectors.partitioningBy(deadLetter -> deadLetter.getAttempts() < maxAttempts));
+        List<DeadLetter> eligible = byEligibility.get(true);
+        if (eligible.isEmpty()) {
+            return;
+        }
+        List<DeadLetter> dropped = new ArrayList<>();
+        List<DeadLetter> failedAgain = replay(eligible, dropped);
+        List<DeadLetter> remaining = new ArrayList<>(byEligibility.get(false));
+        remaining.addAll(failedAgain);
+        if (!remaining.isEmpty()) {
+            deadLetterStore.write(remaining);
+        }
+        deadLetterStore.deleteBatch(batchId);
+        summary.merge(REPLAYED, eligible.size(), Integer::sum);
+        summary.merge(RECOVERED, eligible.size() - failedAgain.size() - dropped.size(), Integer::sum);
+        summary.merge(DROPPED, dropped.size(), Integer::sum);
+        summary.merge(REMAINING, remaining.size(), Integer::sum);
+    }
+
+    // A letter without a key was recorded for a document whose object could not be told, so it cannot be replayed.
+    private List<DeadLetter> replay(List<DeadLetter> deadLetters, List<DeadLetter> dropped) {
+        deadLetters.stream()
+            .filter(deadLetter -> isNull(deadLetter.getKey()))
+            .peek(dropped::add)
+            .forEach(deadLetter -> logger.warn("Dead letter without key dropped:" + deadLetter.getIdentifier()));
+        Map<String, List<DeadLetter>> byBucket = deadLetters.stream()
+            .filter(deadLetter -> nonNull(deadLetter.getKey()))
+            .collect(Collectors.groupingBy(DeadLetter::getBucket));
+        List<DeadLetter> failedAgain = new ArrayList<>();
+        byBucket.forEach((bucket, lettersOfBucket) ->
+                             failedAgain.addAll(replayFromBucket(bucket, lettersOfBucket, dropped)));
+        return failedAgain;
+    }
+
+    private List<DeadLetter> replayFromBucket(String bucket, List<DeadLetter> deadLetters,
+                                              List<DeadLetter> dropped) {
+        Map<String, DeadLetter> byIdentifier = deadLetters.stream()
+            .collect(Collectors.toMap(DeadLetter::getIdentifier, deadLetter -> deadLetter, (first, second) -> first));
+        List<UnixPath> keys = deadLetters.stream()
+            .map(DeadLetter::getKey)
+            .distinct()
+            .sorted()
+            .map(UnixPath::of)
+            .collect(Collectors.toList());
+        Set<String> found = new HashSet<>();
+        Map<String, Failure> failures = new HashMap<>();
+        try (ParallelObjectFetcher fetcher =
+                 new ParallelObjectFetcher(s3Client, bucket, FETCH_CONCURRENCY, MAX_FETCHED_BYTES)) {
+            Stream<IndexDocument> documents = fetcher.fetch(keys)
+                .map(StoredDocument::decode)
+                .filter(document -> byIdentifier.containsKey(document.getDocumentIdentifier()))
+                .peek(document -> found.add(document.getDocumentIdentifier()))
+                .map(document -> document.inIndex(byIdentifier.get(document.getDocumentIdentifier()).getIndex()));
+            indexingClient.batchInsert(documents, REFRESH_POLICY)
+                .flatMap(BatchIndexer::collectFailures)
+                .filter(BatchIndexer::isFailedWrite)
+                .forEach(failure -> failures.put(failure.getId(), failure));
+        }
+        byIdentifier.values().stream()
+            .filter(deadLetter -> !found.contains(deadLetter.getIdentifier()))
+            .peek(dropped::add)
+            .forEach(deadLetter -> logger.warn("Dead letter no longer found in " + bucket + ":"
+                                               + deadLetter.getIdentifier()));
+        return failures.values().stream()
+            .filter(failure -> byIdentifier.containsKey(failure.getId()))
+            .map(failure -> byIdentifier.get(failure.getId()).failedAgain(BulkFailureClass.classify(failure)))
+            .collect(Collectors.toList());
+    }
+
+    private static void writeOutput(OutputStream outputStream, Map<String, Integer> summary) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream))) {
+            writer.write(objectMapperWithEmpty.writeValueAsString(summary));
+        }
+    }
+}
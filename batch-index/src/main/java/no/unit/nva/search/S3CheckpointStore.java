@@ -0,0 +1,49 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import static nva.commons.core.attempt.Try.attempt;
+import java.util.Optional;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Keeps every checkpoint as a JSON object under {@value CHECKPOINTS_PREFIX} in a bucket of its own. A checkpoint is
+ * replaced with a single put, so a reader sees either the previous or the new checkpoint.
+ */
+public class S3CheckpointStore implements CheckpointStore {
+
+    public static final String CHECKPOINTS_PREFIX = "checkpoints/";
+    public static final String JSON_SUFFIX = ".json";
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3CheckpointStore(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public Optional<Checkpoint> read(String checkpointId) {
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key(keyOf(checkpointId)).build();
+        String json;
+        try {
+            json = s3Client.getObjectAsBytes(request).asUtf8String();
+        } catch (NoSuchKeyException missing) {
+            return Optional.empty();
+        }
+        return Optional.of(attempt(() -> objectMapperWithEmpty.readValue(json, Checkpoint.class)).orElseThrow());
+    }
+
+    @Override
+    public void write(String checkpointId, Checkpoint checkpoint) {
+        PutObjectRequest request = PutObjectRequest.builder().bucket(bucket).key(keyOf(checkpointId)).build();
+        s3Client.putObject(request, RequestBody.fromString(checkpoint.toJsonString()));
+    }
+
+    private static String keyOf(String checkpointId) {
+        return CHECKPOINTS_PREFIX + checkpointId + JSON_SUFFIX;
+    }
+}
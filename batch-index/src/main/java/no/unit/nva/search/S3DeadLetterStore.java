@@ -0,0 +1,68 @@
+package no.unit.nva.search;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Keeps every batch of dead letters as a JSON object under {@value DEAD_LETTERS_PREFIX} in the state bucket.
+ */
+public class S3DeadLetterStore implements DeadLetterStore {
+
+    public static final String DEAD_LETTERS_PREFIX = "dead-letters/";
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3DeadLetterStore(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void write(List<DeadLetter> deadLetters) {
+        PutObjectRequest request = PutObjectRequest.builder()
+            .bucket(bucket)
+            .key(keyOf(DeadLetterBatches.newBatchId()))
+            .build();
+        s3Client.putObject(request, RequestBody.fromString(DeadLetterBatches.serialize(deadLetters)));
+    }
+
+    // Keys are listed in lexicographic order, which is the order in which the batches were written.
+    @Override
+    public List<String> listBatches() {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+            .bucket(bucket)
+            .prefix(DEAD_LETTERS_PREFIX)
+            .build();
+        return s3Client.listObjectsV2Paginator(request).contents().stream()
+            .map(S3Object::key)
+            .filter(key -> key.endsWith(DeadLetterBatches.BATCH_SUFFIX))
+            .map(S3DeadLetterStore::batchIdOf)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<DeadLetter> readBatch(String batchId) {
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key(keyOf(batchId)).build();
+        return DeadLetterBatches.deserialize(s3Client.getObjectAsBytes(request).asUtf8String());
+    }
+
+    @Override
+    public void deleteBatch(String batchId) {
+        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(keyOf(batchId)).build());
+    }
+
+    private static String keyOf(String batchId) {
+        return DEAD_LETTERS_PREFIX + batchId + DeadLetterBatches.BATCH_SUFFIX;
+    }
+
+    private static String batchIdOf(String key) {
+        return key.substring(DEAD_LETTERS_PREFIX.length(), key.length() - DeadLetterBatches.BATCH_SUFFIX.length());
+    }
+}
@@ -0,0 +1,113 @@
+package no.unit.nva.search;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Keeps the high-water marks of every location as empty objects under {@value HIGH_WATER_MARKS_PREFIX} in the state
+ * bucket, keyed by the URL encoded location and the ISO-8601 start of the completed sync. The high-water mark is the
+ * latest of them, so it is derived rather than overwritten: syncs that complete at the same time each add their own
+ * object, and none can move the mark backwards. Writing a mark deletes the marks of the location that are older than
+ * the latest one. The completed shards of a sync are recorded as empty objects
+ * under {@value COMPLETED_SHARDS_PREFIX}, keyed by the location, the start of the sync and the shard, and are found
+ * by reading them rather than listing them.
+ */
+public class S3HighWaterMarkStore implements HighWaterMarkStore {
+
+    public static final String HIGH_WATER_MARKS_PREFIX = "high-water-marks/";
+    public static final String COMPLETED_SHARDS_PREFIX = "completed-shards/";
+    public static final String KEY_DELIMITER = "/";
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3HighWaterMarkStore(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public Optional<Instant> read(String s3Location) {
+        return listMarks(s3Location).stream().map(S3HighWaterMarkStore::markOf).max(Instant::compareTo);
+    }
+
+    // Only marks older than the latest one are deleted, so the latest mark survives concurrent writes.
+    @Override
+    public void write(String s3Location, Instant highWaterMark) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                                       .bucket(bucket)
+                                       .key(markKey(s3Location, highWaterMark))
+                                       .build();
+        s3Client.putObject(request, RequestBody.empty());
+        List<String> marks = listMarks(s3Location);
+        marks.stream()
+            .map(S3HighWaterMarkStore::markOf)
+            .max(Instant::compareTo)
+            .ifPresent(latest -> marks.stream()
+                .filter(key -> markOf(key).isBefore(latest))
+                .forEach(this::delete));
+    }
+
+    @Override
+    public boolean recordShardCompleted(String s3Location, Instant syncStarted, int shard, int numberOfShards) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                                       .bucket(bucket)
+                                       .key(completedShardKey(s3Location, syncStarted, shard))
+                                       .build();
+        s3Client.putObject(request, RequestBody.empty());
+        return IntStream.range(0, numberOfShards)
+                   .allMatch(anyShard -> isCompleted(completedShardKey(s3Location, syncStarted, anyShard)));
+    }
+
+    private boolean isCompleted(String completedShardKey) {
+        try {
+            s3Client.getObjectAsBytes(GetObjectRequest.builder().bucket(bucket).key(completedShardKey).build());
+            return true;
+        } catch (NoSuchKeyException missing) {
+            return false;
+        }
+    }
+
+    private static String completedShardKey(String s3Location, Instant syncStarted, int shard) {
+        return COMPLETED_SHARDS_PREFIX + URLEncoder.encode(s3Location, StandardCharsets.UTF_8)
+               + KEY_DELIMITER + syncStarted + KEY_DELIMITER + shard;
+    }
+
+    private List<String> listMarks(String s3Location) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                                           .bucket(bucket)
+                                           .prefix(marksPrefix(s3Location))
+                                           .build();
+        return s3Client.listObjectsV2Paginator(request).contents().stream()
+                   .map(S3Object::key)
+                   .collect(Collectors.toList());
+    }
+
+    private void delete(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    private static Instant markOf(String markKey) {
+        return Instant.parse(markKey.substring(markKey.lastIndexOf(KEY_DELIMITER) + 1));
+    }
+
+    private static String markKey(String s3Location, Instant highWaterMark) {
+        return marksPrefix(s3Location) + highWaterMark;
+    }
+
+    private static String marksPrefix(String s3Location) {
+        return HIGH_WATER_MARKS_PREFIX + URLEncoder.encode(s3Location, StandardCharsets.UTF_8) + KEY_DELIMITER;
+    }
+}
@@ -0,0 +1,84 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import java.util.ArrayList;
+import java.util.List;
+import no.unit.nva.s3.ListingResult;
+import no.unit.nva.s3.S3Driver;
+import nva.commons.core.paths.UnixPath;
+
+/**
+ * Splits an import into disjoint key ranges that can be indexed in parallel, each by its own chain of events. The
+ * keys of the location are listed once, without reading the files, and the boundaries of the ranges are chosen
+ * among the last keys of the listing pages, so that every range holds about the same number of pages. Only one key
+ * per listing page is kept in memory.
+ */
+public class ShardPlanner {
+
+    public static final int LISTING_PAGE_SIZE = 1000;
+    public static final int SINGLE_SHARD = 1;
+    private final S3Driver s3Driver;
+    private final int listingPageSize;
+
+    public ShardPlanner(S3Driver s3Driver) {
+        this(s3Driver, LISTING_PAGE_SIZE);
+    }
+
+    public ShardPlanner(S3Driver s3Driver, int listingPageSize) {
+        this.s3Driver = s3Driver;
+        this.listingPageSize = listingPageSize;
+    }
+
+    /**
+     * Splits the request into the requested number of shards. A range holds the keys after its start marker up to
+     * and including its end marker. The first range starts where the request starts and the last range is open
+     * ended, so the ranges together cover exactly the keys of the request. The shards of a resumed import get the
+     * same ranges as the shards of the interrupted import, and so find their checkpoints, as long as the keys of the
+     * location have not changed in between. Every shard carries the number of shards, so that the shards share the
+     * configured indexing rates.
+     *
+     * @param request the import request
+     * @return one request per shard, or the request itself when it asks for a single shard
+     */
+    public List<ImportDataRequestEvent> plan(ImportDataRequestEvent request) {
+        int numberOfShards = isNull(request.getNumberOfShards()) ? SINGLE_SHARD : request.getNumberOfShards();
+        if (numberOfShards <= SINGLE_SHARD) {
+            return List.of(request);
+        }
+        List<String> pageBoundaries = listPageBoundaries(request);
+        int shards = Math.max(SINGLE_SHARD, Math.min(numberOfShards, pageBoundaries.size()));
+        List<ImportDataRequestEvent> plan = new ArrayList<>(shards);
+        String startMarker = request.getStartMarker();
+        for (int shard = 1; shard <= shards; shard++) {
+            String endMarker = shard == shards
+                                   ? request.getEndMarker()
+                                   : pageBoundaries.get(shard * pageBoundaries.size() / shards - 1);
+            plan.add(new ImportDataRequestEvent(request.getS3Location(), startMarker, endMarker, shards,
+                                                request.isResume(), request.getModifiedSince(),
+                                                request.getTargetIndex()));
+            startMarker = endMarker;
+        }
+        return plan;
+    }
+
+    private List<String> listPageBoundaries(ImportDataRequestEvent request) {
+        List<String> boundaries = new ArrayList<>();
+        UnixPath location = UnixPath.of(request.getS3Path());
+        String marker = request.getStartMarker();
+        ListingResult page;
+        do {
+            page = s3Driver.listFiles(location, marker, listingPageSize);
+            List<UnixPath> files = page.getFiles();
+            if (files.isEmpty()) {
+                break;
+            }
+            marker = files.get(files.size() - 1).toString();
+            boundaries.add(marker);
+        } while (page.isTruncated() && isBeforeEnd(marker, request.getEndMarker()));
+        return boundaries;
+    }
+
+    private static boolean isBeforeEnd(String key, String endMarker) {
+        return isNull(endMarker) || key.compareTo(endMarker) < 0;
+    }
+}
@@ -0,0 +1,38 @@
+package no.unit.nva.search;
+
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.paths.UnixPath;
+
+/**
+ * The encoded envelope of one document, together with the key of the S3 object it was read from. A bundle object
+ * holds many documents, so several documents can share a key.
+ */
+public class StoredDocument {
+
+    private final UnixPath key;
+    private final byte[] content;
+
+    public StoredDocument(UnixPath key, byte[] content) {
+        this.key = key;
+        this.content = content;
+    }
+
+    public UnixPath getKey() {
+        return key;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Decodes the envelope, as Ion when {@link IonEnvelopeDecoder#isIon(StoredDocument)} and as JSON otherwise.
+     *
+     * @return the decoded document
+     */
+    public IndexDocument decode() {
+        return IonEnvelopeDecoder.isIon(this)
+                   ? IonEnvelopeDecoder.decode(content)
+                   : IndexDocument.fromJsonBytes(content);
+    }
+}
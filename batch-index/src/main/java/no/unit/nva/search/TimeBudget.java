@@ -0,0 +1,43 @@
+package no.unit.nva.search;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+/**
+ * Decides whether an invocation has time left for another page. Another page is started only when the remaining
+ * time exceeds a safety margin made of a fixed minimum plus a multiple of the longest page seen so far, so the
+ * margin grows when pages get slower, for instance when the cluster is under load.
+ */
+public class TimeBudget {
+
+    public static final double PAGE_TIME_FACTOR = 2.0;
+    private final Context context;
+    private final long minimumMarginMillis;
+    private long longestPageMillis;
+
+    public TimeBudget(Context context, long minimumMarginMillis) {
+        this.context = context;
+        this.minimumMarginMillis = minimumMarginMillis;
+    }
+
+    public void recordPage(long pageMillis) {
+        longestPageMillis = Math.max(longestPageMillis, pageMillis);
+    }
+
+    public long getMarginMillis() {
+        return minimumMarginMillis + (long) (PAGE_TIME_FACTOR * longestPageMillis);
+    }
+
+    public boolean hasTimeForAnotherPage() {
+        return context.getRemainingTimeInMillis() > getMarginMillis();
+    }
+
+    /**
+     * Tells whether the page that has just been started is going to be the last page of the invocation, that is
+     * whether no time would be left for another page once this page has taken as long as the longest page seen so far.
+     *
+     * @return true when no other page is going to be started after the current page
+     */
+    public boolean isLastPage() {
+        return context.getRemainingTimeInMillis() - longestPageMillis <= getMarginMillis();
+    }
+}
@@ -13,6 +13,9 @@ import org.elasticsearch.action.DocWriteRequest.OpType;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.shard.ShardId;
 
 public class BatchIndexTest {
 
@@ -24,7 +27,8 @@ public class BatchIndexTest {
     protected FakeIndexingClient failingElasticSearchClient() {
         return new FakeIndexingClient() {
             @Override
-            public Stream<BulkResponse> batchInsert(Stream<IndexDocument> indexDocuments) {
+            public Stream<BulkResponse> batchInsert(Stream<IndexDocument> indexDocuments,
+                                                    RefreshPolicy refreshPolicy) {
                 List<BulkItemResponse> itemResponses = indexDocuments
                     .map(IndexDocument::getDocumentIdentifier)
                     .map(id -> createFailure(id))
@@ -37,6 +41,27 @@ public class BatchIndexTest {
         };
     }
 
+    protected FakeIndexingClient staleWritesElasticSearchClient() {
+        return new FakeIndexingClient() {
+            @Override
+            public Stream<BulkResponse> batchInsert(Stream<IndexDocument> indexDocuments,
+                                                    RefreshPolicy refreshPolicy) {
+                BulkItemResponse[] itemResponses = indexDocuments
+                    .map(IndexDocument::getDocumentIdentifier)
+                    .map(id -> createVersionConflict(id))
+                    .map(conflict -> new BulkItemResponse(randomNumber(), OpType.INDEX, conflict))
+                    .toArray(BulkItemResponse[]::new);
+                return Stream.of(new BulkResponse(itemResponses, ARBITRARY_QUERY_TIME));
+            }
+        };
+    }
+
+    private Failure createVersionConflict(String identifier) {
+        var shardId = new ShardId(ApplicationConstants.ELASTICSEARCH_ENDPOINT_INDEX, "_na_", 0);
+        return new Failure(ApplicationConstants.ELASTICSEARCH_ENDPOINT_INDEX, "_doc", identifier,
+                           new VersionConflictEngineException(shardId, identifier, "newer version exists"));
+    }
+
     private Failure createFailure(String identifier) {
         return new Failure(ApplicationConstants.ELASTICSEARCH_ENDPOINT_INDEX, "failureType",
                            identifier, new Exception("failingBulkIndexMessage"));
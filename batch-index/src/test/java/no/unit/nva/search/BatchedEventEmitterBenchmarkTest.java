@@ -0,0 +1,55 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.BatchIndexTest.CONTEXT;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+
+/**
+ * Compares emitting a fan-out of events one per request with emitting it in batched requests, against a stub client
+ * that takes a fixed time per request as a round trip to EventBridge would. The timings are logged rather than
+ * asserted, since they depend on the machine. Runs with the benchmark task only.
+ */
+@Tag("benchmark")
+class BatchedEventEmitterBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchedEventEmitterBenchmarkTest.class);
+    private static final int NUMBER_OF_EVENTS = 200;
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    @Test
+    void shouldLogTimeOfEmittingFanOutOneEventPerRequestAndBatched() {
+        var events = BatchedEventEmitterTest.randomEvents(NUMBER_OF_EVENTS);
+
+        var singleClient = new RoundTripEventBridgeClient();
+        long singleStart = System.nanoTime();
+        events.forEach(event -> EmitEventUtils.emitEvent(singleClient, event, CONTEXT));
+        long singleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - singleStart);
+
+        var batchedClient = new RoundTripEventBridgeClient();
+        long batchedStart = System.nanoTime();
+        new BatchedEventEmitter(batchedClient).emitAll(events, CONTEXT);
+        long batchedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchedStart);
+
+        logger.info("One event per request: {} requests in {} ms", singleClient.getRequestSizes().size(),
+                    singleMillis);
+        logger.info("Batched events: {} requests in {} ms", batchedClient.getRequestSizes().size(), batchedMillis);
+    }
+
+    private static class RoundTripEventBridgeClient extends StubEventBridgeClient {
+
+        @Override
+        public synchronized PutEventsResponse putEvents(PutEventsRequest putEventsRequest) {
+            try {
+                Thread.sleep(ROUND_TRIP_MILLIS);
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+            return super.putEvents(putEventsRequest);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.BatchIndexTest.CONTEXT;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+class BatchedEventEmitterTest {
+
+    private StubEventBridgeClient eventBridgeClient;
+    private List<Long> backoffs;
+    private BatchedEventEmitter emitter;
+
+    @BeforeEach
+    void init() {
+        eventBridgeClient = new StubEventBridgeClient();
+        backoffs = new ArrayList<>();
+        emitter = new BatchedEventEmitter(eventBridgeClient, BatchedEventEmitter.DEFAULT_MAX_ATTEMPTS, backoffs::add);
+    }
+
+    @Test
+    void shouldEmitEventsInRequestsOfAtMostTenEntriesInOrder() {
+        var events = randomEvents(25);
+
+        var results = emitter.emit(events, CONTEXT);
+
+        assertThat(eventBridgeClient.getRequestSizes(), is(equalTo(List.of(10, 10, 5))));
+        assertThat(eventBridgeClient.getEvents(), is(equalTo(events)));
+        assertThat(results.size(), is(equalTo(events.size())));
+        results.forEach(result -> assertThat(result.eventId(), is(notNullValue())));
+    }
+
+    @Test
+    void shouldEmitFanOutInATenthOfTheRequestsOfOneEventPerRequest() {
+        var events = randomEvents(200);
+
+        emitter.emitAll(events, CONTEXT);
+
+        assertThat(eventBridgeClient.getRequestSizes().size(),
+                   is(equalTo(events.size() / BatchedEventEmitter.MAX_ENTRIES_PER_REQUEST)));
+    }
+
+    @Test
+    void shouldEmitOnlyTheFailedEntriesAgain() {
+        var events = randomEvents(12);
+        eventBridgeClient.rejectNextEntries(3);
+
+        var results = emitter.emit(events, CONTEXT);
+
+        assertThat(eventBridgeClient.getRequestSizes(), is(equalTo(List.of(10, 2, 3))));
+        assertThat(eventBridgeClient.getEvents(), containsInAnyOrder(events.toArray()));
+        assertThat(results.stream().noneMatch(BatchedEventEmitter::isFailed), is(true));
+        assertThat(backoffs, is(equalTo(List.of(BatchedEventEmitter.INITIAL_BACKOFF_MILLIS))));
+    }
+
+    @Test
+    void shouldReportErrorOfLastAttemptForEntriesThatKeepFailing() {
+        var events = randomEvents(2);
+        eventBridgeClient.rejectNextEntries(Integer.MAX_VALUE);
+
+        var results = emitter.emit(events, CONTEXT);
+
+        assertThat(eventBridgeClient.getRequestSizes().size(), is(equalTo(BatchedEventEmitter.DEFAULT_MAX_ATTEMPTS)));
+        assertThat(results.stream().map(PutEventsResultEntry::errorCode).collect(Collectors.toList()),
+                   is(equalTo(List.of(StubEventBridgeClient.THROTTLING_ERROR,
+                                      StubEventBridgeClient.THROTTLING_ERROR))));
+        assertThat(backoffs, is(equalTo(List.of(BatchedEventEmitter.INITIAL_BACKOFF_MILLIS,
+                                                2 * BatchedEventEmitter.INITIAL_BACKOFF_MILLIS))));
+    }
+
+    @Test
+    void shouldFailWhenNotAllEventsCouldBeEmitted() {
+        eventBridgeClient.rejectNextEntries(Integer.MAX_VALUE);
+
+        assertThrows(IllegalStateException.class, () -> emitter.emitAll(randomEvents(1), CONTEXT));
+    }
+
+    static List<ImportDataRequestEvent> randomEvents(int numberOfEvents) {
+        return IntStream.range(0, numberOfEvents)
+            .mapToObj(i -> new ImportDataRequestEvent("s3://bucket/" + randomString(), null, null, null, false, null))
+            .collect(Collectors.toList());
+    }
+}
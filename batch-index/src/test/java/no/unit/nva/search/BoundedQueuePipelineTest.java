@@ -0,0 +1,108 @@
+package no.unit.nva.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class BoundedQueuePipelineTest {
+
+    private static final int CAPACITY = 3;
+    private static final int LARGE_CAPACITY = 100;
+    private static final long PRODUCER_GRACE_MILLIS = 100;
+
+    @Test
+    void shouldDeliverAllElementsInSourceOrder() {
+        var source = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        try (var pipeline = new BoundedQueuePipeline<>(source.stream(), CAPACITY)) {
+            assertThat(pipeline.stream().collect(Collectors.toList()), is(equalTo(source)));
+        }
+    }
+
+    @Test
+    void shouldNotProduceMoreThanCapacityAheadOfConsumer() throws InterruptedException {
+        var produced = new AtomicInteger();
+        var source = IntStream.range(0, 100).boxed().peek(ignored -> produced.incrementAndGet());
+
+        try (var pipeline = new BoundedQueuePipeline<>(source, CAPACITY)) {
+            var iterator = pipeline.stream().iterator();
+            iterator.next();
+            TimeUnit.MILLISECONDS.sleep(PRODUCER_GRACE_MILLIS);
+
+            // the consumed element, the full queue and the element the producer is blocked on
+            assertThat(produced.get() <= 1 + CAPACITY + 1, is(true));
+        }
+    }
+
+    @Test
+    void shouldNotBufferMoreBytesThanTheCeilingAheadOfConsumer() throws InterruptedException {
+        var produced = new AtomicInteger();
+        var elementSize = 10;
+        var maxBufferedBytes = 25L;
+        var source = IntStream.range(0, 100).boxed().peek(ignored -> produced.incrementAndGet());
+
+        try (var pipeline = new BoundedQueuePipeline<>(source, LARGE_CAPACITY, maxBufferedBytes,
+                                                       element -> elementSize)) {
+            var iterator = pipeline.stream().iterator();
+            iterator.next();
+            TimeUnit.MILLISECONDS.sleep(PRODUCER_GRACE_MILLIS);
+
+            // the consumed element, two buffered elements and the element that does not fit
+            assertThat(produced.get() <= 1 + 2 + 1, is(true));
+        }
+    }
+
+    @Test
+    void shouldLetElementHeavierThanTheCeilingThroughAlone() {
+        var source = List.of(1, 2, 3);
+
+        try (var pipeline = new BoundedQueuePipeline<>(source.stream(), CAPACITY, 1, element -> 100)) {
+            assertThat(pipeline.stream().collect(Collectors.toList()), is(equalTo(source)));
+        }
+    }
+
+    @Test
+    void shouldRethrowFailureOfSourceAfterElementsProducedBeforeIt() {
+        var failure = new IllegalStateException();
+        var source = Stream.of(1, 2, 3).map(value -> {
+            if (value == 3) {
+                throw failure;
+            }
+            return value;
+        });
+        var consumed = new ArrayList<Integer>();
+
+        try (var pipeline = new BoundedQueuePipeline<>(source, CAPACITY)) {
+            var thrown = assertThrows(IllegalStateException.class, () -> pipeline.stream().forEach(consumed::add));
+            assertThat(thrown, is(failure));
+        }
+        assertThat(consumed, is(equalTo(List.of(1, 2))));
+    }
+
+    @Test
+    void shouldRethrowErrorOfSourceInsteadOfLeavingConsumerWaiting() {
+        var error = new AssertionError();
+        var source = Stream.of(1, 2).map(value -> {
+            if (value == 2) {
+                throw error;
+            }
+            return value;
+        });
+        var consumed = new ArrayList<Integer>();
+
+        try (var pipeline = new BoundedQueuePipeline<>(source, CAPACITY)) {
+            var thrown = assertThrows(AssertionError.class, () -> pipeline.stream().forEach(consumed::add));
+            assertThat(thrown, is(error));
+        }
+        assertThat(consumed, is(equalTo(List.of(1))));
+    }
+}
@@ -0,0 +1,75 @@
+package no.unit.nva.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class BundleReaderTest {
+
+    private static final String BUNDLE = "{\"first\":1}\r\n\n{\"second\":2}\n   \n{\"third\":3}";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"export/part-0001.ndjson", "export/part-0001.jsonl.gz", "export/part.ndjson.gz"})
+    void shouldDetectBundlesByKey(String key) {
+        assertThat(BundleReader.isBundle(UnixPath.of(key)), is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"resources/0175b0dc1bd5-4a3f", "export/document.json", "export/document.gz"})
+    void shouldTreatOtherKeysAsSingleDocuments(String key) {
+        assertThat(BundleReader.isBundle(UnixPath.of(key)), is(false));
+    }
+
+    @Test
+    void shouldStreamNonBlankLinesOfPlainBundle() {
+        var documents = BundleReader.bundleDocuments(new ByteArrayInputStream(bytes(BUNDLE)))
+            .map(BundleReaderTest::string)
+            .collect(Collectors.toList());
+
+        assertThat(documents, contains("{\"first\":1}", "{\"second\":2}", "{\"third\":3}"));
+    }
+
+    @Test
+    void shouldStreamLinesOfGzippedBundle() throws IOException {
+        var documents = BundleReader.bundleDocuments(new ByteArrayInputStream(gzip(BUNDLE)))
+            .map(BundleReaderTest::string)
+            .collect(Collectors.toList());
+
+        assertThat(documents, contains("{\"first\":1}", "{\"second\":2}", "{\"third\":3}"));
+    }
+
+    @Test
+    void shouldDecompressGzippedSingleDocument() throws IOException {
+        var document = "{\"single\":true}";
+
+        assertThat(string(BundleReader.singleDocument(gzip(document))), is(equalTo(document)));
+        assertThat(string(BundleReader.singleDocument(bytes(document))), is(equalTo(document)));
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes(content));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] content) {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
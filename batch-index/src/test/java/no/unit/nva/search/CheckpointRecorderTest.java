@@ -0,0 +1,120 @@
+package no.unit.nva.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.nio.file.Path;
+import java.util.List;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.paths.UnixPath;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointRecorderTest {
+
+    private static final String INDEX = "resources";
+    private static final ImportDataRequestEvent FIRST_PAGE = new ImportDataRequestEvent("s3://bucket/path");
+    private static final long IGNORED_TOOK = 1;
+
+    @TempDir
+    Path directory;
+    private FileSystemCheckpointStore store;
+
+    @BeforeEach
+    void init() {
+        store = new FileSystemCheckpointStore(directory);
+    }
+
+    @Test
+    void shouldAdvanceCheckpointToLastFileOfCompletedBulk() {
+        var recorder = new CheckpointRecorder(store, FIRST_PAGE);
+        var documents = List.of(randomDocument(), randomDocument(), randomDocument());
+        for (int position = 0; position < documents.size(); position++) {
+            recorder.documentRead(UnixPath.of("key" + position), documents.get(position));
+        }
+
+        recorder.bulkCompleted(bulkOf(documents.get(1), documents.get(0)), List.of());
+
+        assertThat(checkpoint().getLastIndexedKey(), is(equalTo("key1")));
+    }
+
+    @Test
+    void shouldNotAdvanceCheckpointPastBundleUntilAllItsDocumentsAreIndexed() {
+        var recorder = new CheckpointRecorder(store, FIRST_PAGE);
+        var firstInBundle = randomDocument();
+        var secondInBundle = randomDocument();
+        recorder.documentRead(UnixPath.of("bundle.ndjson"), firstInBundle);
+        recorder.documentRead(UnixPath.of("bundle.ndjson"), secondInBundle);
+        recorder.documentRead(UnixPath.of("single"), randomDocument());
+
+        recorder.bulkCompleted(bulkOf(firstInBundle), List.of());
+        assertThat(checkpoint().getLastIndexedKey(), is(nullValue()));
+
+        recorder.bulkCompleted(bulkOf(secondInBundle), List.of());
+        assertThat(checkpoint().getLastIndexedKey(), is(equalTo("bundle.ndjson")));
+    }
+
+    @Test
+    void shouldKeepFailuresOfPageOnlyUntilThePageCompletes() {
+        var failingDocument = randomDocument();
+        var firstPage = new CheckpointRecorder(store, FIRST_PAGE);
+        firstPage.documentRead(UnixPath.of("key0"), failingDocument);
+        var failure = new SortableIdentifier(failingDocument.getDocumentIdentifier());
+        firstPage.bulkCompleted(failedBulkOf(failingDocument), List.of(failure));
+        assertThat(checkpoint().getFailedIdentifiers(), contains(failure.toString()));
+
+        firstPage.pageCompleted(UnixPath.of("key0"));
+        assertThat(checkpoint().getFailedIdentifiers(), is(empty()));
+
+        var nextPage = new CheckpointRecorder(store, FIRST_PAGE.nextPage("key0"));
+        nextPage.pageCompleted(UnixPath.of("key1"));
+        assertThat(checkpoint(), is(equalTo(new Checkpoint("key1", List.of()))));
+    }
+
+    @Test
+    void shouldStartNewCheckpointWhenPageDoesNotContinueCheckpoint() {
+        store.write(Checkpoint.idOf(FIRST_PAGE), new Checkpoint("key9", List.of("someFailure")));
+
+        new CheckpointRecorder(store, FIRST_PAGE).pageCompleted(UnixPath.of("key0"));
+
+        assertThat(checkpoint(), is(equalTo(new Checkpoint("key0", List.of()))));
+    }
+
+    private Checkpoint checkpoint() {
+        return store.read(Checkpoint.idOf(FIRST_PAGE)).orElseThrow();
+    }
+
+    private static IndexDocument randomDocument() {
+        var attributes = new EventConsumptionAttributes(INDEX, SortableIdentifier.next());
+        return new IndexDocument(attributes, JsonNodeFactory.instance.objectNode());
+    }
+
+    private static BulkResponse bulkOf(IndexDocument... documents) {
+        var items = new BulkItemResponse[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            var response = new IndexResponse(new ShardId(INDEX, INDEX, 0), "_doc",
+                                             documents[i].getDocumentIdentifier(), 1, 1, 1, true);
+            items[i] = new BulkItemResponse(i, OpType.INDEX, response);
+        }
+        return new BulkResponse(items, IGNORED_TOOK);
+    }
+
+    private static BulkResponse failedBulkOf(IndexDocument document) {
+        var failure = new Failure(INDEX, "_doc", document.getDocumentIdentifier(), new IllegalStateException());
+        return new BulkResponse(new BulkItemResponse[]{new BulkItemResponse(0, OpType.INDEX, failure)},
+                                IGNORED_TOOK);
+    }
+}
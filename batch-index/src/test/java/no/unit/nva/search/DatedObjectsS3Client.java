@@ -0,0 +1,85 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import static nva.commons.core.attempt.Try.attempt;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Serves the objects of a single bucket together with the time each was last modified, and records the keys of
+ * the objects that were downloaded and the threads that listed the objects.
+ */
+public class DatedObjectsS3Client implements S3Client {
+
+    private final TreeMap<String, String> contents = new TreeMap<>();
+    private final TreeMap<String, Instant> modificationTimes = new TreeMap<>();
+    private final List<String> downloadedKeys = new ArrayList<>();
+    private final List<String> listingThreads = new ArrayList<>();
+
+    public void putObject(String key, String content, Instant lastModified) {
+        contents.put(key, content);
+        modificationTimes.put(key, lastModified);
+    }
+
+    public synchronized List<String> getDownloadedKeys() {
+        return new ArrayList<>(downloadedKeys);
+    }
+
+    public synchronized List<String> getListingThreads() {
+        return new ArrayList<>(listingThreads);
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(ListObjectsRequest listObjectsRequest) {
+        synchronized (this) {
+            listingThreads.add(Thread.currentThread().getName());
+        }
+        String prefix = isNull(listObjectsRequest.prefix()) ? "" : listObjectsRequest.prefix();
+        List<String> keys = (isNull(listObjectsRequest.marker())
+                                 ? modificationTimes.navigableKeySet()
+                                 : modificationTimes.tailMap(listObjectsRequest.marker(), false).navigableKeySet())
+            .stream()
+            .filter(key -> key.startsWith(prefix))
+            .collect(Collectors.toList());
+        List<S3Object> page = keys.stream()
+            .limit(listObjectsRequest.maxKeys())
+            .map(key -> S3Object.builder().key(key).lastModified(modificationTimes.get(key)).build())
+            .collect(Collectors.toList());
+        return ListObjectsResponse.builder().contents(page).isTruncated(keys.size() > page.size()).build();
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        synchronized (this) {
+            downloadedKeys.add(getObjectRequest.key());
+        }
+        byte[] content = contents.get(getObjectRequest.key()).getBytes(StandardCharsets.UTF_8);
+        GetObjectResponse response = GetObjectResponse.builder().contentLength((long) content.length).build();
+        return attempt(() -> responseTransformer.transform(
+            response, AbortableInputStream.create(new ByteArrayInputStream(content)))).orElseThrow();
+    }
+
+    @Override
+    public String serviceName() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
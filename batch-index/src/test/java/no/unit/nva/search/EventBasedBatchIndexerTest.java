@@ -1,6 +1,10 @@
 package no.unit.nva.search;
 
+import static no.unit.nva.search.BatchIndexingConstants.FETCH_CONCURRENCY;
+import static no.unit.nva.search.BatchIndexingConstants.MAX_BUFFERED_BYTES;
 import static no.unit.nva.search.BatchIndexingConstants.NUMBER_OF_FILES_PER_EVENT;
+import static no.unit.nva.search.constants.ApplicationConstants.ELASTICSEARCH_ENDPOINT_INDEX;
+import static no.unit.nva.search.constants.ApplicationConstants.RESOURCES_INDEX;
 import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
 import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
 import static no.unit.nva.testutils.RandomDataGenerator.randomString;
@@ -13,19 +17,32 @@ import static org.hamcrest.core.IsIterableContaining.hasItem;
 import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.hamcrest.core.StringContains.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.lambda.runtime.Context;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 import no.unit.nva.commons.json.JsonUtils;
 import no.unit.nva.events.models.AwsEventBridgeEvent;
 import no.unit.nva.identifiers.SortableIdentifier;
 import no.unit.nva.indexing.testutils.FakeIndexingClient;
 import no.unit.nva.s3.S3Driver;
+import no.unit.nva.search.bulk.BulkFailureClass;
 import no.unit.nva.search.models.EventConsumptionAttributes;
 import no.unit.nva.search.models.IndexDocument;
 import no.unit.nva.stubs.FakeS3Client;
@@ -37,8 +54,11 @@ import nva.commons.logutils.LogUtils;
 import org.javers.common.collections.Arrays;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 public class EventBasedBatchIndexerTest extends BatchIndexTest {
 
@@ -83,6 +103,44 @@ public class EventBasedBatchIndexerTest extends BatchIndexTest {
         for (var expectedIdentifier : expectedIdentifiesOfNonIndexedEntries) {
             assertThat(logger.getMessages(), containsString(expectedIdentifier));
         }
+        assertThat(logger.getMessages(), containsString(BulkFailureClass.OTHER + "=" + numberOfFilesPerEvent));
+    }
+
+    @Test
+    void shouldCountStaleWritesWithoutReportingThemAsFailures() throws JsonProcessingException {
+        var logger = LogUtils.getTestingAppenderForRootLogger();
+        var numberOfFiles = 5;
+        indexer = new EventBasedBatchIndexer(s3Client, staleWritesElasticSearchClient(), eventBridgeClient,
+                                             numberOfFiles);
+        var staleFiles = randomFilesInSingleEvent(s3Driver, numberOfFiles);
+        var request = new ImportDataRequestEvent(staleFiles.get(0).getHost().toString());
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        var reportedFailures = IndexingConfig.objectMapper.readValue(outputStream.toString(), String[].class);
+        assertThat(reportedFailures.length, is(equalTo(0)));
+        assertThat(logger.getMessages(), containsString(BulkFailureClass.VERSION_CONFLICT + "=" + numberOfFiles));
+    }
+
+    @Test
+    void shouldRecordDeadLetterWithKeyAndFailureOfEveryDocumentThatFailedToBeIndexed(@TempDir Path directory)
+        throws JsonProcessingException {
+        var deadLetterStore = new FileSystemDeadLetterStore(directory);
+        var numberOfFiles = 3;
+        indexer = new EventBasedBatchIndexer(s3Client, failingElasticSearchClient(), eventBridgeClient, numberOfFiles,
+                                             new NoCheckpointStore(), deadLetterStore, new NoHighWaterMarkStore());
+        var failingFiles = randomFilesInSingleEvent(s3Driver, numberOfFiles);
+        var request = new ImportDataRequestEvent(failingFiles.get(0).getHost().toString());
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        var deadLetters = deadLetterStore.readBatch(deadLetterStore.listBatches().get(0));
+        var expectedDeadLetters = failingFiles.stream()
+            .map(UriWrapper::getLastPathElement)
+            .map(key -> new DeadLetter(request.getBucket(), key, key, ELASTICSEARCH_ENDPOINT_INDEX,
+                                       BulkFailureClass.OTHER, DeadLetter.FIRST_ATTEMPT))
+            .toArray(DeadLetter[]::new);
+        assertThat(deadLetters, containsInAnyOrder(expectedDeadLetters));
     }
 
     @Test
@@ -113,6 +171,35 @@ public class EventBasedBatchIndexerTest extends BatchIndexTest {
                    not(hasItem(notYetIndexedDocument.getResource())));
     }
 
+    @Test
+    void shouldIndexWholePageAlsoWhenDownloadIsNotPipelinedWithIndexing() throws IOException {
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT, FETCH_CONCURRENCY, BatchIndexer.NO_PIPELINE,
+                                             MAX_BUFFERED_BYTES, new NoCheckpointStore(),
+                                             new NoDeadLetterStore(), new NoHighWaterMarkStore());
+        var expectedFile = randomEntryInS3(s3Driver);
+
+        var importLocation = expectedFile.getHost().getUri();
+        indexer.handleRequest(eventStream(new ImportDataRequestEvent(importLocation.toString())), outputStream,
+                              CONTEXT);
+
+        IndexDocument indexDocument = fetchIndexDocumentFromS3(expectedFile);
+        assertThat(elasticSearchClient.getIndex(indexDocument.getIndexName()), hasItem(indexDocument.getResource()));
+    }
+
+    @Test
+    void shouldEmitEventForProcessingNextBatchAgainWhenEventBridgeRejectsIt() throws IOException {
+        var firstFile = randomEntryInS3(s3Driver);
+        randomEntryInS3(s3Driver);
+        eventBridgeClient.rejectNextEntries(1);
+
+        indexer.handleRequest(eventStream(new ImportDataRequestEvent(firstFile.getHost().getUri().toString())),
+                              outputStream, CONTEXT);
+
+        assertThat(eventBridgeClient.getLatestEvent().getStartMarker(), is(equalTo(firstFile.getLastPathElement())));
+        assertThat(eventBridgeClient.getRequestSizes(), is(equalTo(List.of(1, 1))));
+    }
+
     @Test
     void shouldEmitEventForProcessingNextBatchWhenThereAreMoreFilesToProcess() throws IOException {
         var firstFile = randomEntryInS3(s3Driver);
@@ -126,6 +213,222 @@ public class EventBasedBatchIndexerTest extends BatchIndexTest {
         assertThat(eventBridgeClient.getLatestEvent().getStartMarker(), is(equalTo(firstFile.getLastPathElement())));
     }
 
+    @Test
+    void shouldStopAtEndMarkerOfShardWithoutEmittingEventForNextBatch() throws IOException {
+        var numberOfFiles = 3;
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient, numberOfFiles + 1);
+        var files = randomFilesInSingleEvent(s3Driver, numberOfFiles);
+        var lastFileOfShard = files.stream()
+            .min(Comparator.comparing(UriWrapper::getLastPathElement))
+            .orElseThrow();
+        var shard = new ImportDataRequestEvent(lastFileOfShard.getHost().getUri().toString(), null,
+                                               lastFileOfShard.getLastPathElement());
+
+        indexer.handleRequest(eventStream(shard), outputStream, CONTEXT);
+
+        for (var file : files) {
+            var document = fetchIndexDocumentFromS3(file);
+            var isInShard = file.equals(lastFileOfShard);
+            assertThat(elasticSearchClient.getIndex(document.getIndexName()).contains(document.getResource()),
+                       is(isInShard));
+        }
+        assertThat(eventBridgeClient.getLatestEvent(), is(nullValue()));
+    }
+
+    @Test
+    void shouldKeepIndexingPagesWhileTheInvocationHasTimeLeft() throws IOException {
+        var numberOfFiles = 3;
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient, 1);
+        var files = randomFilesInSingleEvent(s3Driver, numberOfFiles);
+        var importLocation = files.get(0).getHost().getUri().toString();
+
+        indexer.handleRequest(eventStream(new ImportDataRequestEvent(importLocation)), outputStream,
+                              contextWithRemainingTime(Integer.MAX_VALUE));
+
+        for (var file : files) {
+            var document = fetchIndexDocumentFromS3(file);
+            assertThat(elasticSearchClient.getIndex(document.getIndexName()), hasItem(document.getResource()));
+        }
+        assertThat(eventBridgeClient.getLatestEvent(), is(nullValue()));
+    }
+
+    @Test
+    void shouldRecordLastIndexedKeyOfPageInCheckpoint(@TempDir Path checkpointDirectory) throws IOException {
+        var checkpointStore = new FileSystemCheckpointStore(checkpointDirectory);
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient, 1, checkpointStore,
+                                             new NoDeadLetterStore(), new NoHighWaterMarkStore());
+        var file = randomEntryInS3(s3Driver);
+        var request = new ImportDataRequestEvent(file.getHost().getUri().toString());
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        var checkpoint = checkpointStore.read(Checkpoint.idOf(request)).orElseThrow();
+        assertThat(checkpoint.getLastIndexedKey(), is(equalTo(file.getLastPathElement())));
+    }
+
+    @Test
+    void shouldResumeFromCheckpointWithoutIndexingCompletedKeysAgain(@TempDir Path checkpointDirectory)
+        throws IOException {
+        var checkpointStore = new FileSystemCheckpointStore(checkpointDirectory);
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT, checkpointStore, new NoDeadLetterStore(),
+                                             new NoHighWaterMarkStore());
+        var files = randomFilesInSingleEvent(s3Driver, 3);
+        var completedFile = files.get(0);
+        var importLocation = completedFile.getHost().getUri().toString();
+        var request = new ImportDataRequestEvent(importLocation, null, null, null, true);
+        checkpointStore.write(Checkpoint.idOf(request), new Checkpoint(completedFile.getLastPathElement(), List.of()));
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        for (var file : files) {
+            var document = fetchIndexDocumentFromS3(file);
+            assertThat(elasticSearchClient.getIndex(document.getIndexName()).contains(document.getResource()),
+                       is(!file.equals(completedFile)));
+        }
+    }
+
+    @Test
+    void shouldShareConfiguredBatchRatesAmongTheShardsOfTheImport() throws IOException {
+        var sharingClient = spy(new FakeIndexingClient());
+        indexer = new EventBasedBatchIndexer(s3Client, sharingClient, eventBridgeClient, NUMBER_OF_FILES_PER_EVENT);
+        var importLocation = randomEntryInS3(s3Driver).getHost().getUri().toString();
+        var shard = new ImportDataRequestEvent(importLocation, null, null, 3, false);
+
+        indexer.handleRequest(eventStream(shard), outputStream, CONTEXT);
+
+        verify(sharingClient).shareBatchRatesAmong(3);
+    }
+
+    @Test
+    void shouldMoveHighWaterMarkToStartOfSyncWhenTheLastOfItsShardsCompletes() throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT, new NoCheckpointStore(),
+                                             new NoDeadLetterStore(), highWaterMarkStore);
+        var importLocation = randomEntryInS3(s3Driver).getHost().getUri().toString();
+        var syncStarted = Instant.now();
+        var request = new ImportDataRequestEvent(importLocation);
+
+        indexer.handleRequest(eventStream(request.asShardOfSync(syncStarted, 1, 2)), outputStream, CONTEXT);
+        assertThat(highWaterMarkStore.read(importLocation), is(equalTo(Optional.empty())));
+
+        indexer.handleRequest(eventStream(request.asShardOfSync(syncStarted, 0, 2)), outputStream, CONTEXT);
+        assertThat(highWaterMarkStore.read(importLocation), is(equalTo(Optional.of(syncStarted))));
+    }
+
+    @Test
+    void shouldIndexShardOfSyncWhenNoHighWaterMarksAreKept() throws IOException {
+        var file = randomEntryInS3(s3Driver);
+        var shard = new ImportDataRequestEvent(file.getHost().getUri().toString()).asShardOfSync(Instant.now(), 0, 1);
+
+        indexer.handleRequest(eventStream(shard), outputStream, CONTEXT);
+
+        var document = fetchIndexDocumentFromS3(file);
+        assertThat(elasticSearchClient.getIndex(document.getIndexName()), hasItem(document.getResource()));
+    }
+
+    @Test
+    void shouldNotMoveHighWaterMarkWhileChainOfShardContinues() throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient, 1,
+                                             new NoCheckpointStore(), new NoDeadLetterStore(), highWaterMarkStore);
+        var importLocation = randomFilesInSingleEvent(s3Driver, 2).get(0).getHost().getUri().toString();
+        var syncStarted = Instant.now();
+        var shard = new ImportDataRequestEvent(importLocation).asShardOfSync(syncStarted, 0, 1);
+
+        indexer.handleRequest(eventStream(shard), outputStream, CONTEXT);
+
+        assertThat(highWaterMarkStore.read(importLocation), is(equalTo(Optional.empty())));
+        assertThat(eventBridgeClient.getLatestEvent().getSyncStarted(), is(equalTo(syncStarted)));
+        assertThat(eventBridgeClient.getLatestEvent().getShard(), is(equalTo(0)));
+    }
+
+    @Test
+    void shouldNotMoveHighWaterMarkBackToStartOfEarlierSyncCompletingLater() throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT, new NoCheckpointStore(),
+                                             new NoDeadLetterStore(), highWaterMarkStore);
+        var importLocation = randomEntryInS3(s3Driver).getHost().getUri().toString();
+        var laterSync = Instant.now();
+        highWaterMarkStore.write(importLocation, laterSync);
+        var shardOfEarlierSync =
+            new ImportDataRequestEvent(importLocation).asShardOfSync(laterSync.minusSeconds(1), 0, 1);
+
+        indexer.handleRequest(eventStream(shardOfEarlierSync), outputStream, CONTEXT);
+
+        assertThat(highWaterMarkStore.read(importLocation), is(equalTo(Optional.of(laterSync))));
+    }
+
+    @Test
+    void shouldDownloadAndIndexOnlyFilesModifiedSinceTheGivenTime() throws JsonProcessingException {
+        var lastSync = Instant.now().minus(Duration.ofHours(1));
+        var unchanged = randomIndexDocument();
+        var modified = randomIndexDocument();
+        var datedS3Client = new DatedObjectsS3Client();
+        datedS3Client.putObject(unchanged.getDocumentIdentifier(), unchanged.toJsonString(),
+                                lastSync.minus(Duration.ofDays(1)));
+        datedS3Client.putObject(modified.getDocumentIdentifier(), modified.toJsonString(), Instant.now());
+        indexer = new EventBasedBatchIndexer(datedS3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT);
+        var request = new ImportDataRequestEvent("s3://bucket/", null, null, null, false, lastSync);
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        assertThat(datedS3Client.getDownloadedKeys(), is(equalTo(List.of(modified.getDocumentIdentifier()))));
+        assertThat(elasticSearchClient.getIndex(modified.getIndexName()), hasItem(modified.getResource()));
+        assertThat(elasticSearchClient.getIndex(unchanged.getIndexName()), not(hasItem(unchanged.getResource())));
+    }
+
+    @Test
+    void shouldWriteDocumentsMeantForTheAliasOfTheTargetIndexToTheTargetIndex() throws IOException {
+        var document = new IndexDocument(new EventConsumptionAttributes(RESOURCES_INDEX, SortableIdentifier.next()),
+                                         randomObject());
+        var file = UriWrapper.fromUri(s3Driver.insertFile(UnixPath.of(document.getDocumentIdentifier()),
+                                                          document.toJsonString()));
+        var generation = IndexGenerations.generationName(RESOURCES_INDEX, Instant.now());
+        var request = new ImportDataRequestEvent(file.getHost().getUri().toString(), null, null, null, false, null,
+                                                 generation);
+
+        indexer.handleRequest(eventStream(request), outputStream, CONTEXT);
+
+        assertThat(elasticSearchClient.getIndex(generation), hasItem(document.getResource()));
+        assertThat(elasticSearchClient.getIndex(RESOURCES_INDEX), not(hasItem(document.getResource())));
+    }
+
+    @Test
+    void shouldIndexEveryDocumentOfGzippedBundleNextToSingleDocuments() throws IOException {
+        var singleFile = randomEntryInS3(s3Driver);
+        var bundledDocuments = List.of(randomIndexDocument(), randomIndexDocument(), randomIndexDocument());
+        insertGzippedBundle(singleFile.getHost().getUri().getHost(), bundledDocuments);
+        indexer = new EventBasedBatchIndexer(s3Client, elasticSearchClient, eventBridgeClient,
+                                             NUMBER_OF_FILES_PER_EVENT);
+
+        var importLocation = singleFile.getHost().getUri().toString();
+        indexer.handleRequest(eventStream(new ImportDataRequestEvent(importLocation)), outputStream, CONTEXT);
+
+        var singleDocument = fetchIndexDocumentFromS3(singleFile);
+        assertThat(elasticSearchClient.getIndex(singleDocument.getIndexName()),
+                   hasItem(singleDocument.getResource()));
+        for (var document : bundledDocuments) {
+            assertThat(elasticSearchClient.getIndex(document.getIndexName()), hasItem(document.getResource()));
+        }
+    }
+
+    @Test
+    void shouldIndexDocumentStoredAsIonBinaryEnvelope() throws IOException {
+        var document = randomIndexDocument();
+        var key = document.getDocumentIdentifier();
+        var request = PutObjectRequest.builder().bucket("ignoredBucket").key(key).build();
+        s3Client.putObject(request,
+                           RequestBody.fromBytes(IonEnvelopeDecoderTest.toIonBinary(document.toJsonString())));
+
+        indexer.handleRequest(eventStream(new ImportDataRequestEvent("s3://ignoredBucket/")), outputStream, CONTEXT);
+
+        assertThat(elasticSearchClient.getIndex(document.getIndexName()), hasItem(document.getResource()));
+    }
+
     @Test
     void shouldNotEmitEventWhenThereAreNoMoreFilesToProcess() throws IOException {
         var firstFile = randomEntryInS3(s3Driver);
@@ -198,6 +501,18 @@ public class EventBasedBatchIndexerTest extends BatchIndexTest {
         return UriWrapper.fromUri(s3Driver.insertFile(filePath, randomIndexDocument.toJsonString()));
     }
 
+    private void insertGzippedBundle(String bucket, List<IndexDocument> documents) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            for (var document : documents) {
+                var line = JsonUtils.dtoObjectMapper.readTree(document.toJsonString()).toString() + "\n";
+                gzip.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        var request = PutObjectRequest.builder().bucket(bucket).key("bundle.ndjson.gz").build();
+        s3Client.putObject(request, RequestBody.fromBytes(compressed.toByteArray()));
+    }
+
     private IndexDocument randomIndexDocument() {
         return new IndexDocument(randomEventConsumptionAttributes(), randomObject());
     }
@@ -211,6 +526,12 @@ public class EventBasedBatchIndexerTest extends BatchIndexTest {
         return new EventConsumptionAttributes(randomString(), SortableIdentifier.next());
     }
 
+    private static Context contextWithRemainingTime(int remainingTimeInMillis) {
+        var context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(remainingTimeInMillis);
+        return context;
+    }
+
     private FakeIndexingClient mockEsClient() {
         return new FakeIndexingClient();
     }
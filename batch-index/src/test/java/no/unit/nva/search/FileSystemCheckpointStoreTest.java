@@ -0,0 +1,36 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemCheckpointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReturnLatestCheckpointWritten() {
+        var store = new FileSystemCheckpointStore(directory);
+        var checkpointId = Checkpoint.idOf(new ImportDataRequestEvent("s3://bucket/path", null, "some/key"));
+        store.write(checkpointId, new Checkpoint(randomString(), List.of()));
+        var latest = new Checkpoint(randomString(), List.of(randomString()));
+
+        store.write(checkpointId, latest);
+
+        assertThat(store.read(checkpointId), is(equalTo(Optional.of(latest))));
+    }
+
+    @Test
+    void shouldReturnEmptyWhenNoCheckpointHasBeenWritten() {
+        var store = new FileSystemCheckpointStore(directory);
+
+        assertThat(store.read(randomString()), is(equalTo(Optional.empty())));
+    }
+}
@@ -0,0 +1,49 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.nio.file.Path;
+import java.util.List;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemDeadLetterStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldListBatchesOldestFirstAndReturnTheirDeadLetters() throws InterruptedException {
+        var store = new FileSystemDeadLetterStore(directory);
+        var first = List.of(randomDeadLetter(), randomDeadLetter());
+        var second = List.of(randomDeadLetter());
+
+        store.write(first);
+        Thread.sleep(2);
+        store.write(second);
+
+        var batches = store.listBatches();
+        assertThat(batches.size(), is(equalTo(2)));
+        assertThat(store.readBatch(batches.get(0)), is(equalTo(first)));
+        assertThat(store.readBatch(batches.get(1)), is(equalTo(second)));
+    }
+
+    @Test
+    void shouldNotListDeletedBatch() {
+        var store = new FileSystemDeadLetterStore(directory);
+        store.write(List.of(randomDeadLetter()));
+
+        store.deleteBatch(store.listBatches().get(0));
+
+        assertThat(store.listBatches(), is(empty()));
+    }
+
+    static DeadLetter randomDeadLetter() {
+        return new DeadLetter(randomString(), randomString(), randomString(), randomString(),
+                              BulkFailureClass.OTHER, DeadLetter.FIRST_ATTEMPT);
+    }
+}
@@ -3,6 +3,7 @@ package no.unit.nva.search;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
@@ -49,4 +50,40 @@ public class ImportDataRequestEventTest {
         ImportDataRequestEvent request = new ImportDataRequestEvent(SOME_S3_LOCATION);
         assertThat(request.getS3Path(), not(startsWith(ImportDataRequestEvent.PATH_DELIMITER)));
     }
+
+    @Test
+    public void nextPageKeepsTheTimeFilesMustBeModifiedSince() {
+        Instant modifiedSince = Instant.parse("2022-01-01T00:00:00Z");
+        ImportDataRequestEvent request =
+            new ImportDataRequestEvent(SOME_S3_LOCATION, null, "end", null, false, modifiedSince);
+
+        ImportDataRequestEvent nextPage = request.nextPage("next");
+
+        assertThat(nextPage.getModifiedSince(), is(equalTo(modifiedSince)));
+        assertThat(nextPage.getEndMarker(), is(equalTo("end")));
+    }
+
+    @Test
+    public void nextPageKeepsTheShardAndStartOfTheSyncOfTheShard() throws JsonProcessingException {
+        Instant syncStarted = Instant.parse("2022-01-01T00:00:00Z");
+        ImportDataRequestEvent shard = new ImportDataRequestEvent(SOME_S3_LOCATION).asShardOfSync(syncStarted, 2, 3);
+
+        ImportDataRequestEvent nextPage =
+            objectMapperWithEmpty.readValue(shard.nextPage("next").toJsonString(), ImportDataRequestEvent.class);
+
+        assertThat(nextPage.getSyncStarted(), is(equalTo(syncStarted)));
+        assertThat(nextPage.getShard(), is(equalTo(2)));
+        assertThat(nextPage.getNumberOfShards(), is(equalTo(3)));
+    }
+
+    @Test
+    public void serializationWithJsonKeepsTheTimeFilesMustBeModifiedSince() throws JsonProcessingException {
+        ImportDataRequestEvent request = new ImportDataRequestEvent(SOME_S3_LOCATION, null, null, null, false,
+                                                                    Instant.parse("2022-01-01T00:00:00Z"));
+
+        ImportDataRequestEvent deserialized =
+            objectMapperWithEmpty.readValue(request.toJsonString(), ImportDataRequestEvent.class);
+
+        assertThat(deserialized, is(equalTo(request)));
+    }
 }
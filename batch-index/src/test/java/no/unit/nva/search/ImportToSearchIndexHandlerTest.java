@@ -1,23 +1,34 @@
 package no.unit.nva.search;
 
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
+import java.util.Optional;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.s3.S3Driver;
+import no.unit.nva.stubs.FakeS3Client;
 import nva.commons.core.ioutils.IoUtils;
+import nva.commons.core.paths.UnixPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class ImportToSearchIndexHandlerTest extends BatchIndexTest {
 
     private static final String SOME_S3_LOCATION = "s3://some-bucket/some/path";
+    private static final String SOME_BUCKET = "some-bucket";
 
     private ImportDataRequestEvent importRequest;
     private ByteArrayOutputStream outputStream;
 
     private StubEventBridgeClient eventBridgeClient;
+    private FakeS3Client s3Client;
 
     @BeforeEach
     public void initialize() {
@@ -25,6 +36,7 @@ class ImportToSearchIndexHandlerTest extends BatchIndexTest {
         importRequest = new ImportDataRequestEvent(SOME_S3_LOCATION);
         outputStream = new ByteArrayOutputStream();
         eventBridgeClient = new StubEventBridgeClient();
+        s3Client = new FakeS3Client();
     }
 
     @Test
@@ -33,11 +45,103 @@ class ImportToSearchIndexHandlerTest extends BatchIndexTest {
         ImportToSearchIndexHandler handler = newHandler();
 
         handler.handleRequest(newImportRequest(), outputStream, CONTEXT);
-        assertThat(eventBridgeClient.getLatestEvent(), is(equalTo(importRequest)));
+        assertThat(eventBridgeClient.getLatestEvent().getS3Location(), is(equalTo(importRequest.getS3Location())));
+    }
+
+    @Test
+    void shouldEmitOneEventPerShardWithAdjacentKeyRanges() throws IOException {
+        var s3Driver = new S3Driver(s3Client, SOME_BUCKET);
+        insertFiles(s3Driver, 3 * ShardPlanner.LISTING_PAGE_SIZE);
+        var numberOfShards = 3;
+        importRequest = new ImportDataRequestEvent("s3://" + SOME_BUCKET + "/", null, null, numberOfShards, false);
+
+        newHandler().handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        var shards = eventBridgeClient.getEvents();
+        assertThat(shards.size(), is(equalTo(numberOfShards)));
+        assertThat(shards.get(0).getStartMarker(), is(nullValue()));
+        assertThat(shards.get(0).getEndMarker(), is(notNullValue()));
+        assertThat(shards.get(1).getStartMarker(), is(equalTo(shards.get(0).getEndMarker())));
+        assertThat(shards.get(2).getStartMarker(), is(equalTo(shards.get(1).getEndMarker())));
+        assertThat(shards.get(2).getEndMarker(), is(nullValue()));
+        assertThat(shards.get(2).getNumberOfShards(), is(equalTo(numberOfShards)));
+    }
+
+    @Test
+    void shouldTagEveryShardWithStartOfSyncWithoutMovingHighWaterMarkBeforeTheShardsComplete() throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        insertFiles(new S3Driver(s3Client, SOME_BUCKET), 2 * ShardPlanner.LISTING_PAGE_SIZE);
+        importRequest = new ImportDataRequestEvent("s3://" + SOME_BUCKET + "/", null, null, 2, false);
+        var beforeImport = Instant.now();
+
+        new ImportToSearchIndexHandler(eventBridgeClient, s3Client, highWaterMarkStore)
+            .handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        var shards = eventBridgeClient.getEvents();
+        assertThat(shards.get(0).getShard(), is(equalTo(0)));
+        assertThat(shards.get(1).getShard(), is(equalTo(1)));
+        assertThat(shards.get(1).getNumberOfShards(), is(equalTo(2)));
+        assertThat(shards.get(1).getSyncStarted(), is(equalTo(shards.get(0).getSyncStarted())));
+        assertThat(shards.get(0).getSyncStarted().isBefore(beforeImport), is(false));
+        assertThat(highWaterMarkStore.read(importRequest.getS3Location()), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldNotTagShardsOfImportOfRangeOfLocationAsSync() throws IOException {
+        importRequest = new ImportDataRequestEvent(SOME_S3_LOCATION, randomString(), null);
+
+        newHandler().handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        assertThat(eventBridgeClient.getLatestEvent().getSyncStarted(), is(nullValue()));
+    }
+
+    @Test
+    void shouldIndexFilesModifiedSinceStoredHighWaterMarkWhenIncrementalImportGivesNoModifiedSince()
+        throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        var highWaterMark = Instant.parse("2022-01-01T00:00:00Z");
+        highWaterMarkStore.write(SOME_S3_LOCATION, highWaterMark);
+        importRequest = new ImportDataRequestEvent(SOME_S3_LOCATION, null, null, null, false, null, null, true, null,
+                                                   null);
+
+        new ImportToSearchIndexHandler(eventBridgeClient, s3Client, highWaterMarkStore)
+            .handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        assertThat(eventBridgeClient.getLatestEvent().getModifiedSince(), is(equalTo(highWaterMark)));
+    }
+
+    @Test
+    void shouldIndexAllFilesWhenIncrementalImportFindsNoHighWaterMark() throws IOException {
+        importRequest = new ImportDataRequestEvent(SOME_S3_LOCATION, null, null, null, false, null, null, true, null,
+                                                   null);
+
+        newHandler().handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        assertThat(eventBridgeClient.getLatestEvent().getModifiedSince(), is(nullValue()));
+    }
+
+    @Test
+    void shouldKeepModifiedSinceGivenByIncrementalImport() throws IOException {
+        var highWaterMarkStore = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        highWaterMarkStore.write(SOME_S3_LOCATION, Instant.parse("2022-01-01T00:00:00Z"));
+        var modifiedSince = Instant.parse("2021-01-01T00:00:00Z");
+        importRequest = new ImportDataRequestEvent(SOME_S3_LOCATION, null, null, null, false, modifiedSince, null,
+                                                   true, null, null);
+
+        new ImportToSearchIndexHandler(eventBridgeClient, s3Client, highWaterMarkStore)
+            .handleRequest(newImportRequest(), outputStream, CONTEXT);
+
+        assertThat(eventBridgeClient.getLatestEvent().getModifiedSince(), is(equalTo(modifiedSince)));
+    }
+
+    private static void insertFiles(S3Driver s3Driver, int numberOfFiles) throws IOException {
+        for (int i = 0; i < numberOfFiles; i++) {
+            s3Driver.insertFile(UnixPath.of(SortableIdentifier.next().toString()), randomString());
+        }
     }
 
     private ImportToSearchIndexHandler newHandler() {
-        return new ImportToSearchIndexHandler(eventBridgeClient);
+        return new ImportToSearchIndexHandler(eventBridgeClient, s3Client);
     }
 
     private InputStream newImportRequest() {
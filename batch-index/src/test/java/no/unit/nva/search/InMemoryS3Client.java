@@ -0,0 +1,78 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import static nva.commons.core.attempt.Try.attempt;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Keeps the objects of a single bucket in key order, as S3 lists them, and reports missing objects as S3 does.
+ */
+public class InMemoryS3Client implements S3Client {
+
+    private final TreeMap<String, byte[]> objects = new TreeMap<>();
+
+    public synchronized SortedSet<String> getKeys() {
+        return new TreeSet<>(objects.keySet());
+    }
+
+    @Override
+    public synchronized PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        var content = attempt(() -> requestBody.contentStreamProvider().newStream().readAllBytes()).orElseThrow();
+        objects.put(putObjectRequest.key(), content);
+        return PutObjectResponse.builder().build();
+    }
+
+    @Override
+    public synchronized <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                                    ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+        byte[] content = objects.get(getObjectRequest.key());
+        if (isNull(content)) {
+            throw NoSuchKeyException.builder().message(getObjectRequest.key()).build();
+        }
+        @SuppressWarnings("unchecked")
+        ReturnT response = (ReturnT) ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), content);
+        return response;
+    }
+
+    @Override
+    public synchronized ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        var contents = objects.keySet().stream()
+            .filter(key -> key.startsWith(listObjectsV2Request.prefix()))
+            .map(key -> S3Object.builder().key(key).build())
+            .collect(Collectors.toList());
+        return ListObjectsV2Response.builder().contents(contents).isTruncated(false).build();
+    }
+
+    @Override
+    public synchronized DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        objects.remove(deleteObjectRequest.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
@@ -0,0 +1,88 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the JSON and the Ion binary envelopes of the same documents: the stored bytes per document, and the
+ * throughput of decoding an envelope into the bulk body that is sent to the index. The timings are logged rather
+ * than asserted, since they depend on the machine; run with a larger number of documents for stable figures. Runs
+ * with the benchmark task only.
+ */
+@Tag("benchmark")
+class IonEnvelopeBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(IonEnvelopeBenchmarkTest.class);
+    private static final int NUMBER_OF_DOCUMENTS = 2000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    void shouldStoreFewerBytesPerDocumentAsIonBinaryThanAsJson() throws IOException {
+        List<byte[]> jsonEnvelopes = new ArrayList<>();
+        List<byte[]> ionEnvelopes = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DOCUMENTS; i++) {
+            String json = randomDocument().toJsonString();
+            jsonEnvelopes.add(json.getBytes(StandardCharsets.UTF_8));
+            ionEnvelopes.add(IonEnvelopeDecoderTest.toIonBinary(json));
+        }
+
+        double jsonBytesPerDocument = averageSize(jsonEnvelopes);
+        double ionBytesPerDocument = averageSize(ionEnvelopes);
+        double jsonDocumentsPerSecond = throughput(jsonEnvelopes, IndexDocument::fromJsonBytes);
+        double ionDocumentsPerSecond = throughput(ionEnvelopes, IonEnvelopeDecoder::decode);
+
+        logger.info("JSON envelopes: {} bytes/document, {} documents/s", jsonBytesPerDocument, jsonDocumentsPerSecond);
+        logger.info("Ion envelopes: {} bytes/document, {} documents/s", ionBytesPerDocument, ionDocumentsPerSecond);
+        assertThat(ionBytesPerDocument < jsonBytesPerDocument, is(true));
+    }
+
+    private static double averageSize(List<byte[]> envelopes) {
+        return envelopes.stream().mapToInt(envelope -> envelope.length).average().orElseThrow();
+    }
+
+    // Every decoded document is serialized to its bulk body, as the indexing client does.
+    private static double throughput(List<byte[]> envelopes, Function<byte[], IndexDocument> decoder) {
+        long bodyBytes = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            bodyBytes += decodeAll(envelopes, decoder);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            bodyBytes += decodeAll(envelopes, decoder);
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        logger.debug("Decoded {} body bytes", bodyBytes);
+        return (double) envelopes.size() * MEASURED_ROUNDS * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private static long decodeAll(List<byte[]> envelopes, Function<byte[], IndexDocument> decoder) {
+        long bodyBytes = 0;
+        for (byte[] envelope : envelopes) {
+            BytesReference body = decoder.apply(envelope).toIndexRequest().source();
+            bodyBytes += body.length();
+        }
+        return bodyBytes;
+    }
+
+    private static IndexDocument randomDocument() throws IOException {
+        var attributes = new EventConsumptionAttributes(randomString(), SortableIdentifier.next());
+        return new IndexDocument(attributes, IndexingConfig.objectMapper.readTree(randomJson()));
+    }
+}
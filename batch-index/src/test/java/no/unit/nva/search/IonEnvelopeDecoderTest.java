@@ -0,0 +1,145 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.Test;
+import software.amazon.ion.IonReader;
+import software.amazon.ion.IonWriter;
+import software.amazon.ion.system.IonBinaryWriterBuilder;
+import software.amazon.ion.system.IonReaderBuilder;
+
+class IonEnvelopeDecoderTest {
+
+    private static final String ION_TEXT_ENVELOPE = "{"
+                                                    + "consumptionAttributes: {index: resources,"
+                                                    + " documentIdentifier: \"%s\", version: 7},"
+                                                    + "body: {"
+                                                    + " modifiedDate: 2022-03-01T10:15:30.123Z,"
+                                                    + " type: 'AcademicArticle',"
+                                                    + " score: 12.50,"
+                                                    + " ratio: nan,"
+                                                    + " big: 123456789012345678901234567890,"
+                                                    + " tags: (first second),"
+                                                    + " logo: {{aGVsbG8=}},"
+                                                    + " annotated: unit::5,"
+                                                    + " missing: null.string"
+                                                    + "}}";
+    private static final String CLOB_AND_SYMBOL_ENVELOPE = "{"
+                                                           + "consumptionAttributes: {index: resources,"
+                                                           + " documentIdentifier: \"%s\"},"
+                                                           + "body: {abstract: {{\"plain text\"}}, kind: Article}"
+                                                           + "}";
+    private static final String TIMESTAMP_ENVELOPE = "{"
+                                                     + "consumptionAttributes: {index: resources,"
+                                                     + " documentIdentifier: \"%s\"},"
+                                                     + "body: {"
+                                                     + " fractional: 2022-03-01T10:15:30.123456Z,"
+                                                     + " modifiedDate: 2022-03-01T12:15:30+02:00,"
+                                                     + " day: 2022-03-01"
+                                                     + "}}";
+
+    @Test
+    void shouldDecodeBinaryEnvelopeToTheSameDocumentAsTheJsonEnvelope() throws IOException {
+        var attributes = new EventConsumptionAttributes(randomString(), SortableIdentifier.next(), 42L);
+        var original = new IndexDocument(attributes, IndexingConfig.objectMapper.readTree(randomJson()));
+
+        var decoded = IonEnvelopeDecoder.decode(toIonBinary(original.toJsonString()));
+
+        assertThat(decoded.getConsumptionAttributes(), is(equalTo(attributes)));
+        assertThat(decoded.getResource(), is(equalTo(original.getResource())));
+    }
+
+    @Test
+    void shouldDownConvertIonValuesWithoutJsonCounterpart() throws IOException {
+        var identifier = SortableIdentifier.next();
+        var envelope = String.format(ION_TEXT_ENVELOPE, identifier).getBytes(StandardCharsets.UTF_8);
+
+        var decoded = IonEnvelopeDecoder.decode(envelope);
+
+        var expectedBody = IndexingConfig.objectMapper.readTree("{"
+                                                               + "\"modifiedDate\":\"2022-03-01T10:15:30.123Z\","
+                                                               + "\"type\":\"AcademicArticle\","
+                                                               + "\"score\":12.50,"
+                                                               + "\"ratio\":null,"
+                                                               + "\"big\":123456789012345678901234567890,"
+                                                               + "\"tags\":[\"first\",\"second\"],"
+                                                               + "\"logo\":\"aGVsbG8=\","
+                                                               + "\"annotated\":5,"
+                                                               + "\"missing\":null"
+                                                               + "}");
+        assertThat(decoded.getResource(), is(equalTo(expectedBody)));
+        assertThat(decoded.getDocumentIdentifier(), is(equalTo(identifier.toString())));
+        assertThat(decoded.getExternalVersion().orElseThrow(), is(equalTo(7L)));
+    }
+
+    @Test
+    void shouldDecodeClobAndSymbolFieldsToStringsInTextAndBinaryEnvelopes() throws IOException {
+        var envelope = String.format(CLOB_AND_SYMBOL_ENVELOPE, SortableIdentifier.next());
+
+        var fromText = IonEnvelopeDecoder.decode(envelope.getBytes(StandardCharsets.UTF_8));
+        var fromBinary = IonEnvelopeDecoder.decode(toIonBinary(envelope));
+
+        var expectedBody = IndexingConfig.objectMapper.readTree("{\"abstract\":\"plain text\",\"kind\":\"Article\"}");
+        assertThat(fromText.getResource(), is(equalTo(expectedBody)));
+        assertThat(fromBinary.getResource(), is(equalTo(expectedBody)));
+    }
+
+    @Test
+    void shouldNormalizeTimestampsToInstantsInUtc() throws IOException {
+        var envelope = String.format(TIMESTAMP_ENVELOPE, SortableIdentifier.next());
+
+        var decoded = IonEnvelopeDecoder.decode(envelope.getBytes(StandardCharsets.UTF_8));
+
+        var expectedBody = IndexingConfig.objectMapper.readTree("{"
+                                                               + "\"fractional\":\"2022-03-01T10:15:30.123456Z\","
+                                                               + "\"modifiedDate\":\"2022-03-01T10:15:30Z\","
+                                                               + "\"day\":\"2022-03-01T00:00:00Z\""
+                                                               + "}");
+        assertThat(decoded.getResource(), is(equalTo(expectedBody)));
+        assertThat(decoded.getModifiedDate().orElseThrow(), is(equalTo(Instant.parse("2022-03-01T10:15:30Z"))));
+    }
+
+    @Test
+    void shouldRecognizeIonBinaryByContentAndIonTextByKey() throws IOException {
+        var json = new IndexDocument(new EventConsumptionAttributes(randomString(), SortableIdentifier.next()),
+                                     IndexingConfig.objectMapper.readTree(randomJson())).toJsonString();
+        var jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(IonEnvelopeDecoder.isIon(new StoredDocument(UnixPath.of("document"), toIonBinary(json))),
+                   is(true));
+        assertThat(IonEnvelopeDecoder.isIon(new StoredDocument(UnixPath.of("document.ion"), jsonBytes)), is(true));
+        assertThat(IonEnvelopeDecoder.isIon(new StoredDocument(UnixPath.of("document.ion.gz"), jsonBytes)),
+                   is(true));
+        assertThat(IonEnvelopeDecoder.isIon(new StoredDocument(UnixPath.of("document"), jsonBytes)), is(false));
+        assertThat(IonEnvelopeDecoder.isIon(new StoredDocument(UnixPath.of("d"), new byte[]{1})), is(false));
+    }
+
+    @Test
+    void shouldRejectEnvelopeThatIsNotAStruct() {
+        var envelope = "[1, 2, 3]".getBytes(StandardCharsets.UTF_8);
+
+        var exception = assertThrows(RuntimeException.class, () -> IonEnvelopeDecoder.decode(envelope));
+        assertThat(exception.getMessage().contains(IonEnvelopeDecoder.NOT_A_STRUCT), is(true));
+    }
+
+    static byte[] toIonBinary(String json) throws IOException {
+        var ion = new ByteArrayOutputStream();
+        try (IonReader reader = IonReaderBuilder.standard().build(json);
+             IonWriter writer = IonBinaryWriterBuilder.standard().build(ion)) {
+            writer.writeValues(reader);
+        }
+        return ion.toByteArray();
+    }
+}
@@ -0,0 +1,46 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.Test;
+
+class ModifiedObjectListerTest {
+
+    private static final Instant LAST_SYNC = Instant.parse("2022-01-01T00:00:00Z");
+    private static final Instant BEFORE_LAST_SYNC = LAST_SYNC.minus(Duration.ofDays(1));
+    private static final Instant AFTER_LAST_SYNC = LAST_SYNC.plus(Duration.ofMinutes(1));
+    private static final UnixPath ROOT = UnixPath.of("");
+
+    @Test
+    void shouldListOnlyObjectsModifiedSinceTheGivenTime() {
+        var s3Client = new DatedObjectsS3Client();
+        s3Client.putObject("a", randomString(), BEFORE_LAST_SYNC);
+        s3Client.putObject("b", randomString(), AFTER_LAST_SYNC);
+        s3Client.putObject("c", randomString(), LAST_SYNC);
+
+        var listing = new ModifiedObjectLister(s3Client, randomString()).listFiles(ROOT, null, 10, LAST_SYNC);
+
+        assertThat(listing.getFiles(), is(equalTo(List.of(UnixPath.of("b"), UnixPath.of("c")))));
+        assertThat(listing.isTruncated(), is(false));
+    }
+
+    @Test
+    void shouldContinueAfterLastListedKeyWhenItsObjectWasNotModified() {
+        var s3Client = new DatedObjectsS3Client();
+        s3Client.putObject("a", randomString(), AFTER_LAST_SYNC);
+        s3Client.putObject("b", randomString(), BEFORE_LAST_SYNC);
+        s3Client.putObject("c", randomString(), AFTER_LAST_SYNC);
+
+        var listing = new ModifiedObjectLister(s3Client, randomString()).listFiles(ROOT, null, 2, LAST_SYNC);
+
+        assertThat(listing.getFiles(), is(equalTo(List.of(UnixPath.of("a")))));
+        assertThat(listing.getListingStartingPoint(), is(equalTo("b")));
+        assertThat(listing.isTruncated(), is(true));
+    }
+}
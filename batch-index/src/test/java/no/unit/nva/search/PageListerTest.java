@@ -0,0 +1,63 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PageListerTest {
+
+    private static final int PAGE_SIZE = 2;
+    private static final String FOLDER = "folder/";
+    private static final ImportDataRequestEvent FIRST_PAGE =
+        new ImportDataRequestEvent("s3://bucket/" + FOLDER, null, null, null, false, null);
+
+    private DatedObjectsS3Client s3Client;
+
+    @BeforeEach
+    void init() {
+        s3Client = new DatedObjectsS3Client();
+        for (String key : List.of("a", "b", "c", "d", "e")) {
+            s3Client.putObject(FOLDER + key, randomString(), Instant.now());
+        }
+    }
+
+    @Test
+    void shouldListPrefetchedPageInBackgroundAndServeItWithoutListingAgain() {
+        try (var pageLister = new PageLister(s3Client, PAGE_SIZE)) {
+            var firstListing = pageLister.list(FIRST_PAGE);
+            var nextPage = FIRST_PAGE.nextPage(firstListing.getListingStartingPoint());
+            pageLister.prefetch(nextPage);
+
+            var nextListing = pageLister.list(nextPage);
+
+            assertThat(nextListing.getFiles(), is(equalTo(keys("c", "d"))));
+            assertThat(s3Client.getListingThreads().size(), is(equalTo(2)));
+            assertThat(s3Client.getListingThreads().get(1), startsWith("s3-list"));
+        }
+    }
+
+    @Test
+    void shouldListPageThatWasNotPrefetchedWhenItIsAskedFor() {
+        try (var pageLister = new PageLister(s3Client, PAGE_SIZE)) {
+            pageLister.prefetch(FIRST_PAGE.nextPage(FOLDER + "b"));
+
+            var listing = pageLister.list(FIRST_PAGE.nextPage(FOLDER + "c"));
+
+            assertThat(listing.getFiles(), is(equalTo(keys("d", "e"))));
+            assertThat(listing.isTruncated(), is(false));
+        }
+    }
+
+    private static List<UnixPath> keys(String... names) {
+        return Stream.of(names).map(name -> UnixPath.of(FOLDER + name)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,144 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+class ParallelObjectFetcherTest {
+
+    private static final int MAX_DELAY_MILLIS = 10;
+    private static final int SETTLE_MILLIS = 20;
+    private static final Random RANDOM = new Random();
+    private static final String FAILING_KEY_PREFIX = "missing";
+
+    @Test
+    void shouldReturnContentsInKeyOrderWithBoundedNumberOfConcurrentDownloads() {
+        var concurrency = 4;
+        var keys = randomKeys(50);
+        var s3Client = new SlowS3Client();
+
+        List<String> contents;
+        try (var fetcher = new ParallelObjectFetcher(s3Client, randomString(), concurrency)) {
+            contents = fetcher.fetch(keys)
+                .map(document -> new String(document.getContent(), StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+        }
+
+        var expectedContents = keys.stream().map(UnixPath::toString).collect(Collectors.toList());
+        assertThat(contents, is(equalTo(expectedContents)));
+        assertThat(s3Client.maxObservedInFlight.get() <= concurrency, is(true));
+    }
+
+    @Test
+    void shouldReportFailureOfFirstFailingKeyInKeyOrder() {
+        var keys = List.of(UnixPath.of(randomString()),
+                           UnixPath.of(FAILING_KEY_PREFIX + "First"),
+                           UnixPath.of(FAILING_KEY_PREFIX + "Second"));
+
+        try (var fetcher = new ParallelObjectFetcher(new SlowS3Client(), randomString(), keys.size())) {
+            var exception = assertThrows(NoSuchKeyException.class,
+                                         () -> fetcher.fetch(keys).collect(Collectors.toList()));
+            assertThat(exception.getMessage(), containsString(FAILING_KEY_PREFIX + "First"));
+        }
+    }
+
+    @Test
+    void shouldNotStartDownloadWhileDownloadedObjectsWaitingToBeConsumedReachByteCeiling()
+        throws InterruptedException {
+        var concurrency = 4;
+        var keys = randomKeys(20);
+        var s3Client = new SlowS3Client();
+        var contents = new ArrayList<String>();
+
+        try (var fetcher = new ParallelObjectFetcher(s3Client, randomString(), concurrency, 1)) {
+            var documents = fetcher.fetch(keys).iterator();
+            var startedBefore = 0;
+            while (documents.hasNext()) {
+                var startedAfter = s3Client.started.get();
+                var objectsWaitingBefore = startedBefore - contents.size() - 1;
+                if (objectsWaitingBefore > 0) {
+                    assertThat(startedAfter, is(equalTo(startedBefore)));
+                }
+                contents.add(new String(documents.next().getContent(), StandardCharsets.UTF_8));
+                s3Client.awaitStartedDownloads();
+                startedBefore = s3Client.started.get();
+            }
+        }
+
+        var expectedContents = keys.stream().map(UnixPath::toString).collect(Collectors.toList());
+        assertThat(contents, is(equalTo(expectedContents)));
+    }
+
+    private static List<UnixPath> randomKeys(int numberOfKeys) {
+        return IntStream.range(0, numberOfKeys)
+            .mapToObj(i -> UnixPath.of(randomString()))
+            .collect(Collectors.toList());
+    }
+
+    // Serves every object with its key as content, after a random delay.
+    private static class SlowS3Client implements S3Client {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+        private final AtomicInteger started = new AtomicInteger();
+
+        @Override
+        public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                           ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+            started.incrementAndGet();
+            maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(RANDOM.nextInt(MAX_DELAY_MILLIS));
+                if (getObjectRequest.key().startsWith(FAILING_KEY_PREFIX)) {
+                    throw NoSuchKeyException.builder().message(getObjectRequest.key()).build();
+                }
+                var content = getObjectRequest.key().getBytes(StandardCharsets.UTF_8);
+                @SuppressWarnings("unchecked")
+                ReturnT response = (ReturnT) ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), content);
+                return response;
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        // Waits until no download is in flight, and none has been started for a while, so that every download that
+        // was handed to the fetcher has completed.
+        void awaitStartedDownloads() throws InterruptedException {
+            int startedDownloads;
+            do {
+                startedDownloads = started.get();
+                Thread.sleep(SETTLE_MILLIS);
+            } while (inFlight.get() > 0 || started.get() != startedDownloads);
+        }
+
+        @Override
+        public String serviceName() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
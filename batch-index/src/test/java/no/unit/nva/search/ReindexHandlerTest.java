@@ -0,0 +1,125 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.RESOURCES_INDEX;
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import no.unit.nva.stubs.FakeS3Client;
+import nva.commons.core.ioutils.IoUtils;
+import nva.commons.logutils.LogUtils;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReindexHandlerTest extends BatchIndexTest {
+
+    private static final String S3_LOCATION = "s3://bucket/";
+    private static final Instant CREATED_AT = Instant.parse("2022-10-17T09:30:00Z");
+    private static final String GENERATION = IndexGenerations.generationName(RESOURCES_INDEX, CREATED_AT);
+    private static final String EXPIRED_GENERATION = IndexGenerations.generationName(RESOURCES_INDEX, Instant.EPOCH);
+    private IndexGenerations indexGenerations;
+    private StubEventBridgeClient eventBridgeClient;
+    private ByteArrayOutputStream outputStream;
+    private ReindexHandler handler;
+
+    @BeforeEach
+    void init() {
+        indexGenerations = mock(IndexGenerations.class);
+        eventBridgeClient = new StubEventBridgeClient();
+        outputStream = new ByteArrayOutputStream();
+        handler = new ReindexHandler(eventBridgeClient, new FakeS3Client(), indexGenerations);
+    }
+
+    @Test
+    void shouldCreateGenerationAndImportIntoIt() throws IOException {
+        when(indexGenerations.create(eq(RESOURCES_INDEX), any(Instant.class))).thenReturn(GENERATION);
+
+        handle(new ReindexRequest(ReindexRequest.Action.START, null, S3_LOCATION, null, null));
+
+        var importRequest = eventBridgeClient.getLatestEvent();
+        assertThat(importRequest.getTargetIndex(), is(equalTo(GENERATION)));
+        assertThat(importRequest.getModifiedSince(), is(nullValue()));
+        assertThat(objectMapperWithEmpty.readValue(outputStream.toString(), String.class), is(equalTo(GENERATION)));
+    }
+
+    @Test
+    void shouldCatchUpGenerationWithFilesModifiedWhileItWasBuiltBeforePromotingIt() throws IOException {
+        var before = Instant.now();
+
+        handle(new ReindexRequest(ReindexRequest.Action.CATCH_UP, null, S3_LOCATION, null, GENERATION));
+
+        verify(indexGenerations, never()).promote(any(), any());
+        verify(indexGenerations, never()).cleanUp(any(), anyInt());
+        var catchUp = eventBridgeClient.getLatestEvent();
+        assertThat(catchUp.getModifiedSince(), is(equalTo(CREATED_AT)));
+        assertThat(catchUp.getTargetIndex(), is(equalTo(GENERATION)));
+        var catchUpStarted = objectMapperWithEmpty.readValue(outputStream.toString(), Instant.class);
+        assertThat(catchUpStarted.isBefore(before), is(false));
+    }
+
+    @Test
+    void shouldPromoteGenerationAndImportFilesModifiedWhileItWasCaughtUp() throws IOException {
+        var catchUpStarted = Instant.now();
+        when(indexGenerations.cleanUp(eq(RESOURCES_INDEX), anyInt())).thenReturn(List.of(EXPIRED_GENERATION));
+
+        handle(new ReindexRequest(ReindexRequest.Action.PROMOTE, null, S3_LOCATION, null, GENERATION,
+                                  catchUpStarted));
+
+        var inOrder = inOrder(indexGenerations);
+        inOrder.verify(indexGenerations).promote(eq(GENERATION), any(Settings.class));
+        inOrder.verify(indexGenerations).cleanUp(eq(RESOURCES_INDEX), anyInt());
+        var finalImport = eventBridgeClient.getLatestEvent();
+        assertThat(finalImport.getModifiedSince(), is(equalTo(catchUpStarted)));
+        assertThat(finalImport.getTargetIndex(), is(nullValue()));
+        assertThat(objectMapperWithEmpty.readValue(outputStream.toString(), String[].class),
+                   is(equalTo(new String[]{EXPIRED_GENERATION})));
+    }
+
+    @Test
+    void shouldPromoteGenerationWithoutImportWhenCatchUpTimeIsMissing() throws IOException {
+        when(indexGenerations.cleanUp(eq(RESOURCES_INDEX), anyInt())).thenReturn(List.of(EXPIRED_GENERATION));
+
+        handle(new ReindexRequest(ReindexRequest.Action.PROMOTE, null, S3_LOCATION, null, GENERATION));
+
+        verify(indexGenerations).promote(eq(GENERATION), any(Settings.class));
+        assertThat(eventBridgeClient.getLatestEvent(), is(nullValue()));
+    }
+
+    @Test
+    void shouldPromoteGenerationWhenExpiredGenerationsCannotBeDeleted() throws IOException {
+        when(indexGenerations.cleanUp(eq(RESOURCES_INDEX), anyInt()))
+            .thenThrow(new ElasticsearchStatusException(randomString(), RestStatus.FORBIDDEN));
+        var logger = LogUtils.getTestingAppenderForRootLogger();
+
+        handle(new ReindexRequest(ReindexRequest.Action.PROMOTE, null, S3_LOCATION, null, GENERATION,
+                                  CREATED_AT));
+
+        verify(indexGenerations).promote(eq(GENERATION), any(Settings.class));
+        assertThat(eventBridgeClient.getLatestEvent().getModifiedSince(), is(equalTo(CREATED_AT)));
+        assertThat(objectMapperWithEmpty.readValue(outputStream.toString(), String[].class),
+                   is(equalTo(new String[0])));
+        assertThat(logger.getMessages(), containsString("Failed to delete expired generations of"));
+    }
+
+    private void handle(ReindexRequest request) throws IOException {
+        handler.handleRequest(IoUtils.stringToStream(request.toJsonString()), outputStream, CONTEXT);
+    }
+}
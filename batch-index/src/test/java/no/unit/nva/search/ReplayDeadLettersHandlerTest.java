@@ -0,0 +1,153 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.BatchIndexingConstants.MAX_REPLAY_ATTEMPTS;
+import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
+import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static nva.commons.core.attempt.Try.attempt;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsIterableContaining.hasItem;
+import static org.hamcrest.core.IsNot.not;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import no.unit.nva.commons.json.JsonUtils;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.indexing.testutils.FakeIndexingClient;
+import no.unit.nva.s3.S3Driver;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import no.unit.nva.stubs.FakeS3Client;
+import nva.commons.core.ioutils.IoUtils;
+import nva.commons.core.paths.UnixPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayDeadLettersHandlerTest extends BatchIndexTest {
+
+    private static final String BUCKET = "bucket";
+    private FakeS3Client s3Client;
+    private S3Driver s3Driver;
+    private DeadLetterStore deadLetterStore;
+    private ByteArrayOutputStream outputStream;
+
+    @BeforeEach
+    void init(@TempDir Path directory) {
+        s3Client = new FakeS3Client();
+        s3Driver = new S3Driver(s3Client, BUCKET);
+        deadLetterStore = new FileSystemDeadLetterStore(directory);
+        outputStream = new ByteArrayOutputStream();
+    }
+
+    @Test
+    void shouldIndexOnlyTheDocumentsOfDeadLettersAndDeleteTheReplayedBatch() throws IOException {
+        var failed = randomIndexDocument();
+        var notFailed = randomIndexDocument();
+        var deadLetter = deadLetterOf(failed, storeDocument(failed), DeadLetter.FIRST_ATTEMPT);
+        storeDocument(notFailed);
+        deadLetterStore.write(List.of(deadLetter));
+        var indexingClient = new FakeIndexingClient();
+
+        replay(indexingClient);
+
+        assertThat(indexingClient.getIndex(failed.getIndexName()), hasItem(failed.getResource()));
+        assertThat(indexingClient.getIndex(failed.getIndexName()), not(hasItem(notFailed.getResource())));
+        assertThat(deadLetterStore.listBatches(), is(empty()));
+        assertThat(summary().get(ReplayDeadLettersHandler.RECOVERED), is(equalTo(1)));
+    }
+
+    @Test
+    void shouldRecordDeadLetterWithOneMoreAttemptWhenReplayFailsAgain() throws IOException {
+        var failed = randomIndexDocument();
+        var deadLetter = deadLetterOf(failed, storeDocument(failed), DeadLetter.FIRST_ATTEMPT);
+        deadLetterStore.write(List.of(deadLetter));
+
+        replay(failingElasticSearchClient());
+
+        var batches = deadLetterStore.listBatches();
+        assertThat(batches.size(), is(equalTo(1)));
+        var remaining = deadLetterStore.readBatch(batches.get(0));
+        assertThat(remaining, is(equalTo(List.of(deadLetter.failedAgain(BulkFailureClass.OTHER)))));
+        assertThat(remaining.get(0).getAttempts(), is(equalTo(DeadLetter.FIRST_ATTEMPT + 1)));
+    }
+
+    @Test
+    void shouldLeaveBatchOfExhaustedDeadLettersUntouched() throws IOException {
+        var failed = randomIndexDocument();
+        var deadLetter = deadLetterOf(failed, storeDocument(failed), MAX_REPLAY_ATTEMPTS);
+        deadLetterStore.write(List.of(deadLetter));
+        var batches = deadLetterStore.listBatches();
+        var indexingClient = new FakeIndexingClient();
+
+        replay(indexingClient);
+
+        assertThat(deadLetterStore.listBatches(), is(equalTo(batches)));
+        assertThat(indexingClient.getIndex(failed.getIndexName()), not(hasItem(failed.getResource())));
+    }
+
+    @Test
+    void shouldIndexDocumentIntoTheIndexRecordedInItsDeadLetter() throws IOException {
+        var failed = randomIndexDocument();
+        var failedIndex = randomString();
+        var deadLetter = new DeadLetter(BUCKET, storeDocument(failed).toString(), failed.getDocumentIdentifier(),
+                                        failedIndex, BulkFailureClass.OTHER, DeadLetter.FIRST_ATTEMPT);
+        deadLetterStore.write(List.of(deadLetter));
+        var indexingClient = new FakeIndexingClient();
+
+        replay(indexingClient);
+
+        assertThat(indexingClient.getIndex(failedIndex), hasItem(failed.getResource()));
+        assertThat(indexingClient.getIndex(failed.getIndexName()), not(hasItem(failed.getResource())));
+    }
+
+    @Test
+    void shouldCountDeadLettersThatCannotBeReplayedAsDroppedRatherThanRecovered() throws IOException {
+        var withoutKey = randomIndexDocument();
+        var noLongerInObject = randomIndexDocument();
+        var keyNowHoldingAnotherDocument = storeDocument(randomIndexDocument());
+        deadLetterStore.write(List.of(
+            new DeadLetter(BUCKET, null, withoutKey.getDocumentIdentifier(), withoutKey.getIndexName(),
+                           BulkFailureClass.OTHER, DeadLetter.FIRST_ATTEMPT),
+            deadLetterOf(noLongerInObject, keyNowHoldingAnotherDocument, DeadLetter.FIRST_ATTEMPT)));
+
+        replay(new FakeIndexingClient());
+
+        assertThat(summary().get(ReplayDeadLettersHandler.REPLAYED), is(equalTo(2)));
+        assertThat(summary().get(ReplayDeadLettersHandler.DROPPED), is(equalTo(2)));
+        assertThat(summary().get(ReplayDeadLettersHandler.RECOVERED), is(equalTo(0)));
+        assertThat(deadLetterStore.listBatches(), is(empty()));
+    }
+
+    private void replay(IndexingClient indexingClient) throws IOException {
+        var handler = new ReplayDeadLettersHandler(s3Client, indexingClient, deadLetterStore, MAX_REPLAY_ATTEMPTS);
+        handler.handleRequest(IoUtils.stringToStream("{}"), outputStream, CONTEXT);
+    }
+
+    private Map<String, Integer> summary() throws IOException {
+        return objectMapperWithEmpty.readValue(outputStream.toString(), objectMapperWithEmpty.getTypeFactory()
+            .constructMapType(Map.class, String.class, Integer.class));
+    }
+
+    private UnixPath storeDocument(IndexDocument document) throws IOException {
+        var key = UnixPath.of(document.getDocumentIdentifier());
+        s3Driver.insertFile(key, document.toJsonString());
+        return key;
+    }
+
+    private static DeadLetter deadLetterOf(IndexDocument document, UnixPath key, int attempts) {
+        return new DeadLetter(BUCKET, key.toString(), document.getDocumentIdentifier(), document.getIndexName(),
+                              BulkFailureClass.OTHER, attempts);
+    }
+
+    private static IndexDocument randomIndexDocument() {
+        var body = attempt(() -> JsonUtils.dtoObjectMapper.readTree(randomJson())).orElseThrow();
+        return new IndexDocument(new EventConsumptionAttributes(randomString(), SortableIdentifier.next()), body);
+    }
+}
@@ -0,0 +1,55 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.util.List;
+import java.util.Optional;
+import no.unit.nva.stubs.FakeS3Client;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+class S3CheckpointStoreTest {
+
+    @Test
+    void shouldReturnCheckpointWritten() {
+        var store = new S3CheckpointStore(new FakeS3Client(), randomString());
+        var checkpointId = Checkpoint.idOf(new ImportDataRequestEvent("s3://bucket/path"));
+        var checkpoint = new Checkpoint(randomString(), List.of(randomString(), randomString()));
+
+        store.write(checkpointId, checkpoint);
+
+        assertThat(store.read(checkpointId), is(equalTo(Optional.of(checkpoint))));
+    }
+
+    @Test
+    void shouldReturnEmptyWhenCheckpointObjectDoesNotExist() {
+        var store = new S3CheckpointStore(new EmptyBucketS3Client(), randomString());
+
+        assertThat(store.read(randomString()), is(equalTo(Optional.empty())));
+    }
+
+    private static class EmptyBucketS3Client implements S3Client {
+
+        @Override
+        public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                           ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+            throw NoSuchKeyException.builder().message(getObjectRequest.key()).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.FileSystemDeadLetterStoreTest.randomDeadLetter;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class S3DeadLetterStoreTest {
+
+    @Test
+    void shouldReturnDeadLettersOfBatchWrittenUnderDeadLetterPrefix() {
+        var s3Client = new InMemoryS3Client();
+        var store = new S3DeadLetterStore(s3Client, randomString());
+        var deadLetters = List.of(randomDeadLetter(), randomDeadLetter());
+
+        store.write(deadLetters);
+
+        var batches = store.listBatches();
+        assertThat(batches.size(), is(equalTo(1)));
+        assertThat(store.readBatch(batches.get(0)), is(equalTo(deadLetters)));
+        assertThat(s3Client.getKeys().first().startsWith(S3DeadLetterStore.DEAD_LETTERS_PREFIX), is(true));
+    }
+
+    @Test
+    void shouldNotListDeletedBatch() {
+        var store = new S3DeadLetterStore(new InMemoryS3Client(), randomString());
+        store.write(List.of(randomDeadLetter()));
+
+        store.deleteBatch(store.listBatches().get(0));
+
+        assertThat(store.listBatches(), is(empty()));
+    }
+}
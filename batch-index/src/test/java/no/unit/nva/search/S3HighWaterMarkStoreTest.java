@@ -0,0 +1,72 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class S3HighWaterMarkStoreTest {
+
+    private static final String SOME_S3_LOCATION = "s3://some-bucket/some/path";
+    private static final String OTHER_S3_LOCATION = "s3://some-bucket/some";
+
+    @Test
+    void shouldReadHighWaterMarkWrittenForLocation() {
+        var store = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        var highWaterMark = Instant.parse("2022-01-01T00:00:00Z");
+
+        store.write(SOME_S3_LOCATION, highWaterMark);
+
+        assertThat(store.read(SOME_S3_LOCATION), is(equalTo(Optional.of(highWaterMark))));
+    }
+
+    @Test
+    void shouldKeepLatestHighWaterMarkWhenEarlierSyncCompletesAfterIt() {
+        var s3Client = new InMemoryS3Client();
+        var store = new S3HighWaterMarkStore(s3Client, randomString());
+        var earlier = Instant.parse("2022-01-01T00:00:00Z");
+        var later = Instant.parse("2022-01-01T00:00:00.500Z");
+
+        store.write(SOME_S3_LOCATION, earlier);
+        store.write(SOME_S3_LOCATION, later);
+        store.write(SOME_S3_LOCATION, earlier);
+
+        assertThat(store.read(SOME_S3_LOCATION), is(equalTo(Optional.of(later))));
+        assertThat(store.read(OTHER_S3_LOCATION), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldDeleteHighWaterMarksOlderThanTheLatest() {
+        var s3Client = new InMemoryS3Client();
+        var store = new S3HighWaterMarkStore(s3Client, randomString());
+        var latest = Instant.parse("2022-01-02T00:00:00Z");
+
+        store.write(SOME_S3_LOCATION, Instant.parse("2022-01-01T00:00:00Z"));
+        store.write(SOME_S3_LOCATION, latest);
+
+        assertThat(s3Client.getKeys().size(), is(equalTo(1)));
+        assertThat(store.read(SOME_S3_LOCATION), is(equalTo(Optional.of(latest))));
+    }
+
+    @Test
+    void shouldReturnEmptyWhenLocationHasNotBeenSynced() {
+        var store = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+
+        assertThat(store.read(SOME_S3_LOCATION), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldReportSyncCompletedOnlyOnceEveryShardHasCompleted() {
+        var store = new S3HighWaterMarkStore(new InMemoryS3Client(), randomString());
+        var syncStarted = Instant.now();
+
+        assertThat(store.recordShardCompleted(SOME_S3_LOCATION, syncStarted, 1, 3), is(false));
+        assertThat(store.recordShardCompleted(SOME_S3_LOCATION, syncStarted, 1, 3), is(false));
+        assertThat(store.recordShardCompleted(SOME_S3_LOCATION, syncStarted, 0, 3), is(false));
+        assertThat(store.recordShardCompleted(SOME_S3_LOCATION, syncStarted.minusSeconds(1), 2, 3), is(false));
+        assertThat(store.recordShardCompleted(SOME_S3_LOCATION, syncStarted, 2, 3), is(true));
+    }
+}
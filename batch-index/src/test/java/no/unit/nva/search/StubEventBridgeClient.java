@@ -1,25 +1,64 @@
 package no.unit.nva.search;
 
-import nva.commons.core.SingletonCollector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
 
 import static no.unit.nva.search.constants.ApplicationConstants.objectMapperWithEmpty;
 import static nva.commons.core.attempt.Try.attempt;
 
+/**
+ * Accepts the entries of PutEvents requests and keeps the import events they hold. It can be told to reject a number
+ * of the next entries, which are then reported as failed and not kept.
+ */
 public class StubEventBridgeClient implements EventBridgeClient {
 
+    public static final String THROTTLING_ERROR = "ThrottlingException";
+    private final List<ImportDataRequestEvent> events = new ArrayList<>();
+    private final List<Integer> requestSizes = new ArrayList<>();
     private ImportDataRequestEvent latestEvent;
+    private int entriesToReject;
 
     public ImportDataRequestEvent getLatestEvent() {
         return latestEvent;
     }
 
-    public PutEventsResponse putEvents(PutEventsRequest putEventsRequest) {
-        this.latestEvent = saveContainedEvent(putEventsRequest);
-        return PutEventsResponse.builder().failedEntryCount(0).build();
+    public List<ImportDataRequestEvent> getEvents() {
+        return events;
+    }
+
+    public List<Integer> getRequestSizes() {
+        return requestSizes;
+    }
+
+    public void rejectNextEntries(int numberOfEntries) {
+        this.entriesToReject = numberOfEntries;
+    }
+
+    public synchronized PutEventsResponse putEvents(PutEventsRequest putEventsRequest) {
+        requestSizes.add(putEventsRequest.entries().size());
+        List<PutEventsResultEntry> results = new ArrayList<>();
+        int failed = 0;
+        for (PutEventsRequestEntry entry : putEventsRequest.entries()) {
+            if (entriesToReject > 0) {
+                entriesToReject--;
+                failed++;
+                results.add(PutEventsResultEntry.builder()
+                                .errorCode(THROTTLING_ERROR)
+                                .errorMessage(THROTTLING_ERROR)
+                                .build());
+            } else {
+                this.latestEvent = containedEvent(entry);
+                this.events.add(latestEvent);
+                results.add(PutEventsResultEntry.builder().eventId(UUID.randomUUID().toString()).build());
+            }
+        }
+        return PutEventsResponse.builder().failedEntryCount(failed).entries(results).build();
     }
 
     @Override
@@ -32,10 +71,7 @@ public class StubEventBridgeClient implements EventBridgeClient {
 
     }
 
-    private ImportDataRequestEvent saveContainedEvent(PutEventsRequest putEventsRequest) {
-        PutEventsRequestEntry eventEntry = putEventsRequest.entries()
-            .stream()
-            .collect(SingletonCollector.collect());
+    private static ImportDataRequestEvent containedEvent(PutEventsRequestEntry eventEntry) {
         return attempt(eventEntry::detail)
             .map(jsonString -> objectMapperWithEmpty.readValue(jsonString, ImportDataRequestEvent.class))
             .orElseThrow();
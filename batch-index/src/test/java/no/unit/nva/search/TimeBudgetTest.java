@@ -0,0 +1,53 @@
+package no.unit.nva.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.jupiter.api.Test;
+
+class TimeBudgetTest {
+
+    private static final long MINIMUM_MARGIN_MILLIS = 1000;
+
+    @Test
+    void shouldNotAllowAnotherPageWhenRemainingTimeIsWithinTheMinimumMargin() {
+        var timeBudget = new TimeBudget(contextWithRemainingTime(MINIMUM_MARGIN_MILLIS), MINIMUM_MARGIN_MILLIS);
+
+        assertThat(timeBudget.hasTimeForAnotherPage(), is(false));
+    }
+
+    @Test
+    void shouldWidenTheMarginWithTheLongestPageSeen() {
+        var timeBudget = new TimeBudget(contextWithRemainingTime(5000), MINIMUM_MARGIN_MILLIS);
+        timeBudget.recordPage(1000);
+        timeBudget.recordPage(500);
+
+        assertThat(timeBudget.getMarginMillis(), is(equalTo(3000L)));
+        assertThat(timeBudget.hasTimeForAnotherPage(), is(true));
+
+        timeBudget.recordPage(2000);
+
+        assertThat(timeBudget.hasTimeForAnotherPage(), is(false));
+    }
+
+    @Test
+    void shouldTellLastPageWhenNoTimeWouldBeLeftAfterPageAsLongAsTheLongestSeen() {
+        var timeBudget = new TimeBudget(contextWithRemainingTime(5000), MINIMUM_MARGIN_MILLIS);
+
+        assertThat(timeBudget.isLastPage(), is(false));
+
+        timeBudget.recordPage(1500);
+
+        assertThat(timeBudget.hasTimeForAnotherPage(), is(true));
+        assertThat(timeBudget.isLastPage(), is(true));
+    }
+
+    private static Context contextWithRemainingTime(long remainingTimeInMillis) {
+        var context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn((int) remainingTimeInMillis);
+        return context;
+    }
+}
@@ -9,16 +9,21 @@ import no.unit.nva.events.models.EventReference;
 import no.unit.nva.s3.S3Driver;
 import no.unit.nva.search.IndexingClient;
 import no.unit.nva.search.IndexingConfig;
+import no.unit.nva.search.bulk.IndexingLane;
 import no.unit.nva.search.models.IndexDocument;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.paths.UnixPath;
 import nva.commons.core.paths.UriWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class IndexResourceHandler extends DestinationsEventBridgeEventHandler<EventReference, Void> {
 
     public static final String MISSING_INDEX_ERROR = "Missing field 'index' in consumption attributes";
     public static final String MISSING_DOC_IDENTIFIER_ERROR =
         "Missing field 'documentIdentifier' in consumption attributes";
+    public static final String LIVE_LATENCY_LOG_MESSAGE = "Live write latency: {}";
+    private static final Logger logger = LoggerFactory.getLogger(IndexResourceHandler.class);
     private static final String EXPANDED_RESOURCES_BUCKET = IndexingConfig.ENVIRONMENT.readEnv(
         "EXPANDED_RESOURCES_BUCKET");
     private final S3Driver s3Driver;
@@ -48,9 +53,16 @@ public class IndexResourceHandler extends DestinationsEventBridgeEventHandler<Ev
         UnixPath resourceRelativePath = UriWrapper.fromUri(input.getUri()).toS3bucketPath();
         IndexDocument indexDocument = fetchFileFromS3Bucket(resourceRelativePath).validate();
         attempt(() -> indexingClient.addDocumentToIndex(indexDocument)).orElseThrow();
+        logLiveLatency();
         return null;
     }
 
+    // The batch indexer runs in another function and cannot see these writes, so their latency is published in the
+    // log of every invocation, where it can be turned into a metric. The batch side probes the cluster instead.
+    private void logLiveLatency() {
+        logger.info(LIVE_LATENCY_LOG_MESSAGE, indexingClient.getStatistics().latencyOf(IndexingLane.LIVE));
+    }
+
     private IndexDocument fetchFileFromS3Bucket(UnixPath resourceRelativePath) {
         String resource = s3Driver.getFile(resourceRelativePath);
         return IndexDocument.fromJsonString(resource);
@@ -10,6 +10,7 @@ import static nva.commons.core.attempt.Try.attempt;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.stringContainsInOrder;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -33,6 +34,7 @@ import no.unit.nva.stubs.FakeS3Client;
 import no.unit.nva.testutils.RandomDataGenerator;
 import nva.commons.core.paths.UnixPath;
 import nva.commons.core.paths.UriWrapper;
+import nva.commons.logutils.LogUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -77,6 +79,16 @@ public class IndexResourceHandlerTest {
         assertThat(allIndexedDocuments, contains(SAMPLE_RESOURCE.getResource()));
     }
 
+    @Test
+    void shouldLogLatencyOfLiveWritesWhenDocumentHasBeenIndexed() throws Exception {
+        URI resourceLocation = prepareEventStorageResourceFile();
+        var logger = LogUtils.getTestingAppenderForRootLogger();
+
+        indexResourceHandler.handleRequest(createEventBridgeEvent(resourceLocation), output, context);
+
+        assertThat(logger.getMessages(), containsString("Live write latency: LaneLatency{requests="));
+    }
+
     @Test
     void shouldThrowExceptionOnCommunicationProblemWithService() throws Exception {
         final var expectedErrorMessage = randomString();
@@ -0,0 +1,83 @@
+package no.unit.nva.search;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.RequestOptions;
+
+/**
+ * Compresses request bodies with gzip. The interceptor must run before the request is signed, so that the signature
+ * covers the compressed body and the Content-Encoding header: register it with {@link #register} and add the
+ * signing interceptor last.
+ *
+ * <p>The body is compressed into memory rather than streamed, because the signing interceptor needs to read it.
+ */
+public class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+    public static final String COMPRESSION_ENV = "SEARCH_HTTP_COMPRESSION";
+    public static final String GZIP = "gzip";
+
+    /**
+     * Reads whether compression is enabled for the current runtime. Compression is off unless enabled.
+     *
+     * @return true when the {@value COMPRESSION_ENV} environment variable is set to true
+     */
+    public static boolean isEnabled() {
+        return IndexingConfig.ENVIRONMENT.readEnvOpt(COMPRESSION_ENV).map(Boolean::parseBoolean).orElse(false);
+    }
+
+    /**
+     * Adds the interceptor as the first request interceptor of the client, when compression is enabled.
+     *
+     * @param config             the client builder
+     * @param compressionEnabled whether request bodies should be compressed
+     * @return the client builder
+     */
+    public static HttpAsyncClientBuilder register(HttpAsyncClientBuilder config, boolean compressionEnabled) {
+        return compressionEnabled ? config.addInterceptorFirst(new GzipRequestInterceptor()) : config;
+    }
+
+    /**
+     * Asks the cluster to compress its response. The low-level client decompresses gzip responses before they
+     * are parsed.
+     *
+     * @param requestOptions the options of the request
+     * @return a copy of the options with an Accept-Encoding header
+     */
+    public static RequestOptions acceptCompressedResponse(RequestOptions requestOptions) {
+        return requestOptions.toBuilder().addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP).build();
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws IOException {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            HttpEntity entity = entityRequest.getEntity();
+            if (nonNull(entity) && isNull(entity.getContentEncoding())) {
+                entityRequest.setEntity(compress(entity));
+                entityRequest.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+    }
+
+    private static HttpEntity compress(HttpEntity entity) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            entity.writeTo(gzip);
+        }
+        ByteArrayEntity compressedEntity = new ByteArrayEntity(compressed.toByteArray());
+        compressedEntity.setContentType(entity.getContentType());
+        compressedEntity.setContentEncoding(GZIP);
+        return compressedEntity;
+    }
+}
@@ -0,0 +1,155 @@
+package no.unit.nva.search;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import no.unit.nva.search.bulk.BulkLoadSession;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the generations of an index that is served through an alias, so that the index can be rebuilt while
+ * searches keep reading the current generation. A generation is named after the alias and the time it was created,
+ * for instance {@code resources-20221017093000}, so that the names sort by age.
+ *
+ * <p>A new generation is created with bulk-load settings and filled while the alias still points to the current
+ * generation. Promoting the new generation restores the serving settings, refreshes it and moves the alias to it in
+ * a single {@code _aliases} call, so that searches see either the old or the complete new generation. An index that
+ * was created with the name of the alias, before the index was served through an alias, is removed in the same call.
+ */
+public class IndexGenerations {
+
+    public static final String GENERATION_DELIMITER = "-";
+    public static final DateTimeFormatter GENERATION_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+    private static final Logger logger = LoggerFactory.getLogger(IndexGenerations.class);
+    private final IndicesClientWrapper indices;
+
+    public IndexGenerations(IndicesClientWrapper indices) {
+        this.indices = indices;
+    }
+
+    public static String generationName(String alias, Instant createdAt) {
+        return alias + GENERATION_DELIMITER + GENERATION_TIMESTAMP.format(createdAt);
+    }
+
+    /**
+     * Returns the time a generation was created.
+     *
+     * @param generation the name of the generation
+     * @return the time encoded in the name
+     */
+    public static Instant createdAt(String generation) {
+        String timestamp = generation.substring(generation.lastIndexOf(GENERATION_DELIMITER) + 1);
+        return GENERATION_TIMESTAMP.parse(timestamp, Instant::from);
+    }
+
+    /**
+     * Returns the alias a generation is served through.
+     *
+     * @param generation the name of the generation
+     * @return the name of the alias
+     */
+    public static String aliasOf(String generation) {
+        return generation.substring(0, generation.lastIndexOf(GENERATION_DELIMITER));
+    }
+
+    /**
+     * Creates a generation with refreshes and replicas suspended, ready to be bulk loaded.
+     *
+     * @param alias     the alias the generation is going to be served through
+     * @param createdAt the time of creation, which names the generation
+     * @return the name of the generation
+     * @throws IOException when the cluster cannot be reached
+     */
+    public String create(String alias, Instant createdAt) throws IOException {
+        String generation = generationName(alias, createdAt);
+        indices.create(new CreateIndexRequest(generation).settings(BulkLoadSession.bulkLoadSettings()),
+                       RequestOptions.DEFAULT);
+        logger.info("Created index generation {}", generation);
+        return generation;
+    }
+
+    /**
+     * Makes a loaded generation serve the searches of its alias.
+     *
+     * @param generation      the loaded generation
+     * @param servingSettings the settings of the generation while it serves searches, for instance its number of
+     *                        replicas
+     * @throws IOException when the cluster cannot be reached
+     */
+    public void promote(String generation, Settings servingSettings) throws IOException {
+        String alias = aliasOf(generation);
+        indices.putSettings(new UpdateSettingsRequest(generation).settings(servingSettings), RequestOptions.DEFAULT);
+        indices.refresh(new RefreshRequest(generation), RequestOptions.DEFAULT);
+        GetIndexResponse current = listIndices(alias, alias + GENERATION_DELIMITER + "*");
+        IndicesAliasesRequest swap = new IndicesAliasesRequest();
+        generationsServing(current, alias)
+            .filter(index -> !index.equals(generation))
+            .forEach(index -> swap.addAliasAction(AliasActions.remove().index(index).alias(alias)));
+        if (List.of(current.getIndices()).contains(alias)) {
+            swap.addAliasAction(AliasActions.removeIndex().index(alias));
+        }
+        swap.addAliasAction(AliasActions.add().index(generation).alias(alias));
+        indices.updateAliases(swap, RequestOptions.DEFAULT);
+        logger.info("Alias {} moved to index generation {}", alias, generation);
+    }
+
+    /**
+     * Deletes the generations that are older than the one serving the alias, except the newest of them, which are
+     * kept so that the alias can be moved back. Generations that are newer than the serving one may be loading and
+     * are never deleted. Nothing is deleted while no generation serves the alias.
+     *
+     * @param alias               the alias of the generations
+     * @param retainedGenerations the number of generations kept, counting the one serving the alias
+     * @return the deleted generations
+     * @throws IOException when the cluster cannot be reached
+     */
+    public List<String> cleanUp(String alias, int retainedGenerations) throws IOException {
+        GetIndexResponse current = listIndices(alias + GENERATION_DELIMITER + "*");
+        Optional<String> serving = generationsServing(current, alias).max(String::compareTo);
+        if (serving.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> expired = Stream.of(current.getIndices())
+            .filter(index -> index.compareTo(serving.get()) < 0)
+            .sorted(Collections.reverseOrder())
+            .skip(Math.max(0, retainedGenerations - 1))
+            .collect(Collectors.toList());
+        if (!expired.isEmpty()) {
+            indices.delete(new DeleteIndexRequest(expired.toArray(String[]::new)), RequestOptions.DEFAULT);
+            logger.info("Deleted index generations {}", expired);
+        }
+        return expired;
+    }
+
+    private GetIndexResponse listIndices(String... patterns) throws IOException {
+        return indices.get(new GetIndexRequest(patterns).indicesOptions(IndicesOptions.lenientExpandOpen()),
+                           RequestOptions.DEFAULT);
+    }
+
+    private static Stream<String> generationsServing(GetIndexResponse indices, String alias) {
+        return indices.getAliases().entrySet().stream()
+            .filter(entry -> entry.getValue().stream().anyMatch(metadata -> metadata.alias().equals(alias)))
+            .map(Map.Entry::getKey)
+            .filter(index -> !index.equals(alias));
+    }
+}
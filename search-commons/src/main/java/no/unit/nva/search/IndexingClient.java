@@ -9,21 +9,42 @@ import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.http.AWSRequestSigningApacheInterceptor;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.UnmodifiableIterator;
 import java.io.IOException;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import no.unit.nva.search.bulk.Bulk;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import no.unit.nva.search.bulk.BulkIndexingConfig;
+import no.unit.nva.search.bulk.BulkLoadSession;
+import no.unit.nva.search.bulk.BulkThrottle;
+import no.unit.nva.search.bulk.ClusterLatencyProbe;
+import no.unit.nva.search.bulk.CoalescingDocumentIterator;
+import no.unit.nva.search.bulk.InFlightBulkIterator;
+import no.unit.nva.search.bulk.IndexingLane;
+import no.unit.nva.search.bulk.IndexingStatistics;
+import no.unit.nva.search.bulk.NdjsonBulkWriter;
+import no.unit.nva.search.bulk.RetryingBulkExecutor;
+import no.unit.nva.search.bulk.SizeBoundedBulkIterator;
+import no.unit.nva.search.bulk.UnchangedDocumentFilter;
+import no.unit.nva.search.bulk.WriteThreadPoolMonitor;
 import no.unit.nva.search.models.IndexDocument;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.attempt.Try;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequestInterceptor;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -31,10 +52,15 @@ import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.rest.RestStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,15 +69,29 @@ public class IndexingClient {
     public static final String INITIAL_LOG_MESSAGE = "using Elasticsearch endpoint {} and index {}";
     public static final String DOCUMENT_WITH_ID_WAS_NOT_FOUND_IN_ELASTICSEARCH
         = "Document with id={} was not found in elasticsearch";
-    public static final int BULK_SIZE = 100;
+    public static final String STALE_WRITE_LOG_MESSAGE = "Dropped stale write of document {}";
+    public static final String BULK_SUBMISSION_LOG_MESSAGE = "Submitting bulk of {} documents and {} bytes";
+    public static final int BULK_SIZE = BulkIndexingConfig.DEFAULT_MAX_DOCUMENTS_PER_BULK;
     public static final boolean SEQUENTIAL = false;
     private static final Logger logger = LoggerFactory.getLogger(IndexingClient.class);
     private static final AWSCredentialsProvider credentialsProvider = new DefaultAWSCredentialsProviderChain();
     private final RestHighLevelClientWrapper elasticSearchClient;
+    private final BulkIndexingConfig bulkConfig;
+    private final IndexingStatistics statistics;
+    private final BulkThrottle throttle;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService retryScheduler;
 
     @JacocoGenerated
     public IndexingClient() {
-        elasticSearchClient = createElasticsearchClientWithInterceptor();
+        this.elasticSearchClient = createElasticsearchClientWithInterceptor();
+        this.bulkConfig = BulkIndexingConfig.fromEnvironment();
+        this.statistics = new IndexingStatistics();
+        this.clock = BulkThrottle::monotonicMillis;
+        this.retryScheduler = RetryingBulkExecutor.newScheduler(Math.max(1, bulkConfig.getMaxConcurrentBulks()));
+        this.throttle = new BulkThrottle(bulkConfig, new WriteThreadPoolMonitor(elasticSearchClient),
+                                         new ClusterLatencyProbe(elasticSearchClient, ELASTICSEARCH_ENDPOINT_INDEX),
+                                         statistics.latencyOf(IndexingLane.LIVE));
         logger.info(INITIAL_LOG_MESSAGE, ELASTICSEARCH_ENDPOINT_ADDRESS, ELASTICSEARCH_ENDPOINT_INDEX);
     }
 
@@ -61,28 +101,94 @@ public class IndexingClient {
      * @param elasticSearchClient client to use for access to ElasticSearch
      */
     public IndexingClient(RestHighLevelClientWrapper elasticSearchClient) {
+        this(elasticSearchClient, BulkIndexingConfig.fromEnvironment());
+    }
+
+    /**
+     * Creates a new ElasticSearchRestClient with custom bulk settings.
+     *
+     * @param elasticSearchClient client to use for access to ElasticSearch
+     * @param bulkConfig          limits used when splitting batches into bulk requests
+     */
+    public IndexingClient(RestHighLevelClientWrapper elasticSearchClient, BulkIndexingConfig bulkConfig) {
+        this(elasticSearchClient, bulkConfig, BulkThrottle::monotonicMillis, BulkThrottle::sleepMillis);
+    }
 
+    /**
+     * Creates a new ElasticSearchRestClient that measures latencies and retry deadlines, and paces its batch bulks,
+     * with the given clock.
+     *
+     * @param elasticSearchClient client to use for access to ElasticSearch
+     * @param bulkConfig          limits used when splitting batches into bulk requests
+     * @param clock               a monotonic clock in milliseconds
+     * @param sleeper             waits for the given number of milliseconds
+     */
+    public IndexingClient(RestHighLevelClientWrapper elasticSearchClient, BulkIndexingConfig bulkConfig,
+                          LongSupplier clock, LongConsumer sleeper) {
         this.elasticSearchClient = elasticSearchClient;
+        this.bulkConfig = bulkConfig;
+        this.statistics = new IndexingStatistics();
+        this.clock = clock;
+        this.retryScheduler = RetryingBulkExecutor.newScheduler(Math.max(1, bulkConfig.getMaxConcurrentBulks()));
+        this.throttle = new BulkThrottle(bulkConfig, new WriteThreadPoolMonitor(elasticSearchClient),
+                                         new ClusterLatencyProbe(elasticSearchClient, ELASTICSEARCH_ENDPOINT_INDEX),
+                                         statistics.latencyOf(IndexingLane.LIVE), clock, sleeper);
         logger.info(INITIAL_LOG_MESSAGE, ELASTICSEARCH_ENDPOINT_ADDRESS, ELASTICSEARCH_ENDPOINT_INDEX);
     }
 
+    /**
+     * Indexes a single document in the live lane: the write is sent at once, bypassing the throttle of the batch
+     * bulks, and its latency is what batch bulks yield to. With external versioning, a write that is older than the
+     * version in the index is dropped and counted as a stale write instead of failing.
+     *
+     * @param indexDocument the document to index
+     * @return nothing
+     * @throws IOException when the cluster cannot be reached
+     */
     public Void addDocumentToIndex(IndexDocument indexDocument) throws IOException {
-        elasticSearchClient.index(indexDocument.toIndexRequest(), RequestOptions.DEFAULT);
+        long start = clock.getAsLong();
+        try {
+            elasticSearchClient.index(toIndexRequest(indexDocument), RequestOptions.DEFAULT);
+        } catch (ElasticsearchException exception) {
+            if (!isStaleWrite(exception)) {
+                throw exception;
+            }
+            logger.info(STALE_WRITE_LOG_MESSAGE, indexDocument.getDocumentIdentifier());
+            statistics.recordStaleWrites(1);
+        } finally {
+            recordLatency(IndexingLane.LIVE, start);
+        }
         return null;
     }
 
     /**
-     * Removes a document from Elasticsearch index.
+     * Removes a document from Elasticsearch index, in the live lane. The delete carries no version, so with external
+     * versioning it is not ordered with the writes of the document: a write of an older version that arrives after
+     * the delete indexes the document again. Use {@link #removeDocumentFromIndex(String, long)} when the version of
+     * the deletion is known.
      *
      * @param identifier og document
      */
     public void removeDocumentFromIndex(String identifier) throws IOException {
-        DeleteResponse deleteResponse = elasticSearchClient
-            .delete(new DeleteRequest(ELASTICSEARCH_ENDPOINT_INDEX, identifier),
-                    RequestOptions.DEFAULT);
-        if (deleteResponse.getResult() == DocWriteResponse.Result.NOT_FOUND) {
-            logger.warn(DOCUMENT_WITH_ID_WAS_NOT_FOUND_IN_ELASTICSEARCH, identifier);
+        delete(new DeleteRequest(ELASTICSEARCH_ENDPOINT_INDEX, identifier));
+    }
+
+    /**
+     * Removes a document from Elasticsearch index, in the live lane, with the external version of the deletion. With
+     * external versioning, a delete older than the version in the index is dropped and counted as a stale write, and
+     * a write older than the delete is rejected. The index remembers the version of a deleted document only for the
+     * index.gc_deletes period, 60 seconds by default, so an older write that arrives later than that still indexes
+     * the document again. Without external versioning, the version is not sent.
+     *
+     * @param identifier the identifier of the document
+     * @param version    the version of the deletion, on the scale of {@link IndexDocument#getExternalVersion()}
+     */
+    public void removeDocumentFromIndex(String identifier, long version) throws IOException {
+        DeleteRequest request = new DeleteRequest(ELASTICSEARCH_ENDPOINT_INDEX, identifier);
+        if (bulkConfig.isExternalVersioning()) {
+            request.versionType(VersionType.EXTERNAL_GTE).version(version);
         }
+        delete(request);
     }
 
     public Void createIndex(String indexName) throws IOException {
@@ -90,9 +196,88 @@ public class IndexingClient {
         return null;
     }
 
+    /**
+     * Indexes the documents in bulks that are bounded both by document count and by the serialized size of the
+     * documents, as configured in the {@link BulkIndexingConfig}. When the configuration allows more than one
+     * concurrent bulk, the bulks are submitted asynchronously and the input stream is consumed only as fast as
+     * in-flight bulks complete.
+     *
+     * @param contents the documents to index
+     * @return one response per submitted bulk, in submission order
+     */
     public Stream<BulkResponse> batchInsert(Stream<IndexDocument> contents) {
-        var batches = splitStreamToBatches(contents);
-        return batches.map(attempt(this::insertBatch)).map(Try::orElseThrow);
+        return batchInsert(contents, RefreshPolicy.WAIT_UNTIL);
+    }
+
+    /**
+     * Indexes the documents as {@link #batchInsert(Stream)} does, but with the given refresh policy on every bulk.
+     * Items that are rejected or time out are resubmitted with backoff until the retry deadline of the
+     * {@link BulkIndexingConfig}; the returned responses hold the outcome of the last attempt for every document.
+     * When a coalescing window is configured, superseded writes of the same document are dropped before the bulks
+     * are built, and counted in the {@link IndexingStatistics}. When unchanged documents are skipped, the stored
+     * content fingerprints of each bulk are read with one multi-get request before the bulk is submitted. When the
+     * configuration limits the submission rate, every bulk and every retry waits for the {@link BulkThrottle} of the
+     * client, so that all batch inserts through the client share the rate.
+     * Bulk loads that do not need their writes to be immediately searchable should use
+     * {@link RefreshPolicy#NONE}.
+     *
+     * @param contents      the documents to index
+     * @param refreshPolicy the refresh policy of each bulk request
+     * @return one response per submitted bulk, in submission order
+     */
+    public Stream<BulkResponse> batchInsert(Stream<IndexDocument> contents, RefreshPolicy refreshPolicy) {
+        return batchInsert(contents, refreshPolicy, IndexingLane.BATCH);
+    }
+
+    /**
+     * Indexes the documents as {@link #batchInsert(Stream, RefreshPolicy)} does, in the given lane. Bulks in the
+     * {@link IndexingLane#LIVE} lane bypass the {@link BulkThrottle}, while bulks in the {@link IndexingLane#BATCH}
+     * lane wait for it. The latency of every bulk is recorded for its lane in the {@link IndexingStatistics}.
+     *
+     * @param contents      the documents to index
+     * @param refreshPolicy the refresh policy of each bulk request
+     * @param lane          the priority class of the writes
+     * @return one response per submitted bulk, in submission order
+     */
+    public Stream<BulkResponse> batchInsert(Stream<IndexDocument> contents, RefreshPolicy refreshPolicy,
+                                            IndexingLane lane) {
+        Iterator<Bulk> bulks = splitStreamToBatches(contents);
+        RetryingBulkExecutor executor = new RetryingBulkExecutor(bulkSubmitter(refreshPolicy, lane), bulkConfig,
+                                                                 statistics, clock, retryScheduler);
+        return toStream(new InFlightBulkIterator(bulks, executor::execute,
+                                                 Math.max(1, bulkConfig.getMaxConcurrentBulks())))
+            .peek(this::recordStaleWrites);
+    }
+
+    /**
+     * Suspends refreshes and replicas of an index until the returned session is closed. Use it in a
+     * try-with-resources block around a full load of the index, so that the original settings are restored also
+     * when the load fails.
+     *
+     * @param indexName the concrete index that is going to be loaded
+     * @return the session that restores the original settings when closed
+     * @throws IOException when the cluster cannot be reached
+     */
+    public BulkLoadSession startBulkLoad(String indexName) throws IOException {
+        return BulkLoadSession.start(elasticSearchClient.indices(), indexName);
+    }
+
+    public IndexGenerations indexGenerations() {
+        return new IndexGenerations(elasticSearchClient.indices());
+    }
+
+    public IndexingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Shares the configured batch rates among the given number of clients that index at the same time, see
+     * {@link BulkThrottle#shareRatesAmong(int)}.
+     *
+     * @param clients the number of clients writing batch bulks to the cluster at the same time
+     */
+    public void shareBatchRatesAmong(int clients) {
+        throttle.shareRatesAmong(clients);
     }
 
     @JacocoGenerated
@@ -103,29 +288,185 @@ public class IndexingClient {
                                                    signer,
                                                    credentialsProvider);
 
+        boolean compression = GzipRequestInterceptor.isEnabled();
         RestClientBuilder clientBuilder = RestClient
             .builder(HttpHost.create(ELASTICSEARCH_ENDPOINT_ADDRESS))
-            .setHttpClientConfigCallback(config -> config.addInterceptorLast(interceptor));
-        return new RestHighLevelClientWrapper(clientBuilder);
+            .setHttpClientConfigCallback(config -> GzipRequestInterceptor.register(config, compression)
+                .addInterceptorLast(interceptor));
+        return new RestHighLevelClientWrapper(clientBuilder, compression);
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), SEQUENTIAL);
+    }
+
+    private Iterator<Bulk> splitStreamToBatches(Stream<IndexDocument> indexDocuments) {
+        Iterator<IndexRequest> indexRequests = fingerprint(coalesce(indexDocuments))
+            .map(this::toIndexRequest)
+            .iterator();
+        Iterator<Bulk> bulks = new SizeBoundedBulkIterator(indexRequests,
+                                                           bulkConfig.getMaxDocumentsPerBulk(),
+                                                           bulkConfig.getMaxBytesPerBulk());
+        return bulkConfig.isSkipUnchanged() ? skipUnchanged(bulks) : bulks;
     }
 
-    private Stream<List<IndexDocument>> splitStreamToBatches(Stream<IndexDocument> indexDocuments) {
-        UnmodifiableIterator<List<IndexDocument>> bulks = Iterators.partition(
-            indexDocuments.iterator(), BULK_SIZE);
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(bulks, Spliterator.ORDERED), SEQUENTIAL);
+    private IndexRequest toIndexRequest(IndexDocument indexDocument) {
+        IndexRequest request = bulkConfig.isExternalVersioning()
+                                   ? indexDocument.toExternallyVersionedIndexRequest()
+                                   : indexDocument.toIndexRequest();
+        if (bulkConfig.isInstitutionRouting()) {
+            InstitutionRouting.routingOf(indexDocument).ifPresent(request::routing);
+        }
+        return request;
+    }
+
+    private void delete(DeleteRequest request) throws IOException {
+        long start = clock.getAsLong();
+        DeleteResponse deleteResponse;
+        try {
+            deleteResponse = elasticSearchClient.delete(request, RequestOptions.DEFAULT);
+        } catch (ElasticsearchException exception) {
+            if (!isStaleWrite(exception)) {
+                throw exception;
+            }
+            logger.info(STALE_WRITE_LOG_MESSAGE, request.id());
+            statistics.recordStaleWrites(1);
+            return;
+        } finally {
+            recordLatency(IndexingLane.LIVE, start);
+        }
+        if (deleteResponse.getResult() == DocWriteResponse.Result.NOT_FOUND) {
+            logger.warn(DOCUMENT_WITH_ID_WAS_NOT_FOUND_IN_ELASTICSEARCH, request.id());
+        }
     }
 
-    private BulkResponse insertBatch(List<IndexDocument> bulk) throws IOException {
-        List<IndexRequest> indexRequests = bulk.stream()
-            .parallel()
-            .map(IndexDocument::toIndexRequest)
-            .collect(Collectors.toList());
+    private boolean isStaleWrite(ElasticsearchException exception) {
+        return bulkConfig.isExternalVersioning() && exception.status() == RestStatus.CONFLICT;
+    }
+
+    private void recordStaleWrites(BulkResponse response) {
+        if (response.hasFailures()) {
+            statistics.recordStaleWrites(Arrays.stream(response.getItems())
+                                             .filter(BulkItemResponse::isFailed)
+                                             .map(BulkItemResponse::getFailure)
+                                             .map(BulkFailureClass::classify)
+                                             .filter(BulkFailureClass.VERSION_CONFLICT::equals)
+                                             .count());
+        }
+    }
+
+    private Stream<IndexDocument> fingerprint(Stream<IndexDocument> indexDocuments) {
+        return bulkConfig.isSkipUnchanged() ? indexDocuments.map(IndexDocument::withFingerprint) : indexDocuments;
+    }
+
+    private Iterator<Bulk> skipUnchanged(Iterator<Bulk> bulks) {
+        UnchangedDocumentFilter filter = new UnchangedDocumentFilter(elasticSearchClient, statistics);
+        return toStream(bulks)
+            .map(attempt(filter::removeUnchanged))
+            .map(Try::orElseThrow)
+            .filter(bulk -> bulk.getNumberOfDocuments() > 0)
+            .iterator();
+    }
+
+    private Stream<IndexDocument> coalesce(Stream<IndexDocument> indexDocuments) {
+        if (bulkConfig.isCoalescing()) {
+            return toStream(new CoalescingDocumentIterator(indexDocuments.iterator(),
+                                                           bulkConfig.getCoalescingWindow(),
+                                                           bulkConfig.getCoalescingWindowBytes(),
+                                                           statistics));
+        }
+        return indexDocuments;
+    }
+
+    private BulkResponse insertBatch(Bulk bulk, RefreshPolicy refreshPolicy) throws IOException {
+        recordSubmission(bulk);
+        if (bulkConfig.isRawBulkWriter()) {
+            Response response = elasticSearchClient.performRequest(NdjsonBulkWriter.toRequest(bulk, refreshPolicy));
+            return NdjsonBulkWriter.parseResponse(response);
+        }
+        return elasticSearchClient.bulk(createBulkRequest(bulk, refreshPolicy), RequestOptions.DEFAULT);
+    }
+
+    private Function<Bulk, CompletableFuture<BulkResponse>> bulkSubmitter(RefreshPolicy refreshPolicy,
+                                                                          IndexingLane lane) {
+        Function<Bulk, CompletableFuture<BulkResponse>> submitter = unthrottledSubmitter(refreshPolicy);
+        return bulk -> {
+            if (lane == IndexingLane.BATCH) {
+                statistics.recordThrottling(throttle.acquire(bulk));
+            }
+            long start = clock.getAsLong();
+            return submitter.apply(bulk).whenComplete((response, failure) -> recordLatency(lane, start));
+        };
+    }
+
+    private Function<Bulk, CompletableFuture<BulkResponse>> unthrottledSubmitter(RefreshPolicy refreshPolicy) {
+        if (bulkConfig.isConcurrent()) {
+            return bulk -> insertBatchAsync(bulk, refreshPolicy);
+        }
+        return bulk -> insertBatchInPlace(bulk, refreshPolicy);
+    }
+
+    private void recordLatency(IndexingLane lane, long start) {
+        long now = clock.getAsLong();
+        statistics.latencyOf(lane).record(now - start, now);
+    }
+
+    private CompletableFuture<BulkResponse> insertBatchInPlace(Bulk bulk, RefreshPolicy refreshPolicy) {
+        try {
+            return CompletableFuture.completedFuture(insertBatch(bulk, refreshPolicy));
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private CompletableFuture<BulkResponse> insertBatchAsync(Bulk bulk, RefreshPolicy refreshPolicy) {
+        recordSubmission(bulk);
+        CompletableFuture<BulkResponse> response = new CompletableFuture<>();
+        if (bulkConfig.isRawBulkWriter()) {
+            submitRawBulkAsync(bulk, refreshPolicy, response);
+        } else {
+            elasticSearchClient.bulkAsync(createBulkRequest(bulk, refreshPolicy), RequestOptions.DEFAULT,
+                                          ActionListener.wrap(response::complete, response::completeExceptionally));
+        }
+        return response;
+    }
+
+    private void submitRawBulkAsync(Bulk bulk, RefreshPolicy refreshPolicy,
+                                    CompletableFuture<BulkResponse> bulkResponse) {
+        Request request;
+        try {
+            request = NdjsonBulkWriter.toRequest(bulk, refreshPolicy);
+        } catch (IOException exception) {
+            bulkResponse.completeExceptionally(exception);
+            return;
+        }
+        elasticSearchClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    bulkResponse.complete(NdjsonBulkWriter.parseResponse(response));
+                } catch (IOException exception) {
+                    bulkResponse.completeExceptionally(exception);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                bulkResponse.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private void recordSubmission(Bulk bulk) {
+        logger.info(BULK_SUBMISSION_LOG_MESSAGE, bulk.getNumberOfDocuments(), bulk.getSizeInBytes());
+        statistics.recordBulk(bulk);
+    }
 
-        BulkRequest request = new BulkRequest();
-        indexRequests.forEach(request::add);
-        request.setRefreshPolicy(RefreshPolicy.WAIT_UNTIL);
+    private BulkRequest createBulkRequest(Bulk bulk, RefreshPolicy refreshPolicy) {
+        BulkRequest request = bulk.toBulkRequest();
+        request.setRefreshPolicy(refreshPolicy);
         request.waitForActiveShards(ActiveShardCount.ONE);
-        return elasticSearchClient.bulk(request, RequestOptions.DEFAULT);
+        return request;
     }
 
     @JacocoGenerated
@@ -1,6 +1,12 @@
 package no.unit.nva.search;
 
 import nva.commons.core.JacocoGenerated;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.IndicesClient;
@@ -45,7 +51,26 @@ public class IndicesClientWrapper {
         return indicesClient.putSettings(updateSettingsRequest, requestOptions);
     }
 
+    public GetSettingsResponse getSettings(GetSettingsRequest getSettingsRequest, RequestOptions requestOptions)
+            throws IOException {
+        return indicesClient.getSettings(getSettingsRequest, requestOptions);
+    }
+
     public GetIndexResponse get(GetIndexRequest getIndexRequest, RequestOptions requestOptions) throws IOException {
         return indicesClient.get(getIndexRequest, requestOptions);
     }
+
+    public AcknowledgedResponse updateAliases(IndicesAliasesRequest indicesAliasesRequest,
+                                              RequestOptions requestOptions) throws IOException {
+        return indicesClient.updateAliases(indicesAliasesRequest, requestOptions);
+    }
+
+    public AcknowledgedResponse delete(DeleteIndexRequest deleteIndexRequest, RequestOptions requestOptions)
+            throws IOException {
+        return indicesClient.delete(deleteIndexRequest, requestOptions);
+    }
+
+    public RefreshResponse refresh(RefreshRequest refreshRequest, RequestOptions requestOptions) throws IOException {
+        return indicesClient.refresh(refreshRequest, requestOptions);
+    }
 }
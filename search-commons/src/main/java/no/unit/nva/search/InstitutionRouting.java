@@ -0,0 +1,93 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.TICKET_INDICES;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import no.unit.nva.search.models.IndexDocument;
+import no.unit.nva.search.restclients.responses.ViewingScope;
+import nva.commons.core.paths.UriWrapper;
+
+/**
+ * Routes ticket documents (DOI requests, messages and publishing requests) to shards by the top-level institution
+ * of the organizations they belong to. Documents of one institution then live on one shard, so that a curator's
+ * query for tickets within a viewing scope only needs to visit the shards of the institutions in the scope instead
+ * of every shard of the index.
+ *
+ * <p>Routing must be enabled both when documents are written and when they are queried, and enabling it requires a
+ * reindex of the ticket indices, since documents written without routing are placed by their identifier.
+ */
+public final class InstitutionRouting {
+
+    public static final String ROUTING_ENV = "ROUTE_TICKETS_BY_INSTITUTION";
+    public static final String ORGANIZATION_IDS = "organizationIds";
+    public static final String CRISTIN_ORG_LEVEL_DELIMITER = "\\.";
+    public static final int HIGHEST_LEVEL_ORGANIZATION = 0;
+    public static final String ROUTING_VALUE_DELIMITER = ",";
+
+    private InstitutionRouting() {
+    }
+
+    /**
+     * Reads whether ticket routing is enabled for the current runtime. Routing is off unless enabled.
+     *
+     * @return true when the {@value ROUTING_ENV} environment variable is set to true
+     */
+    public static boolean isEnabled() {
+        return IndexingConfig.ENVIRONMENT.readEnvOpt(ROUTING_ENV).map(Boolean::parseBoolean).orElse(false);
+    }
+
+    /**
+     * Returns the identifier of the top-level institution of a Cristin organization, e.g. "194" for
+     * https://api.cristin.no/v2/units/194.63.10.0.
+     *
+     * @param organizationId the id of the organization
+     * @return the institution number
+     */
+    public static String institutionNumber(URI organizationId) {
+        String organizationIdentifier = UriWrapper.fromUri(organizationId).getLastPathElement();
+        return organizationIdentifier.split(CRISTIN_ORG_LEVEL_DELIMITER)[HIGHEST_LEVEL_ORGANIZATION];
+    }
+
+    public static boolean isRoutedIndex(String index) {
+        return TICKET_INDICES.contains(index);
+    }
+
+    /**
+     * Returns the routing value of a document: the institution of its first organization, when the document
+     * belongs to a ticket index.
+     *
+     * @param document the document to be written
+     * @return the routing value, or empty when the document is not routed
+     */
+    public static Optional<String> routingOf(IndexDocument document) {
+        if (!isRoutedIndex(document.getIndexName())) {
+            return Optional.empty();
+        }
+        return document.readFirstTopLevelText(ORGANIZATION_IDS)
+            .map(URI::create)
+            .map(InstitutionRouting::institutionNumber);
+    }
+
+    /**
+     * Returns the routing value of a query over a viewing scope: the institutions of the included units, when all
+     * queried indices are ticket indices. A query without included units is not restricted to any institution,
+     * and therefore is not routed.
+     *
+     * @param viewingScope the viewing scope of the query
+     * @param indices      the queried indices
+     * @return the comma separated institutions, or empty when the query must visit all shards
+     */
+    public static Optional<String> routingOf(ViewingScope viewingScope, String... indices) {
+        if (indices.length == 0 || !Arrays.stream(indices).allMatch(InstitutionRouting::isRoutedIndex)
+            || viewingScope.getIncludedUnits().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(viewingScope.getIncludedUnits().stream()
+                               .map(InstitutionRouting::institutionNumber)
+                               .distinct()
+                               .sorted()
+                               .collect(Collectors.joining(ROUTING_VALUE_DELIMITER)));
+    }
+}
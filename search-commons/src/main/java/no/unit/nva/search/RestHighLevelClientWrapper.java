@@ -1,17 +1,24 @@
 package no.unit.nva.search;
 
 import nva.commons.core.JacocoGenerated;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.slf4j.Logger;
@@ -26,13 +33,27 @@ public class RestHighLevelClientWrapper {
 
     private static final Logger logger = LoggerFactory.getLogger(RestHighLevelClientWrapper.class);
     private final RestHighLevelClient client;
+    private final boolean compression;
 
     public RestHighLevelClientWrapper(RestHighLevelClient client) {
         this.client = client;
+        this.compression = false;
     }
 
     public RestHighLevelClientWrapper(RestClientBuilder clientBuilder) {
+        this(clientBuilder, false);
+    }
+
+    /**
+     * Creates a client that asks for compressed search responses when compression is enabled. Request bodies are
+     * compressed by the {@link GzipRequestInterceptor}, which must be registered on the builder.
+     *
+     * @param clientBuilder the builder of the low-level client
+     * @param compression   whether the client uses gzip compression
+     */
+    public RestHighLevelClientWrapper(RestClientBuilder clientBuilder, boolean compression) {
         this.client = new RestHighLevelClient(clientBuilder);
+        this.compression = compression;
     }
 
     /**
@@ -48,7 +69,10 @@ public class RestHighLevelClientWrapper {
 
     @JacocoGenerated
     public SearchResponse search(SearchRequest searchRequest, RequestOptions requestOptions) throws IOException {
-        return client.search(searchRequest, requestOptions);
+        RequestOptions options = compression
+                                     ? GzipRequestInterceptor.acceptCompressedResponse(requestOptions)
+                                     : requestOptions;
+        return client.search(searchRequest, options);
     }
 
     @JacocoGenerated
@@ -75,4 +99,34 @@ public class RestHighLevelClientWrapper {
     public BulkResponse bulk(BulkRequest request, RequestOptions requestOption) throws IOException {
         return client.bulk(request, requestOption);
     }
+
+    @JacocoGenerated
+    public MultiGetResponse mget(MultiGetRequest request, RequestOptions requestOptions) throws IOException {
+        return client.mget(request, requestOptions);
+    }
+
+    @JacocoGenerated
+    public Cancellable bulkAsync(BulkRequest request,
+                                 RequestOptions requestOptions,
+                                 ActionListener<BulkResponse> listener) {
+        return client.bulkAsync(request, requestOptions, listener);
+    }
+
+    /**
+     * Performs a request through the low-level client, for endpoints or request bodies that the high-level client
+     * does not support.
+     *
+     * @param request the low-level request
+     * @return the raw response
+     * @throws IOException when the request fails
+     */
+    @JacocoGenerated
+    public Response performRequest(Request request) throws IOException {
+        return client.getLowLevelClient().performRequest(request);
+    }
+
+    @JacocoGenerated
+    public Cancellable performRequestAsync(Request request, ResponseListener responseListener) {
+        return client.getLowLevelClient().performRequestAsync(request, responseListener);
+    }
 }
@@ -6,6 +6,7 @@ import static org.elasticsearch.index.query.QueryBuilders.matchPhraseQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
 import java.io.IOException;
 import java.net.URI;
+import no.unit.nva.search.models.ContentFingerprint;
 import no.unit.nva.search.models.SearchDocumentsQuery;
 import no.unit.nva.search.models.SearchResourcesResponse;
 import no.unit.nva.search.restclients.responses.ViewingScope;
@@ -36,6 +37,7 @@ public class SearchClient {
     public static final String INCLUDED_VIEWING_SCOPES_QUERY_NAME = "IncludedViewingScopesQuery";
     public static final String EXCLUDED_VIEWING_SCOPES_QUERY_NAME = "ExcludedViewingScopesQuery";
     private final RestHighLevelClientWrapper elasticSearchClient;
+    private final boolean institutionRouting;
     
     /**
      * Creates a new ElasticSearchRestClient.
@@ -43,7 +45,19 @@ public class SearchClient {
      * @param elasticSearchClient client to use for access to ElasticSearch
      */
     public SearchClient(RestHighLevelClientWrapper elasticSearchClient) {
+        this(elasticSearchClient, InstitutionRouting.isEnabled());
+    }
+    
+    /**
+     * Creates a new ElasticSearchRestClient.
+     *
+     * @param elasticSearchClient client to use for access to ElasticSearch
+     * @param institutionRouting  whether queries over ticket indices are routed to the shards of the institutions
+     *                            in the viewing scope, see {@link InstitutionRouting}
+     */
+    public SearchClient(RestHighLevelClientWrapper elasticSearchClient, boolean institutionRouting) {
         this.elasticSearchClient = elasticSearchClient;
+        this.institutionRouting = institutionRouting;
     }
     
     /**
@@ -89,9 +103,14 @@ public class SearchClient {
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder()
             .query(queryBuilder)
             .size(pageSize)
-            .from(calculateFirstEntryIndex(pageSize, pageNo));
+            .from(calculateFirstEntryIndex(pageSize, pageNo))
+            .fetchSource(null, ContentFingerprint.FINGERPRINT_FIELD);
         
-        return new SearchRequest(indices).source(searchSourceBuilder);
+        SearchRequest searchRequest = new SearchRequest(indices).source(searchSourceBuilder);
+        if (institutionRouting) {
+            InstitutionRouting.routingOf(viewingScope, indices).ifPresent(searchRequest::routing);
+        }
+        return searchRequest;
     }
     
     private int calculateFirstEntryIndex(int pageSize, int pageNo) {
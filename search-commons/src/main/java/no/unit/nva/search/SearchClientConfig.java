@@ -43,10 +43,12 @@ public final class SearchClientConfig {
                         signer,
                         credentialsProvider);
 
+        boolean compression = GzipRequestInterceptor.isEnabled();
         RestClientBuilder clientBuilder = RestClient
                 .builder(HttpHost.create(ELASTICSEARCH_ENDPOINT_ADDRESS))
-                .setHttpClientConfigCallback(config -> config.addInterceptorLast(interceptor));
-        return new RestHighLevelClientWrapper(clientBuilder);
+                .setHttpClientConfigCallback(config -> GzipRequestInterceptor.register(config, compression)
+                        .addInterceptorLast(interceptor));
+        return new RestHighLevelClientWrapper(clientBuilder, compression);
     }
 
     private static AWS4Signer getAws4Signer() {
@@ -0,0 +1,41 @@
+package no.unit.nva.search.bulk;
+
+import java.util.List;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+
+/**
+ * A group of index requests that will be submitted in one bulk request, together with their total source size.
+ */
+public class Bulk {
+
+    private final List<IndexRequest> requests;
+    private final long sizeInBytes;
+
+    public Bulk(List<IndexRequest> requests, long sizeInBytes) {
+        this.requests = requests;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    public static long sizeOf(IndexRequest request) {
+        return request.source().length();
+    }
+
+    public List<IndexRequest> getRequests() {
+        return requests;
+    }
+
+    public int getNumberOfDocuments() {
+        return requests.size();
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public BulkRequest toBulkRequest() {
+        BulkRequest request = new BulkRequest();
+        requests.forEach(request::add);
+        return request;
+    }
+}
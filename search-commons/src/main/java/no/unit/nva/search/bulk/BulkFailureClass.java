@@ -0,0 +1,68 @@
+package no.unit.nva.search.bulk;
+
+import static java.util.Objects.nonNull;
+import java.util.Locale;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * The kinds of failure a single item of a bulk request can have. Rejections and timeouts are caused by the load on
+ * the cluster and are expected to succeed when the item is sent again; all other failures are permanent.
+ */
+public enum BulkFailureClass {
+    REJECTED(true),
+    TIMEOUT(true),
+    MAPPING(false),
+    VERSION_CONFLICT(false),
+    OTHER(false);
+
+    private static final String TIMEOUT_MARKER = "timeout";
+    private static final String TIMED_OUT_MARKER = "timed_out";
+    private final boolean retryable;
+
+    BulkFailureClass(boolean retryable) {
+        this.retryable = retryable;
+    }
+
+    /**
+     * Classifies the failure of a bulk item by its status and, for timeouts reported with a generic status, by the
+     * type of the exception.
+     *
+     * @param failure the failure of a bulk item
+     * @return the failure class
+     */
+    public static BulkFailureClass classify(Failure failure) {
+        RestStatus status = failure.getStatus();
+        if (status == RestStatus.TOO_MANY_REQUESTS) {
+            return REJECTED;
+        }
+        if (status == RestStatus.CONFLICT) {
+            return VERSION_CONFLICT;
+        }
+        if (status == RestStatus.BAD_REQUEST) {
+            return MAPPING;
+        }
+        if (isTimeout(status) || isTimeout(failure.getCause())) {
+            return TIMEOUT;
+        }
+        return OTHER;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    private static boolean isTimeout(RestStatus status) {
+        return status == RestStatus.REQUEST_TIMEOUT
+               || status == RestStatus.GATEWAY_TIMEOUT
+               || status == RestStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private static boolean isTimeout(Exception cause) {
+        if (nonNull(cause) && nonNull(cause.getMessage())) {
+            String message = cause.getMessage().toLowerCase(Locale.ROOT);
+            return message.contains(TIMEOUT_MARKER) || message.contains(TIMED_OUT_MARKER);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,469 @@
+package no.unit.nva.search.bulk;
+
+import no.unit.nva.search.IndexingConfig;
+import no.unit.nva.search.InstitutionRouting;
+
+/**
+ * Settings that control how {@link no.unit.nva.search.IndexingClient} splits and submits bulk requests.
+ */
+public final class BulkIndexingConfig {
+
+    public static final String MAX_DOCUMENTS_PER_BULK_ENV = "BULK_MAX_DOCUMENTS";
+    public static final String MAX_BYTES_PER_BULK_ENV = "BULK_MAX_BYTES";
+    public static final String MAX_CONCURRENT_BULKS_ENV = "BULK_MAX_CONCURRENT";
+    public static final String RAW_BULK_WRITER_ENV = "BULK_RAW_WRITER";
+    public static final String COALESCING_WINDOW_ENV = "BULK_COALESCING_WINDOW";
+    public static final String COALESCING_WINDOW_BYTES_ENV = "BULK_COALESCING_WINDOW_BYTES";
+    public static final String FINGERPRINTING_ENV = "BULK_SKIP_UNCHANGED";
+    public static final String EXTERNAL_VERSIONING_ENV = "INDEX_EXTERNAL_VERSIONING";
+    public static final String RETRY_DEADLINE_MILLIS_ENV = "BULK_RETRY_DEADLINE_MILLIS";
+    public static final String RETRY_INITIAL_BACKOFF_MILLIS_ENV = "BULK_RETRY_INITIAL_BACKOFF_MILLIS";
+    public static final String RETRY_MAX_BACKOFF_MILLIS_ENV = "BULK_RETRY_MAX_BACKOFF_MILLIS";
+    public static final String MAX_DOCUMENTS_PER_SECOND_ENV = "BULK_MAX_DOCUMENTS_PER_SECOND";
+    public static final String MAX_BYTES_PER_SECOND_ENV = "BULK_MAX_BYTES_PER_SECOND";
+    public static final String THROTTLE_SAMPLE_INTERVAL_MILLIS_ENV = "BULK_THROTTLE_SAMPLE_INTERVAL_MILLIS";
+    public static final String THROTTLE_QUEUE_THRESHOLD_ENV = "BULK_THROTTLE_QUEUE_THRESHOLD";
+    public static final String LIVE_LATENCY_TARGET_MILLIS_ENV = "BULK_LIVE_LATENCY_TARGET_MILLIS";
+    public static final String LATENCY_PROBE_INTERVAL_MILLIS_ENV = "BULK_LATENCY_PROBE_INTERVAL_MILLIS";
+    public static final int DEFAULT_MAX_DOCUMENTS_PER_BULK = 100;
+    public static final long DEFAULT_MAX_BYTES_PER_BULK = 5L * 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENT_BULKS = 1;
+    public static final int NO_COALESCING = 0;
+    public static final long DEFAULT_COALESCING_WINDOW_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_RETRY_DEADLINE_MILLIS = 60_000;
+    public static final long DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS = 200;
+    public static final long DEFAULT_RETRY_MAX_BACKOFF_MILLIS = 10_000;
+    public static final long UNLIMITED_RATE = 0;
+    public static final long DEFAULT_THROTTLE_SAMPLE_INTERVAL_MILLIS = 5_000;
+    public static final long DEFAULT_THROTTLE_QUEUE_THRESHOLD = 100;
+    public static final long DEFAULT_LIVE_LATENCY_TARGET_MILLIS = 500;
+    public static final long NO_LATENCY_PROBE = 0;
+    public static final String NOT_POSITIVE_MESSAGE = "%s must be positive, but was %d";
+
+    private final int maxDocumentsPerBulk;
+    private final long maxBytesPerBulk;
+    private final int maxConcurrentBulks;
+    private final boolean rawBulkWriter;
+    private final long retryDeadlineMillis;
+    private final long retryInitialBackoffMillis;
+    private final long retryMaxBackoffMillis;
+    private final int coalescingWindow;
+    private final long coalescingWindowBytes;
+    private final boolean skipUnchanged;
+    private final boolean externalVersioning;
+    private final boolean institutionRouting;
+    private final long maxDocumentsPerSecond;
+    private final long maxBytesPerSecond;
+    private final long throttleSampleIntervalMillis;
+    private final long throttleQueueThreshold;
+    private final long liveLatencyTargetMillis;
+    private final long latencyProbeIntervalMillis;
+
+    private BulkIndexingConfig(Builder builder) {
+        this.maxDocumentsPerBulk = builder.maxDocumentsPerBulk;
+        this.maxBytesPerBulk = builder.maxBytesPerBulk;
+        this.maxConcurrentBulks = builder.maxConcurrentBulks;
+        this.rawBulkWriter = builder.rawBulkWriter;
+        this.retryDeadlineMillis = builder.retryDeadlineMillis;
+        this.retryInitialBackoffMillis = builder.retryInitialBackoffMillis;
+        this.retryMaxBackoffMillis = builder.retryMaxBackoffMillis;
+        this.coalescingWindow = builder.coalescingWindow;
+        this.coalescingWindowBytes = builder.coalescingWindowBytes;
+        this.skipUnchanged = builder.skipUnchanged;
+        this.externalVersioning = builder.externalVersioning;
+        this.institutionRouting = builder.institutionRouting;
+        this.maxDocumentsPerSecond = builder.maxDocumentsPerSecond;
+        this.maxBytesPerSecond = builder.maxBytesPerSecond;
+        this.throttleSampleIntervalMillis = builder.throttleSampleIntervalMillis;
+        this.throttleQueueThreshold = builder.throttleQueueThreshold;
+        this.liveLatencyTargetMillis = builder.liveLatencyTargetMillis;
+        this.latencyProbeIntervalMillis = builder.latencyProbeIntervalMillis;
+    }
+
+    public static BulkIndexingConfig defaultConfig() {
+        return builder().build();
+    }
+
+    /**
+     * Reads the bulk settings from the environment, falling back to the defaults for unset variables.
+     *
+     * @return the configuration of the current runtime.
+     * @throws IllegalArgumentException when the maximum documents, bytes or concurrent bulks are not positive
+     */
+    public static BulkIndexingConfig fromEnvironment() {
+        return builder()
+            .withMaxDocumentsPerBulk(readPositiveInt(MAX_DOCUMENTS_PER_BULK_ENV, DEFAULT_MAX_DOCUMENTS_PER_BULK))
+            .withMaxBytesPerBulk(readPositiveLong(MAX_BYTES_PER_BULK_ENV, DEFAULT_MAX_BYTES_PER_BULK))
+            .withMaxConcurrentBulks(readPositiveInt(MAX_CONCURRENT_BULKS_ENV, DEFAULT_MAX_CONCURRENT_BULKS))
+            .withRawBulkWriter(readBoolean(RAW_BULK_WRITER_ENV))
+            .withRetryDeadlineMillis(readLong(RETRY_DEADLINE_MILLIS_ENV, DEFAULT_RETRY_DEADLINE_MILLIS))
+            .withRetryBackoffMillis(readLong(RETRY_INITIAL_BACKOFF_MILLIS_ENV, DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS),
+                                    readLong(RETRY_MAX_BACKOFF_MILLIS_ENV, DEFAULT_RETRY_MAX_BACKOFF_MILLIS))
+            .withCoalescingWindow(readInt(COALESCING_WINDOW_ENV, NO_COALESCING))
+            .withCoalescingWindowBytes(readLong(COALESCING_WINDOW_BYTES_ENV, DEFAULT_COALESCING_WINDOW_BYTES))
+            .withSkipUnchanged(readBoolean(FINGERPRINTING_ENV))
+            .withExternalVersioning(readBoolean(EXTERNAL_VERSIONING_ENV))
+            .withInstitutionRouting(InstitutionRouting.isEnabled())
+            .withMaxDocumentsPerSecond(readLong(MAX_DOCUMENTS_PER_SECOND_ENV, UNLIMITED_RATE))
+            .withMaxBytesPerSecond(readLong(MAX_BYTES_PER_SECOND_ENV, UNLIMITED_RATE))
+            .withThrottleSampling(
+                readLong(THROTTLE_SAMPLE_INTERVAL_MILLIS_ENV, DEFAULT_THROTTLE_SAMPLE_INTERVAL_MILLIS),
+                readLong(THROTTLE_QUEUE_THRESHOLD_ENV, DEFAULT_THROTTLE_QUEUE_THRESHOLD))
+            .withLiveLatencyTargetMillis(readLong(LIVE_LATENCY_TARGET_MILLIS_ENV, DEFAULT_LIVE_LATENCY_TARGET_MILLIS))
+            .withLatencyProbeIntervalMillis(readLong(LATENCY_PROBE_INTERVAL_MILLIS_ENV, NO_LATENCY_PROBE))
+            .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder copy() {
+        return builder()
+            .withMaxDocumentsPerBulk(maxDocumentsPerBulk)
+            .withMaxBytesPerBulk(maxBytesPerBulk)
+            .withMaxConcurrentBulks(maxConcurrentBulks)
+            .withRawBulkWriter(rawBulkWriter)
+            .withRetryDeadlineMillis(retryDeadlineMillis)
+            .withRetryBackoffMillis(retryInitialBackoffMillis, retryMaxBackoffMillis)
+            .withCoalescingWindow(coalescingWindow)
+            .withCoalescingWindowBytes(coalescingWindowBytes)
+            .withSkipUnchanged(skipUnchanged)
+            .withExternalVersioning(externalVersioning)
+            .withInstitutionRouting(institutionRouting)
+            .withMaxDocumentsPerSecond(maxDocumentsPerSecond)
+            .withMaxBytesPerSecond(maxBytesPerSecond)
+            .withThrottleSampling(throttleSampleIntervalMillis, throttleQueueThreshold)
+            .withLiveLatencyTargetMillis(liveLatencyTargetMillis)
+            .withLatencyProbeIntervalMillis(latencyProbeIntervalMillis);
+    }
+
+    public int getMaxDocumentsPerBulk() {
+        return maxDocumentsPerBulk;
+    }
+
+    public long getMaxBytesPerBulk() {
+        return maxBytesPerBulk;
+    }
+
+    public int getMaxConcurrentBulks() {
+        return maxConcurrentBulks;
+    }
+
+    public boolean isConcurrent() {
+        return maxConcurrentBulks > 1;
+    }
+
+    public boolean isRawBulkWriter() {
+        return rawBulkWriter;
+    }
+
+    public long getRetryDeadlineMillis() {
+        return retryDeadlineMillis;
+    }
+
+    public long getRetryInitialBackoffMillis() {
+        return retryInitialBackoffMillis;
+    }
+
+    public long getRetryMaxBackoffMillis() {
+        return retryMaxBackoffMillis;
+    }
+
+    public int getCoalescingWindow() {
+        return coalescingWindow;
+    }
+
+    public long getCoalescingWindowBytes() {
+        return coalescingWindowBytes;
+    }
+
+    public boolean isCoalescing() {
+        return coalescingWindow > NO_COALESCING;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public boolean isExternalVersioning() {
+        return externalVersioning;
+    }
+
+    public boolean isInstitutionRouting() {
+        return institutionRouting;
+    }
+
+    public long getMaxDocumentsPerSecond() {
+        return maxDocumentsPerSecond;
+    }
+
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public long getThrottleSampleIntervalMillis() {
+        return throttleSampleIntervalMillis;
+    }
+
+    public long getThrottleQueueThreshold() {
+        return throttleQueueThreshold;
+    }
+
+    public long getLiveLatencyTargetMillis() {
+        return liveLatencyTargetMillis;
+    }
+
+    public long getLatencyProbeIntervalMillis() {
+        return latencyProbeIntervalMillis;
+    }
+
+    private static int readInt(String variable, int defaultValue) {
+        return IndexingConfig.ENVIRONMENT.readEnvOpt(variable).map(Integer::parseInt).orElse(defaultValue);
+    }
+
+    private static int readPositiveInt(String variable, int defaultValue) {
+        return (int) requirePositive(variable, readInt(variable, defaultValue));
+    }
+
+    private static long readPositiveLong(String variable, long defaultValue) {
+        return requirePositive(variable, readLong(variable, defaultValue));
+    }
+
+    // A bulk of no documents or bytes never fills, and no concurrent bulks never submit, so both would hang the
+    // import rather than fail it.
+    static long requirePositive(String variable, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(String.format(NOT_POSITIVE_MESSAGE, variable, value));
+        }
+        return value;
+    }
+
+    private static boolean readBoolean(String variable) {
+        return IndexingConfig.ENVIRONMENT.readEnvOpt(variable).map(Boolean::parseBoolean).orElse(false);
+    }
+
+    private static long readLong(String variable, long defaultValue) {
+        return IndexingConfig.ENVIRONMENT.readEnvOpt(variable).map(Long::parseLong).orElse(defaultValue);
+    }
+
+    public static final class Builder {
+
+        private int maxDocumentsPerBulk = DEFAULT_MAX_DOCUMENTS_PER_BULK;
+        private long maxBytesPerBulk = DEFAULT_MAX_BYTES_PER_BULK;
+        private int maxConcurrentBulks = DEFAULT_MAX_CONCURRENT_BULKS;
+        private boolean rawBulkWriter;
+        private long retryDeadlineMillis = DEFAULT_RETRY_DEADLINE_MILLIS;
+        private long retryInitialBackoffMillis = DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS;
+        private long retryMaxBackoffMillis = DEFAULT_RETRY_MAX_BACKOFF_MILLIS;
+        private int coalescingWindow = NO_COALESCING;
+        private long coalescingWindowBytes = DEFAULT_COALESCING_WINDOW_BYTES;
+        private boolean skipUnchanged;
+        private boolean externalVersioning;
+        private boolean institutionRouting;
+        private long maxDocumentsPerSecond = UNLIMITED_RATE;
+        private long maxBytesPerSecond = UNLIMITED_RATE;
+        private long throttleSampleIntervalMillis = DEFAULT_THROTTLE_SAMPLE_INTERVAL_MILLIS;
+        private long throttleQueueThreshold = DEFAULT_THROTTLE_QUEUE_THRESHOLD;
+        private long liveLatencyTargetMillis = DEFAULT_LIVE_LATENCY_TARGET_MILLIS;
+        private long latencyProbeIntervalMillis = NO_LATENCY_PROBE;
+
+        private Builder() {
+        }
+
+        public Builder withMaxDocumentsPerBulk(int maxDocumentsPerBulk) {
+            this.maxDocumentsPerBulk = maxDocumentsPerBulk;
+            return this;
+        }
+
+        /**
+         * Sets the byte budget of a single bulk, measured on the serialized sources of its index requests. A
+         * document larger than the budget is sent alone.
+         *
+         * @param maxBytesPerBulk the budget in bytes.
+         * @return the builder.
+         */
+        public Builder withMaxBytesPerBulk(long maxBytesPerBulk) {
+            this.maxBytesPerBulk = maxBytesPerBulk;
+            return this;
+        }
+
+        /**
+         * Sets how many bulks may be in flight at the same time. With a value of one, bulks are submitted
+         * synchronously.
+         *
+         * @param maxConcurrentBulks the maximum number of outstanding bulk requests.
+         * @return the builder.
+         */
+        public Builder withMaxConcurrentBulks(int maxConcurrentBulks) {
+            this.maxConcurrentBulks = maxConcurrentBulks;
+            return this;
+        }
+
+        /**
+         * Sends bulks as newline-delimited JSON through the low-level REST client, copying the document sources
+         * into the request body without re-serializing them.
+         *
+         * @param rawBulkWriter whether to use the raw bulk writer.
+         * @return the builder.
+         */
+        public Builder withRawBulkWriter(boolean rawBulkWriter) {
+            this.rawBulkWriter = rawBulkWriter;
+            return this;
+        }
+
+        /**
+         * Sets how long after the first submission of a bulk its rejected and timed out items may still be
+         * resubmitted. A retry whose backoff would end after the deadline is not attempted.
+         *
+         * @param retryDeadlineMillis the retry deadline in milliseconds, zero to disable retries.
+         * @return the builder.
+         */
+        public Builder withRetryDeadlineMillis(long retryDeadlineMillis) {
+            this.retryDeadlineMillis = retryDeadlineMillis;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the exponential backoff between retries. The actual delay is drawn uniformly between
+         * zero and the exponential delay of the attempt.
+         *
+         * @param initialBackoffMillis the upper bound of the delay before the first retry.
+         * @param maxBackoffMillis     the upper bound of the delay before any retry.
+         * @return the builder.
+         */
+        public Builder withRetryBackoffMillis(long initialBackoffMillis, long maxBackoffMillis) {
+            this.retryInitialBackoffMillis = initialBackoffMillis;
+            this.retryMaxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive documents within which repeated writes of the same document are coalesced
+         * into the newest one. See {@link CoalescingDocumentIterator}.
+         *
+         * @param coalescingWindow the window size in documents, zero to disable coalescing.
+         * @return the builder.
+         */
+        public Builder withCoalescingWindow(int coalescingWindow) {
+            this.coalescingWindow = coalescingWindow;
+            return this;
+        }
+
+        /**
+         * Sets the total size of the document bodies at which a coalescing window is closed before it holds the
+         * configured number of documents, so that the memory held by a window is bounded also for large documents.
+         *
+         * @param coalescingWindowBytes the maximum size of a window in bytes.
+         * @return the builder.
+         */
+        public Builder withCoalescingWindowBytes(long coalescingWindowBytes) {
+            this.coalescingWindowBytes = coalescingWindowBytes;
+            return this;
+        }
+
+        /**
+         * Stores a content fingerprint in every document and skips the documents whose fingerprint in the index
+         * is the same. See {@link UnchangedDocumentFilter}.
+         *
+         * @param skipUnchanged whether unchanged documents are skipped.
+         * @return the builder.
+         */
+        public Builder withSkipUnchanged(boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return this;
+        }
+
+        /**
+         * Writes documents with an external version, so that a write of an older version of a document than the one
+         * in the index is dropped as a version conflict. See
+         * {@link no.unit.nva.search.models.IndexDocument#toExternallyVersionedIndexRequest()}.
+         *
+         * @param externalVersioning whether documents are written with external versions.
+         * @return the builder.
+         */
+        public Builder withExternalVersioning(boolean externalVersioning) {
+            this.externalVersioning = externalVersioning;
+            return this;
+        }
+
+        /**
+         * Routes ticket documents to shards by their top-level institution. See
+         * {@link InstitutionRouting#routingOf(no.unit.nva.search.models.IndexDocument)}.
+         *
+         * @param institutionRouting whether ticket documents are routed by institution.
+         * @return the builder.
+         */
+        public Builder withInstitutionRouting(boolean institutionRouting) {
+            this.institutionRouting = institutionRouting;
+            return this;
+        }
+
+        /**
+         * Limits the number of documents submitted per second to the cluster, shared by all the bulks of the client,
+         * or split evenly among the clients when several index at the same time, such as the shards of an import.
+         * See {@link BulkThrottle}.
+         *
+         * @param maxDocumentsPerSecond the rate in documents per second, zero for no limit.
+         * @return the builder.
+         */
+        public Builder withMaxDocumentsPerSecond(long maxDocumentsPerSecond) {
+            this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+            return this;
+        }
+
+        /**
+         * Limits the number of bytes submitted per second to the cluster, measured as the bulk byte budget is, and
+         * split as the document rate is. See {@link BulkThrottle}.
+         *
+         * @param maxBytesPerSecond the rate in bytes per second, zero for no limit.
+         * @return the builder.
+         */
+        public Builder withMaxBytesPerSecond(long maxBytesPerSecond) {
+            this.maxBytesPerSecond = maxBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets how the submission rates adapt to the load of the write thread pools of the cluster. Only used when a
+         * rate is limited.
+         *
+         * @param sampleIntervalMillis the least time between two samples, zero to keep the configured rates.
+         * @param queueThreshold       the length of a write queue above which the rates are lowered.
+         * @return the builder.
+         */
+        public Builder withThrottleSampling(long sampleIntervalMillis, long queueThreshold) {
+            this.throttleSampleIntervalMillis = sampleIntervalMillis;
+            this.throttleQueueThreshold = queueThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the latency of live writes above which batch bulks wait for the live writes to catch up. See
+         * {@link BulkThrottle}.
+         *
+         * @param liveLatencyTargetMillis the target latency in milliseconds, zero to never wait for live writes.
+         * @return the builder.
+         */
+        public Builder withLiveLatencyTargetMillis(long liveLatencyTargetMillis) {
+            this.liveLatencyTargetMillis = liveLatencyTargetMillis;
+            return this;
+        }
+
+        /**
+         * Sets how often the latency of the cluster is probed, to stand in for the live writes of other processes
+         * when batch bulks decide whether to wait for live writes. See {@link BulkThrottle}.
+         *
+         * @param latencyProbeIntervalMillis the least time between two probes, zero to never probe.
+         * @return the builder.
+         */
+        public Builder withLatencyProbeIntervalMillis(long latencyProbeIntervalMillis) {
+            this.latencyProbeIntervalMillis = latencyProbeIntervalMillis;
+            return this;
+        }
+
+        public BulkIndexingConfig build() {
+            return new BulkIndexingConfig(this);
+        }
+    }
+}
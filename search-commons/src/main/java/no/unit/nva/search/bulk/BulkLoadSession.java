@@ -0,0 +1,97 @@
+package no.unit.nva.search.bulk;
+
+import static java.util.Objects.isNull;
+import java.io.IOException;
+import no.unit.nva.search.IndicesClientWrapper;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.settings.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Suspends refreshes and replication of an index while it is being bulk loaded. The settings that were in place when
+ * the session started are restored when the session is closed, so the session should be used in a
+ * try-with-resources block to restore them also when the load fails.
+ *
+ * <p>The index name must be a concrete index, not an alias.
+ */
+public final class BulkLoadSession implements AutoCloseable {
+
+    public static final String REFRESH_INTERVAL = "index.refresh_interval";
+    public static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    public static final String DISABLED_REFRESH_INTERVAL = "-1";
+    public static final int NO_REPLICAS = 0;
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoadSession.class);
+
+    private final IndicesClientWrapper indices;
+    private final String indexName;
+    private final Settings originalSettings;
+
+    private BulkLoadSession(IndicesClientWrapper indices, String indexName, Settings originalSettings) {
+        this.indices = indices;
+        this.indexName = indexName;
+        this.originalSettings = originalSettings;
+    }
+
+    /**
+     * Records the current refresh interval and number of replicas of the index and replaces them with bulk-load
+     * settings.
+     *
+     * @param indices   the indices client of the cluster
+     * @param indexName the index that is going to be loaded
+     * @return a session that restores the original settings when closed
+     * @throws IOException when the cluster cannot be reached
+     */
+    public static BulkLoadSession start(IndicesClientWrapper indices, String indexName) throws IOException {
+        Settings originalSettings = readCurrentSettings(indices, indexName);
+        logger.info("Suspending refresh and replicas of index {}. Original settings:{}", indexName, originalSettings);
+        updateSettings(indices, indexName, bulkLoadSettings());
+        return new BulkLoadSession(indices, indexName, originalSettings);
+    }
+
+    public static Settings bulkLoadSettings() {
+        return Settings.builder()
+            .put(REFRESH_INTERVAL, DISABLED_REFRESH_INTERVAL)
+            .put(NUMBER_OF_REPLICAS, NO_REPLICAS)
+            .build();
+    }
+
+    public Settings getOriginalSettings() {
+        return originalSettings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        logger.info("Restoring settings of index {}:{}", indexName, originalSettings);
+        updateSettings(indices, indexName, originalSettings);
+    }
+
+    private static Settings readCurrentSettings(IndicesClientWrapper indices, String indexName) throws IOException {
+        GetSettingsRequest request = new GetSettingsRequest()
+            .indices(indexName)
+            .names(REFRESH_INTERVAL, NUMBER_OF_REPLICAS);
+        GetSettingsResponse response = indices.getSettings(request, RequestOptions.DEFAULT);
+        Settings.Builder settings = Settings.builder();
+        copySetting(response, indexName, REFRESH_INTERVAL, settings);
+        copySetting(response, indexName, NUMBER_OF_REPLICAS, settings);
+        return settings.build();
+    }
+
+    private static void copySetting(GetSettingsResponse response, String indexName, String setting,
+                                    Settings.Builder settings) {
+        String value = response.getSetting(indexName, setting);
+        if (isNull(value)) {
+            settings.putNull(setting);
+        } else {
+            settings.put(setting, value);
+        }
+    }
+
+    private static void updateSettings(IndicesClientWrapper indices, String indexName, Settings settings)
+        throws IOException {
+        indices.putSettings(new UpdateSettingsRequest(indexName).settings(settings), RequestOptions.DEFAULT);
+    }
+}
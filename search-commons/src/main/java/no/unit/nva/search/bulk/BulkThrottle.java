@@ -0,0 +1,278 @@
+package no.unit.nva.search.bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import nva.commons.core.JacocoGenerated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the rate at which bulks are submitted with two token buckets, one filled with documents and one with bytes
+ * per second, as configured in the {@link BulkIndexingConfig}. A bucket holds at most one second of its rate. A bulk
+ * waits until both buckets hold its documents and bytes, or are full when the bulk is larger than a bucket, and then
+ * takes them, leaving a debt that the following bulks wait for. One throttle is shared by all the bulks of an
+ * {@link no.unit.nva.search.IndexingClient}, retries included. The configured rates are those of the cluster: when
+ * several clients write at the same time, each is given its share of them with {@link #shareRatesAmong(int)}.
+ *
+ * <p>A bulk waits on the thread that submits it: the thread pulling the bulks for a first attempt, and a thread of
+ * the retry scheduler of the {@link RetryingBulkExecutor} for a retry, never a thread of the common pool.
+ *
+ * <p>When sampling is configured, the write thread pools of the cluster are sampled with a
+ * {@link WriteThreadPoolMonitor} at most once per sampling interval, and the configured rates are scaled down when
+ * the cluster falls behind: halved after write rejections, and cut by a quarter while a write queue is longer than
+ * the threshold. The rates recover in small steps once the pools are idle again, so that batch work backs off before
+ * live writes start being rejected, and comes back gradually.
+ *
+ * <p>Only batch bulks wait for the throttle; live writes bypass it. Before taking its tokens, a batch bulk also
+ * yields for as long as the recent live writes of the client are slower than the live latency target. The live
+ * writes usually come from another process, which the client cannot observe, so when probing is configured the
+ * cluster is also probed with a {@link ClusterLatencyProbe} at most once per probe interval, and a bulk yields as
+ * well while the recent probes are slower than the target.
+ */
+public class BulkThrottle {
+
+    public static final double MAX_RATE_FACTOR = 1.0;
+    public static final double MIN_RATE_FACTOR = 0.05;
+    public static final double REJECTION_BACKOFF = 0.5;
+    public static final double QUEUE_BACKOFF = 0.75;
+    public static final double RECOVERY_STEP = 0.1;
+    public static final String RATE_CHANGE_LOG_MESSAGE = "Bulk rate scaled to {} of configured rate after {}";
+    public static final String SAMPLING_FAILURE_LOG_MESSAGE = "Could not sample write thread pools: {}";
+    public static final String YIELD_LOG_MESSAGE = "Batch bulk yielded {} ms to live writes at {}, cluster at {}";
+    public static final String PROBE_FAILURE_LOG_MESSAGE = "Could not probe cluster latency: {}";
+    public static final long YIELD_STEP_MILLIS = 100;
+    public static final long MAX_YIELD_MILLIS = 30_000;
+    public static final long LIVE_LATENCY_WINDOW_MILLIS = 10_000;
+    private static final Logger logger = LoggerFactory.getLogger(BulkThrottle.class);
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private final long configuredDocumentsPerSecond;
+    private final long configuredBytesPerSecond;
+    private final long sampleIntervalMillis;
+    private final long queueThreshold;
+    private final long liveLatencyTargetMillis;
+    private final long probeIntervalMillis;
+    private final WriteThreadPoolMonitor monitor;
+    private final ClusterLatencyProbe probe;
+    private final LaneLatency liveLatency;
+    private final LaneLatency clusterLatency = new LaneLatency();
+    private final LongSupplier clock;
+    private final LongConsumer sleeper;
+    private long documentsPerSecond;
+    private long bytesPerSecond;
+    private double documentTokens;
+    private double byteTokens;
+    private double rateFactor = MAX_RATE_FACTOR;
+    private long lastRefill;
+    private long lastSample;
+    private boolean sampled;
+    private long lastProbe;
+    private boolean probed;
+
+    public BulkThrottle(BulkIndexingConfig config, WriteThreadPoolMonitor monitor, ClusterLatencyProbe probe,
+                        LaneLatency liveLatency) {
+        this(config, monitor, probe, liveLatency, BulkThrottle::monotonicMillis, BulkThrottle::sleepMillis);
+    }
+
+    /**
+     * Creates a throttle that reads the time from the given clock and waits with the given sleeper.
+     *
+     * @param config      the rates, sampling settings, live latency target and probe interval
+     * @param monitor     the sampler of the write thread pools
+     * @param probe       the probe of the latency of the cluster
+     * @param liveLatency the latency of the live writes, recorded on the same clock
+     * @param clock       a monotonic clock in milliseconds
+     * @param sleeper     waits for the given number of milliseconds
+     */
+    public BulkThrottle(BulkIndexingConfig config, WriteThreadPoolMonitor monitor, ClusterLatencyProbe probe,
+                        LaneLatency liveLatency, LongSupplier clock, LongConsumer sleeper) {
+        this.configuredDocumentsPerSecond = config.getMaxDocumentsPerSecond();
+        this.configuredBytesPerSecond = config.getMaxBytesPerSecond();
+        this.documentsPerSecond = configuredDocumentsPerSecond;
+        this.bytesPerSecond = configuredBytesPerSecond;
+        this.sampleIntervalMillis = config.getThrottleSampleIntervalMillis();
+        this.queueThreshold = config.getThrottleQueueThreshold();
+        this.liveLatencyTargetMillis = config.getLiveLatencyTargetMillis();
+        this.probeIntervalMillis = config.getLatencyProbeIntervalMillis();
+        this.monitor = monitor;
+        this.probe = probe;
+        this.liveLatency = liveLatency;
+        this.clock = clock;
+        this.sleeper = sleeper;
+        this.documentTokens = documentsPerSecond;
+        this.byteTokens = bytesPerSecond;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    public boolean isLimited() {
+        return configuredDocumentsPerSecond > 0 || configuredBytesPerSecond > 0;
+    }
+
+    /**
+     * Shares the configured rates among the given number of clients that write at the same time, such as the chains
+     * of events indexing the shards of an import, so that together they stay within the configured rates. A limited
+     * rate is never shared down to no limit.
+     *
+     * @param clients the number of clients, taken as one when not positive
+     */
+    public synchronized void shareRatesAmong(int clients) {
+        int share = Math.max(1, clients);
+        documentsPerSecond = shareOf(configuredDocumentsPerSecond, share);
+        bytesPerSecond = shareOf(configuredBytesPerSecond, share);
+        documentTokens = Math.min(documentTokens, documentsPerSecond);
+        byteTokens = Math.min(byteTokens, bytesPerSecond);
+    }
+
+    public synchronized double getRateFactor() {
+        return rateFactor;
+    }
+
+    public static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Waits until the bulk may be submitted and takes its documents and bytes from the buckets.
+     *
+     * @param bulk the bulk about to be submitted
+     * @return the time waited in milliseconds
+     */
+    public long acquire(Bulk bulk) {
+        long waited = yieldToLiveWrites();
+        if (!isLimited()) {
+            return waited;
+        }
+        while (true) {
+            adaptIfDue(clock.getAsLong());
+            long wait;
+            synchronized (this) {
+                long now = clock.getAsLong();
+                refill(now);
+                wait = waitMillis(bulk);
+                if (wait <= 0) {
+                    documentTokens -= bulk.getNumberOfDocuments();
+                    byteTokens -= bulk.getSizeInBytes();
+                    return waited;
+                }
+            }
+            sleeper.accept(wait);
+            waited += wait;
+        }
+    }
+
+    // A bulk yields at most MAX_YIELD_MILLIS, so that batch work still moves when live writes are slow for reasons
+    // of their own.
+    private long yieldToLiveWrites() {
+        if (liveLatencyTargetMillis <= 0) {
+            return 0;
+        }
+        long waited = 0;
+        while (waited < MAX_YIELD_MILLIS && liveWritesAreSlow()) {
+            sleeper.accept(YIELD_STEP_MILLIS);
+            waited += YIELD_STEP_MILLIS;
+        }
+        if (waited > 0) {
+            logger.info(YIELD_LOG_MESSAGE, waited, liveLatency, clusterLatency);
+        }
+        return waited;
+    }
+
+    private boolean liveWritesAreSlow() {
+        probeIfDue(clock.getAsLong());
+        long now = clock.getAsLong();
+        return liveLatency.isAbove(liveLatencyTargetMillis, now, LIVE_LATENCY_WINDOW_MILLIS)
+               || clusterLatency.isAbove(liveLatencyTargetMillis, now, LIVE_LATENCY_WINDOW_MILLIS);
+    }
+
+    // The probe is claimed under the lock and sent outside it, so that concurrent bulks neither wait for the probe
+    // of another bulk nor send one each.
+    private void probeIfDue(long now) {
+        synchronized (this) {
+            if (probeIntervalMillis <= 0 || probed && now - lastProbe < probeIntervalMillis) {
+                return;
+            }
+            probed = true;
+            lastProbe = now;
+        }
+        try {
+            probe.send();
+        } catch (Exception exception) {
+            logger.warn(PROBE_FAILURE_LOG_MESSAGE, exception.getMessage());
+            return;
+        }
+        long completedAt = clock.getAsLong();
+        clusterLatency.record(completedAt - now, completedAt);
+    }
+
+    @JacocoGenerated
+    public static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static long shareOf(long ratePerSecond, int share) {
+        return ratePerSecond <= 0 ? ratePerSecond : Math.max(1, ratePerSecond / share);
+    }
+
+    private static long waitMillis(double tokens, double needed, long ratePerSecond, double rateFactor) {
+        if (ratePerSecond <= 0) {
+            return 0;
+        }
+        double missing = Math.min(needed, ratePerSecond) - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing * MILLIS_PER_SECOND / (ratePerSecond * rateFactor));
+    }
+
+    private long waitMillis(Bulk bulk) {
+        return Math.max(waitMillis(documentTokens, bulk.getNumberOfDocuments(), documentsPerSecond, rateFactor),
+                        waitMillis(byteTokens, bulk.getSizeInBytes(), bytesPerSecond, rateFactor));
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefill) / MILLIS_PER_SECOND;
+        documentTokens = Math.min(documentsPerSecond,
+                                  documentTokens + elapsedSeconds * documentsPerSecond * rateFactor);
+        byteTokens = Math.min(bytesPerSecond, byteTokens + elapsedSeconds * bytesPerSecond * rateFactor);
+        lastRefill = now;
+    }
+
+    // The sample is claimed under the lock and taken outside it, as the probe is, so that concurrent bulks do not wait
+    // for the request of another bulk.
+    private void adaptIfDue(long now) {
+        synchronized (this) {
+            if (sampleIntervalMillis <= 0 || sampled && now - lastSample < sampleIntervalMillis) {
+                return;
+            }
+            sampled = true;
+            lastSample = now;
+        }
+        WriteThreadPoolMonitor.Load load;
+        try {
+            load = monitor.sample();
+        } catch (Exception exception) {
+            logger.warn(SAMPLING_FAILURE_LOG_MESSAGE, exception.getMessage());
+            return;
+        }
+        adapt(load);
+    }
+
+    // The buckets are refilled before the rate changes, so the time since the last refill counts at the old rate.
+    private synchronized void adapt(WriteThreadPoolMonitor.Load load) {
+        refill(clock.getAsLong());
+        double previous = rateFactor;
+        if (load.getRejections() > 0) {
+            rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * REJECTION_BACKOFF);
+        } else if (load.getLongestQueue() > queueThreshold) {
+            rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * QUEUE_BACKOFF);
+        } else {
+            rateFactor = Math.min(MAX_RATE_FACTOR, rateFactor + RECOVERY_STEP);
+        }
+        if (rateFactor != previous) {
+            logger.info(RATE_CHANGE_LOG_MESSAGE, rateFactor, load);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package no.unit.nva.search.bulk;
+
+import java.io.IOException;
+import no.unit.nva.search.RestHighLevelClientWrapper;
+import org.elasticsearch.client.Request;
+
+/**
+ * Sends a small request to the cluster, whose latency stands in for the latency of the live writes of other
+ * processes, such as the function that indexes single resources, which a batch writer cannot observe itself. The
+ * request is a search for no hits with the request cache off, so it waits in the search queue of every shard of the
+ * index as any request does when the cluster is loaded, and costs nothing more.
+ */
+public class ClusterLatencyProbe {
+
+    public static final String SEARCH_PATH = "/%s/_search";
+    public static final String SIZE_PARAMETER = "size";
+    public static final String NO_HITS = "0";
+    public static final String REQUEST_CACHE_PARAMETER = "request_cache";
+    public static final String CACHE_OFF = "false";
+    private final RestHighLevelClientWrapper client;
+    private final String index;
+
+    public ClusterLatencyProbe(RestHighLevelClientWrapper client, String index) {
+        this.client = client;
+        this.index = index;
+    }
+
+    /**
+     * Sends the probe and waits for its response.
+     *
+     * @throws IOException when the cluster cannot be reached
+     */
+    public void send() throws IOException {
+        Request request = new Request("GET", String.format(SEARCH_PATH, index));
+        request.addParameter(SIZE_PARAMETER, NO_HITS);
+        request.addParameter(REQUEST_CACHE_PARAMETER, CACHE_OFF);
+        client.performRequest(request);
+    }
+}
@@ -0,0 +1,119 @@
+package no.unit.nva.search.bulk;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import no.unit.nva.search.models.IndexDocument;
+
+/**
+ * Removes superseded writes of the same document from a stream of index documents. The input is read in windows of
+ * a fixed number of documents, closed early when the bodies of the documents read into the window reach a byte
+ * ceiling, and within a window only the newest version of each (index, documentIdentifier) pair is kept. A version
+ * is newer than another when its modifiedDate is later; when either version has no modifiedDate, or the dates are
+ * equal, the one that comes later in the input wins. The surviving version takes the position of the first version
+ * of the document in the window.
+ */
+public class CoalescingDocumentIterator implements Iterator<IndexDocument> {
+
+    private final Iterator<IndexDocument> documents;
+    public static final long NO_BYTE_CEILING = Long.MAX_VALUE;
+    private final int windowSize;
+    private final long maxWindowBytes;
+    private final IndexingStatistics statistics;
+    private Iterator<IndexDocument> window;
+
+    public CoalescingDocumentIterator(Iterator<IndexDocument> documents, int windowSize,
+                                      IndexingStatistics statistics) {
+        this(documents, windowSize, NO_BYTE_CEILING, statistics);
+    }
+
+    /**
+     * Creates an iterator over the coalesced documents.
+     *
+     * @param documents      the documents to coalesce
+     * @param windowSize     the maximum number of documents in a window
+     * @param maxWindowBytes the size of the document bodies at which a window is closed
+     * @param statistics     where the coalesced documents are counted
+     */
+    public CoalescingDocumentIterator(Iterator<IndexDocument> documents, int windowSize, long maxWindowBytes,
+                                      IndexingStatistics statistics) {
+        this.documents = documents;
+        this.windowSize = windowSize;
+        this.maxWindowBytes = maxWindowBytes;
+        this.statistics = statistics;
+        this.window = Collections.emptyIterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!window.hasNext() && documents.hasNext()) {
+            window = readWindow();
+        }
+        return window.hasNext();
+    }
+
+    @Override
+    public IndexDocument next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return window.next();
+    }
+
+    private static boolean supersedes(IndexDocument candidate, IndexDocument current) {
+        Optional<Instant> candidateDate = candidate.getModifiedDate();
+        Optional<Instant> currentDate = current.getModifiedDate();
+        if (candidateDate.isPresent() && currentDate.isPresent()) {
+            return !candidateDate.get().isBefore(currentDate.get());
+        }
+        return true;
+    }
+
+    private Iterator<IndexDocument> readWindow() {
+        Map<DocumentKey, IndexDocument> newestVersions = new LinkedHashMap<>();
+        int read = 0;
+        long windowBytes = 0;
+        while (read < windowSize && windowBytes < maxWindowBytes && documents.hasNext()) {
+            IndexDocument document = documents.next();
+            newestVersions.merge(new DocumentKey(document), document,
+                                 (current, candidate) -> supersedes(candidate, current) ? candidate : current);
+            read++;
+            windowBytes += maxWindowBytes == NO_BYTE_CEILING ? 0 : document.getBodySizeInBytes();
+        }
+        statistics.recordCoalescedDocuments(read - newestVersions.size());
+        return newestVersions.values().iterator();
+    }
+
+    private static final class DocumentKey {
+
+        private final String index;
+        private final String identifier;
+
+        private DocumentKey(IndexDocument document) {
+            this.index = document.getIndexName();
+            this.identifier = document.getDocumentIdentifier();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DocumentKey)) {
+                return false;
+            }
+            DocumentKey that = (DocumentKey) o;
+            return Objects.equals(index, that.index) && Objects.equals(identifier, that.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, identifier);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package no.unit.nva.search.bulk;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+/**
+ * Keeps up to a fixed number of bulks in flight and returns their responses in submission order. A new bulk is only
+ * pulled from the source when a slot is free, so the source is consumed no faster than the cluster accepts the
+ * writes.
+ */
+public class InFlightBulkIterator implements Iterator<BulkResponse> {
+
+    private final Iterator<Bulk> bulks;
+    private final Function<Bulk, CompletableFuture<BulkResponse>> submitter;
+    private final int maxInFlight;
+    private final Deque<CompletableFuture<BulkResponse>> inFlight;
+
+    public InFlightBulkIterator(Iterator<Bulk> bulks,
+                                Function<Bulk, CompletableFuture<BulkResponse>> submitter,
+                                int maxInFlight) {
+        this.bulks = bulks;
+        this.submitter = submitter;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new ArrayDeque<>(maxInFlight);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !inFlight.isEmpty() || bulks.hasNext();
+    }
+
+    @Override
+    public BulkResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fillWindow();
+        return awaitOldest();
+    }
+
+    private void fillWindow() {
+        while (inFlight.size() < maxInFlight && bulks.hasNext()) {
+            inFlight.addLast(submitter.apply(bulks.next()));
+        }
+    }
+
+    private BulkResponse awaitOldest() {
+        try {
+            return inFlight.removeFirst().join();
+        } catch (CompletionException exception) {
+            inFlight.forEach(pending -> pending.cancel(false));
+            inFlight.clear();
+            throw new RuntimeException(exception.getCause());
+        }
+    }
+}
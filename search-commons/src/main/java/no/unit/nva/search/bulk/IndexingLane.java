@@ -0,0 +1,10 @@
+package no.unit.nva.search.bulk;
+
+/**
+ * The priority class of the writes of an {@link no.unit.nva.search.IndexingClient}. Live writes reflect a user's
+ * edit and are sent at once, while batch writes reindex existing data and give way to live writes.
+ */
+public enum IndexingLane {
+    LIVE,
+    BATCH
+}
@@ -0,0 +1,119 @@
+package no.unit.nva.search.bulk;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of the bulk traffic sent by one {@link no.unit.nva.search.IndexingClient}. Safe to update from
+ * several threads.
+ */
+public class IndexingStatistics {
+
+    private final AtomicLong bulks = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong largestBulkInBytes = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong retriedDocuments = new AtomicLong();
+    private final AtomicLong coalescedDocuments = new AtomicLong();
+    private final AtomicLong unchangedDocuments = new AtomicLong();
+    private final AtomicLong staleWrites = new AtomicLong();
+    private final AtomicLong throttledMillis = new AtomicLong();
+    private final Map<IndexingLane, LaneLatency> laneLatencies = new EnumMap<>(IndexingLane.class);
+
+    public IndexingStatistics() {
+        for (IndexingLane lane : IndexingLane.values()) {
+            laneLatencies.put(lane, new LaneLatency());
+        }
+    }
+
+    public void recordBulk(Bulk bulk) {
+        bulks.incrementAndGet();
+        documents.addAndGet(bulk.getNumberOfDocuments());
+        bytes.addAndGet(bulk.getSizeInBytes());
+        largestBulkInBytes.accumulateAndGet(bulk.getSizeInBytes(), Math::max);
+    }
+
+    public void recordRetry(Bulk retry) {
+        retries.incrementAndGet();
+        retriedDocuments.addAndGet(retry.getNumberOfDocuments());
+    }
+
+    public void recordCoalescedDocuments(long removedWrites) {
+        coalescedDocuments.addAndGet(removedWrites);
+    }
+
+    public void recordUnchangedDocuments(long skippedWrites) {
+        unchangedDocuments.addAndGet(skippedWrites);
+    }
+
+    public void recordStaleWrites(long droppedWrites) {
+        staleWrites.addAndGet(droppedWrites);
+    }
+
+    public void recordThrottling(long waitedMillis) {
+        throttledMillis.addAndGet(waitedMillis);
+    }
+
+    public long getBulks() {
+        return bulks.get();
+    }
+
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getLargestBulkInBytes() {
+        return largestBulkInBytes.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getRetriedDocuments() {
+        return retriedDocuments.get();
+    }
+
+    public long getCoalescedDocuments() {
+        return coalescedDocuments.get();
+    }
+
+    public long getUnchangedDocuments() {
+        return unchangedDocuments.get();
+    }
+
+    public long getStaleWrites() {
+        return staleWrites.get();
+    }
+
+    public long getThrottledMillis() {
+        return throttledMillis.get();
+    }
+
+    public LaneLatency latencyOf(IndexingLane lane) {
+        return laneLatencies.get(lane);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexingStatistics{"
+               + "bulks=" + getBulks()
+               + ", documents=" + getDocuments()
+               + ", bytes=" + getBytes()
+               + ", largestBulkInBytes=" + getLargestBulkInBytes()
+               + ", retries=" + getRetries()
+               + ", retriedDocuments=" + getRetriedDocuments()
+               + ", coalescedDocuments=" + getCoalescedDocuments()
+               + ", unchangedDocuments=" + getUnchangedDocuments()
+               + ", staleWrites=" + getStaleWrites()
+               + ", throttledMillis=" + getThrottledMillis()
+               + ", laneLatencies=" + laneLatencies
+               + '}';
+    }
+}
@@ -0,0 +1,71 @@
+package no.unit.nva.search.bulk;
+
+/**
+ * The latency of the requests of one {@link IndexingLane}. Besides the totals, it keeps an exponentially smoothed
+ * latency that follows the recent requests, together with the time of the latest request, so that a lane without
+ * recent requests can be told apart from a fast one. Safe to update from several threads.
+ */
+public class LaneLatency {
+
+    public static final double SMOOTHING_FACTOR = 0.3;
+    private long requests;
+    private long totalMillis;
+    private long maxMillis;
+    private double smoothedMillis;
+    private long lastRecordedAt;
+
+    /**
+     * Records the latency of a completed request.
+     *
+     * @param latencyMillis the time the request took in milliseconds
+     * @param completedAt   the time the request completed, on the monotonic clock of the client
+     */
+    public synchronized void record(long latencyMillis, long completedAt) {
+        smoothedMillis = requests == 0
+                             ? latencyMillis
+                             : SMOOTHING_FACTOR * latencyMillis + (1 - SMOOTHING_FACTOR) * smoothedMillis;
+        requests++;
+        totalMillis += latencyMillis;
+        maxMillis = Math.max(maxMillis, latencyMillis);
+        lastRecordedAt = completedAt;
+    }
+
+    /**
+     * Tells whether the lane is currently slower than a target. Requests that completed longer ago than the window
+     * are not current, so a lane that has been idle for the length of the window is never above its target.
+     *
+     * @param targetMillis the target latency in milliseconds
+     * @param now          the current time, on the same clock as the recorded requests
+     * @param windowMillis how long a request is taken as current
+     * @return whether the smoothed latency of current requests is above the target
+     */
+    public synchronized boolean isAbove(long targetMillis, long now, long windowMillis) {
+        return requests > 0 && now - lastRecordedAt < windowMillis && smoothedMillis > targetMillis;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getAverageMillis() {
+        return requests == 0 ? 0 : totalMillis / requests;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public synchronized long getSmoothedMillis() {
+        return Math.round(smoothedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "LaneLatency{"
+               + "requests=" + getRequests()
+               + ", averageMillis=" + getAverageMillis()
+               + ", maxMillis=" + getMaxMillis()
+               + ", smoothedMillis=" + getSmoothedMillis()
+               + '}';
+    }
+}
@@ -0,0 +1,107 @@
+package no.unit.nva.search.bulk;
+
+import static java.util.Objects.nonNull;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import no.unit.nva.search.IndexingConfig;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.index.VersionType;
+
+/**
+ * Writes a bulk of index requests as a newline-delimited JSON body for the low-level REST client. The sources of the
+ * index requests are copied into the body as they are, without being parsed or re-serialized.
+ */
+public final class NdjsonBulkWriter {
+
+    public static final String BULK_ENDPOINT = "/_bulk";
+    public static final String POST = "POST";
+    public static final String REFRESH_PARAMETER = "refresh";
+    public static final String WAIT_FOR_ACTIVE_SHARDS_PARAMETER = "wait_for_active_shards";
+    public static final String ONE_ACTIVE_SHARD = "1";
+    public static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+    private static final byte NEW_LINE = '\n';
+    private static final int ACTION_LINE_OVERHEAD = 64;
+
+    private NdjsonBulkWriter() {
+    }
+
+    /**
+     * Creates a low-level bulk request for the given bulk.
+     *
+     * @param bulk          the index requests to send
+     * @param refreshPolicy the refresh policy of the request
+     * @return the request, ready to be performed by a {@link org.elasticsearch.client.RestClient}
+     * @throws IOException when the body cannot be written
+     */
+    public static Request toRequest(Bulk bulk, RefreshPolicy refreshPolicy) throws IOException {
+        Request request = new Request(POST, BULK_ENDPOINT);
+        request.addParameter(REFRESH_PARAMETER, refreshPolicy.getValue());
+        request.addParameter(WAIT_FOR_ACTIVE_SHARDS_PARAMETER, ONE_ACTIVE_SHARD);
+        request.setEntity(new ByteArrayEntity(writeBody(bulk), NDJSON));
+        return request;
+    }
+
+    public static byte[] writeBody(Bulk bulk) throws IOException {
+        int estimatedSize = (int) Math.min(Integer.MAX_VALUE,
+                                           bulk.getSizeInBytes()
+                                           + (long) ACTION_LINE_OVERHEAD * bulk.getNumberOfDocuments());
+        ByteArrayOutputStream body = new ByteArrayOutputStream(estimatedSize);
+        for (IndexRequest request : bulk.getRequests()) {
+            writeActionLine(request, body);
+            request.source().writeTo(body);
+            body.write(NEW_LINE);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Parses the response of a bulk request into the same type as the high-level client returns.
+     *
+     * @param response the response of the low-level client
+     * @return the parsed bulk response
+     * @throws IOException when the response cannot be read
+     */
+    public static BulkResponse parseResponse(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent();
+            XContentParser parser = JsonXContent.jsonXContent.createParser(
+                NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, content)) {
+            return BulkResponse.fromXContent(parser);
+        }
+    }
+
+    private static void writeActionLine(IndexRequest request, ByteArrayOutputStream body) throws IOException {
+        try (JsonGenerator generator = IndexingConfig.objectMapper.getFactory()
+            .createGenerator(body, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(null);
+            generator.writeStartObject();
+            generator.writeObjectFieldStart(request.opType().getLowercase());
+            generator.writeStringField("_index", request.index());
+            generator.writeStringField("_id", request.id());
+            if (nonNull(request.routing())) {
+                generator.writeStringField("routing", request.routing());
+            }
+            if (request.version() != Versions.MATCH_ANY) {
+                generator.writeNumberField("version", request.version());
+                generator.writeStringField("version_type", VersionType.toString(request.versionType()));
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        body.write(NEW_LINE);
+    }
+}
@@ -0,0 +1,152 @@
+package no.unit.nva.search.bulk;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Submits a bulk and resubmits the items that failed with a retryable failure (see {@link BulkFailureClass}) until
+ * they succeed or the retry deadline of the {@link BulkIndexingConfig} has passed. Retries are delayed by an
+ * exponential backoff with full jitter, so that concurrent writers that were rejected together do not come back
+ * together. The returned response has one item per document of the original bulk, holding the outcome of the last
+ * attempt for that document. Retries are submitted from the threads of the given scheduler, so that a submitter that
+ * blocks, on the bulk request itself or on a throttle, never blocks a thread of the common pool.
+ */
+public class RetryingBulkExecutor {
+
+    public static final String RETRY_LOG_MESSAGE = "Retrying {} rejected items in {} ms (attempt {})";
+    public static final String RETRY_DEADLINE_LOG_MESSAGE = "Giving up on {} rejected items: retry deadline passed";
+    public static final String THREAD_NAME_FORMAT = "bulk-retry-%d";
+    public static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final Logger logger = LoggerFactory.getLogger(RetryingBulkExecutor.class);
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
+    private final Function<Bulk, CompletableFuture<BulkResponse>> submitter;
+    private final BulkIndexingConfig config;
+    private final IndexingStatistics statistics;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates an executor of bulks.
+     *
+     * @param submitter  submits a bulk
+     * @param config     the retry deadline and backoff
+     * @param statistics where the retries are counted
+     * @param clock      a monotonic clock in milliseconds, against which the retry deadline is measured
+     * @param scheduler  the scheduler that waits out the backoff and submits the retries
+     */
+    public RetryingBulkExecutor(Function<Bulk, CompletableFuture<BulkResponse>> submitter,
+                                BulkIndexingConfig config,
+                                IndexingStatistics statistics,
+                                LongSupplier clock,
+                                ScheduledExecutorService scheduler) {
+        this.submitter = submitter;
+        this.config = config;
+        this.statistics = statistics;
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates a scheduler for retries with daemon threads that end when they have been idle for a while, so that a
+     * client that rarely retries does not keep threads around.
+     *
+     * @param threads the maximum number of retries that are submitted at the same time
+     * @return the scheduler
+     */
+    public static ScheduledExecutorService newScheduler(int threads) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, new ThreadFactoryBuilder()
+            .setNameFormat(THREAD_NAME_FORMAT)
+            .setDaemon(true)
+            .build());
+        scheduler.setKeepAliveTime(IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+
+    public CompletableFuture<BulkResponse> execute(Bulk bulk) {
+        long deadline = clock.getAsLong() + config.getRetryDeadlineMillis();
+        return submitter.apply(bulk).thenCompose(response -> retryFailedItems(bulk, response, 0, deadline));
+    }
+
+    private static List<Integer> retryablePositions(BulkResponse response) {
+        List<Integer> positions = new ArrayList<>();
+        BulkItemResponse[] items = response.getItems();
+        for (int position = 0; position < items.length; position++) {
+            if (items[position].isFailed() && BulkFailureClass.classify(items[position].getFailure()).isRetryable()) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    private static Bulk selectRequests(Bulk bulk, List<Integer> positions) {
+        List<IndexRequest> requests = new ArrayList<>(positions.size());
+        long sizeInBytes = 0;
+        for (int position : positions) {
+            IndexRequest request = bulk.getRequests().get(position);
+            requests.add(request);
+            sizeInBytes += Bulk.sizeOf(request);
+        }
+        return new Bulk(requests, sizeInBytes);
+    }
+
+    private static BulkResponse merge(BulkResponse response, List<Integer> positions, BulkResponse retryResponse) {
+        BulkItemResponse[] items = response.getItems().clone();
+        BulkItemResponse[] retriedItems = retryResponse.getItems();
+        for (int i = 0; i < positions.size(); i++) {
+            items[positions.get(i)] = renumber(retriedItems[i], positions.get(i));
+        }
+        return new BulkResponse(items, response.getTook().millis() + retryResponse.getTook().millis());
+    }
+
+    private static BulkItemResponse renumber(BulkItemResponse item, int position) {
+        if (item.isFailed()) {
+            return new BulkItemResponse(position, item.getOpType(), item.getFailure());
+        }
+        DocWriteResponse itemResponse = item.getResponse();
+        return new BulkItemResponse(position, item.getOpType(), itemResponse);
+    }
+
+    private CompletableFuture<BulkResponse> retryFailedItems(Bulk bulk, BulkResponse response, int attempt,
+                                                             long deadline) {
+        List<Integer> positions = retryablePositions(response);
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(response);
+        }
+        long delay = backoff(attempt);
+        if (clock.getAsLong() + delay > deadline) {
+            logger.warn(RETRY_DEADLINE_LOG_MESSAGE, positions.size());
+            return CompletableFuture.completedFuture(response);
+        }
+        logger.info(RETRY_LOG_MESSAGE, positions.size(), delay, attempt + 1);
+        Bulk retry = selectRequests(bulk, positions);
+        statistics.recordRetry(retry);
+        CompletableFuture<Bulk> delayed = new CompletableFuture<>();
+        scheduler.schedule(() -> delayed.complete(retry), delay, TimeUnit.MILLISECONDS);
+        return delayed
+            .thenCompose(submitter)
+            .thenCompose(retryResponse -> retryFailedItems(retry, retryResponse, attempt + 1, deadline))
+            .thenApply(retryResponse -> merge(response, positions, retryResponse));
+    }
+
+    private long backoff(int attempt) {
+        long exponential = config.getRetryInitialBackoffMillis() << Math.min(attempt, MAX_BACKOFF_EXPONENT);
+        long ceiling = Math.min(exponential, config.getRetryMaxBackoffMillis());
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,59 @@
+package no.unit.nva.search.bulk;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.elasticsearch.action.index.IndexRequest;
+
+/**
+ * Groups index requests into bulks. A bulk is closed when it reaches either the maximum number of documents or when
+ * the next request would push it over the byte budget.
+ */
+public class SizeBoundedBulkIterator implements Iterator<Bulk> {
+
+    private final Iterator<IndexRequest> requests;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private IndexRequest pending;
+
+    public SizeBoundedBulkIterator(Iterator<IndexRequest> requests, int maxDocuments, long maxBytes) {
+        this.requests = requests;
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null || requests.hasNext();
+    }
+
+    @Override
+    public Bulk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<IndexRequest> bulk = new ArrayList<>();
+        long bulkSize = 0;
+        while (bulk.size() < maxDocuments && hasNext()) {
+            IndexRequest request = nextRequest();
+            long requestSize = Bulk.sizeOf(request);
+            if (!bulk.isEmpty() && bulkSize + requestSize > maxBytes) {
+                pending = request;
+                break;
+            }
+            bulk.add(request);
+            bulkSize += requestSize;
+        }
+        return new Bulk(bulk, bulkSize);
+    }
+
+    private IndexRequest nextRequest() {
+        if (pending != null) {
+            IndexRequest request = pending;
+            pending = null;
+            return request;
+        }
+        return requests.next();
+    }
+}
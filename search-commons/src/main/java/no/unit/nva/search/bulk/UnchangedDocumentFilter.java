@@ -0,0 +1,84 @@
+package no.unit.nva.search.bulk;
+
+import static java.util.Objects.nonNull;
+import static no.unit.nva.search.models.ContentFingerprint.FINGERPRINT_FIELD;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import no.unit.nva.search.RestHighLevelClientWrapper;
+import no.unit.nva.search.models.IndexDocument;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+
+/**
+ * Removes the documents of a bulk whose stored content fingerprint equals the fingerprint of the new version, so
+ * that unchanged documents are not rewritten. The stored fingerprints of a whole bulk are read with one multi-get
+ * request that fetches only the fingerprint field. Documents are expected to be fingerprinted with
+ * {@link IndexDocument#withFingerprint()}.
+ */
+public class UnchangedDocumentFilter {
+
+    private static final FetchSourceContext FINGERPRINT_ONLY =
+        new FetchSourceContext(true, new String[]{FINGERPRINT_FIELD}, Strings.EMPTY_ARRAY);
+
+    private final RestHighLevelClientWrapper client;
+    private final IndexingStatistics statistics;
+
+    public UnchangedDocumentFilter(RestHighLevelClientWrapper client, IndexingStatistics statistics) {
+        this.client = client;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns a bulk holding only the documents that are missing from the index or have changed.
+     *
+     * @param bulk the fingerprinted documents to write
+     * @return the documents that need to be written
+     * @throws IOException when the stored fingerprints cannot be read
+     */
+    public Bulk removeUnchanged(Bulk bulk) throws IOException {
+        if (bulk.getNumberOfDocuments() == 0) {
+            return bulk;
+        }
+        MultiGetItemResponse[] storedVersions = client.mget(createRequest(bulk), RequestOptions.DEFAULT)
+            .getResponses();
+        List<IndexRequest> changed = new ArrayList<>(bulk.getNumberOfDocuments());
+        long sizeInBytes = 0;
+        for (int i = 0; i < storedVersions.length; i++) {
+            IndexRequest request = bulk.getRequests().get(i);
+            if (!isUnchanged(request, storedVersions[i])) {
+                changed.add(request);
+                sizeInBytes += Bulk.sizeOf(request);
+            }
+        }
+        statistics.recordUnchangedDocuments(bulk.getNumberOfDocuments() - changed.size());
+        return new Bulk(changed, sizeInBytes);
+    }
+
+    private static MultiGetRequest createRequest(Bulk bulk) {
+        MultiGetRequest request = new MultiGetRequest();
+        for (IndexRequest indexRequest : bulk.getRequests()) {
+            request.add(new MultiGetRequest.Item(indexRequest.index(), indexRequest.id())
+                            .routing(indexRequest.routing())
+                            .fetchSourceContext(FINGERPRINT_ONLY));
+        }
+        return request;
+    }
+
+    private static boolean isUnchanged(IndexRequest request, MultiGetItemResponse storedVersion) {
+        if (storedVersion.isFailed() || !storedVersion.getResponse().isExists()) {
+            return false;
+        }
+        Map<String, Object> storedSource = storedVersion.getResponse().getSourceAsMap();
+        Object storedFingerprint = nonNull(storedSource) ? storedSource.get(FINGERPRINT_FIELD) : null;
+        return nonNull(storedFingerprint)
+               && IndexDocument.readTopLevelText(request.source(), FINGERPRINT_FIELD)
+                   .map(storedFingerprint::equals)
+                   .orElse(false);
+    }
+}
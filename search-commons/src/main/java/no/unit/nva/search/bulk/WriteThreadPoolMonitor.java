@@ -0,0 +1,82 @@
+package no.unit.nva.search.bulk;
+
+import static java.util.Objects.isNull;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.InputStream;
+import no.unit.nva.search.IndexingConfig;
+import no.unit.nva.search.RestHighLevelClientWrapper;
+import nva.commons.core.JacocoGenerated;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+
+/**
+ * Reads the load of the write thread pools of the cluster from the node statistics. The response is filtered down
+ * to the queue and rejection counters of the write pool, so a sample costs a few hundred bytes per node.
+ */
+public class WriteThreadPoolMonitor {
+
+    public static final String NODE_STATS_PATH = "/_nodes/stats/thread_pool";
+    public static final String FILTER_PATH_PARAMETER = "filter_path";
+    public static final String WRITE_POOL_FILTER =
+        "nodes.*.thread_pool.write.queue,nodes.*.thread_pool.write.rejected";
+    private final RestHighLevelClientWrapper client;
+    private Long lastRejected;
+
+    public WriteThreadPoolMonitor(RestHighLevelClientWrapper client) {
+        this.client = client;
+    }
+
+    /**
+     * Samples the write thread pools of all nodes. The rejection counters of the nodes are cumulative, so the sample
+     * reports the rejections since the previous sample; the first sample only sets the baseline and reports none.
+     *
+     * @return the longest write queue of any node and the rejections since the previous sample
+     * @throws IOException when the cluster cannot be reached
+     */
+    public synchronized Load sample() throws IOException {
+        Request request = new Request("GET", NODE_STATS_PATH);
+        request.addParameter(FILTER_PATH_PARAMETER, WRITE_POOL_FILTER);
+        Response response = client.performRequest(request);
+        JsonNode nodes;
+        try (InputStream content = response.getEntity().getContent()) {
+            nodes = IndexingConfig.objectMapper.readTree(content).path("nodes");
+        }
+        long longestQueue = 0;
+        long rejected = 0;
+        for (JsonNode node : nodes) {
+            JsonNode writePool = node.path("thread_pool").path("write");
+            longestQueue = Math.max(longestQueue, writePool.path("queue").asLong());
+            rejected += writePool.path("rejected").asLong();
+        }
+        // A restarted node starts counting from zero again, which must not read as negative rejections.
+        long newRejections = isNull(lastRejected) ? 0 : Math.max(0, rejected - lastRejected);
+        lastRejected = rejected;
+        return new Load(longestQueue, newRejections);
+    }
+
+    public static final class Load {
+
+        private final long longestQueue;
+        private final long rejections;
+
+        public Load(long longestQueue, long rejections) {
+            this.longestQueue = longestQueue;
+            this.rejections = rejections;
+        }
+
+        public long getLongestQueue() {
+            return longestQueue;
+        }
+
+        public long getRejections() {
+            return rejections;
+        }
+
+        @JacocoGenerated
+        @Override
+        public String toString() {
+            return "Load{longestQueue=" + longestQueue + ", rejections=" + rejections + '}';
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package no.unit.nva.search.models;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import no.unit.nva.search.IndexingConfig;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * Computes a stable hash of a document body. The body is canonicalized before hashing: object fields are written in
+ * the order of their names and without whitespace, so that two bodies with the same content get the same
+ * fingerprint regardless of how they were serialized. The fingerprint field itself is not part of the hash.
+ *
+ * <p>The fingerprint is stored in the source of the document, since the batch import reads it back to skip
+ * unchanged documents. It is of no use to searches, which therefore leave it out of the sources they return.
+ */
+public final class ContentFingerprint {
+
+    public static final String FINGERPRINT_FIELD = "contentFingerprint";
+    public static final String ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private ContentFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of a body.
+     *
+     * @param body the document body
+     * @return the hex encoded SHA-256 hash of the canonical form of the body
+     * @throws IOException when the body cannot be written
+     */
+    public static String of(JsonNode body) throws IOException {
+        MessageDigest digest = newDigest();
+        try (JsonGenerator generator = IndexingConfig.objectMapper.getFactory()
+            .createGenerator(new DigestOutputStream(OutputStream.nullOutputStream(), digest), JsonEncoding.UTF8)) {
+            generator.setPrettyPrinter(null);
+            writeTopLevel(body, generator);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Computes the fingerprint of a serialized body with a streaming parser, without building a tree of the body.
+     * Only the values of each object are buffered, to be written in the order of their names. The fingerprint is
+     * the same as that of the tree of the body.
+     *
+     * @param body the serialized document body
+     * @return the hex encoded SHA-256 hash of the canonical form of the body
+     * @throws IOException when the body is not valid JSON
+     */
+    public static String of(BytesReference body) throws IOException {
+        MessageDigest digest = newDigest();
+        BytesRef bytes = body.toBytesRef();
+        try (JsonParser parser = IndexingConfig.objectMapper.getFactory()
+            .createParser(bytes.bytes, bytes.offset, bytes.length);
+             JsonGenerator generator = IndexingConfig.objectMapper.getFactory()
+                 .createGenerator(new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                                  JsonEncoding.UTF8)) {
+            generator.setPrettyPrinter(null);
+            parser.nextToken();
+            copyCanonical(parser, generator, FINGERPRINT_FIELD);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void writeTopLevel(JsonNode body, JsonGenerator generator) throws IOException {
+        if (body.isObject()) {
+            writeObject(body, generator, FINGERPRINT_FIELD);
+        } else {
+            writeCanonical(body, generator);
+        }
+    }
+
+    private static void writeCanonical(JsonNode node, JsonGenerator generator) throws IOException {
+        if (node.isObject()) {
+            writeObject(node, generator, null);
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node) {
+                writeCanonical(element, generator);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+
+    private static void writeObject(JsonNode node, JsonGenerator generator, String excludedField)
+        throws IOException {
+        List<String> fieldNames = new ArrayList<>(node.size());
+        for (Iterator<String> names = node.fieldNames(); names.hasNext(); ) {
+            fieldNames.add(names.next());
+        }
+        Collections.sort(fieldNames);
+        generator.writeStartObject();
+        for (String fieldName : fieldNames) {
+            if (!fieldName.equals(excludedField)) {
+                generator.writeFieldName(fieldName);
+                writeCanonical(node.get(fieldName), generator);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    // Numbers are written as the tree writes them, by the type they were parsed into, so that both give the same hash.
+    private static void copyCanonical(JsonParser parser, JsonGenerator generator, String excludedField)
+        throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            copyObject(parser, generator, excludedField);
+        } else if (token == JsonToken.START_ARRAY) {
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                copyCanonical(parser, generator, null);
+            }
+            generator.writeEndArray();
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            generator.writeNumber(parser.getDoubleValue());
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    // A repeated field keeps its last value, as it does in a tree.
+    private static void copyObject(JsonParser parser, JsonGenerator generator, String excludedField)
+        throws IOException {
+        SortedMap<String, String> fields = new TreeMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (fieldName.equals(excludedField)) {
+                parser.skipChildren();
+            } else {
+                fields.put(fieldName, canonicalValue(parser));
+            }
+        }
+        generator.writeStartObject();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            generator.writeFieldName(field.getKey());
+            generator.writeRawValue(field.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static String canonicalValue(JsonParser parser) throws IOException {
+        StringWriter value = new StringWriter();
+        try (JsonGenerator generator = IndexingConfig.objectMapper.getFactory().createGenerator(value)) {
+            generator.setPrettyPrinter(null);
+            copyCanonical(parser, generator, null);
+        }
+        return value.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
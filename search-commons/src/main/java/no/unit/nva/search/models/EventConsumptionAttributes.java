@@ -1,5 +1,7 @@
 package no.unit.nva.search.models;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Objects;
 import no.unit.nva.identifiers.SortableIdentifier;
@@ -9,16 +11,35 @@ public class EventConsumptionAttributes {
 
     public static final String INDEX_FIELD = "index";
     public static final String DOCUMENT_IDENTIFIER = "documentIdentifier";
+    public static final String VERSION = "version";
 
     @JsonProperty(INDEX_FIELD)
     private final String index;
     @JsonProperty(DOCUMENT_IDENTIFIER)
     private final SortableIdentifier documentIdentifier;
+    @JsonProperty(VERSION)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long version;
 
+    public EventConsumptionAttributes(String index, SortableIdentifier documentIdentifier) {
+        this(index, documentIdentifier, null);
+    }
+
+    /**
+     * Creates consumption attributes with an explicit document version.
+     *
+     * @param index              the index of the document
+     * @param documentIdentifier the identifier of the document
+     * @param version            a number that increases with every change of the document, or null when the
+     *                           producer does not keep one
+     */
+    @JsonCreator
     public EventConsumptionAttributes(@JsonProperty(INDEX_FIELD) String index,
-                                      @JsonProperty(DOCUMENT_IDENTIFIER) SortableIdentifier documentIdentifier) {
+                                      @JsonProperty(DOCUMENT_IDENTIFIER) SortableIdentifier documentIdentifier,
+                                      @JsonProperty(VERSION) Long version) {
         this.index = index;
         this.documentIdentifier = documentIdentifier;
+        this.version = version;
     }
 
     public String getIndex() {
@@ -29,6 +50,10 @@ public class EventConsumptionAttributes {
         return documentIdentifier;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     @JacocoGenerated
     @Override
     public boolean equals(Object o) {
@@ -39,13 +64,14 @@ public class EventConsumptionAttributes {
             return false;
         }
         EventConsumptionAttributes that = (EventConsumptionAttributes) o;
-        return Objects.equals(getIndex(), that.getIndex()) && Objects.equals(getDocumentIdentifier(),
-                                                                             that.getDocumentIdentifier());
+        return Objects.equals(getIndex(), that.getIndex())
+               && Objects.equals(getDocumentIdentifier(), that.getDocumentIdentifier())
+               && Objects.equals(getVersion(), that.getVersion());
     }
 
     @JacocoGenerated
     @Override
     public int hashCode() {
-        return Objects.hash(getIndex(), getDocumentIdentifier());
+        return Objects.hash(getIndex(), getDocumentIdentifier(), getVersion());
     }
 }
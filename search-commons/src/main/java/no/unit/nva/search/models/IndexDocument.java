@@ -1,19 +1,34 @@
 package no.unit.nva.search.models;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static nva.commons.core.attempt.Try.attempt;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import no.unit.nva.commons.json.JsonSerializable;
 import no.unit.nva.identifiers.SortableIdentifier;
 import no.unit.nva.search.IndexingConfig;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.StringUtils;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
 
 public class IndexDocument implements JsonSerializable {
 
@@ -21,16 +36,56 @@ public class IndexDocument implements JsonSerializable {
     public static final String CONSUMPTION_ATTRIBUTES = "consumptionAttributes";
     public static final String MISSING_IDENTIFIER_IN_RESOURCE = "Missing identifier in resource";
     public static final String MISSING_INDEX_NAME_IN_RESOURCE = "Missing index name in resource";
+    public static final String NOT_AN_OBJECT = "Expected an IndexDocument object but found:";
+    public static final String MODIFIED_DATE = "modifiedDate";
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE = ' ';
     @JsonProperty(CONSUMPTION_ATTRIBUTES)
     private final EventConsumptionAttributes consumptionAttributes;
-    @JsonProperty(BODY)
+    @JsonIgnore
     private final JsonNode resource;
+    @JsonIgnore
+    private final BytesReference rawBody;
 
     @JsonCreator
     public IndexDocument(@JsonProperty(CONSUMPTION_ATTRIBUTES) EventConsumptionAttributes consumptionAttributes,
                          @JsonProperty(BODY) JsonNode resource) {
+        this(consumptionAttributes, resource, null);
+    }
+
+    private IndexDocument(EventConsumptionAttributes consumptionAttributes, JsonNode resource,
+                          BytesReference rawBody) {
         this.consumptionAttributes = consumptionAttributes;
         this.resource = resource;
+        this.rawBody = rawBody;
+    }
+
+    /**
+     * Creates a document whose body is kept as serialized JSON. The bytes are sent to the index as they are, so they
+     * must hold a single JSON value without line breaks.
+     *
+     * @param consumptionAttributes the index and identifier of the document
+     * @param rawBody               the serialized body
+     * @return a document backed by the raw body
+     */
+    public static IndexDocument fromRawBody(EventConsumptionAttributes consumptionAttributes,
+                                            BytesReference rawBody) {
+        return new IndexDocument(consumptionAttributes, null, rawBody);
+    }
+
+    /**
+     * Returns the same document addressed to another index, for instance to a new generation of an index that is
+     * being built while the current generation serves searches.
+     *
+     * @param indexName the index the document is written to
+     * @return the document with the given index
+     */
+    public IndexDocument inIndex(String indexName) {
+        EventConsumptionAttributes attributes =
+            new EventConsumptionAttributes(indexName, consumptionAttributes.getDocumentIdentifier(),
+                                           consumptionAttributes.getVersion());
+        return new IndexDocument(attributes, resource, rawBody);
     }
 
     public IndexDocument validate() {
@@ -40,7 +95,19 @@ public class IndexDocument implements JsonSerializable {
     }
 
     public static IndexDocument fromJsonString(String json) {
-        return attempt(() -> IndexingConfig.objectMapper.readValue(json, IndexDocument.class)).orElseThrow();
+        return fromJsonBytes(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes an IndexDocument envelope without building a tree of the body. The consumption attributes are
+     * deserialized, while the body is kept as a slice of the input, so the input array must not be modified
+     * afterwards.
+     *
+     * @param json the UTF-8 encoded envelope
+     * @return the decoded document
+     */
+    public static IndexDocument fromJsonBytes(byte[] json) {
+        return attempt(() -> decodeEnvelope(json)).orElseThrow();
     }
 
     @JacocoGenerated
@@ -49,8 +116,9 @@ public class IndexDocument implements JsonSerializable {
     }
 
     @JacocoGenerated
+    @JsonProperty(BODY)
     public JsonNode getResource() {
-        return resource;
+        return nonNull(rawBody) ? parseRawBody() : resource;
     }
 
     @JsonIgnore
@@ -67,12 +135,112 @@ public class IndexDocument implements JsonSerializable {
             .orElseThrow(() -> new RuntimeException(MISSING_IDENTIFIER_IN_RESOURCE));
     }
 
+    /**
+     * Reads the top-level modifiedDate of the body. A raw body is scanned with a streaming parser, without building
+     * a tree.
+     *
+     * @return the modification time of the resource, or empty when the body has no valid modifiedDate
+     */
+    @JsonIgnore
+    public Optional<Instant> getModifiedDate() {
+        String modifiedDate = nonNull(rawBody)
+                                  ? readTopLevelText(rawBody, MODIFIED_DATE).orElse(null)
+                                  : readModifiedDateFromTree();
+        return parseInstant(modifiedDate);
+    }
+
+    /**
+     * Returns a copy of the document whose body has a {@value ContentFingerprint#FINGERPRINT_FIELD} field as its
+     * first field, holding the {@link ContentFingerprint} of the body. A raw body stays raw: the field is spliced
+     * into the serialized body, and its fingerprint is computed with a streaming parser, without building a tree.
+     * Bodies that are not JSON objects are returned unchanged.
+     *
+     * @return the fingerprinted document
+     */
+    public IndexDocument withFingerprint() {
+        if (nonNull(rawBody) && attempt(() -> isNonEmptyObjectWithoutFingerprint(rawBody)).orElseThrow()) {
+            String fingerprint = attempt(() -> ContentFingerprint.of(rawBody)).orElseThrow();
+            return fromRawBody(consumptionAttributes, prependFingerprint(fingerprint));
+        }
+        JsonNode body = getResource();
+        if (isNull(body) || !body.isObject()) {
+            return this;
+        }
+        String fingerprint = attempt(() -> ContentFingerprint.of(body)).orElseThrow();
+        ObjectNode fingerprinted = IndexingConfig.objectMapper.createObjectNode();
+        fingerprinted.put(ContentFingerprint.FINGERPRINT_FIELD, fingerprint);
+        body.fields().forEachRemaining(field -> fingerprinted.putIfAbsent(field.getKey(), field.getValue()));
+        return new IndexDocument(consumptionAttributes, fingerprinted);
+    }
+
+    /**
+     * Reads a top-level text field of a serialized JSON object with a streaming parser, stopping at the field.
+     *
+     * @param json      the serialized object
+     * @param fieldName the name of the field
+     * @return the text value of the field, or empty when the field is missing or not a string
+     */
+    public static Optional<String> readTopLevelText(BytesReference json, String fieldName) {
+        return Optional.ofNullable(attempt(() -> scanForTopLevelText(json, fieldName, false)).orElseThrow());
+    }
+
+    /**
+     * Reads a top-level text field of the body, or the first element of the field when it is an array, such as the
+     * first of the organizationIds of a ticket. A raw body is scanned with a streaming parser, without building a
+     * tree.
+     *
+     * @param fieldName the name of the field
+     * @return the text value, or empty when the field is missing or its (first) value is not a string
+     */
+    public Optional<String> readFirstTopLevelText(String fieldName) {
+        if (nonNull(rawBody)) {
+            return Optional.ofNullable(attempt(() -> scanForTopLevelText(rawBody, fieldName, true)).orElseThrow());
+        }
+        JsonNode field = nonNull(resource) ? resource.path(fieldName) : null;
+        JsonNode value = nonNull(field) && field.isArray() ? field.path(0) : field;
+        return Optional.ofNullable(value).map(JsonNode::textValue);
+    }
+
+    /**
+     * Returns the size of the serialized body. A document that was built from a tree is serialized to be measured.
+     *
+     * @return the size of the body in bytes
+     */
+    @JsonIgnore
+    public long getBodySizeInBytes() {
+        return serializedResource().length();
+    }
+
     public IndexRequest toIndexRequest() {
         return new IndexRequest(getIndexName())
-            .source(serializeResource(), XContentType.JSON)
+            .source(serializedResource(), XContentType.JSON)
             .id(getDocumentIdentifier());
     }
 
+    /**
+     * Creates an index request with an external version, so that the index rejects the write with a version
+     * conflict when it already holds a newer version of the document. A write of an equal version is applied, so
+     * that a document that is indexed again with new content but the same modifiedDate, for instance after a fix of
+     * the expansion or of the mapping, replaces the stored one. The version is the version of the consumption
+     * attributes when present, and otherwise the modifiedDate of the body in microseconds since the epoch. Documents
+     * with neither are written without a version.
+     *
+     * @return the index request
+     */
+    public IndexRequest toExternallyVersionedIndexRequest() {
+        IndexRequest request = toIndexRequest();
+        getExternalVersion().ifPresent(version -> request.versionType(VersionType.EXTERNAL_GTE).version(version));
+        return request;
+    }
+
+    @JsonIgnore
+    public Optional<Long> getExternalVersion() {
+        if (nonNull(consumptionAttributes.getVersion())) {
+            return Optional.of(consumptionAttributes.getVersion());
+        }
+        return getModifiedDate().map(IndexDocument::toEpochMicros);
+    }
+
     @JacocoGenerated
     @Override
     public boolean equals(Object o) {
@@ -93,7 +261,141 @@ public class IndexDocument implements JsonSerializable {
         return Objects.hash(getConsumptionAttributes(), getResource());
     }
 
-    private String serializeResource() {
-        return attempt(() -> IndexingConfig.objectMapper.writeValueAsString(resource)).orElseThrow();
+    private static IndexDocument decodeEnvelope(byte[] json) throws IOException {
+        try (JsonParser parser = IndexingConfig.objectMapper.getFactory().createParser(json)) {
+            JsonToken firstToken = parser.nextToken();
+            if (firstToken != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException(NOT_AN_OBJECT + firstToken);
+            }
+            EventConsumptionAttributes consumptionAttributes = null;
+            BytesReference body = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (CONSUMPTION_ATTRIBUTES.equals(fieldName)) {
+                    consumptionAttributes = IndexingConfig.objectMapper.readValue(parser,
+                                                                                  EventConsumptionAttributes.class);
+                } else if (BODY.equals(fieldName) && valueToken != JsonToken.VALUE_NULL) {
+                    body = sliceCurrentValue(parser, json);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new IndexDocument(consumptionAttributes, null, body);
+        }
+    }
+
+    private static BytesReference sliceCurrentValue(JsonParser parser, byte[] json) throws IOException {
+        int start = (int) parser.getTokenLocation().getByteOffset();
+        parser.skipChildren();
+        int end = (int) parser.getCurrentLocation().getByteOffset();
+        return singleLine(json, start, end);
+    }
+
+    // JSON strings cannot contain raw line breaks, so any line break in the slice is whitespace between tokens.
+    // Bulk requests are newline delimited, so these are replaced with spaces, copying only when necessary.
+    private static BytesReference singleLine(byte[] json, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (json[i] == LINE_FEED || json[i] == CARRIAGE_RETURN) {
+                return new BytesArray(replaceLineBreaks(Arrays.copyOfRange(json, start, end)));
+            }
+        }
+        return new BytesArray(json, start, end - start);
+    }
+
+    private static byte[] replaceLineBreaks(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == LINE_FEED || bytes[i] == CARRIAGE_RETURN) {
+                bytes[i] = SPACE;
+            }
+        }
+        return bytes;
+    }
+
+    private static long toEpochMicros(Instant instant) {
+        return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(instant.getNano());
+    }
+
+    private static Optional<Instant> parseInstant(String value) {
+        if (StringUtils.isBlank(value)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Instant.parse(value));
+        } catch (DateTimeParseException exception) {
+            return Optional.empty();
+        }
+    }
+
+    private String readModifiedDateFromTree() {
+        return nonNull(resource) ? resource.path(MODIFIED_DATE).textValue() : null;
+    }
+
+    private static String scanForTopLevelText(BytesReference json, String fieldName, boolean firstArrayElement)
+        throws IOException {
+        BytesRef bytes = json.toBytesRef();
+        try (JsonParser parser = IndexingConfig.objectMapper.getFactory()
+            .createParser(bytes.bytes, bytes.offset, bytes.length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String currentField = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (fieldName.equals(currentField)) {
+                    if (firstArrayElement && valueToken == JsonToken.START_ARRAY) {
+                        valueToken = parser.nextToken();
+                    }
+                    return valueToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    private static boolean isNonEmptyObjectWithoutFingerprint(BytesReference json) throws IOException {
+        BytesRef bytes = json.toBytesRef();
+        try (JsonParser parser = IndexingConfig.objectMapper.getFactory()
+            .createParser(bytes.bytes, bytes.offset, bytes.length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            boolean hasFields = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (ContentFingerprint.FINGERPRINT_FIELD.equals(parser.getCurrentName())) {
+                    return false;
+                }
+                hasFields = true;
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            return hasFields;
+        }
+    }
+
+    // The raw body of a non-empty object starts with '{', so the field can be inserted right after it.
+    private BytesReference prependFingerprint(String fingerprint) {
+        byte[] field = ("{\"" + ContentFingerprint.FINGERPRINT_FIELD + "\":\"" + fingerprint + "\",")
+            .getBytes(StandardCharsets.UTF_8);
+        BytesRef body = rawBody.toBytesRef();
+        byte[] fingerprinted = new byte[field.length + body.length - 1];
+        System.arraycopy(field, 0, fingerprinted, 0, field.length);
+        System.arraycopy(body.bytes, body.offset + 1, fingerprinted, field.length, body.length - 1);
+        return new BytesArray(fingerprinted);
+    }
+
+    private JsonNode parseRawBody() {
+        return attempt(() -> IndexingConfig.objectMapper.readTree(BytesReference.toBytes(rawBody))).orElseThrow();
+    }
+
+    private BytesReference serializedResource() {
+        return nonNull(rawBody) ? rawBody : serializeResource();
+    }
+
+    private BytesReference serializeResource() {
+        return attempt(() -> IndexingConfig.objectMapper.writeValueAsBytes(resource))
+            .map(BytesArray::new)
+            .orElseThrow();
     }
 }
@@ -46,7 +46,8 @@ public class SearchDocumentsQuery {
                 .query(QueryBuilders.queryStringQuery(searchTerm))
                         .sort(SortBuilders.fieldSort(orderBy).unmappedType(STRING).order(sortOrder))
                         .from(from)
-                        .size(results);
+                        .size(results)
+                        .fetchSource(null, ContentFingerprint.FINGERPRINT_FIELD);
     }
 
     public SearchRequest toSearchRequest(String index) {
@@ -17,7 +17,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.bulk.BulkIndexingConfig;
 import no.unit.nva.search.models.EventConsumptionAttributes;
 import no.unit.nva.search.models.IndexDocument;
 import no.unit.nva.search.models.SearchResourcesResponse;
@@ -25,7 +28,9 @@ import no.unit.nva.search.restclients.responses.ViewingScope;
 import no.unit.nva.testutils.RandomDataGenerator;
 import nva.commons.apigateway.exceptions.BadGatewayException;
 import org.apache.http.HttpHost;
+import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.junit.jupiter.api.BeforeEach;
@@ -57,13 +62,14 @@ public class ElasticsearchTest {
     public ElasticsearchContainer container = new ElasticsearchContainer(DockerImageName
                                                                              .parse(ELASTICSEARCH_OSS)
                                                                              .withTag(ELASTICSEARCH_VERSION));
+    private RestHighLevelClientWrapper restHighLevelClientWrapper;
     private SearchClient searchClient;
     private IndexingClient indexingClient;
 
     @BeforeEach
     void setUp() {
         RestClientBuilder restClientBuilder = RestClient.builder(HttpHost.create(container.getHttpHostAddress()));
-        RestHighLevelClientWrapper restHighLevelClientWrapper = new RestHighLevelClientWrapper(restClientBuilder);
+        restHighLevelClientWrapper = new RestHighLevelClientWrapper(restClientBuilder);
 
         searchClient = new SearchClient(restHighLevelClientWrapper);
         indexingClient = new IndexingClient(restHighLevelClientWrapper);
@@ -209,6 +215,33 @@ public class ElasticsearchTest {
     
     }
 
+    @Test
+    void shouldApplyBatchRewriteOfEqualExternalVersionAndDropOlderVersion() throws Exception {
+        var versionedClient = new IndexingClient(restHighLevelClientWrapper,
+                                                 BulkIndexingConfig.builder().withExternalVersioning(true).build());
+        var identifier = SortableIdentifier.next();
+        var version = 42L;
+
+        versionedClient.batchInsert(Stream.of(versionedDocument(identifier, version, "UNREAD")))
+            .collect(Collectors.toList());
+        versionedClient.batchInsert(Stream.of(versionedDocument(identifier, version, "READ")))
+            .collect(Collectors.toList());
+        versionedClient.batchInsert(Stream.of(versionedDocument(identifier, version - 1, "STALE")))
+            .collect(Collectors.toList());
+
+        var stored = restHighLevelClientWrapper.getClient()
+            .get(new GetRequest(INDEX_NAME, identifier.toString()), RequestOptions.DEFAULT);
+        assertThat(stored.getSourceAsMap().get(STATUS), is(equalTo("READ")));
+        assertThat(stored.getVersion(), is(equalTo(version)));
+        assertThat(versionedClient.getStatistics().getStaleWrites(), is(equalTo(1L)));
+    }
+
+    private IndexDocument versionedDocument(SortableIdentifier identifier, long version, String status) {
+        var consumptionAttributes = new EventConsumptionAttributes(INDEX_NAME, identifier, version);
+        Map<String, Object> map = Map.of(DOCUMENT_TYPE, DOI_REQUEST, STATUS, status);
+        return new IndexDocument(consumptionAttributes, objectMapperWithEmpty.convertValue(map, JsonNode.class));
+    }
+
     private ViewingScope getEmptyViewingScope() {
         return new ViewingScope();
     }
@@ -0,0 +1,95 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.notNullValue;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.AWSRequestSigningApacheInterceptor;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.jupiter.api.Test;
+
+class GzipRequestInterceptorTest {
+
+    public static final String HOST = "https://search.example.org";
+    public static final String SERVICE_NAME = "es";
+    public static final String REGION = "eu-west-1";
+
+    @Test
+    void shouldCompressRequestBodyWithGzip() throws IOException {
+        var body = randomJson();
+        var request = postRequest(body);
+
+        new GzipRequestInterceptor().process(request, targetHostContext());
+
+        assertThat(request.getEntity().getContentEncoding().getValue(), is(equalTo(GzipRequestInterceptor.GZIP)));
+        assertThat(decompress(request), is(equalTo(body)));
+    }
+
+    @Test
+    void shouldSignCompressedBodyWhenSigningInterceptorRunsAfterCompression() throws IOException {
+        var body = randomJson();
+        var request = postRequest(body);
+        var context = targetHostContext();
+
+        new GzipRequestInterceptor().process(request, context);
+        signingInterceptor().process(request, context);
+
+        assertThat(request.getFirstHeader(HttpHeaders.AUTHORIZATION), is(notNullValue()));
+        assertThat(request.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue(),
+                   is(equalTo(GzipRequestInterceptor.GZIP)));
+        assertThat(decompress(request), is(equalTo(body)));
+    }
+
+    @Test
+    void shouldAddAcceptEncodingHeaderToRequestOptions() {
+        var options = GzipRequestInterceptor.acceptCompressedResponse(RequestOptions.DEFAULT);
+        var acceptEncoding = options.getHeaders().stream()
+            .filter(header -> HttpHeaders.ACCEPT_ENCODING.equals(header.getName()))
+            .findFirst()
+            .orElseThrow();
+        assertThat(acceptEncoding.getValue(), is(equalTo(GzipRequestInterceptor.GZIP)));
+    }
+
+    private static HttpEntityEnclosingRequest postRequest(String body) {
+        var request = new BasicHttpEntityEnclosingRequest("POST", "/_bulk");
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return request;
+    }
+
+    private static HttpContext targetHostContext() {
+        var context = new BasicHttpContext();
+        context.setAttribute(HttpCoreContext.HTTP_TARGET_HOST, HttpHost.create(HOST));
+        return context;
+    }
+
+    private static AWSRequestSigningApacheInterceptor signingInterceptor() {
+        var signer = new AWS4Signer();
+        signer.setServiceName(SERVICE_NAME);
+        signer.setRegionName(REGION);
+        var credentials = new AWSStaticCredentialsProvider(new BasicAWSCredentials(randomString(), randomString()));
+        return new AWSRequestSigningApacheInterceptor(SERVICE_NAME, signer, credentials);
+    }
+
+    private static String decompress(HttpEntityEnclosingRequest request) throws IOException {
+        try (var gzip = new GZIPInputStream(request.getEntity().getContent())) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
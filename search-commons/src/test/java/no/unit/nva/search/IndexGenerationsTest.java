@@ -0,0 +1,131 @@
+package no.unit.nva.search;
+
+import static no.unit.nva.search.constants.ApplicationConstants.RESOURCES_INDEX;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import no.unit.nva.search.bulk.BulkLoadSession;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class IndexGenerationsTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2022-10-17T09:30:00Z");
+    private static final String OLDEST = RESOURCES_INDEX + "-20220101000000";
+    private static final String OLDER = RESOURCES_INDEX + "-20220601000000";
+    private static final String SERVING = RESOURCES_INDEX + "-20221001000000";
+    private static final String LOADING = RESOURCES_INDEX + "-20221017093000";
+    private IndicesClientWrapper indices;
+    private IndexGenerations generations;
+
+    @BeforeEach
+    void init() {
+        indices = mock(IndicesClientWrapper.class);
+        generations = new IndexGenerations(indices);
+    }
+
+    @Test
+    void shouldNameGenerationAfterAliasAndTimeOfCreation() {
+        var generation = IndexGenerations.generationName(RESOURCES_INDEX, CREATED_AT);
+
+        assertThat(generation, is(equalTo(LOADING)));
+        assertThat(IndexGenerations.aliasOf(generation), is(equalTo(RESOURCES_INDEX)));
+        assertThat(IndexGenerations.createdAt(generation), is(equalTo(CREATED_AT)));
+    }
+
+    @Test
+    void shouldCreateGenerationWithBulkLoadSettings() throws IOException {
+        var request = ArgumentCaptor.forClass(CreateIndexRequest.class);
+
+        generations.create(RESOURCES_INDEX, CREATED_AT);
+
+        verify(indices).create(request.capture(), any(RequestOptions.class));
+        assertThat(request.getValue().index(), is(equalTo(LOADING)));
+        assertThat(request.getValue().settings(), is(equalTo(BulkLoadSession.bulkLoadSettings())));
+    }
+
+    @Test
+    void shouldMoveAliasFromServingGenerationToPromotedGenerationInOneCall() throws IOException {
+        givenIndices(Map.of(SERVING, List.of(RESOURCES_INDEX), LOADING, List.of()));
+
+        generations.promote(LOADING, Settings.EMPTY);
+
+        var actions = swapActions();
+        assertThat(actions, is(equalTo(List.of(AliasActions.Type.REMOVE + ":" + SERVING,
+                                               AliasActions.Type.ADD + ":" + LOADING))));
+    }
+
+    @Test
+    void shouldReplaceIndexNamedAfterAliasInTheSameCall() throws IOException {
+        givenIndices(Map.of(RESOURCES_INDEX, List.of(), LOADING, List.of()));
+
+        generations.promote(LOADING, Settings.EMPTY);
+
+        var actions = swapActions();
+        assertThat(actions, is(equalTo(List.of(AliasActions.Type.REMOVE_INDEX + ":" + RESOURCES_INDEX,
+                                               AliasActions.Type.ADD + ":" + LOADING))));
+    }
+
+    @Test
+    void shouldDeleteOnlyGenerationsOlderThanTheRetainedOnes() throws IOException {
+        givenIndices(Map.of(OLDEST, List.of(), OLDER, List.of(), SERVING, List.of(RESOURCES_INDEX),
+                            LOADING, List.of()));
+        var request = ArgumentCaptor.forClass(DeleteIndexRequest.class);
+
+        var deleted = generations.cleanUp(RESOURCES_INDEX, 2);
+
+        assertThat(deleted, is(equalTo(List.of(OLDEST))));
+        verify(indices).delete(request.capture(), any(RequestOptions.class));
+        assertThat(List.of(request.getValue().indices()), is(equalTo(List.of(OLDEST))));
+    }
+
+    @Test
+    void shouldNotDeleteAnythingWhileNoGenerationServesTheAlias() throws IOException {
+        givenIndices(Map.of(OLDEST, List.of(), LOADING, List.of()));
+
+        var deleted = generations.cleanUp(RESOURCES_INDEX, 1);
+
+        assertThat(deleted.isEmpty(), is(true));
+        verify(indices, never()).delete(any(DeleteIndexRequest.class), any(RequestOptions.class));
+    }
+
+    private void givenIndices(Map<String, List<String>> aliasesByIndex) throws IOException {
+        var response = mock(GetIndexResponse.class);
+        when(response.getIndices()).thenReturn(aliasesByIndex.keySet().toArray(String[]::new));
+        Map<String, List<AliasMetadata>> aliases = aliasesByIndex.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey,
+                                      entry -> entry.getValue().stream()
+                                          .map(alias -> AliasMetadata.builder(alias).build())
+                                          .collect(Collectors.toList())));
+        when(response.getAliases()).thenReturn(aliases);
+        when(indices.get(any(GetIndexRequest.class), any(RequestOptions.class))).thenReturn(response);
+    }
+
+    private List<String> swapActions() throws IOException {
+        var request = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indices).updateAliases(request.capture(), any(RequestOptions.class));
+        return request.getValue().getAliasActions().stream()
+            .map(action -> action.actionType() + ":" + action.indices()[0])
+            .collect(Collectors.toList());
+    }
+}
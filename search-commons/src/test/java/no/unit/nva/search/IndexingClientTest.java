@@ -3,6 +3,9 @@ package no.unit.nva.search;
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static no.unit.nva.search.IndexingClient.BULK_SIZE;
 import static no.unit.nva.search.IndexingConfig.objectMapper;
+import static no.unit.nva.search.constants.ApplicationConstants.DOIREQUESTS_INDEX;
+import static no.unit.nva.search.constants.ApplicationConstants.MESSAGES_INDEX;
+import static no.unit.nva.search.constants.ApplicationConstants.RESOURCES_INDEX;
 import static no.unit.nva.testutils.RandomDataGenerator.randomJson;
 import static no.unit.nva.testutils.RandomDataGenerator.randomString;
 import static nva.commons.core.attempt.Try.attempt;
@@ -23,31 +26,75 @@ import static org.mockito.Mockito.when;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.bulk.BulkFailureClass;
+import no.unit.nva.search.bulk.BulkIndexingConfig;
+import no.unit.nva.search.bulk.BulkLoadSession;
+import no.unit.nva.search.bulk.BulkThrottle;
+import no.unit.nva.search.bulk.IndexingLane;
+import no.unit.nva.search.models.ContentFingerprint;
 import no.unit.nva.search.models.EventConsumptionAttributes;
 import no.unit.nva.search.models.IndexDocument;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteRequest.OpType;
 import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.client.IndicesClient;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.shard.ShardId;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
 
 class IndexingClientTest {
 
     public static final int SET_OF_RESOURCES_THAT_DO_NOT_FIT_EXACTLY_IN_THE_BULK_SIZE_OF_A_BULK_REQUEST = 1256;
     public static final IndexResponse UNUSED_INDEX_RESPONSE = null;
+    public static final int MAX_RESPONSE_DELAY_MILLIS = 5;
+    public static final long RETRY_DEADLINE_MILLIS = 10_000;
+    public static final long SHORT_RETRY_DEADLINE_MILLIS = 20;
+    public static final long MAX_RETRY_BACKOFF_MILLIS = 5;
+    public static final String UNKNOWN_INDEX_UUID = "_na_";
+    public static final Exception NO_FAILURE = null;
+    private static final Random RANDOM_DELAY = new Random();
     private RestHighLevelClientWrapper esClient;
     private IndexingClient indexingClient;
     private AtomicReference<IndexRequest> submittedIndexRequest;
@@ -81,6 +128,333 @@ class IndexingClientTest {
             .bulk(any(BulkRequest.class), any(RequestOptions.class));
     }
 
+    @Test
+    void shouldCloseBulksAtByteBudgetAndReportBulkSizes() throws IOException {
+        var indexDocuments = IntStream.range(0, 10)
+            .boxed()
+            .map(i -> randomJson())
+            .map(this::toIndexDocument)
+            .collect(Collectors.toList());
+        var largestDocument = indexDocuments.stream()
+            .map(IndexDocument::toIndexRequest)
+            .mapToLong(request -> request.source().length())
+            .max()
+            .orElseThrow();
+        var bulkConfig = BulkIndexingConfig.builder().withMaxBytesPerBulk(largestDocument).build();
+        indexingClient = new IndexingClient(esClient, bulkConfig);
+
+        indexingClient.batchInsert(indexDocuments.stream()).collect(Collectors.toList());
+
+        var statistics = indexingClient.getStatistics();
+        assertThat(statistics.getDocuments(), is(equalTo((long) indexDocuments.size())));
+        assertThat(statistics.getLargestBulkInBytes() <= largestDocument, is(true));
+        verify(esClient, times((int) statistics.getBulks())).bulk(any(BulkRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void shouldPaceBulksWithSharedThrottleAndReportTimeWaited() {
+        var indexDocuments = randomIndexDocuments(3 * BULK_SIZE);
+        var clock = new AtomicLong();
+        indexingClient = new IndexingClient(esClient, throttled(), clock::get, clock::addAndGet);
+
+        indexingClient.batchInsert(indexDocuments.stream()).collect(Collectors.toList());
+        indexingClient.batchInsert(indexDocuments.stream()).collect(Collectors.toList());
+
+        assertThat(indexingClient.getStatistics().getBulks(), is(equalTo(6L)));
+        assertThat(indexingClient.getStatistics().getThrottledMillis(), is(equalTo(5_000L)));
+    }
+
+    @Test
+    void shouldLetLiveWritesBypassThrottleAndRecordTheirLatencyInLiveLane() throws IOException {
+        var liveLatency = 50L;
+        var clock = new AtomicLong();
+        when(esClient.index(any(IndexRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> {
+                clock.addAndGet(liveLatency);
+                return UNUSED_INDEX_RESPONSE;
+            });
+        indexingClient = new IndexingClient(esClient, throttled(), clock::get, clock::addAndGet);
+
+        indexingClient.addDocumentToIndex(sampleIndexDocument());
+        indexingClient.batchInsert(randomIndexDocuments(3 * BULK_SIZE).stream(), RefreshPolicy.NONE,
+                                   IndexingLane.LIVE)
+            .collect(Collectors.toList());
+
+        var statistics = indexingClient.getStatistics();
+        assertThat(statistics.getThrottledMillis(), is(equalTo(0L)));
+        assertThat(statistics.latencyOf(IndexingLane.LIVE).getRequests(), is(equalTo(4L)));
+        assertThat(statistics.latencyOf(IndexingLane.LIVE).getMaxMillis(), is(equalTo(liveLatency)));
+        assertThat(statistics.latencyOf(IndexingLane.BATCH).getRequests(), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldHoldBatchBulksBackWhileLiveWritesAreSlowerThanTarget() throws IOException {
+        var clock = new AtomicLong();
+        when(esClient.index(any(IndexRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> {
+                clock.addAndGet(2 * BulkIndexingConfig.DEFAULT_LIVE_LATENCY_TARGET_MILLIS);
+                return UNUSED_INDEX_RESPONSE;
+            });
+        indexingClient = new IndexingClient(esClient, BulkIndexingConfig.defaultConfig(), clock::get,
+                                            clock::addAndGet);
+
+        indexingClient.addDocumentToIndex(sampleIndexDocument());
+        indexingClient.batchInsert(randomIndexDocuments(BULK_SIZE).stream()).collect(Collectors.toList());
+
+        var statistics = indexingClient.getStatistics();
+        assertThat(statistics.getThrottledMillis(), is(equalTo(BulkThrottle.LIVE_LATENCY_WINDOW_MILLIS)));
+        assertThat(statistics.latencyOf(IndexingLane.BATCH).getRequests(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldKeepAtMostTheConfiguredNumberOfBulksInFlightAndReturnResponsesInSubmissionOrder() {
+        var maxConcurrentBulks = 3;
+        var bulkConfig = BulkIndexingConfig.builder().withMaxConcurrentBulks(maxConcurrentBulks).build();
+        var inFlight = new AtomicInteger();
+        var maxObservedInFlight = new AtomicInteger();
+        var submissions = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(maxConcurrentBulks * 2);
+        when(esClient.bulkAsync(any(BulkRequest.class), any(RequestOptions.class), any()))
+            .thenAnswer(invocation -> {
+                ActionListener<BulkResponse> listener = invocation.getArgument(2);
+                var submissionNumber = submissions.getAndIncrement();
+                maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                executor.submit(() -> {
+                    attempt(() -> {
+                        Thread.sleep(RANDOM_DELAY.nextInt(MAX_RESPONSE_DELAY_MILLIS));
+                        return null;
+                    });
+                    inFlight.decrementAndGet();
+                    listener.onResponse(new BulkResponse(new BulkItemResponse[0], submissionNumber));
+                });
+                return null;
+            });
+        indexingClient = new IndexingClient(esClient, bulkConfig);
+
+        var indexDocuments =
+            IntStream.range(0, SET_OF_RESOURCES_THAT_DO_NOT_FIT_EXACTLY_IN_THE_BULK_SIZE_OF_A_BULK_REQUEST)
+                .boxed()
+                .map(i -> randomJson())
+                .map(this::toIndexDocument);
+        var responseOrder = indexingClient.batchInsert(indexDocuments)
+            .map(response -> response.getTook().millis())
+            .collect(Collectors.toList());
+        executor.shutdown();
+
+        var expectedOrder = LongStream.range(0, submissions.get()).boxed().collect(Collectors.toList());
+        assertThat(responseOrder, is(equalTo(expectedOrder)));
+        assertThat(maxObservedInFlight.get() <= maxConcurrentBulks, is(true));
+    }
+
+    @Test
+    void shouldSubmitBulksWithTheRequestedRefreshPolicy() throws IOException {
+        var submittedRequests = new ArrayList<BulkRequest>();
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            submittedRequests.add(invocation.getArgument(0));
+            return successfulResponse(invocation.getArgument(0));
+        });
+        var indexDocuments = IntStream.range(0, 3).boxed().map(i -> randomJson()).map(this::toIndexDocument);
+
+        indexingClient.batchInsert(indexDocuments, RefreshPolicy.NONE).collect(Collectors.toList());
+
+        assertThat(submittedRequests.get(0).getRefreshPolicy(), is(equalTo(RefreshPolicy.NONE)));
+    }
+
+    @Test
+    void shouldCreateIndexGenerationsThroughTheIndicesOfTheCluster() throws IOException {
+        var indicesClientWrapper = mock(IndicesClientWrapper.class);
+        when(esClient.indices()).thenReturn(indicesClientWrapper);
+
+        indexingClient.indexGenerations().create(RESOURCES_INDEX, Instant.now());
+
+        verify(indicesClientWrapper).create(any(CreateIndexRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void shouldSuspendRefreshAndReplicasDuringBulkLoadAndRestoreThemWhenTheLoadFails() throws IOException {
+        var indexName = randomString();
+        var originalRefreshInterval = "30s";
+        var originalReplicas = "2";
+        var indicesClient = mock(IndicesClient.class);
+        var settingsResponse = mock(GetSettingsResponse.class);
+        when(settingsResponse.getSetting(indexName, BulkLoadSession.REFRESH_INTERVAL))
+            .thenReturn(originalRefreshInterval);
+        when(settingsResponse.getSetting(indexName, BulkLoadSession.NUMBER_OF_REPLICAS)).thenReturn(originalReplicas);
+        when(indicesClient.getSettings(any(GetSettingsRequest.class), any(RequestOptions.class)))
+            .thenReturn(settingsResponse);
+        var appliedSettings = new ArrayList<Settings>();
+        when(indicesClient.putSettings(any(UpdateSettingsRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> {
+                appliedSettings.add(((UpdateSettingsRequest) invocation.getArgument(0)).settings());
+                return null;
+            });
+        when(esClient.indices()).thenReturn(new IndicesClientWrapper(indicesClient));
+
+        Executable failingLoad = () -> {
+            try (var ignored = indexingClient.startBulkLoad(indexName)) {
+                throw new IOException(randomString());
+            }
+        };
+        assertThrows(IOException.class, failingLoad);
+
+        assertThat(appliedSettings.get(0).get(BulkLoadSession.REFRESH_INTERVAL),
+                   is(equalTo(BulkLoadSession.DISABLED_REFRESH_INTERVAL)));
+        assertThat(appliedSettings.get(0).get(BulkLoadSession.NUMBER_OF_REPLICAS), is(equalTo("0")));
+        assertThat(appliedSettings.get(1).get(BulkLoadSession.REFRESH_INTERVAL), is(equalTo(originalRefreshInterval)));
+        assertThat(appliedSettings.get(1).get(BulkLoadSession.NUMBER_OF_REPLICAS), is(equalTo(originalReplicas)));
+    }
+
+    @Test
+    void shouldResubmitOnlyRejectedItemsAndKeepPermanentFailures() throws IOException {
+        var submittedRequests = new ArrayList<BulkRequest>();
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            submittedRequests.add(request);
+            return submittedRequests.size() == 1
+                       ? responseWithFailures(request, NO_FAILURE, new EsRejectedExecutionException(randomString()),
+                                              new MapperParsingException(randomString()))
+                       : successfulResponse(request);
+        });
+        indexingClient = new IndexingClient(esClient, fastRetries(RETRY_DEADLINE_MILLIS));
+        var indexDocuments = IntStream.range(0, 3).boxed().map(i -> randomJson()).map(this::toIndexDocument);
+
+        var response = indexingClient.batchInsert(indexDocuments).collect(Collectors.toList()).get(0);
+
+        var rejectedId = submittedRequests.get(0).requests().get(1).id();
+        assertThat(submittedRequests.size(), is(equalTo(2)));
+        assertThat(submittedRequests.get(1).requests().size(), is(equalTo(1)));
+        assertThat(submittedRequests.get(1).requests().get(0).id(), is(equalTo(rejectedId)));
+        assertThat(response.getItems()[1].isFailed(), is(false));
+        assertThat(BulkFailureClass.classify(response.getItems()[2].getFailure()),
+                   is(equalTo(BulkFailureClass.MAPPING)));
+        assertThat(indexingClient.getStatistics().getRetriedDocuments(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldStopRetryingRejectedItemsWhenRetryDeadlineHasPassed() throws IOException {
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> responseWithFailures(invocation.getArgument(0),
+                                                           new EsRejectedExecutionException(randomString())));
+        indexingClient = new IndexingClient(esClient, fastRetries(SHORT_RETRY_DEADLINE_MILLIS));
+        var indexDocuments = Stream.of(randomJson()).map(this::toIndexDocument);
+
+        var response = indexingClient.batchInsert(indexDocuments).collect(Collectors.toList()).get(0);
+
+        assertThat(BulkFailureClass.classify(response.getItems()[0].getFailure()),
+                   is(equalTo(BulkFailureClass.REJECTED)));
+        assertThat(indexingClient.getStatistics().getRetries() > 0, is(true));
+    }
+
+    @Test
+    void shouldSkipDocumentsWhoseStoredFingerprintMatchesWithOneMultiGetPerBulk() throws IOException {
+        var unchanged = toIndexDocument(randomJson());
+        var changed = toIndexDocument(randomJson());
+        var missing = toIndexDocument(randomJson());
+        var storedFingerprints = new String[]{ContentFingerprint.of(unchanged.getResource()), randomString(), null};
+        when(esClient.mget(any(MultiGetRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> multiGetResponse(storedFingerprints));
+        var submittedRequests = new ArrayList<BulkRequest>();
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            submittedRequests.add(invocation.getArgument(0));
+            return successfulResponse(invocation.getArgument(0));
+        });
+        indexingClient = new IndexingClient(esClient, BulkIndexingConfig.builder().withSkipUnchanged(true).build());
+
+        indexingClient.batchInsert(Stream.of(unchanged, changed, missing)).collect(Collectors.toList());
+
+        var submittedIds = submittedRequests.get(0).requests().stream()
+            .map(DocWriteRequest::id)
+            .collect(Collectors.toList());
+        assertThat(submittedIds, is(equalTo(List.of(changed.getDocumentIdentifier(),
+                                                    missing.getDocumentIdentifier()))));
+        assertThat(indexingClient.getStatistics().getUnchangedDocuments(), is(equalTo(1L)));
+        verify(esClient, times(1)).mget(any(MultiGetRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void shouldDropAndCountStaleWriteOfSingleDocumentWithExternalVersioning() throws IOException {
+        var document = sampleIndexDocument();
+        when(esClient.index(any(IndexRequest.class), any(RequestOptions.class)))
+            .thenThrow(new VersionConflictEngineException(new ShardId(document.getIndexName(), UNKNOWN_INDEX_UUID, 0),
+                                                          document.getDocumentIdentifier(), randomString()));
+        indexingClient = new IndexingClient(esClient, externalVersioning());
+
+        assertDoesNotThrow(() -> indexingClient.addDocumentToIndex(document));
+        assertThat(indexingClient.getStatistics().getStaleWrites(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldSendDeleteWithExternalVersionOfDeletionWithExternalVersioning() throws IOException {
+        var deleted = mock(DeleteResponse.class);
+        when(deleted.getResult()).thenReturn(DocWriteResponse.Result.DELETED);
+        when(esClient.delete(any(DeleteRequest.class), any(RequestOptions.class))).thenReturn(deleted);
+        indexingClient = new IndexingClient(esClient, externalVersioning());
+        var version = 42L;
+
+        indexingClient.removeDocumentFromIndex("1234", version);
+
+        var request = ArgumentCaptor.forClass(DeleteRequest.class);
+        verify(esClient).delete(request.capture(), any(RequestOptions.class));
+        assertThat(request.getValue().versionType(), is(equalTo(VersionType.EXTERNAL_GTE)));
+        assertThat(request.getValue().version(), is(equalTo(version)));
+    }
+
+    @Test
+    void shouldDropAndCountStaleDeleteWithExternalVersioning() throws IOException {
+        when(esClient.delete(any(DeleteRequest.class), any(RequestOptions.class)))
+            .thenThrow(new VersionConflictEngineException(new ShardId(randomString(), UNKNOWN_INDEX_UUID, 0),
+                                                          "1234", randomString()));
+        indexingClient = new IndexingClient(esClient, externalVersioning());
+
+        assertDoesNotThrow(() -> indexingClient.removeDocumentFromIndex("1234", 42L));
+        assertThat(indexingClient.getStatistics().getStaleWrites(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldCountVersionConflictsOfBulkItemsAsStaleWrites() throws IOException {
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            var item = request.requests().get(0);
+            return responseWithFailures(request, new VersionConflictEngineException(
+                new ShardId(item.index(), UNKNOWN_INDEX_UUID, 0), item.id(), randomString()));
+        });
+        indexingClient = new IndexingClient(esClient, externalVersioning());
+        var documents = IntStream.range(0, 2).boxed().map(i -> randomJson()).map(this::toIndexDocument);
+
+        indexingClient.batchInsert(documents).collect(Collectors.toList());
+
+        assertThat(indexingClient.getStatistics().getStaleWrites(), is(equalTo(1L)));
+        assertThat(indexingClient.getStatistics().getRetries(), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldRouteTicketDocumentsByInstitutionOfTheirFirstOrganization() throws IOException {
+        var submittedRequests = new ArrayList<BulkRequest>();
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            submittedRequests.add(invocation.getArgument(0));
+            return successfulResponse(invocation.getArgument(0));
+        });
+        indexingClient = new IndexingClient(esClient, BulkIndexingConfig.builder()
+            .withInstitutionRouting(true)
+            .build());
+        var body = "{\"type\":\"DoiRequest\",\"organizationIds\":"
+                   + "[\"https://api.cristin.no/v2/units/194.63.10.0\",\"https://api.cristin.no/v2/units/194.0.0.0\"]}";
+        var rawTicket = IndexDocument.fromJsonString(
+            "{\"consumptionAttributes\":{\"index\":\"" + DOIREQUESTS_INDEX + "\",\"documentIdentifier\":\""
+            + SortableIdentifier.next() + "\"},\"body\":" + body + "}");
+        var treeTicket = new IndexDocument(new EventConsumptionAttributes(MESSAGES_INDEX, SortableIdentifier.next()),
+                                           objectMapper.readTree(body));
+        var resource = new IndexDocument(new EventConsumptionAttributes(RESOURCES_INDEX, SortableIdentifier.next()),
+                                         objectMapper.readTree(body));
+
+        indexingClient.batchInsert(Stream.of(rawTicket, treeTicket, resource)).collect(Collectors.toList());
+
+        var routings = submittedRequests.get(0).requests().stream()
+            .map(DocWriteRequest::routing)
+            .collect(Collectors.toList());
+        assertThat(routings, is(equalTo(Arrays.asList("194", "194", null))));
+    }
+
     @Test
     void shouldSendIndexRequestWithIndexNameSpecifiedByIndexDocument() throws IOException {
         var indexDocument = sampleIndexDocument();
@@ -138,6 +512,57 @@ class IndexingClientTest {
         assertDoesNotThrow(() -> indexingClient.removeDocumentFromIndex("1234"));
     }
 
+    private static BulkIndexingConfig throttled() {
+        return BulkIndexingConfig.builder()
+            .withMaxDocumentsPerSecond(BULK_SIZE)
+            .withThrottleSampling(0, 0)
+            .build();
+    }
+
+    private static BulkIndexingConfig externalVersioning() {
+        return BulkIndexingConfig.builder().withExternalVersioning(true).build();
+    }
+
+    private static BulkIndexingConfig fastRetries(long retryDeadlineMillis) {
+        return BulkIndexingConfig.builder()
+            .withRetryDeadlineMillis(retryDeadlineMillis)
+            .withRetryBackoffMillis(1, MAX_RETRY_BACKOFF_MILLIS)
+            .build();
+    }
+
+    private static MultiGetResponse multiGetResponse(String... storedFingerprints) {
+        var items = new MultiGetItemResponse[storedFingerprints.length];
+        for (int i = 0; i < storedFingerprints.length; i++) {
+            var getResponse = mock(GetResponse.class);
+            when(getResponse.isExists()).thenReturn(storedFingerprints[i] != null);
+            when(getResponse.getSourceAsMap())
+                .thenReturn(Map.of(ContentFingerprint.FINGERPRINT_FIELD, String.valueOf(storedFingerprints[i])));
+            items[i] = new MultiGetItemResponse(getResponse, null);
+        }
+        return new MultiGetResponse(items);
+    }
+
+    private static BulkResponse successfulResponse(BulkRequest request) {
+        return responseWithFailures(request);
+    }
+
+    private static BulkResponse responseWithFailures(BulkRequest request, Exception... failures) {
+        var items = new BulkItemResponse[request.numberOfActions()];
+        for (int position = 0; position < items.length; position++) {
+            var itemRequest = request.requests().get(position);
+            if (position < failures.length && failures[position] != null) {
+                var failure = new Failure(itemRequest.index(), itemRequest.type(), itemRequest.id(),
+                                          failures[position]);
+                items[position] = new BulkItemResponse(position, OpType.INDEX, failure);
+            } else {
+                var itemResponse = new IndexResponse(new ShardId(itemRequest.index(), UNKNOWN_INDEX_UUID, 0),
+                                                     itemRequest.type(), itemRequest.id(), 0, 1, 1, true);
+                items[position] = new BulkItemResponse(position, OpType.INDEX, itemResponse);
+            }
+        }
+        return new BulkResponse(items, 1);
+    }
+
     @NotNull
     private IndicesClientWrapper createMockIndicesClientWrapper() {
         IndicesClient indicesClient = mock(IndicesClient.class);
@@ -152,9 +577,19 @@ class IndexingClientTest {
                 submittedIndexRequest.set(indexRequest);
                 return UNUSED_INDEX_RESPONSE;
             });
+        when(esClient.bulk(any(BulkRequest.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> successfulResponse(invocation.getArgument(0)));
         return esClient;
     }
 
+    private List<IndexDocument> randomIndexDocuments(int numberOfDocuments) {
+        return IntStream.range(0, numberOfDocuments)
+            .boxed()
+            .map(i -> randomJson())
+            .map(this::toIndexDocument)
+            .collect(Collectors.toList());
+    }
+
     private IndexDocument sampleIndexDocument() {
         EventConsumptionAttributes consumptionAttributes =
             new EventConsumptionAttributes(randomString(), SortableIdentifier.next());
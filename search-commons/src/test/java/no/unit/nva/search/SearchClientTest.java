@@ -5,7 +5,9 @@ import static no.unit.nva.search.SearchClient.DOI_REQUEST;
 import static no.unit.nva.search.SearchClient.DRAFT;
 import static no.unit.nva.search.SearchClient.PUBLICATION_CONVERSATION;
 import static no.unit.nva.search.SearchClientConfig.defaultSearchClient;
+import static no.unit.nva.search.constants.ApplicationConstants.DOIREQUESTS_INDEX;
 import static no.unit.nva.search.constants.ApplicationConstants.ELASTICSEARCH_ENDPOINT_INDEX;
+import static no.unit.nva.search.constants.ApplicationConstants.MESSAGES_INDEX;
 import static no.unit.nva.testutils.RandomDataGenerator.randomInteger;
 import static no.unit.nva.testutils.RandomDataGenerator.randomUri;
 import static nva.commons.core.ioutils.IoUtils.inputStreamFromResources;
@@ -13,6 +15,7 @@ import static nva.commons.core.ioutils.IoUtils.streamToString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -27,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import no.unit.nva.search.models.ContentFingerprint;
 import no.unit.nva.search.models.SearchDocumentsQuery;
 import no.unit.nva.search.models.SearchResourcesResponse;
 import no.unit.nva.search.restclients.responses.ViewingScope;
@@ -205,6 +209,48 @@ class SearchClientTest {
         assertThat(actualResultsFrom, is(equalTo(resultsFrom)));
     }
     
+    @Test
+    void shouldRouteTicketQueryToShardsOfInstitutionsInViewingScopeWhenRoutingIsEnabled()
+        throws ApiGatewayException {
+        AtomicReference<SearchRequest> sentRequestBuffer = new AtomicReference<>();
+        var searchClient = new SearchClient(recordingClient(sentRequestBuffer), true);
+        var viewingScope = ViewingScope.create(URI.create("https://api.cristin.no/v2/units/194.63.10.0"),
+                                               URI.create("https://api.cristin.no/v2/units/194.64.0.0"),
+                                               URI.create("https://api.cristin.no/v2/units/20754.0.0.0"));
+        
+        searchClient.findResourcesForOrganizationIds(viewingScope, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_NO,
+                                                     DOIREQUESTS_INDEX, MESSAGES_INDEX);
+        
+        assertThat(sentRequestBuffer.get().routing(), is(equalTo("194,20754")));
+    }
+    
+    @Test
+    void shouldNotRouteQueryWhenAnyQueriedIndexIsNotATicketIndex() throws ApiGatewayException {
+        AtomicReference<SearchRequest> sentRequestBuffer = new AtomicReference<>();
+        var searchClient = new SearchClient(recordingClient(sentRequestBuffer), true);
+        
+        searchClient.findResourcesForOrganizationIds(generateSampleViewingScope(), DEFAULT_PAGE_SIZE,
+                                                     DEFAULT_PAGE_NO, DOIREQUESTS_INDEX,
+                                                     ELASTICSEARCH_ENDPOINT_INDEX);
+        
+        assertThat(sentRequestBuffer.get().routing(), is(nullValue()));
+    }
+    
+    @Test
+    void shouldLeaveContentFingerprintOutOfTheReturnedSources() throws ApiGatewayException {
+        AtomicReference<SearchRequest> sentRequestBuffer = new AtomicReference<>();
+        var searchClient = new SearchClient(recordingClient(sentRequestBuffer), false);
+        
+        searchClient.findResourcesForOrganizationIds(generateSampleViewingScope(), DEFAULT_PAGE_SIZE,
+                                                     DEFAULT_PAGE_NO, ELASTICSEARCH_ENDPOINT_INDEX);
+        
+        var excludes = sentRequestBuffer.get().source().fetchSource().excludes();
+        assertThat(List.of(excludes), is(equalTo(List.of(ContentFingerprint.FINGERPRINT_FIELD))));
+        var queryExcludes = generateSampleQuery().toSearchRequest(ELASTICSEARCH_ENDPOINT_INDEX)
+            .source().fetchSource().excludes();
+        assertThat(List.of(queryExcludes), is(equalTo(List.of(ContentFingerprint.FINGERPRINT_FIELD))));
+    }
+    
     @Test
     void searchSingleTermReturnsResponseWithStatsFromElastic() throws ApiGatewayException, IOException {
         RestHighLevelClientWrapper restHighLevelClient = mock(RestHighLevelClientWrapper.class);
@@ -236,6 +282,16 @@ class SearchClientTest {
             () -> searchClient.searchSingleTerm(generateSampleQuery(), ELASTICSEARCH_ENDPOINT_INDEX));
     }
     
+    private static RestHighLevelClientWrapper recordingClient(AtomicReference<SearchRequest> sentRequestBuffer) {
+        return new RestHighLevelClientWrapper((RestHighLevelClient) null) {
+            @Override
+            public SearchResponse search(SearchRequest searchRequest, RequestOptions requestOptions) {
+                sentRequestBuffer.set(searchRequest);
+                return mock(SearchResponse.class);
+            }
+        };
+    }
+    
     @NotNull
     private List<MatchQueryBuilder> listAllInclusionAndExclusionRulesForDoiRequests(SearchRequest sentRequest) {
         return listAllDisjunctiveRulesForMatchingDocuments(sentRequest)
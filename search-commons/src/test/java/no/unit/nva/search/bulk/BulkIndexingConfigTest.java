@@ -0,0 +1,33 @@
+package no.unit.nva.search.bulk;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class BulkIndexingConfigTest {
+
+    @Test
+    void shouldRejectNonPositiveSettingNamingItsVariable() {
+        var zero = assertThrows(IllegalArgumentException.class,
+                                () -> BulkIndexingConfig.requirePositive(
+                                    BulkIndexingConfig.MAX_DOCUMENTS_PER_BULK_ENV, 0));
+        var negative = assertThrows(IllegalArgumentException.class,
+                                    () -> BulkIndexingConfig.requirePositive(
+                                        BulkIndexingConfig.MAX_CONCURRENT_BULKS_ENV, -1));
+
+        assertThat(zero.getMessage(), containsString(BulkIndexingConfig.MAX_DOCUMENTS_PER_BULK_ENV));
+        assertThat(negative.getMessage(), containsString(BulkIndexingConfig.MAX_CONCURRENT_BULKS_ENV));
+    }
+
+    @Test
+    void shouldFallBackToDefaultsWhenVariablesAreUnset() {
+        var config = BulkIndexingConfig.fromEnvironment();
+
+        assertThat(config.getMaxDocumentsPerBulk(), is(equalTo(BulkIndexingConfig.DEFAULT_MAX_DOCUMENTS_PER_BULK)));
+        assertThat(config.getMaxBytesPerBulk(), is(equalTo(BulkIndexingConfig.DEFAULT_MAX_BYTES_PER_BULK)));
+        assertThat(config.getMaxConcurrentBulks(), is(equalTo(BulkIndexingConfig.DEFAULT_MAX_CONCURRENT_BULKS)));
+    }
+}
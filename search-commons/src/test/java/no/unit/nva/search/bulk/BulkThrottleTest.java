@@ -0,0 +1,233 @@
+package no.unit.nva.search.bulk;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkThrottleTest {
+
+    private static final long NO_SAMPLING = 0;
+    private static final long SAMPLE_INTERVAL_MILLIS = 1_000;
+    private static final long QUEUE_THRESHOLD = 100;
+    private static final double TOLERANCE = 1e-9;
+    private static final long PROBE_INTERVAL_MILLIS = 1_000;
+
+    private AtomicLong clock;
+    private WriteThreadPoolMonitor monitor;
+    private ClusterLatencyProbe probe;
+    private LaneLatency liveLatency;
+
+    @BeforeEach
+    void init() {
+        clock = new AtomicLong();
+        monitor = mock(WriteThreadPoolMonitor.class);
+        probe = mock(ClusterLatencyProbe.class);
+        liveLatency = new LaneLatency();
+    }
+
+    @Test
+    void shouldNeverWaitNorSampleWhenRatesAreUnlimited() throws IOException {
+        var throttle = throttle(BulkIndexingConfig.defaultConfig());
+
+        var waited = IntStream.range(0, 10).mapToLong(i -> throttle.acquire(bulk(1_000, 1_000_000))).sum();
+
+        assertThat(waited, is(equalTo(0L)));
+        verify(monitor, never()).sample();
+    }
+
+    @Test
+    void shouldPaceBulksToConfiguredDocumentRate() {
+        var throttle = throttle(config().withMaxDocumentsPerSecond(100).build());
+
+        var waited = IntStream.range(0, 5).mapToLong(i -> throttle.acquire(bulk(100, 1))).sum();
+
+        assertThat(waited, is(equalTo(4_000L)));
+        assertThat(clock.get(), is(equalTo(4_000L)));
+    }
+
+    @Test
+    void shouldPaceBulksToShareOfConfiguredRateWhenRatesAreSharedAmongClients() {
+        var throttle = throttle(config().withMaxDocumentsPerSecond(400).build());
+        throttle.shareRatesAmong(4);
+
+        var waited = IntStream.range(0, 5).mapToLong(i -> throttle.acquire(bulk(100, 1))).sum();
+
+        assertThat(waited, is(equalTo(4_000L)));
+    }
+
+    @Test
+    void shouldKeepRateLimitedWhenItIsSharedAmongMoreClientsThanItHasDocuments() {
+        var throttle = throttle(config().withMaxDocumentsPerSecond(2).build());
+        throttle.shareRatesAmong(4);
+
+        throttle.acquire(bulk(1, 1));
+        var waited = throttle.acquire(bulk(1, 1));
+
+        assertThat(waited, is(equalTo(1_000L)));
+    }
+
+    @Test
+    void shouldLetBulkLargerThanBucketPassWhenBucketIsFullAndMakeNextBulkWaitForTheExcess() {
+        var throttle = throttle(config().withMaxBytesPerSecond(1_000).build());
+
+        var firstWait = throttle.acquire(bulk(1, 2_000));
+        var secondWait = throttle.acquire(bulk(1, 2_000));
+
+        assertThat(firstWait, is(equalTo(0L)));
+        assertThat(secondWait, is(equalTo(2_000L)));
+    }
+
+    @Test
+    void shouldHalveRateAfterWriteRejectionsAndRecoverGraduallyWhenPoolsAreIdle() throws IOException {
+        when(monitor.sample()).thenReturn(new WriteThreadPoolMonitor.Load(0, 5),
+                                          new WriteThreadPoolMonitor.Load(0, 0));
+        var throttle = throttle(config().withMaxDocumentsPerSecond(1_000)
+                                    .withThrottleSampling(SAMPLE_INTERVAL_MILLIS, QUEUE_THRESHOLD)
+                                    .build());
+
+        throttle.acquire(bulk(1, 1));
+        assertThat(throttle.getRateFactor(), is(equalTo(BulkThrottle.REJECTION_BACKOFF)));
+
+        clock.addAndGet(SAMPLE_INTERVAL_MILLIS);
+        throttle.acquire(bulk(1, 1));
+        var expectedFactor = BulkThrottle.REJECTION_BACKOFF + BulkThrottle.RECOVERY_STEP;
+        assertThat(Math.abs(throttle.getRateFactor() - expectedFactor) < TOLERANCE, is(true));
+    }
+
+    @Test
+    void shouldLowerRateWhileWriteQueueIsLongerThanThreshold() throws IOException {
+        when(monitor.sample()).thenReturn(new WriteThreadPoolMonitor.Load(QUEUE_THRESHOLD + 1, 0));
+        var throttle = throttle(config().withMaxDocumentsPerSecond(100)
+                                    .withThrottleSampling(SAMPLE_INTERVAL_MILLIS, QUEUE_THRESHOLD)
+                                    .build());
+
+        throttle.acquire(bulk(100, 1));
+        var waited = throttle.acquire(bulk(100, 1));
+
+        assertThat(throttle.getRateFactor(), is(equalTo(BulkThrottle.QUEUE_BACKOFF * BulkThrottle.QUEUE_BACKOFF)));
+        assertThat(waited > 1_000L, is(true));
+    }
+
+    @Test
+    void shouldKeepRateWhenWriteThreadPoolsCannotBeSampled() throws IOException {
+        when(monitor.sample()).thenThrow(new IOException(randomString()));
+        var throttle = throttle(config().withMaxDocumentsPerSecond(100)
+                                    .withThrottleSampling(SAMPLE_INTERVAL_MILLIS, QUEUE_THRESHOLD)
+                                    .build());
+
+        throttle.acquire(bulk(1, 1));
+
+        assertThat(throttle.getRateFactor(), is(equalTo(BulkThrottle.MAX_RATE_FACTOR)));
+    }
+
+    @Test
+    void shouldNotHoldTheThrottleWhileSamplingWriteThreadPools() throws IOException {
+        var throttle = throttle(config().withMaxDocumentsPerSecond(100)
+                                    .withThrottleSampling(SAMPLE_INTERVAL_MILLIS, QUEUE_THRESHOLD)
+                                    .build());
+        var otherThreadGotThrough = new AtomicBoolean();
+        doAnswer(invocation -> {
+            CompletableFuture.supplyAsync(throttle::getRateFactor).get(1, TimeUnit.SECONDS);
+            otherThreadGotThrough.set(true);
+            return new WriteThreadPoolMonitor.Load(0, 0);
+        }).when(monitor).sample();
+
+        throttle.acquire(bulk(1, 1));
+
+        assertThat(otherThreadGotThrough.get(), is(true));
+    }
+
+    @Test
+    void shouldYieldToLiveWritesSlowerThanTargetUntilTheyAreNoLongerCurrent() {
+        liveLatency.record(2 * BulkIndexingConfig.DEFAULT_LIVE_LATENCY_TARGET_MILLIS, clock.get());
+        var throttle = throttle(BulkIndexingConfig.defaultConfig());
+
+        var waited = throttle.acquire(bulk(1, 1));
+
+        assertThat(waited, is(equalTo(BulkThrottle.LIVE_LATENCY_WINDOW_MILLIS)));
+    }
+
+    @Test
+    void shouldNotYieldToLiveWritesFasterThanTarget() {
+        liveLatency.record(BulkIndexingConfig.DEFAULT_LIVE_LATENCY_TARGET_MILLIS / 2, clock.get());
+        var throttle = throttle(BulkIndexingConfig.defaultConfig());
+
+        assertThat(throttle.acquire(bulk(1, 1)), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldStopYieldingAfterMaximumYieldWhenLiveWritesStaySlow() {
+        var slowLiveWrite = 2 * BulkIndexingConfig.DEFAULT_LIVE_LATENCY_TARGET_MILLIS;
+        liveLatency.record(slowLiveWrite, clock.get());
+        var throttle = new BulkThrottle(BulkIndexingConfig.defaultConfig(), monitor, probe, liveLatency, clock::get,
+                                        millis -> liveLatency.record(slowLiveWrite, clock.addAndGet(millis)));
+
+        var waited = throttle.acquire(bulk(1, 1));
+
+        assertThat(waited, is(equalTo(BulkThrottle.MAX_YIELD_MILLIS)));
+    }
+
+    @Test
+    void shouldYieldWhileProbesOfClusterAreSlowerThanLiveLatencyTarget() throws IOException {
+        doAnswer(invocation -> clock.addAndGet(600)).doAnswer(invocation -> clock.addAndGet(10))
+            .when(probe).send();
+        var throttle = throttle(config().withLiveLatencyTargetMillis(500)
+                                    .withLatencyProbeIntervalMillis(PROBE_INTERVAL_MILLIS)
+                                    .build());
+
+        var waited = throttle.acquire(bulk(1, 1));
+
+        assertThat(waited, is(equalTo(400L)));
+        verify(probe, times(2)).send();
+    }
+
+    @Test
+    void shouldNotYieldWhenClusterCannotBeProbed() throws IOException {
+        doThrow(new IOException(randomString())).when(probe).send();
+        var throttle = throttle(config().withLatencyProbeIntervalMillis(PROBE_INTERVAL_MILLIS).build());
+
+        assertThat(throttle.acquire(bulk(1, 1)), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldNotProbeClusterWhenNoProbeIntervalIsConfigured() throws IOException {
+        var throttle = throttle(BulkIndexingConfig.defaultConfig());
+
+        throttle.acquire(bulk(1, 1));
+
+        verify(probe, never()).send();
+    }
+
+    private static BulkIndexingConfig.Builder config() {
+        return BulkIndexingConfig.builder().withThrottleSampling(NO_SAMPLING, QUEUE_THRESHOLD);
+    }
+
+    private static Bulk bulk(int numberOfDocuments, long sizeInBytes) {
+        var requests = IntStream.range(0, numberOfDocuments)
+            .mapToObj(i -> new IndexRequest(randomString()).id(randomString()))
+            .collect(Collectors.toList());
+        return new Bulk(requests, sizeInBytes);
+    }
+
+    private BulkThrottle throttle(BulkIndexingConfig config) {
+        return new BulkThrottle(config, monitor, probe, liveLatency, clock::get, clock::addAndGet);
+    }
+}
@@ -0,0 +1,28 @@
+package no.unit.nva.search.bulk;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import java.io.IOException;
+import java.util.Map;
+import no.unit.nva.search.RestHighLevelClientWrapper;
+import org.elasticsearch.client.Request;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class ClusterLatencyProbeTest {
+
+    @Test
+    void shouldSearchIndexForNoHitsWithoutRequestCache() throws IOException {
+        var client = mock(RestHighLevelClientWrapper.class);
+        var request = ArgumentCaptor.forClass(Request.class);
+
+        new ClusterLatencyProbe(client, "resources").send();
+
+        verify(client).performRequest(request.capture());
+        assertThat(request.getValue().getEndpoint(), is(equalTo("/resources/_search")));
+        assertThat(request.getValue().getParameters(), is(equalTo(Map.of("size", "0", "request_cache", "false"))));
+    }
+}
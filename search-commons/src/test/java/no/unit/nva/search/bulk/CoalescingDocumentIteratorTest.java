@@ -0,0 +1,120 @@
+package no.unit.nva.search.bulk;
+
+import static no.unit.nva.search.IndexingConfig.objectMapper;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import no.unit.nva.identifiers.SortableIdentifier;
+import no.unit.nva.search.models.EventConsumptionAttributes;
+import no.unit.nva.search.models.IndexDocument;
+import org.junit.jupiter.api.Test;
+
+class CoalescingDocumentIteratorTest {
+
+    private static final int LARGE_WINDOW = 100;
+    private static final Instant EARLIER = Instant.parse("2022-04-08T06:32:46.204876Z");
+    private static final Instant LATER = Instant.parse("2022-04-08T06:38:46.517082Z");
+    private static final String INDEX = "resources";
+    private static final String VERSION = "version";
+
+    @Test
+    void shouldKeepVersionWithLatestModifiedDateRegardlessOfInputOrder() {
+        var identifier = SortableIdentifier.next();
+        var newest = rawDocument(INDEX, identifier, LATER);
+        var documents = List.of(newest, rawDocument(INDEX, identifier, EARLIER));
+        var statistics = new IndexingStatistics();
+
+        var coalesced = coalesce(documents, LARGE_WINDOW, statistics);
+
+        assertThat(coalesced, is(equalTo(List.of(newest))));
+        assertThat(statistics.getCoalescedDocuments(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldKeepLastVersionInInputOrderWhenModifiedDateIsMissing() {
+        var identifier = SortableIdentifier.next();
+        var last = treeDocument(INDEX, identifier);
+        var documents = List.of(treeDocument(INDEX, identifier), treeDocument(INDEX, identifier), last);
+
+        var coalesced = coalesce(documents, LARGE_WINDOW, new IndexingStatistics());
+
+        assertThat(coalesced, is(equalTo(List.of(last))));
+    }
+
+    @Test
+    void shouldKeepWritesOfSameIdentifierToDifferentIndices() {
+        var identifier = SortableIdentifier.next();
+        var documents = List.of(treeDocument(INDEX, identifier), treeDocument(randomString(), identifier));
+
+        var coalesced = coalesce(documents, LARGE_WINDOW, new IndexingStatistics());
+
+        assertThat(coalesced, is(equalTo(documents)));
+    }
+
+    @Test
+    void shouldOnlyCoalesceWritesWithinTheSameWindow() {
+        var identifier = SortableIdentifier.next();
+        var documents = List.of(treeDocument(INDEX, identifier),
+                                treeDocument(INDEX, SortableIdentifier.next()),
+                                treeDocument(INDEX, identifier));
+        var statistics = new IndexingStatistics();
+
+        var coalesced = coalesce(documents, 2, statistics);
+
+        assertThat(coalesced, is(equalTo(documents)));
+        assertThat(statistics.getCoalescedDocuments(), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldCloseWindowWhenBodiesOfItsDocumentsReachByteCeiling() {
+        var identifier = SortableIdentifier.next();
+        var first = rawDocument(INDEX, identifier, LATER);
+        var documents = List.of(first, rawDocument(INDEX, identifier, EARLIER));
+        var statistics = new IndexingStatistics();
+
+        var iterator = new CoalescingDocumentIterator(documents.iterator(), LARGE_WINDOW,
+                                                      first.getBodySizeInBytes(), statistics);
+        var coalesced = new ArrayList<IndexDocument>();
+        iterator.forEachRemaining(coalesced::add);
+
+        assertThat(coalesced, is(equalTo(documents)));
+        assertThat(statistics.getCoalescedDocuments(), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldThrowWhenThereAreNoMoreDocuments() {
+        var iterator = new CoalescingDocumentIterator(List.<IndexDocument>of().iterator(), LARGE_WINDOW,
+                                                      new IndexingStatistics());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    private static List<IndexDocument> coalesce(List<IndexDocument> documents, int windowSize,
+                                                IndexingStatistics statistics) {
+        var iterator = new CoalescingDocumentIterator(documents.iterator(), windowSize, statistics);
+        var coalesced = new ArrayList<IndexDocument>();
+        iterator.forEachRemaining(coalesced::add);
+        return coalesced;
+    }
+
+    private static IndexDocument rawDocument(String index, SortableIdentifier identifier, Instant modifiedDate) {
+        var envelope = objectMapper.createObjectNode();
+        envelope.set(IndexDocument.CONSUMPTION_ATTRIBUTES,
+                     objectMapper.valueToTree(new EventConsumptionAttributes(index, identifier)));
+        envelope.putObject(IndexDocument.BODY)
+            .put(VERSION, randomString())
+            .put(IndexDocument.MODIFIED_DATE, modifiedDate.toString());
+        return IndexDocument.fromJsonBytes(envelope.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static IndexDocument treeDocument(String index, SortableIdentifier identifier) {
+        var body = objectMapper.createObjectNode().put(VERSION, randomString());
+        return new IndexDocument(new EventConsumptionAttributes(index, identifier), body);
+    }
+}
@@ -0,0 +1,99 @@
+package no.unit.nva.search.bulk;
+
+import static no.unit.nva.search.IndexingConfig.objectMapper;
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.junit.jupiter.api.Test;
+
+class NdjsonBulkWriterTest {
+
+    private static final String SAMPLE_BULK_RESPONSE = "{\"took\":3,\"errors\":true,\"items\":["
+                                                       + "{\"index\":{\"_index\":\"resources\",\"_type\":\"_doc\","
+                                                       + "\"_id\":\"1\",\"_version\":1,\"result\":\"created\","
+                                                       + "\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},"
+                                                       + "\"_seq_no\":0,\"_primary_term\":1,\"status\":201}},"
+                                                       + "{\"index\":{\"_index\":\"resources\",\"_type\":\"_doc\","
+                                                       + "\"_id\":\"2\","
+                                                       + "\"status\":429,\"error\":{"
+                                                       + "\"type\":\"es_rejected_execution_exception\","
+                                                       + "\"reason\":\"rejected\"}}}]}";
+
+    @Test
+    void shouldWriteActionLineFollowedBySourceForEveryRequest() throws IOException {
+        var index = randomString();
+        var id = randomString();
+        var source = "{\"title\":\"" + randomString() + "\"}";
+        var bulk = new Bulk(List.of(new IndexRequest(index).id(id).source(source, XContentType.JSON)),
+                            source.length());
+
+        var lines = new String(NdjsonBulkWriter.writeBody(bulk), StandardCharsets.UTF_8).split("\n");
+
+        var actionLine = objectMapper.readTree(lines[0]);
+        assertThat(actionLine.at("/index/_index").textValue(), is(equalTo(index)));
+        assertThat(actionLine.at("/index/_id").textValue(), is(equalTo(id)));
+        assertThat(lines[1], is(equalTo(source)));
+        assertThat(lines.length, is(equalTo(2)));
+    }
+
+    @Test
+    void shouldWriteExternalVersionInActionLineWhenRequestIsVersioned() throws IOException {
+        var source = "{\"title\":\"" + randomString() + "\"}";
+        var version = 1_649_399_926_517_082L;
+        var request = new IndexRequest(randomString()).id(randomString()).source(source, XContentType.JSON)
+            .versionType(VersionType.EXTERNAL_GTE)
+            .version(version);
+
+        var lines = new String(NdjsonBulkWriter.writeBody(new Bulk(List.of(request), source.length())),
+                               StandardCharsets.UTF_8).split("\n");
+
+        var actionLine = objectMapper.readTree(lines[0]);
+        assertThat(actionLine.at("/index/version").longValue(), is(equalTo(version)));
+        assertThat(actionLine.at("/index/version_type").textValue(), is(equalTo("external_gte")));
+    }
+
+    @Test
+    void shouldWriteRoutingInActionLineWhenRequestIsRouted() throws IOException {
+        var source = "{\"title\":\"" + randomString() + "\"}";
+        var routing = randomString();
+        var request = new IndexRequest(randomString()).id(randomString()).source(source, XContentType.JSON)
+            .routing(routing);
+
+        var lines = new String(NdjsonBulkWriter.writeBody(new Bulk(List.of(request), source.length())),
+                               StandardCharsets.UTF_8).split("\n");
+
+        assertThat(objectMapper.readTree(lines[0]).at("/index/routing").textValue(), is(equalTo(routing)));
+    }
+
+    @Test
+    void shouldSetRefreshPolicyAsRequestParameter() throws IOException {
+        var bulk = new Bulk(List.of(), 0);
+        var request = NdjsonBulkWriter.toRequest(bulk, RefreshPolicy.NONE);
+        assertThat(request.getParameters().get(NdjsonBulkWriter.REFRESH_PARAMETER),
+                   is(equalTo(RefreshPolicy.NONE.getValue())));
+    }
+
+    @Test
+    void shouldParseItemFailuresOfBulkResponse() throws IOException {
+        var response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new StringEntity(SAMPLE_BULK_RESPONSE, StandardCharsets.UTF_8));
+
+        var bulkResponse = NdjsonBulkWriter.parseResponse(response);
+
+        assertThat(bulkResponse.hasFailures(), is(true));
+        assertThat(bulkResponse.getItems()[1].getFailure().getId(), is(equalTo("2")));
+        assertThat(bulkResponse.getItems()[1].getFailure().getStatus().getStatus(), is(equalTo(429)));
+    }
+}
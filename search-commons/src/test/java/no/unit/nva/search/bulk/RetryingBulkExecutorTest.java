@@ -0,0 +1,89 @@
+package no.unit.nva.search.bulk;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RetryingBulkExecutorTest {
+
+    private static final long RETRY_DEADLINE_MILLIS = 1_000;
+    private static final long SUBMISSION_MILLIS = 400;
+    private static final long MAX_BACKOFF_MILLIS = 5;
+
+    private AtomicLong clock;
+    private ScheduledExecutorService scheduler;
+    private List<String> submittingThreads;
+
+    @BeforeEach
+    void init() {
+        clock = new AtomicLong();
+        scheduler = RetryingBulkExecutor.newScheduler(1);
+        submittingThreads = new ArrayList<>();
+    }
+
+    @AfterEach
+    void shutDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void shouldStopRetryingWhenNextBackoffWouldEndAfterDeadlineOfInjectedClock() {
+        var executor = new RetryingBulkExecutor(this::rejectAfterSubmissionTime, config(), new IndexingStatistics(),
+                                                clock::get, scheduler);
+
+        var response = executor.execute(bulk()).join();
+
+        assertThat(submittingThreads.size(), is(equalTo(3)));
+        assertThat(response.getItems()[0].isFailed(), is(true));
+    }
+
+    @Test
+    void shouldSubmitRetriesFromThreadsOfTheScheduler() {
+        var executor = new RetryingBulkExecutor(this::rejectAfterSubmissionTime, config(), new IndexingStatistics(),
+                                                clock::get, scheduler);
+
+        executor.execute(bulk()).join();
+
+        assertThat(submittingThreads.get(1), startsWith("bulk-retry-"));
+        assertThat(submittingThreads.get(2), startsWith("bulk-retry-"));
+    }
+
+    private static BulkIndexingConfig config() {
+        return BulkIndexingConfig.builder()
+            .withRetryDeadlineMillis(RETRY_DEADLINE_MILLIS)
+            .withRetryBackoffMillis(1, MAX_BACKOFF_MILLIS)
+            .build();
+    }
+
+    private static Bulk bulk() {
+        var request = new IndexRequest(randomString()).id(randomString()).source("{}", XContentType.JSON);
+        return new Bulk(List.of(request), Bulk.sizeOf(request));
+    }
+
+    private CompletableFuture<BulkResponse> rejectAfterSubmissionTime(Bulk bulk) {
+        submittingThreads.add(Thread.currentThread().getName());
+        clock.addAndGet(SUBMISSION_MILLIS);
+        var request = bulk.getRequests().get(0);
+        var failure = new Failure(request.index(), request.type(), request.id(),
+                                  new EsRejectedExecutionException(randomString()));
+        var items = new BulkItemResponse[]{new BulkItemResponse(0, OpType.INDEX, failure)};
+        return CompletableFuture.completedFuture(new BulkResponse(items, 1));
+    }
+}
@@ -0,0 +1,77 @@
+package no.unit.nva.search.bulk;
+
+import static no.unit.nva.testutils.RandomDataGenerator.randomString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+
+class SizeBoundedBulkIteratorTest {
+
+    private static final int DOCUMENT_SIZE = 1000;
+    private static final int UNLIMITED_DOCUMENTS = Integer.MAX_VALUE;
+    private static final long UNLIMITED_BYTES = Long.MAX_VALUE;
+
+    @Test
+    void shouldCloseBulkWhenNextDocumentWouldExceedByteBudget() {
+        var requests = indexRequestsOfEqualSize(10);
+        var bulks = collectBulks(requests, UNLIMITED_DOCUMENTS, 3 * DOCUMENT_SIZE + DOCUMENT_SIZE / 2);
+
+        var documentsPerBulk = bulks.stream().map(Bulk::getNumberOfDocuments).collect(Collectors.toList());
+        assertThat(documentsPerBulk, is(equalTo(List.of(3, 3, 3, 1))));
+        assertThat(bulks.get(0).getSizeInBytes(), is(equalTo(3L * DOCUMENT_SIZE)));
+    }
+
+    @Test
+    void shouldCloseBulkWhenDocumentCountIsReachedBeforeByteBudget() {
+        var requests = indexRequestsOfEqualSize(5);
+        var bulks = collectBulks(requests, 2, UNLIMITED_BYTES);
+
+        var documentsPerBulk = bulks.stream().map(Bulk::getNumberOfDocuments).collect(Collectors.toList());
+        assertThat(documentsPerBulk, is(equalTo(List.of(2, 2, 1))));
+    }
+
+    @Test
+    void shouldSendDocumentLargerThanByteBudgetInBulkOfItsOwn() {
+        var requests = indexRequestsOfEqualSize(3);
+        var bulks = collectBulks(requests, UNLIMITED_DOCUMENTS, DOCUMENT_SIZE / 2);
+
+        var documentsPerBulk = bulks.stream().map(Bulk::getNumberOfDocuments).collect(Collectors.toList());
+        assertThat(documentsPerBulk, is(equalTo(List.of(1, 1, 1))));
+    }
+
+    @Test
+    void shouldThrowWhenThereAreNoMoreBulks() {
+        var iterator = new SizeBoundedBulkIterator(Collections.emptyIterator(), UNLIMITED_DOCUMENTS, UNLIMITED_BYTES);
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    private static List<Bulk> collectBulks(List<IndexRequest> requests, int maxDocuments, long maxBytes) {
+        var iterator = new SizeBoundedBulkIterator(requests.iterator(), maxDocuments, maxBytes);
+        List<Bulk> bulks = new ArrayList<>();
+        iterator.forEachRemaining(bulks::add);
+        return bulks;
+    }
+
+    private static List<IndexRequest> indexRequestsOfEqualSize(int numberOfRequests) {
+        return IntStream.range(0, numberOfRequests)
+            .mapToObj(i -> indexRequestOfSize(DOCUMENT_SIZE))
+            .collect(Collectors.toList());
+    }
+
+    private static IndexRequest indexRequestOfSize(int size) {
+        var prefix = "{\"f\":\"";
+        var suffix = "\"}";
+        var padding = "x".repeat(size - prefix.length() - suffix.length());
+        return new IndexRequest(randomString()).source(prefix + padding + suffix, XContentType.JSON);
+    }
+}
@@ -0,0 +1,46 @@
+package no.unit.nva.search.bulk;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import no.unit.nva.search.RestHighLevelClientWrapper;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.junit.jupiter.api.Test;
+
+class WriteThreadPoolMonitorTest {
+
+    @Test
+    void shouldReportLongestWriteQueueAndRejectionsSincePreviousSample() throws IOException {
+        var client = mock(RestHighLevelClientWrapper.class);
+        var firstSample = nodeStatsResponse(3, 10, 40, 2);
+        var secondSample = nodeStatsResponse(7, 15, 1, 2);
+        when(client.performRequest(any(Request.class))).thenReturn(firstSample, secondSample);
+        var monitor = new WriteThreadPoolMonitor(client);
+
+        var baseline = monitor.sample();
+        var load = monitor.sample();
+
+        assertThat(baseline.getLongestQueue(), is(equalTo(40L)));
+        assertThat(baseline.getRejections(), is(equalTo(0L)));
+        assertThat(load.getLongestQueue(), is(equalTo(7L)));
+        assertThat(load.getRejections(), is(equalTo(5L)));
+    }
+
+    private static Response nodeStatsResponse(long firstQueue, long firstRejected, long secondQueue,
+                                              long secondRejected) throws IOException {
+        var body = "{\"nodes\":{"
+                   + "\"node1\":{\"thread_pool\":{\"write\":{\"queue\":" + firstQueue
+                   + ",\"rejected\":" + firstRejected + "}}},"
+                   + "\"node2\":{\"thread_pool\":{\"write\":{\"queue\":" + secondQueue
+                   + ",\"rejected\":" + secondRejected + "}}}}}";
+        var response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new StringEntity(body));
+        return response;
+    }
+}
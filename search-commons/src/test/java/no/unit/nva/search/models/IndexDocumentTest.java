@@ -7,12 +7,17 @@ import static nva.commons.core.attempt.Try.attempt;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
 import java.util.stream.Stream;
 import no.unit.nva.identifiers.SortableIdentifier;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.index.VersionType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -43,6 +48,111 @@ class IndexDocumentTest {
         assertThat(deserialized, is(equalTo(indexDocument)));
     }
 
+    @Test
+    void shouldKeepBodyAsRawBytesWhenDecodingEnvelopeFromBytes() throws JsonProcessingException {
+        var indexDocument = new IndexDocument(randomConsumptionAttributes(), randomJsonObject());
+        var json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(indexDocument);
+
+        var decoded = IndexDocument.fromJsonBytes(json);
+        var source = decoded.toIndexRequest().source().utf8ToString();
+
+        assertThat(decoded, is(equalTo(indexDocument)));
+        assertThat(objectMapper.readTree(source), is(equalTo(indexDocument.getResource())));
+        assertThat(source, not(containsString("\n")));
+    }
+
+    @Test
+    void shouldIgnoreUnknownFieldsWhenDecodingEnvelopeFromBytes() {
+        var consumptionAttributes = randomConsumptionAttributes();
+        var envelope = objectMapper.createObjectNode();
+        envelope.put(randomString(), randomString());
+        envelope.set(IndexDocument.CONSUMPTION_ATTRIBUTES, objectMapper.valueToTree(consumptionAttributes));
+        envelope.set(IndexDocument.BODY, randomJsonObject());
+
+        var decoded = IndexDocument.fromJsonString(envelope.toString());
+
+        assertThat(decoded.getConsumptionAttributes(), is(equalTo(consumptionAttributes)));
+        assertThat(decoded.getResource(), is(equalTo(envelope.get(IndexDocument.BODY))));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenEnvelopeIsNotAnObject() {
+        var error = assertThrows(RuntimeException.class, () -> IndexDocument.fromJsonString("[]"));
+        assertThat(error.getMessage(), containsString(IndexDocument.NOT_AN_OBJECT));
+    }
+
+    @Test
+    void shouldGiveSameFingerprintToBodiesWithSameContentInDifferentFieldOrder() throws JsonProcessingException {
+        var first = "{\"a\":1,\"b\":{\"c\":[true,null],\"d\":\"text\"}}";
+        var second = "{\n  \"b\" : {\"d\":\"text\", \"c\":[true,null]},\n  \"a\" : 1\n}";
+        var changed = "{\"a\":2,\"b\":{\"c\":[true,null],\"d\":\"text\"}}";
+
+        var fingerprint = ContentFingerprint.of(objectMapper.readTree(first));
+
+        assertThat(ContentFingerprint.of(objectMapper.readTree(second)), is(equalTo(fingerprint)));
+        assertThat(ContentFingerprint.of(objectMapper.readTree(changed)), is(not(equalTo(fingerprint))));
+    }
+
+    @Test
+    void shouldAddFingerprintAsFirstFieldOfRawBodyWithoutChangingTheRestOfTheBody() throws IOException {
+        var body = randomJsonObject();
+        var envelope = objectMapper.createObjectNode();
+        envelope.set(IndexDocument.CONSUMPTION_ATTRIBUTES, objectMapper.valueToTree(randomConsumptionAttributes()));
+        envelope.set(IndexDocument.BODY, body);
+        var document = IndexDocument.fromJsonString(envelope.toString());
+
+        var fingerprinted = document.withFingerprint();
+        var source = fingerprinted.toIndexRequest().source();
+
+        var firstField = objectMapper.readTree(source.utf8ToString()).fieldNames().next();
+        assertThat(firstField, is(equalTo(ContentFingerprint.FINGERPRINT_FIELD)));
+        assertThat(IndexDocument.readTopLevelText(source, ContentFingerprint.FINGERPRINT_FIELD).orElseThrow(),
+                   is(equalTo(ContentFingerprint.of(body))));
+        assertThat(fingerprinted.withFingerprint().getResource(), is(equalTo(fingerprinted.getResource())));
+    }
+
+    @Test
+    void shouldGiveSerializedBodySameFingerprintAsItsTree() throws IOException {
+        var body = "{\"z\":[1.5,-2e3,12345678901234,{\"y\":\"\\u00e6\\n\\\"\",\"x\":null}],"
+                   + "\"contentFingerprint\":\"old\",\"a\":{\"b\":false,\"b\":true},\"c\":[]}";
+
+        var fingerprint = ContentFingerprint.of(new BytesArray(body));
+
+        assertThat(fingerprint, is(equalTo(ContentFingerprint.of(objectMapper.readTree(body)))));
+    }
+
+    @Test
+    void shouldUseVersionOfConsumptionAttributesAsExternalVersionWhenPresent() {
+        var version = 42L;
+        var consumptionAttributes = new EventConsumptionAttributes(randomString(), SortableIdentifier.next(), version);
+        var body = randomJsonObject().put(IndexDocument.MODIFIED_DATE, "2022-04-08T06:38:46.517082Z");
+
+        var request = new IndexDocument(consumptionAttributes, body).toExternallyVersionedIndexRequest();
+
+        assertThat(request.versionType(), is(equalTo(VersionType.EXTERNAL_GTE)));
+        assertThat(request.version(), is(equalTo(version)));
+    }
+
+    @Test
+    void shouldUseModifiedDateInMicrosecondsAsExternalVersionWhenConsumptionAttributesHaveNoVersion() {
+        var body = randomJsonObject().put(IndexDocument.MODIFIED_DATE, "2022-04-08T06:38:46.517082Z");
+
+        var request = new IndexDocument(randomConsumptionAttributes(), body).toExternallyVersionedIndexRequest();
+
+        assertThat(request.versionType(), is(equalTo(VersionType.EXTERNAL_GTE)));
+        assertThat(request.version(), is(equalTo(1_649_399_926_517_082L)));
+    }
+
+    @Test
+    void shouldWriteWithoutVersionWhenDocumentHasNoVersionAndNoModifiedDate() {
+        var body = randomJsonObject();
+        body.remove(IndexDocument.MODIFIED_DATE);
+
+        var request = new IndexDocument(randomConsumptionAttributes(), body).toExternallyVersionedIndexRequest();
+
+        assertThat(request.version(), is(equalTo(Versions.MATCH_ANY)));
+    }
+
     @Test
     void shouldReturnDocumentIdentifierOfContainedObjectWhenEventConsumptionAttributesContainIdentifier() {
         var indexDocument = new IndexDocument(randomConsumptionAttributes(), randomJsonObject());
@@ -24,7 +24,6 @@ import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.attempt.Try;
 import nva.commons.core.exceptions.ExceptionUtils;
-import nva.commons.core.paths.UriWrapper;
 import org.elasticsearch.action.search.SearchResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,8 +31,6 @@ import org.slf4j.LoggerFactory;
 public class SearchAllHandler extends ApiGatewayHandler<Void, SearchResourcesResponse> {
     
     public static final String VIEWING_SCOPE_QUERY_PARAMETER = "viewingScope";
-    public static final String CRISTIN_ORG_LEVEL_DELIMITER = "\\.";
-    public static final int HIGHEST_LEVEL_ORGANIZATION = 0;
     public static final String EXPECTED_ACCESS_RIGHT_FOR_VIEWING_MESSAGES_AND_DOI_REQUESTS = "APPROVE_DOI_REQUEST";
     public static final String RESULTS_QUERY_PARAM = "results";
     public static final String PAGE_QUERY_PARAM = "page";
@@ -172,7 +169,6 @@ public class SearchAllHandler extends ApiGatewayHandler<Void, SearchResourcesRes
     }
     
     private String extractInstitutionNumberFromRequestedOrganization(URI requestedOrg) {
-        String requestedOrgCristinIdentifier = UriWrapper.fromUri(requestedOrg).getLastPathElement();
-        return requestedOrgCristinIdentifier.split(CRISTIN_ORG_LEVEL_DELIMITER)[HIGHEST_LEVEL_ORGANIZATION];
+        return InstitutionRouting.institutionNumber(requestedOrg);
     }
 }
@@ -21,14 +21,11 @@ import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.attempt.Try;
 import nva.commons.core.paths.UnixPath;
-import nva.commons.core.paths.UriWrapper;
 import org.elasticsearch.action.search.SearchResponse;
 
 public class SearchHandler extends ApiGatewayHandler<Void, SearchResourcesResponse> {
 
     public static final String VIEWING_SCOPE_QUERY_PARAMETER = "viewingScope";
-    public static final String CRISTIN_ORG_LEVEL_DELIMITER = "\\.";
-    public static final int HIGHEST_LEVEL_ORGANIZATION = 0;
     public static final String EXPECTED_ACCESS_RIGHT_FOR_VIEWING_MESSAGES_AND_DOI_REQUESTS = "APPROVE_DOI_REQUEST";
     public static final int DEFAULT_PAGE_SIZE = 100;
     public static final int DEFAULT_RESULTS_INDEX = 0;
@@ -134,8 +131,7 @@ public class SearchHandler extends ApiGatewayHandler<Void, SearchResourcesRespon
     }
 
     private String extractInstitutionNumberFromRequestedOrganization(URI requestedOrg) {
-        String requestedOrgCristinIdentifier = UriWrapper.fromUri(requestedOrg).getLastPathElement();
-        return requestedOrgCristinIdentifier.split(CRISTIN_ORG_LEVEL_DELIMITER)[HIGHEST_LEVEL_ORGANIZATION];
+        return InstitutionRouting.institutionNumber(requestedOrg);
     }
 
     private String getIndexName(RequestInfo requestInfo) {
@@ -18,6 +18,7 @@ import org.elasticsearch.action.DocWriteRequest.OpType;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 
 /**
  * Faking the Indexing Client instead of the ElasticSearch client because faking the ElasticSearch client is difficult.
@@ -49,7 +50,12 @@ public class FakeIndexingClient extends IndexingClient {
     }
 
     @Override
-    public Stream<BulkResponse> batchInsert(Stream<IndexDocument> indexDocuments) {
+    public void removeDocumentFromIndex(String identifier, long version) {
+        removeDocumentFromIndex(identifier);
+    }
+
+    @Override
+    public Stream<BulkResponse> batchInsert(Stream<IndexDocument> indexDocuments, RefreshPolicy refreshPolicy) {
         var collectedDocuments = indexDocuments.collect(Collectors.toList());
         for (IndexDocument collectedDocument : collectedDocuments) {
             attempt(() -> addDocumentToIndex(collectedDocument)).orElseThrow();